@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.debug;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Custom Flight Recorder events. This class is in a separate
+ * source set (built only with the "jfr" Maven profile) so that the
+ * main sources compile on every Java 8 JDK. {@link Metrics} loads
+ * it reflectively if it is present and the JVM supports JFR.
+ */
+final class JFREvents implements EventSink {
+    private static final String CATEGORY = "Pixelitor";
+
+    JFREvents() {
+    }
+
+    @Override
+    public void filterRun(String filterName, int width, int height,
+                          int threads, long nanos, long allocatedBytes) {
+        FilterRunEvent event = new FilterRunEvent();
+        if (event.isEnabled()) {
+            event.filterName = filterName;
+            event.width = width;
+            event.height = height;
+            event.threads = threads;
+            event.runTime = nanos;
+            event.allocated = allocatedBytes;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void compositeRebuilt(int numLayers, int width, int height, long nanos) {
+        CompositeRebuildEvent event = new CompositeRebuildEvent();
+        if (event.isEnabled()) {
+            event.numLayers = numLayers;
+            event.width = width;
+            event.height = height;
+            event.rebuildTime = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void repainted(long nanos) {
+        RepaintEvent event = new RepaintEvent();
+        if (event.isEnabled()) {
+            event.paintTime = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void editAdded(String editName, long memoryBytes) {
+        HistoryEditEvent event = new HistoryEditEvent();
+        if (event.isEnabled()) {
+            event.editName = editName;
+            event.memory = memoryBytes;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void fileIO(String operation, String fileName, long bytes, long nanos) {
+        FileIOEvent event = new FileIOEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.fileName = fileName;
+            event.bytes = bytes;
+            event.ioTime = nanos;
+            event.commit();
+        }
+    }
+
+    @Name("pixelitor.FilterRun")
+    @Label("Filter Run")
+    @Category(CATEGORY)
+    static class FilterRunEvent extends Event {
+        @Label("Filter")
+        String filterName;
+
+        @Label("Width")
+        int width;
+
+        @Label("Height")
+        int height;
+
+        @Label("Threads")
+        int threads;
+
+        @Label("Run Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long runTime;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+
+    @Name("pixelitor.CompositeRebuild")
+    @Label("Composite Rebuild")
+    @Category(CATEGORY)
+    static class CompositeRebuildEvent extends Event {
+        @Label("Layers")
+        int numLayers;
+
+        @Label("Width")
+        int width;
+
+        @Label("Height")
+        int height;
+
+        @Label("Rebuild Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long rebuildTime;
+    }
+
+    @Name("pixelitor.Repaint")
+    @Label("Image Repaint")
+    @Category(CATEGORY)
+    static class RepaintEvent extends Event {
+        @Label("Paint Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long paintTime;
+    }
+
+    @Name("pixelitor.HistoryEdit")
+    @Label("History Edit")
+    @Category(CATEGORY)
+    static class HistoryEditEvent extends Event {
+        @Label("Edit")
+        String editName;
+
+        @Label("Memory")
+        @DataAmount
+        long memory;
+    }
+
+    @Name("pixelitor.FileIO")
+    @Label("File I/O")
+    @Category(CATEGORY)
+    static class FileIOEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("File")
+        String fileName;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+        @Label("I/O Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long ioTime;
+    }
+}
@@ -20,6 +20,7 @@ import net.jafama.FastMath;
 
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 /**
  * A Filter which produces the effect of looking into a kaleidoscope.
@@ -217,6 +218,11 @@ public class KaleidoscopeFilter extends TransformFilter {
         out[1] = (float)(icentreY + zoomedR*FastMath.sin(theta));
     }
 
+    @Override
+    protected Object getGeometryKey() {
+        return Arrays.asList(icentreX, icentreY, angle, angle2, sides, radius, zoom);
+    }
+
 	public String toString() {
 		return "Distort/Kaleidoscope...";
 	}
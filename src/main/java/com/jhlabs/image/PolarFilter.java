@@ -19,6 +19,7 @@ package com.jhlabs.image;
 import net.jafama.FastMath;
 
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 /**
  * A filter which distorts and image by performing coordinate conversions between rectangular and polar coordinates.
@@ -95,6 +96,11 @@ public class PolarFilter extends TransformFilter {
         return x * x;
     }
 
+    @Override
+    protected Object getGeometryKey() {
+        return Arrays.asList(type, zoom, angle, width, height, centreX, centreY, radius);
+    }
+
     @Override
     protected void transformInverse(int x, int y, float[] out) {
         float theta, t;
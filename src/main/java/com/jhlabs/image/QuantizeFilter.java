@@ -16,7 +16,18 @@ limitations under the License.
 
 package com.jhlabs.image;
 
+import pixelitor.ThreadPool;
+import pixelitor.utils.ProgressTracker;
+
 import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * A filter which quantizes an image to a set number of colors - useful for producing
@@ -26,6 +37,9 @@ import java.awt.Rectangle;
  * methods such as median cut. Note: at present, the filter produces an image which
  * uses the RGB color model (because the application it was written for required it).
  * I hope to extend it to produce an IndexColorModel by request.
+ * <p>
+ * Pixelitor: the palette is calculated with {@link WuQuantizer}, the pixels are mapped
+ * and dithered on all threads, and createIndexedImage returns an IndexColorModel image.
  */
 public class QuantizeFilter extends WholeImageFilter {
 
@@ -37,7 +51,13 @@ public class QuantizeFilter extends WholeImageFilter {
             0, 0, 7,
             3, 5, 1,
     };
-    private int sum = 3 + 5 + 7 + 1;
+    private static final int SUM = 3 + 5 + 7 + 1;
+
+    private static final int MIN_PIXELS_FOR_THREADS = 100_000;
+
+    // the number of pixels after which the wavefront dithering
+    // threads publish their progress
+    private static final int WAVEFRONT_CHUNK = 64;
 
     private boolean dither;
     private int numColors = 256;
@@ -102,13 +122,11 @@ public class QuantizeFilter extends WholeImageFilter {
     }
 
     public void quantize(int[] inPixels, int[] outPixels, int width, int height, int numColors, boolean dither, boolean serpentine) {
-        int count = width * height;
-
         // With dither it takes about 2.5 times longer.
         // For dithering we count "height" work units,
         // therefore we need height/2.5 for the other
         // computation-intensive task (addPixels)
-        int units = (int) (height / 2.5);
+        int units = (int) (height / 2.5) + 1;
         int workUnits;
         if(dither) {
             workUnits = units + height;
@@ -117,80 +135,168 @@ public class QuantizeFilter extends WholeImageFilter {
         }
         pt = createProgressTracker(workUnits);
 
-        Quantizer quantizer = new OctTreeQuantizer();
+        byte[] indices = new byte[width * height];
+        int[] table = quantizeToIndices(inPixels, indices, width, height, numColors, dither, serpentine);
+
+        // the alpha is kept from the source pixels
+        ThreadPool.parallelFor(indices.length, MIN_PIXELS_FOR_THREADS, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                outPixels[i] = (inPixels[i] & 0xFF_00_00_00) | (table[indices[i] & 0xFF] & 0x00_FF_FF_FF);
+            }
+        });
+        if (!dither) {
+            pt.unitDone();
+        }
+
+        finishProgressTracker();
+    }
+
+    /**
+     * Returns an indexed image with the current settings, for example for exporting.
+     * The transparency of the source image is ignored.
+     */
+    public BufferedImage createIndexedImage(BufferedImage src) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        int[] inPixels = getRGB(src, 0, 0, width, height, null);
+        byte[] indices = new byte[width * height];
+
+        pt = ProgressTracker.NULL_TRACKER;
+        int[] table = quantizeToIndices(inPixels, indices, width, height, numColors, dither, serpentine);
+
+        IndexColorModel cm = new IndexColorModel(8, table.length, table, 0, false, -1, DataBuffer.TYPE_BYTE);
+        WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(indices, indices.length),
+                width, height, width, 1, new int[]{0}, null);
+        return new BufferedImage(cm, raster, false, null);
+    }
+
+    /**
+     * Calculates the palette and the palette index of each pixel. If dithering
+     * is used, the quantization error is diffused into the given pixels.
+     */
+    private int[] quantizeToIndices(int[] inPixels, byte[] indices, int width, int height,
+                                    int numColors, boolean dither, boolean serpentine) {
+        int count = width * height;
+
+        Quantizer quantizer = new WuQuantizer();
         quantizer.setup(numColors);
         quantizer.addPixels(inPixels, 0, count, pt, width);
         int[] table = quantizer.buildColorTable();
 
         if (!dither) {
-            for (int i = 0; i < count; i++) {
-                outPixels[i] = table[quantizer.getIndexForColor(inPixels[i])];
-            }
-            pt.unitDone(); // this computation is relatively fast
-        } else {
-            int index = 0;
+            ThreadPool.parallelFor(count, MIN_PIXELS_FOR_THREADS, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    indices[i] = (byte) quantizer.getIndexForColor(inPixels[i]);
+                }
+            });
+        } else if (serpentine || height < 2) {
+            // a reversed row can only start when the row above it is
+            // completely finished, so this can't be done in parallel
             for (int y = 0; y < height; y++) {
                 boolean reverse = serpentine && (y & 1) == 1;
-                int direction;
-                if (reverse) {
-                    index = y * width + width - 1;
-                    direction = -1;
-                } else {
-                    index = y * width;
-                    direction = 1;
+                diffuseErrors(inPixels, indices, width, height, quantizer, table,
+                        y, 0, width, reverse);
+                pt.unitDone();
+            }
+        } else {
+            diffuseErrorsInParallel(inPixels, indices, width, height, quantizer, table);
+        }
+        return table;
+    }
+
+    /**
+     * Floyd-Steinberg dithering as a wavefront: a row can process a pixel
+     * when the row above it is finished two pixels further to the right,
+     * because then all the errors that reach that pixel have been added.
+     * The result is the same as with the sequential processing.
+     */
+    private void diffuseErrorsInParallel(int[] inPixels, byte[] indices, int width, int height,
+                                         Quantizer quantizer, int[] table) {
+        // the number of finished pixels in each row
+        AtomicIntegerArray progress = new AtomicIntegerArray(height);
+        // the rows are taken in order, so that a thread only waits for
+        // rows that are already processed by other running threads
+        AtomicInteger nextRow = new AtomicInteger();
+        ProgressTracker tracker = pt;
+
+        ThreadPool.parallelFor(ThreadPool.getNumThreads(), 1, (start, end) -> {
+            int y;
+            while ((y = nextRow.getAndIncrement()) < height) {
+                for (int x = 0; x < width; x += WAVEFRONT_CHUNK) {
+                    int chunkEnd = Math.min(width, x + WAVEFRONT_CHUNK);
+                    if (y > 0) {
+                        int needed = Math.min(width, chunkEnd + 2);
+                        while (progress.get(y - 1) < needed) {
+                            Thread.yield();
+                        }
+                    }
+                    diffuseErrors(inPixels, indices, width, height, quantizer, table,
+                            y, x, chunkEnd, false);
+                    progress.set(y, chunkEnd);
+                }
+                synchronized (tracker) {
+                    tracker.unitDone();
                 }
-                for (int x = 0; x < width; x++) {
-                    int rgb1 = inPixels[index];
-                    int rgb2 = table[quantizer.getIndexForColor(rgb1)];
-
-                    outPixels[index] = rgb2;
-
-                    int r1 = (rgb1 >> 16) & 0xff;
-                    int g1 = (rgb1 >> 8) & 0xff;
-                    int b1 = rgb1 & 0xff;
-
-                    int r2 = (rgb2 >> 16) & 0xff;
-                    int g2 = (rgb2 >> 8) & 0xff;
-                    int b2 = rgb2 & 0xff;
-
-                    int er = r1 - r2;
-                    int eg = g1 - g2;
-                    int eb = b1 - b2;
-
-                    for (int i = -1; i <= 1; i++) {
-                        int iy = i + y;
-                        if (0 <= iy && iy < height) {
-                            for (int j = -1; j <= 1; j++) {
-                                int jx = j + x;
-                                if (0 <= jx && jx < width) {
-                                    int w;
-                                    if (reverse) {
-                                        w = matrix[(i + 1) * 3 - j + 1];
-                                    } else {
-                                        w = matrix[(i + 1) * 3 + j + 1];
-                                    }
-                                    if (w != 0) {
-                                        int k = reverse ? index - j : index + j;
-                                        rgb1 = inPixels[k];
-                                        r1 = (rgb1 >> 16) & 0xff;
-                                        g1 = (rgb1 >> 8) & 0xff;
-                                        b1 = rgb1 & 0xff;
-                                        r1 += er * w / sum;
-                                        g1 += eg * w / sum;
-                                        b1 += eb * w / sum;
-                                        inPixels[k] = (PixelUtils.clamp(r1) << 16) | (PixelUtils.clamp(g1) << 8) | PixelUtils.clamp(b1);
-                                    }
-                                }
+            }
+        });
+    }
+
+    /**
+     * Quantizes the pixels of the given row between the given processing
+     * positions, and diffuses the errors into the unprocessed neighbors.
+     */
+    private static void diffuseErrors(int[] inPixels, byte[] indices, int width, int height,
+                                      Quantizer quantizer, int[] table,
+                                      int y, int from, int to, boolean reverse) {
+        for (int pos = from; pos < to; pos++) {
+            int x = reverse ? width - 1 - pos : pos;
+            int index = y * width + x;
+
+            int rgb1 = inPixels[index];
+            int tableIndex = quantizer.getIndexForColor(rgb1);
+            int rgb2 = table[tableIndex];
+            indices[index] = (byte) tableIndex;
+
+            int r1 = (rgb1 >> 16) & 0xff;
+            int g1 = (rgb1 >> 8) & 0xff;
+            int b1 = rgb1 & 0xff;
+
+            int r2 = (rgb2 >> 16) & 0xff;
+            int g2 = (rgb2 >> 8) & 0xff;
+            int b2 = rgb2 & 0xff;
+
+            int er = r1 - r2;
+            int eg = g1 - g2;
+            int eb = b1 - b2;
+
+            for (int i = -1; i <= 1; i++) {
+                int iy = i + y;
+                if (0 <= iy && iy < height) {
+                    for (int j = -1; j <= 1; j++) {
+                        int jx = j + x;
+                        if (0 <= jx && jx < width) {
+                            int w;
+                            if (reverse) {
+                                w = matrix[(i + 1) * 3 - j + 1];
+                            } else {
+                                w = matrix[(i + 1) * 3 + j + 1];
+                            }
+                            if (w != 0) {
+                                int k = iy * width + jx;
+                                rgb1 = inPixels[k];
+                                r1 = (rgb1 >> 16) & 0xff;
+                                g1 = (rgb1 >> 8) & 0xff;
+                                b1 = rgb1 & 0xff;
+                                r1 += er * w / SUM;
+                                g1 += eg * w / SUM;
+                                b1 += eb * w / SUM;
+                                inPixels[k] = (rgb1 & 0xFF_00_00_00) | (PixelUtils.clamp(r1) << 16) | (PixelUtils.clamp(g1) << 8) | PixelUtils.clamp(b1);
                             }
                         }
                     }
-                    index += direction;
                 }
-                pt.unitDone();
             }
         }
-
-        finishProgressTracker();
     }
 
     @Override
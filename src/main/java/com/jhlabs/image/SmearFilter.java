@@ -17,6 +17,7 @@ limitations under the License.
 package com.jhlabs.image;
 
 import pixelitor.ThreadPool;
+import pixelitor.utils.RandomStream;
 
 import java.awt.Rectangle;
 import java.util.ArrayList;
@@ -176,11 +177,16 @@ public class SmearFilter extends WholeImageFilter {
         int estimatedWorkUnits = numShapes / stride;
         pt = createProgressTracker(estimatedWorkUnits);
 
+        // each task has its own random stream, because a
+        // shared generator would be used in a random order
+        long seed = randomGenerator.nextLong();
+
         List<Future<?>> futures = new ArrayList<>(estimatedWorkUnits + 1);
         for (int i = 0; i < numShapes; i = i + stride) {
+            Random rand = new RandomStream(seed, i);
             Runnable r = () -> {
                 for (int j = 0; j < stride; j++) {
-                    renderOneLine(width, height, inPixels, outPixels, sin, cos);
+                    renderOneLine(width, height, inPixels, outPixels, sin, cos, rand);
                 }
             };
             futures.add(ThreadPool.submit(r));
@@ -188,11 +194,11 @@ public class SmearFilter extends WholeImageFilter {
         ThreadPool.waitForFutures(futures, pt);
     }
 
-    private void renderOneLine(int width, int height, int[] inPixels, int[] outPixels, float sin, float cos) {
-        int sx = (randomGenerator.nextInt() & 0x7fffffff) % width;
-        int sy = (randomGenerator.nextInt() & 0x7fffffff) % height;
+    private void renderOneLine(int width, int height, int[] inPixels, int[] outPixels, float sin, float cos, Random rand) {
+        int sx = (rand.nextInt() & 0x7fffffff) % width;
+        int sy = (rand.nextInt() & 0x7fffffff) % height;
         int rgb = inPixels[sy * width + sx];
-        int length = (randomGenerator.nextInt() & 0x7fffffff) % distance;
+        int length = (rand.nextInt() & 0x7fffffff) % distance;
         int dx = (int) (length * cos);
         int dy = (int) (length * sin);
 
@@ -271,19 +277,29 @@ public class SmearFilter extends WholeImageFilter {
 
         int numShapes = (int) (2 * density * width * height / radius);
 
-        pt = createProgressTracker(numShapes);
-        Future<?>[] futures = new Future[numShapes];
+        int stride = numShapes / 100 + 1;
+        int estimatedWorkUnits = numShapes / stride;
+        pt = createProgressTracker(estimatedWorkUnits);
 
-        for (int i = 0; i < numShapes; i++) {
-            Runnable r = () -> renderOneShape(width, height, inPixels, outPixels, radius, radius2);
-            futures[i] = ThreadPool.submit(r);
+        long seed = randomGenerator.nextLong();
+
+        List<Future<?>> futures = new ArrayList<>(estimatedWorkUnits + 1);
+        for (int i = 0; i < numShapes; i = i + stride) {
+            Random rand = new RandomStream(seed, i);
+            int numInTask = Math.min(stride, numShapes - i);
+            Runnable r = () -> {
+                for (int j = 0; j < numInTask; j++) {
+                    renderOneShape(width, height, inPixels, outPixels, radius, radius2, rand);
+                }
+            };
+            futures.add(ThreadPool.submit(r));
         }
         ThreadPool.waitForFutures(futures, pt);
     }
 
-    private void renderOneShape(int width, int height, int[] inPixels, int[] outPixels, int radius, int radius2) {
-        int sx = (randomGenerator.nextInt() & 0x7fffffff) % width;
-        int sy = (randomGenerator.nextInt() & 0x7fffffff) % height;
+    private void renderOneShape(int width, int height, int[] inPixels, int[] outPixels, int radius, int radius2, Random rand) {
+        int sx = (rand.nextInt() & 0x7fffffff) % width;
+        int sy = (rand.nextInt() & 0x7fffffff) % height;
         int rgb = inPixels[sy * width + sx];
         int minSx = sx - radius;
         int maxSx = sx + radius + 1;
@@ -22,6 +22,11 @@ import pixelitor.ThreadPool;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 
@@ -92,6 +97,9 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
      */
 //    protected Rectangle originalSpace;
 
+    // larger displacement maps are not cached, because they would use too much memory
+    private static final long MAX_CACHED_MAP_PIXELS = 16_000_000L;
+
     protected TransformFilter(String filterName) {
         super(filterName);
     }
@@ -145,6 +153,34 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
      */
     protected abstract void transformInverse(int x, int y, float[] out);
 
+    /**
+     * Inverse transform a whole row of pixels. The default implementation calls
+     * transformInverse for each pixel, but subclasses can override it in order
+     * to calculate the row-invariant values only once.
+     *
+     * @param y    the Y position of the row in the output image
+     * @param outX receives the X positions in the input image
+     * @param outY receives the Y positions in the input image
+     */
+    protected void transformInverseRow(int y, float[] outX, float[] outY) {
+        float[] out = new float[2];
+        for (int x = 0; x < outX.length; x++) {
+            transformInverse(x, y, out);
+            outX[x] = out[0];
+            outY[x] = out[1];
+        }
+    }
+
+    /**
+     * Returns an object (with proper equals/hashCode) describing everything
+     * the inverse transformation depends on, except for the image size.
+     * If it is not null, then the calculated displacement map is cached,
+     * and reused when the geometry and the image size are the same.
+     */
+    protected Object getGeometryKey() {
+        return null;
+    }
+
     /**
      * Forward transform a rectangle. Used to determine the size of the output image.
      *
@@ -175,10 +211,8 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
 
         int[] inPixels = getRGB(src, 0, 0, srcWidth, srcHeight, null);
 
-        if (interpolation == BILINEAR) {
-            return filterPixelsBilinear(dst, srcWidth, srcHeight, inPixels);
-        } else if (interpolation == NEAREST_NEIGHBOUR) {
-            return filterPixelsNN(dst, srcWidth, srcHeight, inPixels);
+        if (interpolation == BILINEAR || interpolation == NEAREST_NEIGHBOUR) {
+            return filterPixelsByRows(dst, srcWidth, srcHeight, inPixels);
         } else if (interpolation == BILINEAR_OLD) {
             return filterPixelsBilinearOLD(dst, srcWidth, srcHeight, inPixels);
         } else if (interpolation == NEAREST_NEIGHBOUR_OLD) {
@@ -249,39 +283,44 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
                 srcX = (int) out[0];
                 srcY = (int) out[1];
                 // int casting rounds towards zero, so we check out[0] < 0, not srcX < 0
-                outPixels[x] = getPixelNN(inPixels, srcWidth, srcHeight, srcX, srcY, out);
+                outPixels[x] = getPixelNN(inPixels, srcWidth, srcHeight, srcX, srcY, out[0], out[1]);
             }
             setRGB(dst, 0, y, width, 1, outPixels);
         }
         return dst;
     }
 
-    protected BufferedImage filterPixelsNN(BufferedImage dst, int width, int height, int[] inPixels) {
-        int srcWidth = width;
-        int srcHeight = height;
-        int outWidth = width;
-        int outHeight = height;
+    private BufferedImage filterPixelsByRows(BufferedImage dst, int width, int height, int[] inPixels) {
+        DisplacementMap map = getCachedDisplacementMap(width, height);
+        boolean bilinear = interpolation == BILINEAR;
 
-        pt = createProgressTracker(outHeight);
-        Future<int[]>[] resultLines = new Future[outHeight];
+        pt = createProgressTracker(height);
+        Future<int[]>[] resultLines = new Future[height];
 
-        for (int y = 0; y < outHeight; y++) {
-            float[] out = new float[2];
+        for (int y = 0; y < height; y++) {
             int finalY = y;
             Callable<int[]> calculateLineTask = () -> {
-                int srcX, srcY;
-                int[] outPixels = new int[outWidth];
-
-                for (int x = 0; x < outWidth; x++) {
-                    transformInverse(x, finalY, out);
-                    srcX = (int) out[0];
-                    srcY = (int) out[1];
-                    // int casting rounds towards zero, so we check out[0] < 0, not srcX < 0
-                    outPixels[x] = getPixelNN(inPixels, srcWidth, srcHeight, srcX, srcY, out);
+                float[] xs;
+                float[] ys;
+                int offset;
+                if (map != null) {
+                    xs = map.xs;
+                    ys = map.ys;
+                    offset = finalY * width;
+                } else {
+                    xs = new float[width];
+                    ys = new float[width];
+                    offset = 0;
+                    transformInverseRow(finalY, xs, ys);
                 }
 
+                int[] outPixels = new int[width];
+                if (bilinear) {
+                    resampleRowBilinear(inPixels, width, height, xs, ys, offset, outPixels);
+                } else {
+                    resampleRowNN(inPixels, width, height, xs, ys, offset, outPixels);
+                }
                 return outPixels;
-
             };
             resultLines[finalY] = ThreadPool.submit2(calculateLineTask);
         }
@@ -291,57 +330,115 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
         return dst;
     }
 
-    private BufferedImage filterPixelsBilinear(BufferedImage dst, int width, int height, int[] inPixels) {
-        int srcWidth = width;
-        int srcHeight = height;
-        int srcWidth1 = width - 1;
-        int srcHeight1 = height - 1;
-        int outWidth = width;
-        int outHeight = height;
-//        int outX, outY;
-//		int index = 0;
+    private void resampleRowNN(int[] inPixels, int srcWidth, int srcHeight,
+                               float[] xs, float[] ys, int offset, int[] outPixels) {
+        int width = outPixels.length;
+        for (int x = 0; x < width; x++) {
+            float fx = xs[offset + x];
+            float fy = ys[offset + x];
+            // int casting rounds towards zero, so we check fx < 0, not srcX < 0
+            int srcX = (int) fx;
+            int srcY = (int) fy;
+            if (fx >= 0 && srcX < srcWidth && fy >= 0 && srcY < srcHeight) {
+                outPixels[x] = inPixels[srcWidth * srcY + srcX];
+            } else {
+                outPixels[x] = getPixelNN(inPixels, srcWidth, srcHeight, srcX, srcY, fx, fy);
+            }
+        }
+    }
 
-        pt = createProgressTracker(outHeight);
-        Future<int[]>[] resultLines = new Future[outHeight];
+    private void resampleRowBilinear(int[] inPixels, int srcWidth, int srcHeight,
+                                     float[] xs, float[] ys, int offset, int[] outPixels) {
+        int srcWidth1 = srcWidth - 1;
+        int srcHeight1 = srcHeight - 1;
+        int width = outPixels.length;
+        for (int x = 0; x < width; x++) {
+            float fx = xs[offset + x];
+            float fy = ys[offset + x];
+            int srcX = (int) FastMath.floor(fx);
+            int srcY = (int) FastMath.floor(fy);
+            float xWeight = fx - srcX;
+            float yWeight = fy - srcY;
+            int nw, ne, sw, se;
+
+            if ((srcX >= 0) && (srcX < srcWidth1) && (srcY >= 0) && (srcY < srcHeight1)) {
+                // Easy case, all corners are in the image
+                int i = (srcWidth * srcY) + srcX;
+                nw = inPixels[i];
+                ne = inPixels[i + 1];
+                sw = inPixels[i + srcWidth];
+                se = inPixels[i + srcWidth + 1];
+            } else {
+                // Some of the corners are off the image
+                nw = getPixelBL(inPixels, srcX, srcY, srcWidth, srcHeight);
+                ne = getPixelBL(inPixels, srcX + 1, srcY, srcWidth, srcHeight);
+                sw = getPixelBL(inPixels, srcX, srcY + 1, srcWidth, srcHeight);
+                se = getPixelBL(inPixels, srcX + 1, srcY + 1, srcWidth, srcHeight);
+            }
+            outPixels[x] = ImageMath.bilinearInterpolate(xWeight, yWeight, nw, ne, sw, se);
+        }
+    }
 
-        for (int y = 0; y < outHeight; y++) {
-            float[] out = new float[2];
-            int finalY = y;
-            Callable<int[]> calculateLineTask = () -> {
-                int[] outPixels = new int[outWidth];
-                for (int x = 0; x < outWidth; x++) {
-                    transformInverse(x, finalY, out);
-                    int srcX = (int) FastMath.floor(out[0]);
-                    int srcY = (int) FastMath.floor(out[1]);
-                    float xWeight = out[0] - srcX;
-                    float yWeight = out[1] - srcY;
-                    int nw, ne, sw, se;
-
-                    if ((srcX >= 0) && (srcX < srcWidth1) && (srcY >= 0) && (srcY < srcHeight1)) {
-                        // Easy case, all corners are in the image
-                        int i = (srcWidth * srcY) + srcX;
-                        nw = inPixels[i];
-                        ne = inPixels[i + 1];
-                        sw = inPixels[i + srcWidth];
-                        se = inPixels[i + srcWidth + 1];
-                    } else {
-                        // Some of the corners are off the image
-                        nw = getPixelBL(inPixels, srcX, srcY, srcWidth, srcHeight);
-                        ne = getPixelBL(inPixels, srcX + 1, srcY, srcWidth, srcHeight);
-                        sw = getPixelBL(inPixels, srcX, srcY + 1, srcWidth, srcHeight);
-                        se = getPixelBL(inPixels, srcX + 1, srcY + 1, srcWidth, srcHeight);
-                    }
-                    outPixels[x] = ImageMath.bilinearInterpolate(xWeight, yWeight, nw, ne, sw, se);
+    /**
+     * Returns the displacement map for the current geometry and size, calculating
+     * it if necessary, or null if the geometry of this filter can't be cached.
+     */
+    private DisplacementMap getCachedDisplacementMap(int width, int height) {
+        Object geometryKey = getGeometryKey();
+        if (geometryKey == null || (long) width * height > MAX_CACHED_MAP_PIXELS) {
+            return null;
+        }
+
+        List<Object> key = Arrays.asList(getClass(), geometryKey, width, height);
+        DisplacementMap map = DisplacementMap.get(key);
+        if (map == null) {
+            float[] xs = new float[width * height];
+            float[] ys = new float[width * height];
+            ThreadPool.parallelFor(height, 16, (start, end) -> {
+                float[] rowX = new float[width];
+                float[] rowY = new float[width];
+                for (int y = start; y < end; y++) {
+                    transformInverseRow(y, rowX, rowY);
+                    System.arraycopy(rowX, 0, xs, y * width, width);
+                    System.arraycopy(rowY, 0, ys, y * width, width);
                 }
-                return outPixels;
-            };
+            });
+            map = new DisplacementMap(xs, ys);
+            DisplacementMap.put(key, map);
+        }
+        return map;
+    }
 
-            resultLines[finalY] = ThreadPool.submit2(calculateLineTask);
+    /**
+     * The source coordinates for every pixel of the output image.
+     * The most recently used maps are kept, as long as there is enough memory.
+     */
+    private static class DisplacementMap {
+        private static final int MAX_CACHED_MAPS = 4;
+        private static final Map<List<Object>, SoftReference<DisplacementMap>> cache
+                = new LinkedHashMap<List<Object>, SoftReference<DisplacementMap>>(8, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, SoftReference<DisplacementMap>> eldest) {
+                return size() > MAX_CACHED_MAPS;
+            }
+        };
+
+        private final float[] xs;
+        private final float[] ys;
+
+        private DisplacementMap(float[] xs, float[] ys) {
+            this.xs = xs;
+            this.ys = ys;
         }
-        ThreadPool.waitForFutures2(resultLines, dst, width, pt);
-        finishProgressTracker();
 
-        return dst;
+        private static synchronized DisplacementMap get(List<Object> key) {
+            SoftReference<DisplacementMap> ref = cache.get(key);
+            return ref == null ? null : ref.get();
+        }
+
+        private static synchronized void put(List<Object> key, DisplacementMap map) {
+            cache.put(key, new SoftReference<>(map));
+        }
     }
 
     private int getPixelBL(int[] pixels, int x, int y, int width, int height) {
@@ -394,9 +491,9 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
         }
     }
 
-    private int getPixelNN(int[] inPixels, int srcWidth, int srcHeight, int srcX, int srcY, float[] out) {
-        if ((out[0] < 0) || (srcX >= srcWidth)) { // x out of range
-            if ((out[1] < 0) || (srcY >= srcHeight)) {  // y also out of range
+    private int getPixelNN(int[] inPixels, int srcWidth, int srcHeight, int srcX, int srcY, float outX, float outY) {
+        if ((outX < 0) || (srcX >= srcWidth)) { // x out of range
+            if ((outY < 0) || (srcY >= srcHeight)) {  // y also out of range
                 switch (edgeAction) {
                     case TRANSPARENT:
                     default:
@@ -426,7 +523,7 @@ public abstract class TransformFilter extends AbstractBufferedImageOp {
 
             }
         } else {  // x in range
-            if ((out[1] < 0) || (srcY >= srcHeight)) { // ... but y isn't
+            if ((outY < 0) || (srcY >= srcHeight)) { // ... but y isn't
                 switch (edgeAction) {
                     case TRANSPARENT:
                     default:
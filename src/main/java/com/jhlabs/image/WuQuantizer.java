@@ -0,0 +1,442 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jhlabs.image;
+
+import pixelitor.ThreadPool;
+import pixelitor.utils.ProgressTracker;
+
+/**
+ * A quantizer based on Xiaolin Wu's variance-minimizing cuts
+ * ("Efficient Statistical Computations for Optimal Color Quantization",
+ * Graphics Gems II). The color histogram and its moments are kept
+ * in flat arrays, and the colors are mapped to the palette through
+ * a cached inverse colormap, so getIndexForColor is a single lookup.
+ */
+public class WuQuantizer implements Quantizer {
+    // the histogram uses 5 bits per channel, with an extra zero
+    // row at index 0 in each dimension for the cumulative moments
+    private static final int BITS = 5;
+    private static final int SIDE = (1 << BITS) + 1;
+    private static final int TOTAL = SIDE * SIDE * SIDE;
+
+    private static final int RED = 2;
+    private static final int GREEN = 1;
+    private static final int BLUE = 0;
+
+    private static final int MIN_PIXELS_FOR_THREADS = 100_000;
+
+    private final long[] weights = new long[TOTAL];
+    private final long[] momentsR = new long[TOTAL];
+    private final long[] momentsG = new long[TOTAL];
+    private final long[] momentsB = new long[TOTAL];
+    private final double[] moments2 = new double[TOTAL];
+
+    private int numColors = 256;
+
+    // maps the 5-bit colors to palette indices
+    private byte[] inverseColormap;
+
+    @Override
+    public void setup(int numColors) {
+        this.numColors = Math.min(Math.max(numColors, 1), 256);
+    }
+
+    @Override
+    public void addPixels(int[] pixels, int offset, int count, ProgressTracker pt, int width) {
+        ThreadPool.parallelFor(count, MIN_PIXELS_FOR_THREADS, (start, end) -> {
+            long[] w = new long[TOTAL];
+            long[] r = new long[TOTAL];
+            long[] g = new long[TOTAL];
+            long[] b = new long[TOTAL];
+            double[] m2 = new double[TOTAL];
+            for (int i = start; i < end; i++) {
+                int rgb = pixels[offset + i];
+                int red = (rgb >> 16) & 0xFF;
+                int green = (rgb >> 8) & 0xFF;
+                int blue = rgb & 0xFF;
+                int index = index((red >> 3) + 1, (green >> 3) + 1, (blue >> 3) + 1);
+                w[index]++;
+                r[index] += red;
+                g[index] += green;
+                b[index] += blue;
+                m2[index] += red * red + green * green + blue * blue;
+            }
+            synchronized (weights) {
+                for (int i = 0; i < TOTAL; i++) {
+                    weights[i] += w[i];
+                    momentsR[i] += r[i];
+                    momentsG[i] += g[i];
+                    momentsB[i] += b[i];
+                    moments2[i] += m2[i];
+                }
+            }
+        });
+        pt.unitsDone((int) (count / (width * 2.5)) + 1);
+    }
+
+    @Override
+    public int[] buildColorTable() {
+        calcCumulativeMoments();
+
+        Box[] boxes = new Box[numColors];
+        double[] variances = new double[numColors];
+        boxes[0] = new Box();
+        boxes[0].r1 = SIDE - 1;
+        boxes[0].g1 = SIDE - 1;
+        boxes[0].b1 = SIDE - 1;
+
+        // always split the box with the largest variance
+        int numBoxes = 1;
+        int next = 0;
+        while (numBoxes < numColors) {
+            Box newBox = new Box();
+            if (cut(boxes[next], newBox)) {
+                boxes[numBoxes] = newBox;
+                variances[next] = boxes[next].volume() > 1 ? variance(boxes[next]) : 0.0;
+                variances[numBoxes] = newBox.volume() > 1 ? variance(newBox) : 0.0;
+                numBoxes++;
+            } else {
+                variances[next] = 0.0;
+            }
+
+            next = 0;
+            double maxVariance = variances[0];
+            for (int i = 1; i < numBoxes; i++) {
+                if (variances[i] > maxVariance) {
+                    maxVariance = variances[i];
+                    next = i;
+                }
+            }
+            if (maxVariance <= 0.0) {
+                break;
+            }
+        }
+
+        int[] table = new int[numBoxes];
+        for (int i = 0; i < numBoxes; i++) {
+            Box box = boxes[i];
+            long weight = volume(box, weights);
+            if (weight > 0) {
+                int r = (int) (volume(box, momentsR) / weight);
+                int g = (int) (volume(box, momentsG) / weight);
+                int b = (int) (volume(box, momentsB) / weight);
+                table[i] = 0xFF_00_00_00 | (r << 16) | (g << 8) | b;
+            } else {
+                table[i] = 0xFF_00_00_00;
+            }
+        }
+
+        buildInverseColormap(table);
+        return table;
+    }
+
+    @Override
+    public int getIndexForColor(int rgb) {
+        int index = ((rgb >> 9) & 0x7C00) | ((rgb >> 6) & 0x03E0) | ((rgb >> 3) & 0x001F);
+        return inverseColormap[index] & 0xFF;
+    }
+
+    /**
+     * For each 5-bit color finds the palette color that is nearest to the center of its cell.
+     */
+    private void buildInverseColormap(int[] table) {
+        int numEntries = table.length;
+        int[] reds = new int[numEntries];
+        int[] greens = new int[numEntries];
+        int[] blues = new int[numEntries];
+        for (int i = 0; i < numEntries; i++) {
+            reds[i] = (table[i] >> 16) & 0xFF;
+            greens[i] = (table[i] >> 8) & 0xFF;
+            blues[i] = table[i] & 0xFF;
+        }
+
+        int cells = 1 << BITS;
+        inverseColormap = new byte[cells * cells * cells];
+        ThreadPool.parallelFor(cells, 2, (start, end) -> {
+            for (int r = start; r < end; r++) {
+                int red = (r << 3) + 4;
+                for (int g = 0; g < cells; g++) {
+                    int green = (g << 3) + 4;
+                    for (int b = 0; b < cells; b++) {
+                        int blue = (b << 3) + 4;
+                        int best = 0;
+                        int bestDist = Integer.MAX_VALUE;
+                        for (int i = 0; i < numEntries; i++) {
+                            int dr = red - reds[i];
+                            int dg = green - greens[i];
+                            int db = blue - blues[i];
+                            int dist = dr * dr + dg * dg + db * db;
+                            if (dist < bestDist) {
+                                bestDist = dist;
+                                best = i;
+                            }
+                        }
+                        inverseColormap[(r << 10) | (g << 5) | b] = (byte) best;
+                    }
+                }
+            }
+        });
+    }
+
+    private static int index(int r, int g, int b) {
+        return (r * SIDE + g) * SIDE + b;
+    }
+
+    /**
+     * Converts the histogram into cumulative moments, so that
+     * the moments of any box can be calculated from its corners.
+     */
+    private void calcCumulativeMoments() {
+        long[] area = new long[SIDE];
+        long[] areaR = new long[SIDE];
+        long[] areaG = new long[SIDE];
+        long[] areaB = new long[SIDE];
+        double[] area2 = new double[SIDE];
+
+        for (int r = 1; r < SIDE; r++) {
+            for (int i = 0; i < SIDE; i++) {
+                area[i] = 0;
+                areaR[i] = 0;
+                areaG[i] = 0;
+                areaB[i] = 0;
+                area2[i] = 0;
+            }
+            for (int g = 1; g < SIDE; g++) {
+                long line = 0;
+                long lineR = 0;
+                long lineG = 0;
+                long lineB = 0;
+                double line2 = 0;
+                for (int b = 1; b < SIDE; b++) {
+                    int index = index(r, g, b);
+                    line += weights[index];
+                    lineR += momentsR[index];
+                    lineG += momentsG[index];
+                    lineB += momentsB[index];
+                    line2 += moments2[index];
+
+                    area[b] += line;
+                    areaR[b] += lineR;
+                    areaG[b] += lineG;
+                    areaB[b] += lineB;
+                    area2[b] += line2;
+
+                    int prevIndex = index(r - 1, g, b);
+                    weights[index] = weights[prevIndex] + area[b];
+                    momentsR[index] = momentsR[prevIndex] + areaR[b];
+                    momentsG[index] = momentsG[prevIndex] + areaG[b];
+                    momentsB[index] = momentsB[prevIndex] + areaB[b];
+                    moments2[index] = moments2[prevIndex] + area2[b];
+                }
+            }
+        }
+    }
+
+    private static long volume(Box box, long[] m) {
+        return m[index(box.r1, box.g1, box.b1)]
+                - m[index(box.r1, box.g1, box.b0)]
+                - m[index(box.r1, box.g0, box.b1)]
+                + m[index(box.r1, box.g0, box.b0)]
+                - m[index(box.r0, box.g1, box.b1)]
+                + m[index(box.r0, box.g1, box.b0)]
+                + m[index(box.r0, box.g0, box.b1)]
+                - m[index(box.r0, box.g0, box.b0)];
+    }
+
+    private static double volume(Box box, double[] m) {
+        return m[index(box.r1, box.g1, box.b1)]
+                - m[index(box.r1, box.g1, box.b0)]
+                - m[index(box.r1, box.g0, box.b1)]
+                + m[index(box.r1, box.g0, box.b0)]
+                - m[index(box.r0, box.g1, box.b1)]
+                + m[index(box.r0, box.g1, box.b0)]
+                + m[index(box.r0, box.g0, box.b1)]
+                - m[index(box.r0, box.g0, box.b0)];
+    }
+
+    /**
+     * The part of the volume that doesn't depend on the cut position
+     */
+    private static long bottom(Box box, int dir, long[] m) {
+        switch (dir) {
+            case RED:
+                return -m[index(box.r0, box.g1, box.b1)]
+                        + m[index(box.r0, box.g1, box.b0)]
+                        + m[index(box.r0, box.g0, box.b1)]
+                        - m[index(box.r0, box.g0, box.b0)];
+            case GREEN:
+                return -m[index(box.r1, box.g0, box.b1)]
+                        + m[index(box.r1, box.g0, box.b0)]
+                        + m[index(box.r0, box.g0, box.b1)]
+                        - m[index(box.r0, box.g0, box.b0)];
+            case BLUE:
+                return -m[index(box.r1, box.g1, box.b0)]
+                        + m[index(box.r1, box.g0, box.b0)]
+                        + m[index(box.r0, box.g1, box.b0)]
+                        - m[index(box.r0, box.g0, box.b0)];
+            default:
+                throw new IllegalStateException("dir = " + dir);
+        }
+    }
+
+    /**
+     * The part of the volume that depends on the cut position
+     */
+    private static long top(Box box, int dir, int pos, long[] m) {
+        switch (dir) {
+            case RED:
+                return m[index(pos, box.g1, box.b1)]
+                        - m[index(pos, box.g1, box.b0)]
+                        - m[index(pos, box.g0, box.b1)]
+                        + m[index(pos, box.g0, box.b0)];
+            case GREEN:
+                return m[index(box.r1, pos, box.b1)]
+                        - m[index(box.r1, pos, box.b0)]
+                        - m[index(box.r0, pos, box.b1)]
+                        + m[index(box.r0, pos, box.b0)];
+            case BLUE:
+                return m[index(box.r1, box.g1, pos)]
+                        - m[index(box.r1, box.g0, pos)]
+                        - m[index(box.r0, box.g1, pos)]
+                        + m[index(box.r0, box.g0, pos)];
+            default:
+                throw new IllegalStateException("dir = " + dir);
+        }
+    }
+
+    private double variance(Box box) {
+        double dr = volume(box, momentsR);
+        double dg = volume(box, momentsG);
+        double db = volume(box, momentsB);
+        double xx = volume(box, moments2);
+        return xx - (dr * dr + dg * dg + db * db) / volume(box, weights);
+    }
+
+    /**
+     * Finds the cut position along the given direction that
+     * minimizes the sum of the variances of the two halves.
+     * Returns the position, or -1 if the box can't be cut.
+     */
+    private int maximize(Box box, int dir, int first, int last, double[] maxResult,
+                         long wholeR, long wholeG, long wholeB, long wholeW) {
+        long baseR = bottom(box, dir, momentsR);
+        long baseG = bottom(box, dir, momentsG);
+        long baseB = bottom(box, dir, momentsB);
+        long baseW = bottom(box, dir, weights);
+
+        double max = 0.0;
+        int cut = -1;
+        for (int i = first; i < last; i++) {
+            long halfR = baseR + top(box, dir, i, momentsR);
+            long halfG = baseG + top(box, dir, i, momentsG);
+            long halfB = baseB + top(box, dir, i, momentsB);
+            long halfW = baseW + top(box, dir, i, weights);
+            if (halfW == 0) {
+                continue; // the first half would be empty
+            }
+            double temp = ((double) halfR * halfR + (double) halfG * halfG
+                    + (double) halfB * halfB) / halfW;
+
+            halfR = wholeR - halfR;
+            halfG = wholeG - halfG;
+            halfB = wholeB - halfB;
+            halfW = wholeW - halfW;
+            if (halfW == 0) {
+                continue; // the second half would be empty
+            }
+            temp += ((double) halfR * halfR + (double) halfG * halfG
+                    + (double) halfB * halfB) / halfW;
+
+            if (temp > max) {
+                max = temp;
+                cut = i;
+            }
+        }
+        maxResult[0] = max;
+        return cut;
+    }
+
+    /**
+     * Cuts the first box in two, the second half is stored in the second box.
+     */
+    private boolean cut(Box box1, Box box2) {
+        long wholeR = volume(box1, momentsR);
+        long wholeG = volume(box1, momentsG);
+        long wholeB = volume(box1, momentsB);
+        long wholeW = volume(box1, weights);
+
+        double[] max = new double[1];
+        int cutR = maximize(box1, RED, box1.r0 + 1, box1.r1, max, wholeR, wholeG, wholeB, wholeW);
+        double maxR = max[0];
+        int cutG = maximize(box1, GREEN, box1.g0 + 1, box1.g1, max, wholeR, wholeG, wholeB, wholeW);
+        double maxG = max[0];
+        int cutB = maximize(box1, BLUE, box1.b0 + 1, box1.b1, max, wholeR, wholeG, wholeB, wholeW);
+        double maxB = max[0];
+
+        int dir;
+        if (maxR >= maxG && maxR >= maxB) {
+            dir = RED;
+            if (cutR < 0) {
+                return false; // can't split the box
+            }
+        } else if (maxG >= maxR && maxG >= maxB) {
+            dir = GREEN;
+        } else {
+            dir = BLUE;
+        }
+
+        box2.r1 = box1.r1;
+        box2.g1 = box1.g1;
+        box2.b1 = box1.b1;
+
+        switch (dir) {
+            case RED:
+                box2.r0 = box1.r1 = cutR;
+                box2.g0 = box1.g0;
+                box2.b0 = box1.b0;
+                break;
+            case GREEN:
+                box2.g0 = box1.g1 = cutG;
+                box2.r0 = box1.r0;
+                box2.b0 = box1.b0;
+                break;
+            case BLUE:
+                box2.b0 = box1.b1 = cutB;
+                box2.r0 = box1.r0;
+                box2.g0 = box1.g0;
+                break;
+            default:
+                throw new IllegalStateException("dir = " + dir);
+        }
+        return true;
+    }
+
+    /**
+     * A box in the color space. The lower bounds are exclusive,
+     * the upper bounds are inclusive.
+     */
+    private static class Box {
+        int r0, r1;
+        int g0, g1;
+        int b0, b1;
+
+        int volume() {
+            return (r1 - r0) * (g1 - g0) * (b1 - b0);
+        }
+    }
+}
@@ -22,6 +22,10 @@
 
 package org.jdesktop.swingx.painter.effects;
 
+import pixelitor.ThreadPool;
+import pixelitor.utils.DistanceTransform;
+import pixelitor.utils.ImageUtils;
+
 import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
@@ -31,10 +35,13 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
+import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 /**
  * The abstract base class for path effects. It takes care
@@ -90,51 +97,14 @@ public class AbstractAreaEffect implements AreaEffect {
 
         // Apply the border glow effect
         if (isShapeMasked()) {
-            BufferedImage clipImage = getClipImage(effectBounds);
-            Graphics2D g2 = clipImage.createGraphics();
-
-            // lbalazscs: moved here from getClipImage
-            // in order to avoid two createGraphics calls
-            g2.clearRect(0, 0, clipImage.getWidth(), clipImage.getHeight());
-
-            try {
-                // clear the buffer
-                g2.setPaint(Color.BLACK);
-                g2.setComposite(AlphaComposite.Clear);
-                g2.fillRect(0, 0, effectBounds.width, effectBounds.height);
-
-                if (debug) {
-                    g2.setPaint(Color.WHITE);
-                    g2.setComposite(AlphaComposite.SrcOver);
-                    g2.drawRect(0, 0, effectBounds.width - 1,
-                            effectBounds.height - 1);
-                }
-
-                // turn on smoothing
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                        RenderingHints.VALUE_ANTIALIAS_ON);
-                g2.translate(getEffectWidth() - getOffset().getX(),
-                        getEffectWidth() - getOffset().getY());
-                paintBorderGlow(g2, clipShape, width, height);
-
-                // clip out the parts we don't want
-                g2.setComposite(AlphaComposite.Clear);
-                g2.setColor(Color.WHITE);
-                if (isRenderInsideShape()) {
-                    // clip the outside
-                    Area area = new Area(effectBounds);
-                    area.subtract(new Area(clipShape));
-                    g2.fill(area);
-                } else {
-                    // clip the inside
-                    g2.fill(clipShape);
-                }
-            } finally {
-                // draw the final image
-                g2.dispose();
+            // lbalazscs: for the usual transforms the effect is calculated
+            // from the distance field of the shape instead of stroking it many times
+            AffineTransform at = g.getTransform();
+            if (isDistanceFieldSupported(at)) {
+                paintWithDistanceField(g, clipShape, at);
+            } else {
+                paintByStroking(g, clipShape, width, height, effectBounds);
             }
-
-            g.drawImage(clipImage, -getEffectWidth() + (int) getOffset().getX(), -getEffectWidth() + (int) getOffset().getY(), null);
         } else {
             g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             paintBorderGlow(g, clipShape, width, height);
@@ -147,6 +117,54 @@ public class AbstractAreaEffect implements AreaEffect {
         g.setComposite(savedComposite);
     }
 
+    private void paintByStroking(Graphics2D g, Shape clipShape, int width, int height, Rectangle effectBounds) {
+        BufferedImage clipImage = getClipImage(effectBounds);
+        Graphics2D g2 = clipImage.createGraphics();
+
+        // lbalazscs: moved here from getClipImage
+        // in order to avoid two createGraphics calls
+        g2.clearRect(0, 0, clipImage.getWidth(), clipImage.getHeight());
+
+        try {
+            // clear the buffer
+            g2.setPaint(Color.BLACK);
+            g2.setComposite(AlphaComposite.Clear);
+            g2.fillRect(0, 0, effectBounds.width, effectBounds.height);
+
+            if (debug) {
+                g2.setPaint(Color.WHITE);
+                g2.setComposite(AlphaComposite.SrcOver);
+                g2.drawRect(0, 0, effectBounds.width - 1,
+                        effectBounds.height - 1);
+            }
+
+            // turn on smoothing
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.translate(getEffectWidth() - getOffset().getX(),
+                    getEffectWidth() - getOffset().getY());
+            paintBorderGlow(g2, clipShape, width, height);
+
+            // clip out the parts we don't want
+            g2.setComposite(AlphaComposite.Clear);
+            g2.setColor(Color.WHITE);
+            if (isRenderInsideShape()) {
+                // clip the outside
+                Area area = new Area(effectBounds);
+                area.subtract(new Area(clipShape));
+                g2.fill(area);
+            } else {
+                // clip the inside
+                g2.fill(clipShape);
+            }
+        } finally {
+            // draw the final image
+            g2.dispose();
+        }
+
+        g.drawImage(clipImage, -getEffectWidth() + (int) getOffset().getX(), -getEffectWidth() + (int) getOffset().getY(), null);
+    }
+
     transient BufferedImage _clipImage = null;
 
     private BufferedImage getClipImage(final Rectangle effectBounds) {
@@ -161,6 +179,303 @@ public class AbstractAreaEffect implements AreaEffect {
         return _clipImage;
     }
 
+    // lbalazscs: distance field based rendering
+
+    private static final int LUT_STEPS_PER_PIXEL = 4;
+
+    // the result of the last distance field based rendering
+    private transient DistanceFieldResult lastResult;
+
+    /**
+     * The distance field can be used if the transform doesn't change
+     * the distances, which is true for translations and rotations.
+     */
+    private static boolean isDistanceFieldSupported(AffineTransform at) {
+        double sx = at.getScaleX();
+        double sy = at.getScaleY();
+        double shx = at.getShearX();
+        double shy = at.getShearY();
+        return Math.abs(sx * sx + shy * shy - 1) < 1.0e-6
+                && Math.abs(sx * shx + shy * sy) < 1.0e-6
+                && Math.abs(sx * sy - shx * shy - 1) < 1.0e-6;
+    }
+
+    private void paintWithDistanceField(Graphics2D g, Shape clipShape, AffineTransform at) {
+        Shape deviceShape = at.createTransformedShape(clipShape);
+        Point2D deviceOffset = at.deltaTransform(getOffset(), null);
+        boolean inside = isRenderInsideShape();
+        Color fillColor = isShouldFillShape() && !inside ? getBrushColor() : null;
+
+        DistanceFieldKey key = new DistanceFieldKey(deviceShape,
+                deviceOffset, inside, fillColor, createProfileLUT());
+        DistanceFieldResult result = lastResult;
+        if (result == null || !result.key.equals(key)) {
+            result = new DistanceFieldResult(key, deviceShape, getMaxReach());
+            lastResult = result;
+        }
+
+        if (result.image != null) {
+            g.setTransform(new AffineTransform());
+            g.drawImage(result.image, result.x, result.y, null);
+            g.setTransform(at);
+        }
+    }
+
+    /**
+     * Returns the maximal distance between the outline of the shape
+     * and the painted pixels of the effect.
+     */
+    protected double getMaxReach() {
+        return getEffectWidth() / 2.0;
+    }
+
+    /**
+     * Returns the non-premultiplied ARGB color that {@link #paintBorderGlow}
+     * produces at the given distance from the outline of the shape.
+     * Subclasses overriding paintBorderGlow should also override this.
+     */
+    protected int getProfileColor(double dist) {
+        int steps = getBrushSteps();
+        Color color = getBrushColor();
+        double brushAlpha = color.getAlpha() / 255.0 / steps;
+
+        // the strokes are drawn over each other with the same color
+        double transparency = 1.0;
+        for (int i = 0; i < steps; i++) {
+            double brushWidth = Math.max(1.0, i * (double) getEffectWidth() / steps);
+            transparency *= 1 - brushAlpha * strokeCoverage(brushWidth, dist);
+        }
+
+        int alpha = (int) Math.round(255 * (1 - transparency));
+        return (alpha << 24) | (color.getRGB() & 0x00FFFFFF);
+    }
+
+    /**
+     * The approximate coverage of an antialiased stroke
+     * with the given width at the given distance from its center line.
+     */
+    protected static double strokeCoverage(double brushWidth, double dist) {
+        double coverage = brushWidth / 2 - dist + 0.5;
+        if (coverage <= 0) {
+            return 0;
+        }
+        if (coverage >= 1) {
+            return 1;
+        }
+        return coverage;
+    }
+
+    private int[] createProfileLUT() {
+        int size = (int) Math.ceil((getMaxReach() + 1) * LUT_STEPS_PER_PIXEL) + 1;
+        int[] lut = new int[size];
+        for (int i = 0; i < size; i++) {
+            lut[i] = getProfileColor(i / (double) LUT_STEPS_PER_PIXEL);
+        }
+        return lut;
+    }
+
+    /**
+     * Rasterizes the antialiased coverage (0-255) of the
+     * shape within the given device space rectangle.
+     */
+    private static byte[] rasterizeCoverage(Shape shape, Rectangle r) {
+        BufferedImage mask = new BufferedImage(r.width, r.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = mask.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+        g.translate(-r.x, -r.y);
+        g.setColor(Color.WHITE);
+        g.fill(shape);
+        g.dispose();
+
+        int[] pixels = ImageUtils.getPixelsAsArray(mask);
+        byte[] coverage = new byte[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            coverage[i] = (byte) (pixels[i] >>> 24);
+        }
+        return coverage;
+    }
+
+    /**
+     * Everything that determines the result of the distance field rendering.
+     * The shape is compared by its device space path.
+     */
+    private static final class DistanceFieldKey {
+        private final byte[] segmentTypes;
+        private final double[] coords;
+        private final int windingRule;
+        private final double offsetX;
+        private final double offsetY;
+        private final boolean inside;
+        private final Color fillColor;
+        private final int[] profile;
+
+        DistanceFieldKey(Shape shape, Point2D offset, boolean inside, Color fillColor, int[] profile) {
+            PathIterator it = shape.getPathIterator(null);
+            windingRule = it.getWindingRule();
+            byte[] types = new byte[64];
+            double[] points = new double[6 * 64];
+            double[] segment = new double[6];
+            int numSegments = 0;
+            while (!it.isDone()) {
+                if (numSegments == types.length) {
+                    types = Arrays.copyOf(types, numSegments * 2);
+                    points = Arrays.copyOf(points, numSegments * 12);
+                }
+                types[numSegments] = (byte) it.currentSegment(segment);
+                System.arraycopy(segment, 0, points, numSegments * 6, 6);
+                numSegments++;
+                it.next();
+            }
+            segmentTypes = Arrays.copyOf(types, numSegments);
+            coords = Arrays.copyOf(points, numSegments * 6);
+
+            offsetX = offset.getX();
+            offsetY = offset.getY();
+            this.inside = inside;
+            this.fillColor = fillColor;
+            this.profile = profile;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DistanceFieldKey)) {
+                return false;
+            }
+            DistanceFieldKey other = (DistanceFieldKey) o;
+            return windingRule == other.windingRule
+                    && offsetX == other.offsetX
+                    && offsetY == other.offsetY
+                    && inside == other.inside
+                    && (fillColor == null ? other.fillColor == null : fillColor.equals(other.fillColor))
+                    && Arrays.equals(profile, other.profile)
+                    && Arrays.equals(segmentTypes, other.segmentTypes)
+                    && Arrays.equals(coords, other.coords);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(coords);
+        }
+    }
+
+    /**
+     * The effect rendered into a device space image. The distance of
+     * each pixel from the outline of the (offset) shape is calculated
+     * with an exact Euclidean distance transform, and then it is mapped
+     * to a color with the profile lookup table, so the cost doesn't
+     * depend on the effect width or on the number of steps.
+     */
+    private static final class DistanceFieldResult {
+        private final DistanceFieldKey key;
+        private BufferedImage image;
+        private int x;
+        private int y;
+
+        DistanceFieldResult(DistanceFieldKey key, Shape shape, double maxReach) {
+            this.key = key;
+
+            double dx = key.offsetX;
+            double dy = key.offsetY;
+            boolean hasOffset = dx != 0 || dy != 0;
+            Shape offsetShape = AffineTransform.getTranslateInstance(dx, dy)
+                    .createTransformedShape(shape);
+
+            // inner effects are visible only inside the shape,
+            // outer effects only around the offset shape
+            Rectangle2D area;
+            int margin = 2;
+            if (key.inside) {
+                area = shape.getBounds2D();
+            } else {
+                area = offsetShape.getBounds2D();
+                margin += (int) Math.ceil(maxReach);
+            }
+            if (area.isEmpty()) {
+                return;
+            }
+            x = (int) Math.floor(area.getMinX()) - margin;
+            y = (int) Math.floor(area.getMinY()) - margin;
+            int width = (int) Math.ceil(area.getMaxX()) + margin - x;
+            int height = (int) Math.ceil(area.getMaxY()) + margin - y;
+            Rectangle r = new Rectangle(x, y, width, height);
+
+            byte[] coverage = rasterizeCoverage(offsetShape, r);
+            byte[] clipCoverage = hasOffset ? rasterizeCoverage(shape, r) : coverage;
+
+            // without an offset, the outer effect is cleared inside the
+            // shape and the inner effect outside, therefore it's enough
+            // to calculate the distances on one side of the outline
+            float[] distToInside = null;
+            float[] distToOutside = null;
+            if (hasOffset || !key.inside) {
+                distToInside = DistanceTransform.squaredDistances(coverage, width, height, true);
+            }
+            if (hasOffset || key.inside) {
+                distToOutside = DistanceTransform.squaredDistances(coverage, width, height, false);
+            }
+
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            int[] pixels = ImageUtils.getPixelsAsArray(image);
+            float[] in = distToInside;
+            float[] out = distToOutside;
+            ThreadPool.parallelFor(height, 64 * 1024 / width, (startY, endY) -> {
+                for (int i = startY * width, end = endY * width; i < end; i++) {
+                    pixels[i] = calcPixel(i, coverage, clipCoverage, in, out);
+                }
+            });
+        }
+
+        private int calcPixel(int i, byte[] coverage, byte[] clipCoverage,
+                              float[] distToInside, float[] distToOutside) {
+            int clip = clipCoverage[i] & 0xFF;
+            int visible = key.inside ? clip : 255 - clip;
+            if (visible == 0) {
+                return 0;
+            }
+
+            // the distance from the outline of the offset shape,
+            // estimated from the coverage for the antialiased edge pixels
+            int cov = coverage[i] & 0xFF;
+            double dist;
+            if (cov > 0 && cov < 255) {
+                dist = Math.abs(cov - 127.5) / 255.0;
+            } else if (cov >= 128) {
+                dist = Math.sqrt(distToOutside[i]) - 0.5;
+            } else {
+                dist = Math.sqrt(distToInside[i]) - 0.5;
+            }
+
+            int[] profile = key.profile;
+            int lutIndex = (int) (dist * LUT_STEPS_PER_PIXEL + 0.5);
+            if (lutIndex >= profile.length) {
+                lutIndex = profile.length - 1;
+            }
+            int color = profile[lutIndex];
+            double a = (color >>> 24) / 255.0;
+            double r = ((color >>> 16) & 0xFF) * a;
+            double g = ((color >>> 8) & 0xFF) * a;
+            double b = (color & 0xFF) * a;
+
+            Color fillColor = key.fillColor;
+            if (fillColor != null && cov > 0) {
+                // the fill is drawn over the strokes
+                double fa = fillColor.getAlpha() * cov / (255.0 * 255.0);
+                r = fillColor.getRed() * fa + r * (1 - fa);
+                g = fillColor.getGreen() * fa + g * (1 - fa);
+                b = fillColor.getBlue() * fa + b * (1 - fa);
+                a = fa + a * (1 - fa);
+            }
+
+            double visibility = visible / 255.0;
+            int ia = (int) (a * visibility * 255 + 0.5);
+            int ir = (int) (r * visibility + 0.5);
+            int ig = (int) (g * visibility + 0.5);
+            int ib = (int) (b * visibility + 0.5);
+            return (ia << 24) | (ir << 16) | (ig << 8) | ib;
+        }
+    }
+
 
     /*
     private BufferedImage createClipImage(Shape s, Graphics2D g, int width, int height) {
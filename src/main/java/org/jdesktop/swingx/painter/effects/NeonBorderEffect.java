@@ -104,17 +104,8 @@ public class NeonBorderEffect extends AbstractAreaEffect {
 
             // make the brush width smaller each time until there is nothing left
             float brushWidth = (float) (steps + 1 - i);
-            float half = steps / 2;
-
-            if (borderPosition == BorderPosition.Centered) {
-                gfx.setPaint(interpolateColor((float) (steps - i) / steps, getEdgeColor(), getCenterColor()));
-            } else {
-                if (i < half) {
-                    gfx.setPaint(interpolateColor((float) (half - i) / half, getEdgeColor(), getCenterColor()));
-                } else {
-                    gfx.setPaint(interpolateColor((float) (i - half) / half, getEdgeColor(), getCenterColor()));
-                }
-            }
+
+            gfx.setPaint(getStrokeColor(i, steps));
 
             // to make the effect softer use a different stroke
             gfx.setStroke(new BasicStroke(brushWidth,
@@ -126,6 +117,51 @@ public class NeonBorderEffect extends AbstractAreaEffect {
 
     }
 
+    private Color getStrokeColor(int i, int steps) {
+        if (borderPosition == BorderPosition.Centered) {
+            return interpolateColor((float) (steps - i) / steps, getEdgeColor(), getCenterColor());
+        }
+        float half = steps / 2;
+        if (i < half) {
+            return interpolateColor((float) (half - i) / half, getEdgeColor(), getCenterColor());
+        } else {
+            return interpolateColor((float) (i - half) / half, getEdgeColor(), getCenterColor());
+        }
+    }
+
+    @Override
+    protected double getMaxReach() {
+        return (getEffectWidth() + 1) / 2.0;
+    }
+
+    @Override
+    protected int getProfileColor(double dist) {
+        // the strokes are composited over each other (SrcOver),
+        // the result is accumulated with premultiplied components
+        int steps = getEffectWidth();
+        double a = 0, r = 0, g = 0, b = 0;
+        for (int i = 0; i < steps; i++) {
+            double coverage = strokeCoverage(steps + 1 - i, dist);
+            if (coverage == 0) {
+                continue;
+            }
+            Color color = getStrokeColor(i, steps);
+            double sa = color.getAlpha() / 255.0 * coverage;
+            r = color.getRed() * sa + r * (1 - sa);
+            g = color.getGreen() * sa + g * (1 - sa);
+            b = color.getBlue() * sa + b * (1 - sa);
+            a = sa + a * (1 - sa);
+        }
+        if (a == 0) {
+            return 0;
+        }
+        int ia = (int) Math.round(a * 255);
+        int ir = (int) Math.round(r / a);
+        int ig = (int) Math.round(g / a);
+        int ib = (int) Math.round(b / a);
+        return (ia << 24) | (ir << 16) | (ig << 8) | ib;
+    }
+
     protected Color interpolateColor(float t, Color start, Color end) {
         float[] partsS = start.getRGBComponents(null);
         float[] partsE = end.getRGBComponents(null);
@@ -1,10 +1,12 @@
 package pd;
 
 import net.jafama.FastMath;
+import pixelitor.ThreadPool;
 import pixelitor.utils.ProgressTracker;
 import pixelitor.utils.StatusBarProgressTracker;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.util.Arrays;
 
 /**
@@ -47,11 +49,17 @@ public class CannyEdgeDetector {
 
 	// fields
 
+	// the images are processed in horizontal stripes of this height
+	private final static int STRIPE_HEIGHT = 64;
+
+	// the states of the pixels after the non-maximal suppression
+	private final static byte NO_EDGE = 0;
+	private final static byte WEAK = 1;
+	private final static byte STRONG = 2;
+	private final static byte EDGE = 3;
+
 	private int height;
 	private int width;
-	private int picsize;
-	private int[] data;
-	private int[] magnitude;
 	private BufferedImage sourceImage;
 	private BufferedImage edgesImage;
 
@@ -61,10 +69,12 @@ public class CannyEdgeDetector {
 	private int gaussianKernelWidth;
 	private boolean contrastNormalized;
 
-	private float[] xConv;
-	private float[] yConv;
-	private float[] xGradient;
-	private float[] yGradient;
+	private float[] kernel;
+	private float[] diffKernel;
+	private int kwidth;
+
+	// maps the luminance values if the contrast is normalized
+	private int[] contrastRemap;
 
     private ProgressTracker pt;
 
@@ -256,68 +266,48 @@ public class CannyEdgeDetector {
 		width = sourceImage.getWidth();
 		height = sourceImage.getHeight();
 
-        // the number of computational units are experimental values
-        // that seem to work pretty well
-        pt = new StatusBarProgressTracker("Canny", width + 450);
-
-        picsize = width * height;
-		initArrays();
+		int numStripes = (height + STRIPE_HEIGHT - 1) / STRIPE_HEIGHT;
+		pt = new StatusBarProgressTracker("Canny", numStripes + 3);
 
-        pt.unitsDone(10);
+		createKernels(gaussianKernelRadius, gaussianKernelWidth);
 
-		readLuminance();
-
-        pt.unitsDone(50);
-
-        if (contrastNormalized) {
-            normalizeContrast();
-            pt.unitsDone(10);
-        }
+		contrastRemap = null;
+		if (contrastNormalized) {
+			contrastRemap = calcContrastRemap();
+		}
+		pt.unitDone();
 
-		computeGradients(gaussianKernelRadius, gaussianKernelWidth);
+		// one byte per pixel instead of full-sized
+		// luminance, convolution and gradient arrays
+		byte[] states = new byte[width * height];
 		int low = Math.round(lowThreshold * MAGNITUDE_SCALE);
-		int high = Math.round( highThreshold * MAGNITUDE_SCALE);
-		performHysteresis(low, high);
-        pt.unitDone();
+		int high = Math.round(highThreshold * MAGNITUDE_SCALE);
+
+		ThreadPool.parallelFor(numStripes, 2, (start, end) -> {
+			Stripe stripe = new Stripe();
+			for (int i = start; i < end; i++) {
+				int stripeStart = i * STRIPE_HEIGHT;
+				int stripeEnd = Math.min(height, stripeStart + STRIPE_HEIGHT);
+				stripe.process(stripeStart, stripeEnd, states, low, high);
+				synchronized (pt) {
+					pt.unitDone();
+				}
+			}
+		});
 
-        thresholdEdges();
-        pt.unitDone();
+		performHysteresis(states);
+		pt.unitDone();
 
-        writeEdges(data);
-        pt.finish();
+		writeEdges(states);
+		pt.finish();
 	}
 
 	// private utility methods
 
-	private void initArrays() {
-		if (data == null || picsize != data.length) {
-			data = new int[picsize];
-			magnitude = new int[picsize];
-
-			xConv = new float[picsize];
-			yConv = new float[picsize];
-			xGradient = new float[picsize];
-			yGradient = new float[picsize];
-		}
-	}
-
-	//NOTE: The elements of the method below (specifically the technique for
-	//non-maximal suppression and the technique for gradient computation)
-	//are derived from an implementation posted in the following forum (with the
-	//clear intent of others using the code):
-	//  http://forum.java.sun.com/thread.jspa?threadID=546211&start=45&tstart=0
-	//My code effectively mimics the algorithm exhibited above.
-	//Since I don't know the providence of the code that was posted it is a
-	//possibility (though I think a very remote one) that this code violates
-	//someone's intellectual property rights. If this concerns you feel free to
-	//contact me for an alternative, though less efficient, implementation.
-
-	private void computeGradients(float kernelRadius, int kernelWidth) {
-
+	private void createKernels(float kernelRadius, int kernelWidth) {
 		//generate the gaussian convolution masks
-		float kernel[] = new float[kernelWidth];
-		float diffKernel[] = new float[kernelWidth];
-		int kwidth;
+		kernel = new float[kernelWidth];
+		diffKernel = new float[kernelWidth];
 		for (kwidth = 0; kwidth < kernelWidth; kwidth++) {
 			float g1 = gaussian(kwidth, kernelRadius);
 			if (g1 <= GAUSSIAN_CUT_OFF && kwidth >= 2) break;
@@ -326,145 +316,201 @@ public class CannyEdgeDetector {
 			kernel[kwidth] = (g1 + g2 + g3) / 3f / (2f * (float) Math.PI * kernelRadius * kernelRadius);
 			diffKernel[kwidth] = g3 - g2;
 		}
+	}
 
-        pt.unitDone();
-
-		int initX = kwidth - 1;
-		int maxX = width - (kwidth - 1);
-		int initY = width * (kwidth - 1);
-		int maxY = width * (height - (kwidth - 1));
-
-		//perform convolution in x and y directions
-		for (int x = initX; x < maxX; x++) {
-			for (int y = initY; y < maxY; y += width) {
-				int index = x + y;
-				float sumX = data[index] * kernel[0];
-				float sumY = sumX;
-				int xOffset = 1;
-				int yOffset = width;
-				for(; xOffset < kwidth ;) {
-					sumY += kernel[xOffset] * (data[index - yOffset] + data[index + yOffset]);
-					sumX += kernel[xOffset] * (data[index - xOffset] + data[index + xOffset]);
-					yOffset += width;
-					xOffset++;
-				}
-
-				yConv[index] = sumY;
-				xConv[index] = sumX;
-			}
-
-		}
-
-        pt.unitsDone(200);
+	private int clampX(int x) {
+		return x < 0 ? 0 : (x >= width ? width - 1 : x);
+	}
 
-		for (int x = initX; x < maxX; x++) {
-			for (int y = initY; y < maxY; y += width) {
-				float sum = 0f;
-				int index = x + y;
-				for (int i = 1; i < kwidth; i++)
-					sum += diffKernel[i] * (yConv[index - i] - yConv[index + i]);
+	private int clampY(int y) {
+		return y < 0 ? 0 : (y >= height ? height - 1 : y);
+	}
 
-				xGradient[index] = sum;
+	/**
+	 * The buffers of a horizontal stripe. The stripe also contains
+	 * the halo rows needed for the convolutions, and the pixels
+	 * outside the image are replaced by the nearest edge pixels.
+	 */
+	private class Stripe {
+		private final int maxLumRows = STRIPE_HEIGHT + 2 * kwidth;
+		private final int maxGradRows = STRIPE_HEIGHT + 2;
+
+		private final float[] lum = new float[maxLumRows * width];
+		private final float[] xConv = new float[maxLumRows * width];
+		private final float[] yConv = new float[maxGradRows * width];
+		private final float[] xGradient = new float[maxGradRows * width];
+		private final float[] yGradient = new float[maxGradRows * width];
+		private final float[] gradMagnitude = new float[maxGradRows * width];
+		private final int[] lumRow = new int[width];
+		private Object rowData;
+
+		void process(int start, int end, byte[] states, int low, int high) {
+			// luminance rows from start - kwidth, gradient rows from start - 1
+			int lumRows = end - start + 2 * kwidth;
+			int gradRows = end - start + 2;
+			int gradToLum = kwidth - 1;
+
+			for (int i = 0; i < lumRows; i++) {
+				readLuminance(clampY(start - kwidth + i));
+				int offset = i * width;
+				for (int x = 0; x < width; x++) {
+					lum[offset + x] = lumRow[x];
+				}
 			}
 
-		}
-
-        pt.unitsDone(100);
+			//perform convolution in x and y directions
+			for (int i = 0; i < lumRows; i++) {
+				int offset = i * width;
+				for (int x = 0; x < width; x++) {
+					float sumX = lum[offset + x] * kernel[0];
+					for (int k = 1; k < kwidth; k++) {
+						sumX += kernel[k] * (lum[offset + clampX(x - k)] + lum[offset + clampX(x + k)]);
+					}
+					xConv[offset + x] = sumX;
+				}
+			}
+			for (int g = 0; g < gradRows; g++) {
+				int lumOffset = (g + gradToLum) * width;
+				int offset = g * width;
+				for (int x = 0; x < width; x++) {
+					int index = lumOffset + x;
+					float sumY = lum[index] * kernel[0];
+					int yOffset = width;
+					for (int k = 1; k < kwidth; k++) {
+						sumY += kernel[k] * (lum[index - yOffset] + lum[index + yOffset]);
+						yOffset += width;
+					}
+					yConv[offset + x] = sumY;
+				}
+			}
 
-		for (int x = kwidth; x < width - kwidth; x++) {
-			for (int y = initY; y < maxY; y += width) {
-				float sum = 0.0f;
-				int index = x + y;
-				int yOffset = width;
-				for (int i = 1; i < kwidth; i++) {
-					sum += diffKernel[i] * (xConv[index - yOffset] - xConv[index + yOffset]);
-					yOffset += width;
+			for (int g = 0; g < gradRows; g++) {
+				int lumOffset = (g + gradToLum) * width;
+				int offset = g * width;
+				for (int x = 0; x < width; x++) {
+					float sum = 0f;
+					for (int k = 1; k < kwidth; k++) {
+						sum += diffKernel[k] * (yConv[offset + clampX(x - k)] - yConv[offset + clampX(x + k)]);
+					}
+					xGradient[offset + x] = sum;
+
+					sum = 0f;
+					int index = lumOffset + x;
+					int yOffset = width;
+					for (int k = 1; k < kwidth; k++) {
+						sum += diffKernel[k] * (xConv[index - yOffset] - xConv[index + yOffset]);
+						yOffset += width;
+					}
+					yGradient[offset + x] = sum;
+
+					gradMagnitude[offset + x] = hypot(xGradient[offset + x], sum);
 				}
+			}
 
-				yGradient[index] = sum;
+			for (int y = start; y < end; y++) {
+				int offset = (y - start + 1) * width;
+				int stateOffset = y * width;
+				for (int x = 0; x < width; x++) {
+					byte state = NO_EDGE;
+					// the border pixels are never edges
+					if (x > 0 && x < width - 1 && y > 0 && y < height - 1) {
+						int mag = suppressNonMaximum(offset + x);
+						if (mag >= high) {
+							state = STRONG;
+						} else if (mag > 0 && mag >= low) {
+							state = WEAK;
+						}
+					}
+					states[stateOffset + x] = state;
+				}
 			}
+		}
 
+		/**
+		 * Returns the scaled gradient magnitude if the pixel at the
+		 * given stripe index is a local maximum, and 0 otherwise.
+		 */
+		private int suppressNonMaximum(int index) {
+			int indexN = index - width;
+			int indexS = index + width;
+			int indexW = index - 1;
+			int indexE = index + 1;
+			int indexNW = indexN - 1;
+			int indexNE = indexN + 1;
+			int indexSW = indexS - 1;
+			int indexSE = indexS + 1;
+
+			float xGrad = xGradient[index];
+			float yGrad = yGradient[index];
+			float gradMag = gradMagnitude[index];
+
+			//perform non-maximal supression
+			float nMag = gradMagnitude[indexN];
+			float sMag = gradMagnitude[indexS];
+			float wMag = gradMagnitude[indexW];
+			float eMag = gradMagnitude[indexE];
+			float neMag = gradMagnitude[indexNE];
+			float seMag = gradMagnitude[indexSE];
+			float swMag = gradMagnitude[indexSW];
+			float nwMag = gradMagnitude[indexNW];
+			float tmp;
+			/*
+			 * An explanation of what's happening here, for those who want
+			 * to understand the source: This performs the "non-maximal
+			 * supression" phase of the Canny edge detection in which we
+			 * need to compare the gradient magnitude to that in the
+			 * direction of the gradient; only if the value is a local
+			 * maximum do we consider the point as an edge candidate.
+			 *
+			 * We need to break the comparison into a number of different
+			 * cases depending on the gradient direction so that the
+			 * appropriate values can be used. To avoid computing the
+			 * gradient direction, we use two simple comparisons: first we
+			 * check that the partial derivatives have the same sign (1)
+			 * and then we check which is larger (2). As a consequence, we
+			 * have reduced the problem to one of four identical cases that
+			 * each test the central gradient magnitude against the values at
+			 * two points with 'identical support'; what this means is that
+			 * the geometry required to accurately interpolate the magnitude
+			 * of gradient function at those points has an identical
+			 * geometry (upto right-angled-rotation/reflection).
+			 *
+			 * When comparing the central gradient to the two interpolated
+			 * values, we avoid performing any divisions by multiplying both
+			 * sides of each inequality by the greater of the two partial
+			 * derivatives. The common comparand is stored in a temporary
+			 * variable (3) and reused in the mirror case (4).
+			 *
+			 */
+			if (xGrad * yGrad <= (float) 0 /*(1)*/
+				? Math.abs(xGrad) >= Math.abs(yGrad) /*(2)*/
+					? (tmp = Math.abs(xGrad * gradMag)) >= Math.abs(yGrad * neMag - (xGrad + yGrad) * eMag) /*(3)*/
+						&& tmp > Math.abs(yGrad * swMag - (xGrad + yGrad) * wMag) /*(4)*/
+					: (tmp = Math.abs(yGrad * gradMag)) >= Math.abs(xGrad * neMag - (yGrad + xGrad) * nMag) /*(3)*/
+						&& tmp > Math.abs(xGrad * swMag - (yGrad + xGrad) * sMag) /*(4)*/
+				: Math.abs(xGrad) >= Math.abs(yGrad) /*(2)*/
+					? (tmp = Math.abs(xGrad * gradMag)) >= Math.abs(yGrad * seMag + (xGrad - yGrad) * eMag) /*(3)*/
+						&& tmp > Math.abs(yGrad * nwMag + (xGrad - yGrad) * wMag) /*(4)*/
+					: (tmp = Math.abs(yGrad * gradMag)) >= Math.abs(xGrad * seMag + (yGrad - xGrad) * sMag) /*(3)*/
+						&& tmp > Math.abs(xGrad * nwMag + (yGrad - xGrad) * nMag) /*(4)*/
+				) {
+				return gradMag >= MAGNITUDE_LIMIT ? MAGNITUDE_MAX : (int) (MAGNITUDE_SCALE * gradMag);
+				//NOTE: The orientation of the edge is not employed by this
+				//implementation. It is a simple matter to compute it at
+				//this point as: Math.atan2(yGrad, xGrad);
+			}
+			return 0;
 		}
 
-        pt.unitsDone(100);
-
-		initX = kwidth;
-		maxX = width - kwidth;
-		initY = width * kwidth;
-		maxY = width * (height - kwidth);
-		for (int x = initX; x < maxX; x++) {
-            pt.unitDone();
-			for (int y = initY; y < maxY; y += width) {
-				int index = x + y;
-				int indexN = index - width;
-				int indexS = index + width;
-				int indexW = index - 1;
-				int indexE = index + 1;
-				int indexNW = indexN - 1;
-				int indexNE = indexN + 1;
-				int indexSW = indexS - 1;
-				int indexSE = indexS + 1;
-
-				float xGrad = xGradient[index];
-				float yGrad = yGradient[index];
-				float gradMag = hypot(xGrad, yGrad);
-
-				//perform non-maximal supression
-				float nMag = hypot(xGradient[indexN], yGradient[indexN]);
-				float sMag = hypot(xGradient[indexS], yGradient[indexS]);
-				float wMag = hypot(xGradient[indexW], yGradient[indexW]);
-				float eMag = hypot(xGradient[indexE], yGradient[indexE]);
-				float neMag = hypot(xGradient[indexNE], yGradient[indexNE]);
-				float seMag = hypot(xGradient[indexSE], yGradient[indexSE]);
-				float swMag = hypot(xGradient[indexSW], yGradient[indexSW]);
-				float nwMag = hypot(xGradient[indexNW], yGradient[indexNW]);
-				float tmp;
-				/*
-				 * An explanation of what's happening here, for those who want
-				 * to understand the source: This performs the "non-maximal
-				 * supression" phase of the Canny edge detection in which we
-				 * need to compare the gradient magnitude to that in the
-				 * direction of the gradient; only if the value is a local
-				 * maximum do we consider the point as an edge candidate.
-				 *
-				 * We need to break the comparison into a number of different
-				 * cases depending on the gradient direction so that the
-				 * appropriate values can be used. To avoid computing the
-				 * gradient direction, we use two simple comparisons: first we
-				 * check that the partial derivatives have the same sign (1)
-				 * and then we check which is larger (2). As a consequence, we
-				 * have reduced the problem to one of four identical cases that
-				 * each test the central gradient magnitude against the values at
-				 * two points with 'identical support'; what this means is that
-				 * the geometry required to accurately interpolate the magnitude
-				 * of gradient function at those points has an identical
-				 * geometry (upto right-angled-rotation/reflection).
-				 *
-				 * When comparing the central gradient to the two interpolated
-				 * values, we avoid performing any divisions by multiplying both
-				 * sides of each inequality by the greater of the two partial
-				 * derivatives. The common comparand is stored in a temporary
-				 * variable (3) and reused in the mirror case (4).
-				 *
-				 */
-				if (xGrad * yGrad <= (float) 0 /*(1)*/
-					? Math.abs(xGrad) >= Math.abs(yGrad) /*(2)*/
-						? (tmp = Math.abs(xGrad * gradMag)) >= Math.abs(yGrad * neMag - (xGrad + yGrad) * eMag) /*(3)*/
-							&& tmp > Math.abs(yGrad * swMag - (xGrad + yGrad) * wMag) /*(4)*/
-						: (tmp = Math.abs(yGrad * gradMag)) >= Math.abs(xGrad * neMag - (yGrad + xGrad) * nMag) /*(3)*/
-							&& tmp > Math.abs(xGrad * swMag - (yGrad + xGrad) * sMag) /*(4)*/
-					: Math.abs(xGrad) >= Math.abs(yGrad) /*(2)*/
-						? (tmp = Math.abs(xGrad * gradMag)) >= Math.abs(yGrad * seMag + (xGrad - yGrad) * eMag) /*(3)*/
-							&& tmp > Math.abs(yGrad * nwMag + (xGrad - yGrad) * wMag) /*(4)*/
-						: (tmp = Math.abs(yGrad * gradMag)) >= Math.abs(xGrad * seMag + (yGrad - xGrad) * sMag) /*(3)*/
-							&& tmp > Math.abs(xGrad * nwMag + (yGrad - xGrad) * nMag) /*(4)*/
-					) {
-					magnitude[index] = gradMag >= MAGNITUDE_LIMIT ? MAGNITUDE_MAX : (int) (MAGNITUDE_SCALE * gradMag);
-					//NOTE: The orientation of the edge is not employed by this
-					//implementation. It is a simple matter to compute it at
-					//this point as: Math.atan2(yGrad, xGrad);
-				} else {
-					magnitude[index] = 0;
+		/**
+		 * Reads the luminance values of the given image row into lumRow.
+		 */
+		private void readLuminance(int y) {
+			rowData = sourceImage.getRaster().getDataElements(0, y, width, 1, rowData);
+			readLuminanceRow(rowData, lumRow);
+			if (contrastRemap != null) {
+				for (int x = 0; x < width; x++) {
+					lumRow[x] = contrastRemap[lumRow[x]];
 				}
 			}
 		}
@@ -473,76 +519,74 @@ public class CannyEdgeDetector {
 	//NOTE: It is quite feasible to replace the implementation of this method
 	//with one which only loosely approximates the hypot function. I've tested
 	//simple approximations such as Math.abs(x) + Math.abs(y) and they work fine.
-	private float hypot(float x, float y) {
+	private static float hypot(float x, float y) {
             return (float) FastMath.hypot(x, y);
 	}
 
-	private float gaussian(float x, float sigma) {
+	private static float gaussian(float x, float sigma) {
 		return (float) Math.exp(-(x * x) / (2f * sigma * sigma));
 	}
 
-	private void performHysteresis(int low, int high) {
-		//NOTE: this implementation reuses the data array to store both
-		//luminance data from the image, and edge intensity from the processing.
-		//This is done for memory efficiency, other implementations may wish
-		//to separate these functions.
-		Arrays.fill(data, 0);
-
-		int offset = 0;
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				if (data[offset] == 0 && magnitude[offset] >= high) {
-					follow(x, y, offset, low);
-				}
-				offset++;
+	/**
+	 * Marks the weak edge pixels that are connected to strong ones as edges.
+	 * Uses an explicit stack instead of recursion, because long edges
+	 * could overflow the call stack.
+	 */
+	private void performHysteresis(byte[] states) {
+		int[] stack = new int[1024];
+		for (int i = 0; i < states.length; i++) {
+			if (states[i] != STRONG) {
+				continue;
 			}
-		}
- 	}
-
-	private void follow(int x1, int y1, int i1, int threshold) {
-		int x0 = x1 == 0 ? x1 : x1 - 1;
-		int x2 = x1 == width - 1 ? x1 : x1 + 1;
-		int y0 = y1 == 0 ? y1 : y1 - 1;
-		int y2 = y1 == height -1 ? y1 : y1 + 1;
-
-		data[i1] = magnitude[i1];
-		for (int x = x0; x <= x2; x++) {
-			for (int y = y0; y <= y2; y++) {
-				int i2 = x + y * width;
-				if ((y != y1 || x != x1)
-					&& data[i2] == 0
-					&& magnitude[i2] >= threshold) {
-					follow(x, y, i2, threshold);
-					return;
+			states[i] = EDGE;
+			stack[0] = i;
+			int size = 1;
+			while (size > 0) {
+				int index = stack[--size];
+				int x1 = index % width;
+				int y1 = index / width;
+				int x0 = x1 == 0 ? x1 : x1 - 1;
+				int x2 = x1 == width - 1 ? x1 : x1 + 1;
+				int y0 = y1 == 0 ? y1 : y1 - 1;
+				int y2 = y1 == height - 1 ? y1 : y1 + 1;
+				for (int y = y0; y <= y2; y++) {
+					for (int x = x0; x <= x2; x++) {
+						int neighbor = x + y * width;
+						byte state = states[neighbor];
+						if (state == WEAK || state == STRONG) {
+							states[neighbor] = EDGE;
+							if (size == stack.length) {
+								stack = Arrays.copyOf(stack, size * 2);
+							}
+							stack[size++] = neighbor;
+						}
+					}
 				}
 			}
 		}
 	}
 
-	private void thresholdEdges() {
-		for (int i = 0; i < picsize; i++) {
-			data[i] = data[i] > 0 ? -1 : 0xff000000;
-		}
-	}
-
-	private int luminance(float r, float g, float b) {
+	private static int luminance(float r, float g, float b) {
 		return Math.round(0.299f * r + 0.587f * g + 0.114f * b);
 	}
 
-	private void readLuminance() {
+	/**
+	 * Converts a row of raster data elements into luminance values.
+	 */
+	private void readLuminanceRow(Object rowData, int[] lumRow) {
 		int type = sourceImage.getType();
 		if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
-			int[] pixels = (int[]) sourceImage.getData().getDataElements(0, 0, width, height, null);
-			for (int i = 0; i < picsize; i++) {
+			int[] pixels = (int[]) rowData;
+			for (int i = 0; i < width; i++) {
 				int p = pixels[i];
 				int r = (p & 0xff0000) >> 16;
 				int g = (p & 0xff00) >> 8;
 				int b = p & 0xff;
-				data[i] = luminance(r, g, b);
+				lumRow[i] = luminance(r, g, b);
 			}
         } else if (type == BufferedImage.TYPE_INT_ARGB_PRE) {
-                int[] pixels = (int[]) sourceImage.getData().getDataElements(0, 0, width, height, null);
-                for (int i = 0; i < picsize; i++) {
+                int[] pixels = (int[]) rowData;
+                for (int i = 0; i < width; i++) {
                     int p = pixels[i];
                     int a = (p >>> 24) & 0xff;
                     int r = (p & 0xff0000) >> 16;
@@ -560,61 +604,82 @@ public class CannyEdgeDetector {
                             }
                         }
                     }
-                    data[i] = lum;
+                    lumRow[i] = lum;
                 }
 		} else if (type == BufferedImage.TYPE_BYTE_GRAY) {
-			byte[] pixels = (byte[]) sourceImage.getData().getDataElements(0, 0, width, height, null);
-			for (int i = 0; i < picsize; i++) {
-				data[i] = (pixels[i] & 0xff);
+			byte[] pixels = (byte[]) rowData;
+			for (int i = 0; i < width; i++) {
+				lumRow[i] = (pixels[i] & 0xff);
 			}
 		} else if (type == BufferedImage.TYPE_USHORT_GRAY) {
-			short[] pixels = (short[]) sourceImage.getData().getDataElements(0, 0, width, height, null);
-			for (int i = 0; i < picsize; i++) {
-				data[i] = (pixels[i] & 0xffff) / 256;
+			short[] pixels = (short[]) rowData;
+			for (int i = 0; i < width; i++) {
+				lumRow[i] = (pixels[i] & 0xffff) / 256;
 			}
 		} else if (type == BufferedImage.TYPE_3BYTE_BGR) {
-            byte[] pixels = (byte[]) sourceImage.getData().getDataElements(0, 0, width, height, null);
+            byte[] pixels = (byte[]) rowData;
             int offset = 0;
-            for (int i = 0; i < picsize; i++) {
+            for (int i = 0; i < width; i++) {
                 int b = pixels[offset++] & 0xff;
                 int g = pixels[offset++] & 0xff;
                 int r = pixels[offset++] & 0xff;
-                data[i] = luminance(r, g, b);
+                lumRow[i] = luminance(r, g, b);
             }
         } else {
 			throw new IllegalArgumentException("Unsupported image type: " + type);
 		}
 	}
 
-	private void normalizeContrast() {
+	/**
+	 * Returns the mapping that linearizes the histogram of the luminance.
+	 */
+	private int[] calcContrastRemap() {
 		int[] histogram = new int[256];
-		for (int i = 0; i < data.length; i++) {
-			histogram[data[i]]++;
-		}
+		ThreadPool.parallelFor(height, STRIPE_HEIGHT, (start, end) -> {
+			int[] localHistogram = new int[256];
+			int[] lumRow = new int[width];
+			Object rowData = null;
+			for (int y = start; y < end; y++) {
+				rowData = sourceImage.getRaster().getDataElements(0, y, width, 1, rowData);
+				readLuminanceRow(rowData, lumRow);
+				for (int x = 0; x < width; x++) {
+					localHistogram[lumRow[x]]++;
+				}
+			}
+			synchronized (histogram) {
+				for (int i = 0; i < 256; i++) {
+					histogram[i] += localHistogram[i];
+				}
+			}
+		});
+
+		long picsize = (long) width * height;
 		int[] remap = new int[256];
-		int sum = 0;
+		long sum = 0;
 		int j = 0;
 		for (int i = 0; i < histogram.length; i++) {
 			sum += histogram[i];
-			int target = sum*255/picsize;
+			int target = (int) (sum * 255 / picsize);
 			for (int k = j+1; k <=target; k++) {
 				remap[k] = i;
 			}
 			j = target;
 		}
-
-		for (int i = 0; i < data.length; i++) {
-			data[i] = remap[data[i]];
-		}
+		return remap;
 	}
 
-	private void writeEdges(int pixels[]) {
+	private void writeEdges(byte[] states) {
 		//NOTE: There is currently no mechanism for obtaining the edge data
 		//in any other format other than an INT_ARGB type BufferedImage.
 		//This may be easily remedied by providing alternative accessors.
-		if (edgesImage == null) {
+		if (edgesImage == null || edgesImage.getWidth() != width || edgesImage.getHeight() != height) {
 			edgesImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
 		}
-		edgesImage.getWritableTile(0, 0).setDataElements(0, 0, width, height, pixels);
+		int[] pixels = ((DataBufferInt) edgesImage.getRaster().getDataBuffer()).getData();
+		ThreadPool.parallelFor(states.length, 100_000, (start, end) -> {
+			for (int i = start; i < end; i++) {
+				pixels[i] = states[i] == EDGE ? -1 : 0xff000000;
+			}
+		});
 	}
 }
@@ -38,7 +38,7 @@ public enum Build {
         this.development = development;
     }
 
-    public static final boolean enableAdjLayers = false;
+    public static final boolean enableAdjLayers = true;
 
     public static Build CURRENT = FINAL;
 
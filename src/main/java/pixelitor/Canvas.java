@@ -80,6 +80,11 @@ public class Canvas implements Serializable {
      * Recalculates the component-space (zoomed) size
      */
     public void recalcCoSize() {
+        if (ic == null) {
+            // there is no component space while
+            // processing files without a GUI
+            return;
+        }
         double viewScale = ic.getViewScale();
         zoomedWidth = (int) (viewScale * width);
         zoomedHeight = (int) (viewScale * height);
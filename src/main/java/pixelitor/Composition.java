@@ -17,6 +17,8 @@
 
 package pixelitor;
 
+import pixelitor.filters.FilterUtils;
+import pixelitor.filters.RGBPixelOp;
 import pixelitor.gui.HistogramsPanel;
 import pixelitor.gui.ImageComponent;
 import pixelitor.gui.ImageComponents;
@@ -24,6 +26,7 @@ import pixelitor.history.*;
 import pixelitor.io.IOThread;
 import pixelitor.io.OutputFormat;
 import pixelitor.io.SaveSettings;
+import pixelitor.layers.AdjustmentLayer;
 import pixelitor.layers.ContentLayer;
 import pixelitor.layers.Drawable;
 import pixelitor.layers.ImageLayer;
@@ -43,6 +46,7 @@ import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Lazy;
 import pixelitor.utils.Messages;
 import pixelitor.utils.VisibleForTesting;
+import pixelitor.utils.debug.Metrics;
 
 import java.awt.AlphaComposite;
 import java.awt.Color;
@@ -681,6 +685,8 @@ public class Composition implements Serializable {
     }
 
     public BufferedImage calculateCompositeImage() {
+        long startTime = System.nanoTime();
+
         // TODO why is this not working
 //        if(layerList.size() == 1) {
 //            Layer firstLayer = layerList.get(0);
@@ -699,33 +705,150 @@ public class Composition implements Serializable {
                 canvas.getImWidth(), canvas.getImHeight(), TYPE_INT_ARGB_PRE);
         Graphics2D g = imageSoFar.createGraphics();
 
+        // identifies the layers that are already in imageSoFar,
+        // so that adjustment layers can cache their results
+        List<Object> keySoFar = new ArrayList<>();
+        keySoFar.add(canvas.getImWidth());
+        keySoFar.add(canvas.getImHeight());
+
+        // true if imageSoFar is the cached result of an
+        // adjustment layer, which must not be modified
+        boolean imageSoFarShared = false;
+
+        // the active image layer, if it's already in imageSoFar, and
+        // whether its in-place edits are still local in imageSoFar
+        ImageLayer editedLayer = null;
+        boolean editsAreLocal = true;
+
         boolean firstVisibleLayer = true;
-        for (Layer layer : layerList) {
+        int numLayers = layerList.size();
+        for (int i = 0; i < numLayers; i++) {
+            Layer layer = layerList.get(i);
             if (layer.isVisible()) {
+                RGBPixelOp firstOp = firstVisibleLayer || !ImageUtils.hasPackedIntArray(imageSoFar)
+                        ? null : getFusablePixelOp(layer);
+                if (firstOp != null) {
+                    // apply the following point operation adjustments in a single pass
+                    List<RGBPixelOp> fusedOps = new ArrayList<>();
+                    fusedOps.add(firstOp);
+                    int lastFused = i;
+                    for (int j = i + 1; j < numLayers; j++) {
+                        Layer next = layerList.get(j);
+                        if (!next.isVisible()) {
+                            continue;
+                        }
+                        RGBPixelOp nextOp = getFusablePixelOp(next);
+                        if (nextOp == null) {
+                            break;
+                        }
+                        fusedOps.add(nextOp);
+                        lastFused = j;
+                    }
+                    if (lastFused > i) {
+                        if (imageSoFarShared) {
+                            imageSoFar = ImageUtils.copyImage(imageSoFar);
+                            imageSoFarShared = false;
+                            g.dispose();
+                            g = imageSoFar.createGraphics();
+                        }
+                        FilterUtils.runFusedRGBPixelOps(fusedOps, imageSoFar);
+                        for (int j = i; j <= lastFused; j++) {
+                            Layer fused = layerList.get(j);
+                            if (fused.isVisible()) {
+                                keySoFar = addToKey(keySoFar, fused, false);
+                            }
+                        }
+                        i = lastFused;
+                        continue;
+                    }
+                    // a single adjustment layer can use its own cache
+                }
+
+                if (imageSoFarShared && !layer.leavesImageSoFarUnchanged()) {
+                    imageSoFar = ImageUtils.copyImage(imageSoFar);
+                    imageSoFarShared = false;
+                    g.dispose();
+                    g = imageSoFar.createGraphics();
+                }
+                if (layer instanceof AdjustmentLayer && !firstVisibleLayer && keySoFar != null) {
+                    ((AdjustmentLayer) layer).setNextInput(new ArrayList<>(keySoFar),
+                            editedLayer, editsAreLocal);
+                }
+
                 BufferedImage result = layer.applyLayer(g, imageSoFar, firstVisibleLayer);
+                if (layer == activeLayer && layer instanceof ImageLayer) {
+                    editedLayer = (ImageLayer) layer;
+                } else if (result != null && !isPointOperation(layer)) {
+                    // for example a blur spreads the edits
+                    editsAreLocal = false;
+                }
                 if (result != null) { // adjustment layer or watermarking text layer
+                    imageSoFarShared = result != imageSoFar;
                     imageSoFar = result;
                     if (g != null) {
                         g.dispose();
                     }
                     g = imageSoFar.createGraphics();
                 }
+                keySoFar = addToKey(keySoFar, layer, firstVisibleLayer);
                 firstVisibleLayer = false;
             }
         }
 
         g.dispose();
 
+        if (imageSoFarShared) {
+            // the composite image can become the image of a new layer
+            imageSoFar = ImageUtils.copyImage(imageSoFar);
+        }
+
+        Metrics.compositeRebuilt(numLayers, imageSoFar.getWidth(),
+                imageSoFar.getHeight(), System.nanoTime() - startTime);
         return imageSoFar;
     }
 
+    private static List<Object> addToKey(List<Object> keySoFar, Layer layer,
+                                         boolean firstVisibleLayer) {
+        if (keySoFar == null) {
+            return null;
+        }
+        Object layerKey = layer.createCompositeKey(firstVisibleLayer);
+        if (layerKey == null) {
+            return null;
+        }
+        keySoFar.add(layerKey);
+        return keySoFar;
+    }
+
+    private static boolean isPointOperation(Layer layer) {
+        return layer instanceof AdjustmentLayer
+                && ((AdjustmentLayer) layer).isPointOperation();
+    }
+
+    private static RGBPixelOp getFusablePixelOp(Layer layer) {
+        if (layer instanceof AdjustmentLayer) {
+            return ((AdjustmentLayer) layer).getFusablePixelOp();
+        }
+        return null;
+    }
+
     public String generateNewLayerName() {
         String retVal = "layer " + newLayerCount;
         newLayerCount++;
         return retVal;
     }
 
+    /**
+     * Called when the active drawable was painted between
+     * the given points, with the given thickness
+     */
     public void updateRegion(PPoint start, PPoint end, double thickness) {
+        double minX = Math.min(start.getImX(), end.getImX()) - thickness;
+        double minY = Math.min(start.getImY(), end.getImY()) - thickness;
+        double maxX = Math.max(start.getImX(), end.getImX()) + thickness;
+        double maxY = Math.max(start.getImY(), end.getImY()) + thickness;
+        activeRegionChanged(new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY));
+
         compositeImage.invalidate();
         if (ic != null) { // during reload image it can be null
             ic.updateRegion(start, end, thickness);
@@ -733,7 +856,12 @@ public class Composition implements Serializable {
         }
     }
 
+    /**
+     * Called when the active drawable was painted in the given area
+     */
     public void updateRegion(PRectangle area) {
+        activeRegionChanged(area.getIm());
+
         compositeImage.invalidate();
         if (ic != null) { // during reload image it can be null
             ic.updateRegion(area);
@@ -741,6 +869,26 @@ public class Composition implements Serializable {
         }
     }
 
+    private void activeRegionChanged(Rectangle2D imArea) {
+        Drawable dr = getActiveDrawableOrNull();
+        if (dr != null) {
+            Rectangle area = imArea.getBounds();
+            // for the antialiasing and the rounding
+            area.grow(2, 2);
+            dr.regionChanged(area);
+        }
+    }
+
+    /**
+     * Repaints the given area without invalidating the composite
+     * image, for overlays that are painted over the cached composite
+     */
+    public void repaintRegion(PRectangle area) {
+        if (ic != null) {
+            ic.updateRegion(area);
+        }
+    }
+
     public void dispose() {
         if (selection != null) {
             // stop the timer thread
@@ -993,6 +1141,8 @@ public class Composition implements Serializable {
      * and additional actions might be necessary
      */
     public void imageChanged(ImageChangeActions actions, boolean sizeChanged) {
+        // the active layer could have been changed in any way
+        activeLayerChanged();
         compositeImage.invalidate();
 
         if (actions.repaintNeeded()) {
@@ -1007,6 +1157,15 @@ public class Composition implements Serializable {
         }
     }
 
+    private void activeLayerChanged() {
+        if (activeLayer instanceof ImageLayer) {
+            ((ImageLayer) activeLayer).contentChanged();
+        }
+        if (activeLayer != null && activeLayer.hasMask()) {
+            activeLayer.getMask().contentChanged();
+        }
+    }
+
     private boolean isActive() {
         return (ImageComponents.getActiveCompOrNull() == this);
     }
@@ -1140,7 +1299,7 @@ public class Composition implements Serializable {
         setDirty(false);
 
         return CompletableFuture
-                .runAsync(saveTask,
+                .runAsync(IOThread.measuredWrite(file, saveTask),
                         IOThread.getExecutor())
                 .thenAcceptAsync(v -> afterSaveActions(file, addToRecentMenus),
                         EventQueue::invokeLater)
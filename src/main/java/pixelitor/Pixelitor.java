@@ -34,13 +34,17 @@ import pixelitor.layers.AddTextLayerAction;
 import pixelitor.layers.Layer;
 import pixelitor.layers.LayerMaskAddType;
 import pixelitor.layers.MaskViewMode;
+import pixelitor.menus.LazyMenu;
 import pixelitor.tools.Tools;
 import pixelitor.tools.pen.Path;
 import pixelitor.utils.AppPreferences;
+import pixelitor.utils.Icons;
 import pixelitor.utils.Messages;
 import pixelitor.utils.Shapes;
 import pixelitor.utils.Utils;
+import pixelitor.utils.debug.StartupTiming;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.EventQueue;
 import java.awt.event.KeyEvent;
@@ -63,6 +67,8 @@ public class Pixelitor {
     }
 
     public static void main(String[] args) {
+        StartupTiming.mainStarted();
+
         // the app can be put into development mode by
         // adding -Dpixelitor.development=true to the command line
         if ("true".equals(System.getProperty("pixelitor.development"))) {
@@ -91,15 +97,23 @@ public class Pixelitor {
         // on the main thread, so that later no unexpected delays happen.
         // This is OK because static initializers are thread safe.
         FastMath.cos(0.1);
+
+        // The main thread has nothing else to do, so it can also scan
+        // the ImageIO plugins while the EDT is building the GUI.
+        ImageIO.getReaderFileSuffixes();
     }
 
     private static void createAndShowGUI(String[] args) {
         assert EventQueue.isDispatchThread() : "not EDT thread";
 
         setLookAndFeel();
+        StartupTiming.phaseFinished("Look and Feel");
 
         PixelitorWindow pw = PixelitorWindow.getInstance();
         Dialogs.setMainWindowInitialized(true);
+        StartupTiming.phaseFinished("Main Window");
+
+        warmUpAsync();
 
         // Just to make 100% sure that at the end of GUI
         // initialization the focus is not grabbed by
@@ -119,6 +133,31 @@ public class Pixelitor {
         afterStartTestActions(pw);
     }
 
+    /**
+     * Does the work that was deferred in order to show the main window
+     * as soon as possible: the icons are loaded on a background thread,
+     * and the lazy menus are populated on the EDT, one menu per event.
+     */
+    private static void warmUpAsync() {
+        CompletableFuture<Void> iconsLoaded = CompletableFuture.runAsync(
+                Icons::preloadAll, ThreadPool.getExecutor());
+
+        LazyMenu.populateAllGradually(() -> iconsLoaded
+                .thenRun(Pixelitor::startupFinished)
+                .exceptionally(Messages::showExceptionOnEDT));
+    }
+
+    private static void startupFinished() {
+        StartupTiming.phaseFinished("Background Warm-up");
+        StartupTiming.startupFinished();
+
+        // used for creating a class data sharing archive
+        // at build time, see the appcds profile in pom.xml
+        if ("true".equals(System.getProperty("pixelitor.exitAfterStartup"))) {
+            System.exit(0);
+        }
+    }
+
     private static void setLookAndFeel() {
         try {
 //            // https://docs.oracle.com/javase/tutorial/uiswing/lookandfeel/color.html
@@ -35,7 +35,7 @@ public class ThreadPool {
     private static final int NUM_AVAILABLE_PROCESSORS = Runtime.getRuntime().availableProcessors();
 
     private static final ExecutorService executorService =
-            Executors.newFixedThreadPool(NUM_AVAILABLE_PROCESSORS);
+            Executors.newFixedThreadPool(NUM_AVAILABLE_PROCESSORS, PoolThread::new);
 
     private ThreadPool() {
     }
@@ -112,6 +112,49 @@ public class ThreadPool {
         }
     }
 
+    /**
+     * Splits the range [0, size) into one part for each thread, runs
+     * the given task on the parts in parallel, and waits for the results.
+     * If the size is smaller than minSizeForThreads, the task is run
+     * on the calling thread for the whole range.
+     */
+    public static void parallelFor(int size, int minSizeForThreads, RangeTask task) {
+        int numParts = NUM_AVAILABLE_PROCESSORS;
+        // if a pool thread waited for other pool threads,
+        // the pool could run out of threads and deadlock
+        boolean nested = Thread.currentThread() instanceof PoolThread;
+        if (size < minSizeForThreads || numParts == 1 || nested) {
+            task.run(0, size);
+            return;
+        }
+
+        int partSize = (size + numParts - 1) / numParts;
+        Future<?>[] futures = new Future<?>[numParts];
+        for (int i = 0; i < numParts; i++) {
+            int start = Math.min(size, i * partSize);
+            int end = Math.min(size, start + partSize);
+            futures[i] = executorService.submit(() -> task.run(start, end));
+        }
+        waitForFutures(futures, ProgressTracker.NULL_TRACKER);
+    }
+
+    /**
+     * A task that processes the indexes from start (inclusive) to end (exclusive)
+     */
+    public interface RangeTask {
+        void run(int start, int end);
+    }
+
+    private static class PoolThread extends Thread {
+        PoolThread(Runnable target) {
+            super(target);
+        }
+    }
+
+    public static int getNumThreads() {
+        return NUM_AVAILABLE_PROCESSORS;
+    }
+
     public static Executor getExecutor() {
         return executorService;
     }
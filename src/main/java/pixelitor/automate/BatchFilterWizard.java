@@ -18,10 +18,12 @@
 package pixelitor.automate;
 
 import pixelitor.filters.Filter;
+import pixelitor.filters.comp.CompAction;
 import pixelitor.gui.PixelitorWindow;
 import pixelitor.layers.Drawable;
 
 import java.awt.Component;
+import java.awt.image.BufferedImage;
 
 import static pixelitor.ChangeReason.BATCH_AUTOMATE;
 import static pixelitor.automate.BatchFilterWizardPage.SELECT_FILTER_AND_DIRS;
@@ -63,6 +65,26 @@ public class BatchFilterWizard extends Wizard {
 
     }
 
+    /**
+     * Returns an action that runs the given filter on the active
+     * layer or mask without any GUI interaction (no busy cursor,
+     * no status bar message, no "Repeat Last" update),
+     * so that it can be used for headless batch processing
+     */
+    public static CompAction createHeadlessAction(Filter filter) {
+        return comp -> {
+            Drawable dr = comp.getActiveDrawableOrThrow();
+            BufferedImage src = dr.getFilterSourceImage();
+            BufferedImage dest = filter.transformImage(src);
+            if (dest == src) {
+                // some filters return the source if their settings
+                // have no effect (for example ColorBalance)
+                return;
+            }
+            dr.filterWithoutDialogFinished(dest, BATCH_AUTOMATE, filter.getName());
+        };
+    }
+
     public Filter getFilter() {
         return filter;
     }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.automate;
+
+import pixelitor.automate.macro.Macro;
+import pixelitor.gui.utils.BrowseFilesSupport;
+import pixelitor.gui.utils.DialogBuilder;
+import pixelitor.gui.utils.GridBagHelper;
+import pixelitor.gui.utils.ValidatedPanel;
+import pixelitor.gui.utils.ValidationResult;
+import pixelitor.io.Dirs;
+import pixelitor.io.FileChoosers;
+import pixelitor.utils.Messages;
+
+import javax.swing.*;
+import java.awt.GridBagLayout;
+import java.io.File;
+import java.io.IOException;
+
+import static pixelitor.gui.utils.BrowseFilesSupport.SelectionMode.FILE;
+
+/**
+ * Runs a saved macro on all images in a folder
+ */
+public class BatchMacro {
+    private BatchMacro() { // do not instantiate
+    }
+
+    public static void start() {
+        BatchMacroPanel p = new BatchMacroPanel();
+        new DialogBuilder()
+                .validatedContent(p)
+                .title("Batch Macro")
+                .okAction(() -> dialogAccepted(p))
+                .show();
+    }
+
+    private static void dialogAccepted(BatchMacroPanel p) {
+        p.saveValues();
+
+        Macro macro;
+        try {
+            macro = Macro.load(p.getMacroFile());
+        } catch (IOException e) {
+            Messages.showException(e);
+            return;
+        }
+        Automate.processEachFile(macro, "Batch Macro...");
+    }
+
+    /**
+     * The GUI for the batch macro
+     */
+    static class BatchMacroPanel extends ValidatedPanel {
+        private final BrowseFilesSupport macroChooser
+                = new BrowseFilesSupport(Dirs.getLastOpenPath(),
+                "Select Macro", FILE);
+        private final OpenSaveDirsPanel openSaveDirsPanel;
+
+        private BatchMacroPanel() {
+            macroChooser.setFileFilter(FileChoosers.macroFilter);
+
+            JPanel macroPanel = new JPanel(new GridBagLayout());
+            new GridBagHelper(macroPanel).addLabelWithTwoControls("Macro:",
+                    macroChooser.getNameTF(),
+                    macroChooser.getBrowseButton());
+
+            setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+            add(macroPanel);
+            openSaveDirsPanel = new OpenSaveDirsPanel(false);
+            add(openSaveDirsPanel);
+        }
+
+        @Override
+        public ValidationResult checkValidity() {
+            File macroFile = getMacroFile();
+            return openSaveDirsPanel.checkValidity()
+                    .addErrorIf(!macroFile.isFile(),
+                            "The macro file " + macroFile.getAbsolutePath()
+                                    + " does not exist.");
+        }
+
+        private void saveValues() {
+            openSaveDirsPanel.rememberValues();
+        }
+
+        private File getMacroFile() {
+            return macroChooser.getSelectedFile();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.automate;
+
+import pixelitor.automate.macro.Macro;
+import pixelitor.filters.Filter;
+import pixelitor.filters.comp.CompAction;
+import pixelitor.history.History;
+import pixelitor.io.FileUtils;
+import pixelitor.io.OutputFormat;
+import pixelitor.utils.ConsoleMessageHandler;
+import pixelitor.utils.Messages;
+import pixelitor.utils.ProgressTracker;
+
+import java.io.File;
+import java.io.IOException;
+
+import static java.lang.String.format;
+
+/**
+ * Command-line entry point for headless batch processing.
+ * Example:
+ * <pre>
+ * java -cp Pixelitor.jar pixelitor.automate.BatchMain \
+ *     -in photos -out thumbs -format jpg -threads 8 -resize 300x300
+ * </pre>
+ */
+public class BatchMain {
+    private static final String[] FILTER_PACKAGES = {
+            "",
+            "pixelitor.filters.",
+            "pixelitor.filters.jhlabsproxies.",
+            "pixelitor.filters.convolve.",
+            "pixelitor.filters.lookup.",
+            "pixelitor.filters.levels.",
+    };
+
+    private BatchMain() {
+        // should not be instantiated
+    }
+
+    public static void main(String[] args) {
+        // must happen before any AWT class is initialized
+        System.setProperty("java.awt.headless", "true");
+
+        Messages.setMessageHandler(new ConsoleMessageHandler());
+        // the undo history is global and not thread-safe,
+        // and it is not needed without a GUI anyway
+        History.setIgnoreEdits(true);
+
+        File inputDir = null;
+        File outputDir = null;
+        OutputFormat outputFormat = OutputFormat.JPG;
+        CompAction action = null;
+        boolean parallelActions = false;
+        int numThreads = -1;
+        long memoryLimitMB = -1;
+        boolean overwrite = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-in":
+                        inputDir = new File(args[++i]);
+                        break;
+                    case "-out":
+                        outputDir = new File(args[++i]);
+                        break;
+                    case "-format":
+                        outputFormat = OutputFormat.fromExtension(args[++i]);
+                        break;
+                    case "-threads":
+                        numThreads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-memory":
+                        memoryLimitMB = Long.parseLong(args[++i]);
+                        break;
+                    case "-overwrite":
+                        overwrite = true;
+                        break;
+                    case "-resize":
+                        action = parseResize(args[++i]);
+                        parallelActions = true;
+                        break;
+                    case "-filter":
+                        action = BatchFilterWizard.createHeadlessAction(
+                                createFilter(args[++i]));
+                        break;
+                    case "-macro":
+                        Macro macro = loadMacro(args[++i]);
+                        action = macro;
+                        parallelActions = macro.canRunInParallel();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument: " + arg);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            exitWithUsage("Missing value for the last argument");
+        } catch (IllegalArgumentException e) {
+            exitWithUsage(e.getMessage());
+        }
+
+        if (inputDir == null || !inputDir.isDirectory()) {
+            exitWithUsage("The input directory is missing or invalid");
+        }
+        if (outputDir == null || !outputDir.isDirectory()) {
+            exitWithUsage("The output directory is missing or invalid");
+        }
+        if (action == null) {
+            exitWithUsage("One of -resize, -filter or -macro must be given");
+        }
+
+        File[] inputFiles = FileUtils.listSupportedInputFilesIn(inputDir);
+        if (inputFiles == null || inputFiles.length == 0) {
+            System.out.println("There are no supported files in " + inputDir.getAbsolutePath());
+            return;
+        }
+
+        BatchProcessor processor = new BatchProcessor(action, outputFormat, outputDir);
+        if (numThreads > 0) {
+            processor.withThreads(numThreads);
+        }
+        if (memoryLimitMB > 0) {
+            processor.withMemoryLimitMB(memoryLimitMB);
+        }
+        if (parallelActions) {
+            processor.parallelActions();
+        }
+        if (overwrite) {
+            processor.overwriteExisting();
+        }
+
+        long startTime = System.nanoTime();
+        processor.process(inputFiles, new ConsoleProgressTracker(inputFiles.length));
+        long totalTime = (System.nanoTime() - startTime) / 1_000_000;
+
+        System.out.println(format("Finished in %.1f s: %d processed, %d skipped, %d failed",
+                totalTime / 1000.0,
+                processor.getNumProcessed(),
+                processor.getNumSkipped(),
+                processor.getNumFailed()));
+
+        // the thread pool threads are not daemon threads
+        System.exit(processor.getNumFailed() == 0 ? 0 : 1);
+    }
+
+    private static CompAction parseResize(String arg) {
+        String[] parts = arg.toLowerCase().split("x");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("The resize argument should be like 300x200, found " + arg);
+        }
+        int maxWidth = Integer.parseInt(parts[0].trim());
+        int maxHeight = Integer.parseInt(parts[1].trim());
+        return BatchResize.createResizeAction(maxWidth, maxHeight);
+    }
+
+    /**
+     * Creates a filter with its default settings from a
+     * simple or fully qualified class name
+     */
+    private static Filter createFilter(String className) {
+        for (String pkg : FILTER_PACKAGES) {
+            Class<?> filterClass;
+            try {
+                filterClass = Class.forName(pkg + className);
+            } catch (ClassNotFoundException e) {
+                continue;
+            }
+            if (!Filter.class.isAssignableFrom(filterClass)) {
+                throw new IllegalArgumentException(className + " is not a filter");
+            }
+            try {
+                return (Filter) filterClass.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Could not create " + className, e);
+            }
+        }
+        throw new IllegalArgumentException("Filter not found: " + className);
+    }
+
+    private static Macro loadMacro(String fileName) {
+        try {
+            return Macro.load(new File(fileName));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not load the macro " + fileName, e);
+        }
+    }
+
+    private static void exitWithUsage(String msg) {
+        System.err.println(msg);
+        System.err.println("Usage: BatchMain -in <dir> -out <dir>"
+                + " (-resize <maxWidth>x<maxHeight> | -filter <filter class> | -macro <file>)"
+                + " [-format jpg|png|tiff|gif|bmp|ora|pxc]"
+                + " [-threads <n>] [-memory <MB>] [-overwrite]");
+        System.exit(2);
+    }
+
+    /**
+     * Prints the progress after every finished file
+     */
+    private static class ConsoleProgressTracker implements ProgressTracker {
+        private final int numFiles;
+        private int numDone = 0;
+
+        private ConsoleProgressTracker(int numFiles) {
+            this.numFiles = numFiles;
+        }
+
+        @Override
+        public synchronized void unitDone() {
+            unitsDone(1);
+        }
+
+        @Override
+        public synchronized void unitsDone(int units) {
+            numDone += units;
+            System.out.println(format("Progress: %d/%d", numDone, numFiles));
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.automate;
+
+import pixelitor.Composition;
+import pixelitor.filters.comp.CompAction;
+import pixelitor.io.FileUtils;
+import pixelitor.io.OpenSave;
+import pixelitor.io.OutputFormat;
+import pixelitor.io.SaveSettings;
+import pixelitor.io.TrackedIO;
+import pixelitor.utils.MemoryInfo;
+import pixelitor.utils.ProgressTracker;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static pixelitor.utils.MemoryInfo.ONE_MEGABYTE;
+
+/**
+ * Batch processing without a GUI: the compositions are loaded without
+ * image components, and several files are processed at the same time
+ * on worker threads, without using the EDT.
+ * <p>
+ * The memory usage is bounded: a file is admitted for processing only
+ * if its estimated decoded size fits into the remaining memory budget.
+ * Unlike {@link Automate}, this can be used also in headless mode,
+ * see {@link BatchMain}.
+ */
+public class BatchProcessor {
+    // the decoded image, the result of the action,
+    // and the composite image created while saving
+    private static final int IMAGE_COPIES_PER_FILE = 3;
+
+    private final CompAction action;
+    private final OutputFormat outputFormat;
+    private final File saveDir;
+
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private long memoryLimitMB = new MemoryInfo().getAvailableMemoryMB() * 3 / 4;
+    private boolean parallelActions = false;
+    private boolean overwrite = false;
+
+    // used only if the action itself can't run in parallel
+    private final Object actionLock = new Object();
+
+    private final AtomicInteger numProcessed = new AtomicInteger();
+    private final AtomicInteger numSkipped = new AtomicInteger();
+    private final AtomicInteger numFailed = new AtomicInteger();
+    private volatile boolean canceled = false;
+
+    public BatchProcessor(CompAction action, OutputFormat outputFormat, File saveDir) {
+        this.action = action;
+        this.outputFormat = outputFormat;
+        this.saveDir = saveDir;
+    }
+
+    public BatchProcessor withThreads(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("numThreads = " + numThreads);
+        }
+        this.numThreads = numThreads;
+        return this;
+    }
+
+    public BatchProcessor withMemoryLimitMB(long memoryLimitMB) {
+        if (memoryLimitMB < 1) {
+            throw new IllegalArgumentException("memoryLimitMB = " + memoryLimitMB);
+        }
+        this.memoryLimitMB = memoryLimitMB;
+        return this;
+    }
+
+    /**
+     * Declares that the action doesn't keep state between
+     * invocations, and therefore several compositions can be
+     * processed by it at the same time. Otherwise only the
+     * loading and saving runs in parallel.
+     */
+    public BatchProcessor parallelActions() {
+        parallelActions = true;
+        return this;
+    }
+
+    /**
+     * Existing output files are overwritten instead of being skipped
+     */
+    public BatchProcessor overwriteExisting() {
+        overwrite = true;
+        return this;
+    }
+
+    /**
+     * Processes the given files and blocks until all of them are finished.
+     * The given {@link ProgressTracker} gets one unit for each file.
+     */
+    public void process(File[] inputFiles, ProgressTracker pt) {
+        // the permits are megabytes
+        int budgetMB = (int) Math.min(memoryLimitMB, Integer.MAX_VALUE);
+        Semaphore memoryBudget = new Semaphore(budgetMB, true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads,
+                r -> new Thread(r, "[batch worker]"));
+        try {
+            List<Future<?>> futures = new ArrayList<>(inputFiles.length);
+            for (File file : inputFiles) {
+                int neededMB = Math.min(estimateMemoryMB(file), budgetMB);
+
+                // admission control: the submitting thread blocks
+                // until there is enough memory for this file
+                memoryBudget.acquireUninterruptibly(neededMB);
+                if (canceled) {
+                    memoryBudget.release(neededMB);
+                    break;
+                }
+
+                futures.add(executor.submit(() -> {
+                    try {
+                        processFile(file);
+                    } finally {
+                        memoryBudget.release(neededMB);
+                        pt.unitDone();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    // processFile handles its own exceptions
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            executor.shutdown();
+            pt.finish();
+        }
+    }
+
+    private void processFile(File file) {
+        if (canceled) {
+            numSkipped.incrementAndGet();
+            return;
+        }
+
+        File outputFile = calcOutputFile(file);
+        if (outputFile.exists() && !overwrite) {
+            System.out.println("Skipping " + file.getName()
+                    + ", because " + outputFile.getName() + " exists");
+            numSkipped.incrementAndGet();
+            return;
+        }
+
+        try {
+            Composition comp = OpenSave.loadCompFromFile(file);
+            if (comp == null) {
+                System.err.println("Could not decode " + file.getAbsolutePath());
+                numFailed.incrementAndGet();
+                return;
+            }
+
+            try {
+                if (parallelActions) {
+                    action.process(comp);
+                } else {
+                    synchronized (actionLock) {
+                        action.process(comp);
+                    }
+                }
+
+                SaveSettings saveSettings = new SaveSettings(outputFormat, outputFile);
+                outputFormat.getSaveTask(comp, saveSettings).run();
+            } finally {
+                comp.dispose();
+            }
+
+            numProcessed.incrementAndGet();
+            System.out.println("Processed " + file.getName());
+        } catch (Throwable e) {
+            // one bad file should not stop an overnight run
+            System.err.println("Error while processing " + file.getAbsolutePath());
+            e.printStackTrace();
+            numFailed.incrementAndGet();
+        }
+    }
+
+    private File calcOutputFile(File inputFile) {
+        String outFileName = FileUtils.replaceExt(
+                inputFile.getName(), outputFormat.toString());
+        return new File(saveDir, outFileName);
+    }
+
+    /**
+     * Estimates the peak memory needed for processing the given
+     * file, without decoding the pixels.
+     */
+    private static int estimateMemoryMB(File file) {
+        long numBytes = TrackedIO.estimateDecodedBytes(file);
+        long mb = IMAGE_COPIES_PER_FILE * numBytes / ONE_MEGABYTE;
+        return (int) Math.max(1, Math.min(mb, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Stops admitting new files. The files that
+     * are already processed will be finished.
+     */
+    public void cancel() {
+        canceled = true;
+    }
+
+    public int getNumProcessed() {
+        return numProcessed.get();
+    }
+
+    public int getNumSkipped() {
+        return numSkipped.get();
+    }
+
+    public int getNumFailed() {
+        return numFailed.get();
+    }
+}
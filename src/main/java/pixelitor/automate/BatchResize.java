@@ -48,10 +48,19 @@ public class BatchResize {
         int maxWidth = p.getNewWidth();
         int maxHeight = p.getNewHeight();
 
-        CompAction resizeAction = new Resize(maxWidth, maxHeight, true);
+        CompAction resizeAction = createResizeAction(maxWidth, maxHeight);
         Automate.processEachFile(resizeAction, "Batch Resize...");
     }
 
+    /**
+     * Returns an action that resizes the images so that they fit into
+     * the given box. It keeps no state between invocations,
+     * so it can also process several images in parallel.
+     */
+    public static CompAction createResizeAction(int maxWidth, int maxHeight) {
+        return new Resize(maxWidth, maxHeight, true);
+    }
+
     /**
      * The GUI for batch resize
      */
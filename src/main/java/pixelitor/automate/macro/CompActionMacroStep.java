@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.automate.macro;
+
+import pixelitor.Composition;
+import pixelitor.filters.comp.CompAction;
+
+import java.io.Serializable;
+
+/**
+ * Encapsulates a {@link CompAction}, such as
+ * a resize, a rotation or a flip
+ */
+public class CompActionMacroStep implements MacroStep {
+    private static final long serialVersionUID = 1L;
+
+    private final CompAction action;
+    private final String name;
+
+    public <T extends CompAction & Serializable> CompActionMacroStep(T action, String name) {
+        this.action = action;
+        this.name = name;
+    }
+
+    @Override
+    public void execute(Composition comp) {
+        action.process(comp);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
@@ -14,17 +14,145 @@
  * You should have received a copy of the GNU General Public License
  * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
  */
-
 package pixelitor.automate.macro;
 
+import pixelitor.Composition;
+import pixelitor.automate.BatchFilterWizard;
+import pixelitor.filters.Filter;
+import pixelitor.filters.FilterAction;
+import pixelitor.filters.FilterUtils;
+import pixelitor.filters.ParametrizedFilter;
+import pixelitor.filters.PointOpFilter;
+import pixelitor.filters.RGBPixelOp;
+import pixelitor.filters.gui.FilterWithGUI;
+import pixelitor.filters.gui.ParamSet;
+import pixelitor.filters.gui.ParamSetState;
+import pixelitor.layers.Drawable;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+import static pixelitor.ChangeReason.BATCH_AUTOMATE;
+
 /**
- * Encapsulates a filter and its parameters
- *
- * The macro functionality is not finished!
+ * Encapsulates a filter and its parameters.
+ * A new filter instance is created for each execution, therefore
+ * the same step can be executed on several images in parallel.
  */
 public class FilterMacroStep implements MacroStep {
+    private static final long serialVersionUID = 1L;
+
+    private final String filterName;
+    private final Class<? extends Filter> filterClass;
+
+    // null for filters without parameters
+    private final ParamSetState paramSetState;
+
+    private FilterMacroStep(String filterName,
+                            Class<? extends Filter> filterClass,
+                            ParamSetState paramSetState) {
+        this.filterName = filterName;
+        this.filterClass = filterClass;
+        this.paramSetState = paramSetState;
+    }
+
+    /**
+     * Returns a step that replays the given filter with its
+     * current settings, or an empty Optional if this is not possible.
+     */
+    public static Optional<FilterMacroStep> from(Filter filter) {
+        ParamSetState state = null;
+        if (filter instanceof ParametrizedFilter) {
+            ParamSet paramSet = ((ParametrizedFilter) filter).getParamSet();
+            if (!paramSet.canCopyCompleteState()) {
+                // some settings (such as effects) couldn't be replayed
+                return Optional.empty();
+            }
+            state = paramSet.copyCompleteState();
+        } else if (filter instanceof FilterWithGUI) {
+            // filters with a custom GUI (such as Levels)
+            // don't keep their settings in params
+            return Optional.empty();
+        }
+        return Optional.of(new FilterMacroStep(
+                filter.getName(), filter.getClass(), state));
+    }
+
     @Override
-    public void execute() {
+    public void execute(Composition comp) {
+        Filter filter = createFilter();
+        BatchFilterWizard.createHeadlessAction(filter).process(comp);
+    }
+
+    /**
+     * Creates a new filter with the recorded settings.
+     * The filter is created through its menu action if it exists,
+     * otherwise (for example without a GUI) it is instantiated directly.
+     */
+    private Filter createFilter() {
+        Filter filter = FilterUtils.findFilterAction(filterName)
+                .map(FilterAction::createNewFilter)
+                .filter(filterClass::isInstance)
+                .orElseGet(this::instantiateFilterClass);
 
+        if (paramSetState != null) {
+            ((ParametrizedFilter) filter).getParamSet().setState(paramSetState);
+        }
+        return filter;
+    }
+
+    private Filter instantiateFilterClass() {
+        try {
+            return filterClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(
+                    "The filter '" + filterName + "' cannot be created", e);
+        }
+    }
+
+    boolean isPointOp() {
+        return PointOpFilter.class.isAssignableFrom(filterClass);
+    }
+
+    private RGBPixelOp createPixelOp() {
+        return ((PointOpFilter) createFilter()).toRGBPixelOp();
+    }
+
+    /**
+     * Executes the given point operation steps in a single pass over
+     * the pixels, without creating the intermediate images.
+     */
+    static void executeFused(Composition comp, List<FilterMacroStep> steps) {
+        assert steps.stream().allMatch(FilterMacroStep::isPointOp);
+
+        Drawable dr = comp.getActiveDrawableOrThrow();
+        BufferedImage src = dr.getFilterSourceImage();
+        if (!ImageUtils.hasPackedIntArray(src)) {
+            // for example layer masks: run the filters one by one
+            for (FilterMacroStep step : steps) {
+                step.execute(comp);
+            }
+            return;
+        }
+
+        RGBPixelOp fusedOp = null;
+        StringJoiner names = new StringJoiner(" + ");
+        for (FilterMacroStep step : steps) {
+            RGBPixelOp op = step.createPixelOp();
+            fusedOp = fusedOp == null ? op : fusedOp.andThen(op);
+            names.add(step.getName());
+        }
+
+        BufferedImage dest = ImageUtils.createImageWithSameCM(src);
+        FilterUtils.runRGBPixelOp(fusedOp, src, dest);
+        dr.filterWithoutDialogFinished(dest, BATCH_AUTOMATE, names.toString());
+    }
+
+    @Override
+    public String getName() {
+        return filterName;
     }
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.automate.macro;
+
+import pixelitor.Composition;
+import pixelitor.filters.comp.CompAction;
+import pixelitor.gui.ImageComponent;
+import pixelitor.history.CompositionReplacedEdit;
+import pixelitor.history.History;
+import pixelitor.layers.MaskViewMode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static pixelitor.Composition.ImageChangeActions.FULL;
+
+/**
+ * A recorded sequence of {@link MacroStep}s that can be replayed
+ * on the active image or on many files through the batch processing.
+ * Consecutive point operations are fused into a single pass.
+ */
+public class Macro implements CompAction, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String FILE_EXT = "pxm";
+
+    private final String name;
+    private final List<MacroStep> steps;
+
+    public Macro(String name, List<MacroStep> steps) {
+        this.name = name;
+        this.steps = new ArrayList<>(steps);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getNumSteps() {
+        return steps.size();
+    }
+
+    @Override
+    public void process(Composition comp) {
+        int numSteps = steps.size();
+        int i = 0;
+        while (i < numSteps) {
+            List<FilterMacroStep> pointOps = collectPointOps(i);
+            if (pointOps.size() > 1) {
+                FilterMacroStep.executeFused(comp, pointOps);
+                i += pointOps.size();
+            } else {
+                steps.get(i).execute(comp);
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the same macro instance can be executed
+     * on several compositions at the same time. This is not true
+     * for the tool strokes, because the tools are shared.
+     */
+    public boolean canRunInParallel() {
+        for (MacroStep step : steps) {
+            if (step instanceof ToolStrokeMacroStep) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the consecutive point operation steps
+     * starting at the given index.
+     */
+    private List<FilterMacroStep> collectPointOps(int startIndex) {
+        List<FilterMacroStep> pointOps = new ArrayList<>();
+        for (int i = startIndex; i < steps.size(); i++) {
+            MacroStep step = steps.get(i);
+            if (!(step instanceof FilterMacroStep)) {
+                break;
+            }
+            FilterMacroStep filterStep = (FilterMacroStep) step;
+            if (!filterStep.isPointOp()) {
+                break;
+            }
+            pointOps.add(filterStep);
+        }
+        return pointOps;
+    }
+
+    /**
+     * Runs the macro on an open composition so that
+     * the whole macro can be undone in a single step.
+     * Only one backup is made, instead of one for each step.
+     */
+    public void runWithUndo(Composition comp) {
+        ImageComponent ic = comp.getIC();
+        MaskViewMode oldMode = ic.getMaskViewMode();
+        Composition backup = Composition.createCopy(comp, true);
+
+        History.setIgnoreEdits(true);
+        try {
+            process(comp);
+        } finally {
+            History.setIgnoreEdits(false);
+        }
+
+        History.addEdit(new CompositionReplacedEdit(
+                name, ic, backup, comp, oldMode));
+
+        comp.updateAllIconImages();
+        comp.imageChanged(FULL);
+    }
+
+    public void save(File file) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeObject(this);
+        }
+    }
+
+    public static Macro load(File file) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            return (Macro) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(file.getName() + " is not a valid macro file", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
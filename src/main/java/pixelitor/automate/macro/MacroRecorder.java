@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.automate.macro;
+
+import pixelitor.Composition;
+import pixelitor.filters.Filter;
+import pixelitor.gui.ImageComponents;
+import pixelitor.io.FileChoosers;
+import pixelitor.io.FileUtils;
+import pixelitor.utils.Messages;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Records the user actions into a {@link Macro}.
+ * All the recording methods are called on the EDT.
+ */
+public class MacroRecorder {
+    // null if no macro is being recorded
+    private static List<MacroStep> recordedSteps = null;
+
+    private MacroRecorder() {
+    }
+
+    public static boolean isRecording() {
+        return recordedSteps != null;
+    }
+
+    public static void record(MacroStep step) {
+        if (recordedSteps != null) {
+            recordedSteps.add(step);
+        }
+    }
+
+    public static void recordFilter(Filter filter) {
+        if (recordedSteps == null) {
+            return;
+        }
+        Optional<FilterMacroStep> step = FilterMacroStep.from(filter);
+        if (step.isPresent()) {
+            recordedSteps.add(step.get());
+        } else {
+            Messages.showInStatusBar("<b>" + filter.getName()
+                    + "</b> cannot be recorded in macros.");
+        }
+    }
+
+    public static void startRecording() {
+        recordedSteps = new ArrayList<>();
+        Messages.showInStatusBar("Recording a macro...");
+    }
+
+    public static void stopRecordingAndSave() {
+        if (recordedSteps == null) {
+            Messages.showInfo("Not Recording", "No macro is being recorded.");
+            return;
+        }
+        List<MacroStep> steps = recordedSteps;
+        recordedSteps = null;
+
+        if (steps.isEmpty()) {
+            Messages.showInfo("Empty Macro", "No steps were recorded.");
+            return;
+        }
+
+        File file = FileChoosers.selectMacroFileToSave();
+        if (file == null) { // cancelled
+            return;
+        }
+        Macro macro = new Macro(FileUtils.stripExtension(file.getName()), steps);
+        try {
+            macro.save(file);
+            Messages.showFileSavedMessage(file);
+        } catch (IOException e) {
+            Messages.showException(e);
+        }
+    }
+
+    public static void loadAndRunOnActiveImage() {
+        File file = FileChoosers.selectMacroFileToOpen();
+        if (file == null) { // cancelled
+            return;
+        }
+        Composition comp = ImageComponents.getActiveCompOrNull();
+        if (comp == null) {
+            return;
+        }
+        try {
+            Macro macro = Macro.load(file);
+            macro.runWithUndo(comp);
+        } catch (IOException e) {
+            Messages.showException(e);
+        }
+    }
+}
@@ -14,16 +14,22 @@
  * You should have received a copy of the GNU General Public License
  * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
  */
-
 package pixelitor.automate.macro;
 
+import pixelitor.Composition;
+
+import java.io.Serializable;
+
 /**
  * A step of a recorded macro.
  * Following the Command design pattern it encapsulates
- * a user action that can be replayed.
- *
- * The macro functionality is not finished!
+ * a user action that can be replayed on any composition.
  */
-public interface MacroStep {
-    void execute();
+public interface MacroStep extends Serializable {
+    void execute(Composition comp);
+
+    /**
+     * A short description of the step, used in messages
+     */
+    String getName();
 }
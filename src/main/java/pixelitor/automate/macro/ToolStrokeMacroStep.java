@@ -14,17 +14,52 @@
  * You should have received a copy of the GNU General Public License
  * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
  */
-
 package pixelitor.automate.macro;
 
+import pixelitor.Composition;
+import pixelitor.tools.AbstractBrushTool;
+import pixelitor.tools.Tool;
+import pixelitor.tools.Tools;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.geom.Path2D;
+
 /**
- * Encapsulates a tool stroke
- *
- * The macro functionality is not finished!
+ * Encapsulates a brush tool stroke. The path is stored
+ * in image coordinates, and it is replayed with
+ * the current settings of the tool.
  */
 public class ToolStrokeMacroStep implements MacroStep {
+    private static final long serialVersionUID = 1L;
+
+    private final String toolName;
+    private final Path2D path;
+
+    public ToolStrokeMacroStep(String toolName, Path2D path) {
+        this.toolName = toolName;
+        this.path = path;
+    }
+
     @Override
-    public void execute() {
+    public void execute(Composition comp) {
+        if (GraphicsEnvironment.isHeadless()) {
+            throw new IllegalStateException(
+                    "Tool strokes can be replayed only in the GUI");
+        }
+        findTool().trace(comp.getActiveDrawableOrThrow(), path);
+    }
 
+    private AbstractBrushTool findTool() {
+        for (Tool tool : Tools.getAll()) {
+            if (tool.getName().equals(toolName)) {
+                return (AbstractBrushTool) tool;
+            }
+        }
+        throw new IllegalStateException("tool " + toolName + " not found");
+    }
+
+    @Override
+    public String getName() {
+        return toolName;
     }
 }
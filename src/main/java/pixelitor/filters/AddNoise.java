@@ -18,12 +18,14 @@
 package pixelitor.filters;
 
 import com.jhlabs.image.ImageMath;
+import pixelitor.ThreadPool;
 import pixelitor.filters.gui.IntChoiceParam;
 import pixelitor.filters.gui.IntChoiceParam.Value;
 import pixelitor.filters.gui.RangeParam;
 import pixelitor.filters.gui.ShowOriginal;
 import pixelitor.utils.ImageUtils;
 import pixelitor.utils.ProgressTracker;
+import pixelitor.utils.RandomStream;
 import pixelitor.utils.ReseedSupport;
 import pixelitor.utils.StatusBarProgressTracker;
 
@@ -42,6 +44,9 @@ public class AddNoise extends ParametrizedFilter {
     private static final int METHOD_FASTER = 1;
     private static final int METHOD_COVERAGE_ANIM = 2;
 
+    // smaller images are not worth splitting between the threads
+    private static final int MIN_LINES_FOR_THREADS = 16;
+
     private final RangeParam opacityParam = new RangeParam("Opacity (%)", 0, 100, 100);
     private final RangeParam coverageParam = new RangeParam("Coverage (%)", 0, 50, 100);
     private final RangeParam saturationParam = new RangeParam("Saturation (%)", 0, 100, 100);
@@ -50,8 +55,6 @@ public class AddNoise extends ParametrizedFilter {
             new Value("Smooth Coverage Animation", METHOD_COVERAGE_ANIM),
     });
 
-    private final float[] tmpHSV = new float[3];
-
     public AddNoise() {
         super(ShowOriginal.YES);
 
@@ -65,22 +68,41 @@ public class AddNoise extends ParametrizedFilter {
 
     @Override
     public BufferedImage doTransform(BufferedImage src, BufferedImage dest) {
-        Random rand = ReseedSupport.reInitialize();
-
         if (src.getType() == TYPE_BYTE_GRAY) {
-            return addNoiseToGray(src, dest, rand);
+            return addNoiseToGray(src, dest, ReseedSupport.reInitialize());
         }
 
         boolean coverageAnim = method.getValue() == METHOD_COVERAGE_ANIM;
-        return addNoiseToRGB(src, dest, coverageAnim, rand);
+        return addNoiseToRGB(src, dest, coverageAnim);
     }
 
     private BufferedImage addNoiseToRGB(BufferedImage src, BufferedImage dest,
-                                        boolean coverageAnim, Random rand) {
+                                        boolean coverageAnim) {
         int[] srcData = ImageUtils.getPixelsAsArray(src);
         int[] destData = ImageUtils.getPixelsAsArray(dest);
-        int length = destData.length;
+        int width = dest.getWidth();
+        int height = dest.getHeight();
+
+        // every line has its own random stream, therefore the
+        // result doesn't depend on how the lines are split between the threads
+        long seed = ReseedSupport.getSeed();
+
+        ThreadPool.parallelFor(height, MIN_LINES_FOR_THREADS, (start, end) -> {
+            RandomStream rand = new RandomStream(seed, start);
+            for (int y = start; y < end; y++) {
+                rand.setStream(seed, y);
+                int lineStart = y * width;
+                addNoiseToLine(srcData, destData,
+                        lineStart, lineStart + width, coverageAnim, rand);
+            }
+        });
 
+        return dest;
+    }
+
+    private void addNoiseToLine(int[] srcData, int[] destData,
+                                int start, int end,
+                                boolean coverageAnim, Random rand) {
         boolean fullSaturation = saturationParam.getValue() == 100;
         boolean fullOpacity = opacityParam.getValue() == 100;
 
@@ -88,19 +110,9 @@ public class AddNoise extends ParametrizedFilter {
         float saturationPercentage = saturationParam.getValueAsPercentage();
         float coveragePercentage = coverageParam.getValueAsPercentage();
 
-        int workUnit = 100_000;
-        int counter = 0;
-        int numWorkUnits = length / workUnit;
-        ProgressTracker pt = new StatusBarProgressTracker(NAME, numWorkUnits);
-
-        for (int i = 0; i < length; i++) {
-            // count at the beginning of the loop because of early returns
-            counter++;
-            if (counter == workUnit) {
-                counter = 0;
-                pt.unitDone();
-            }
+        float[] tmpHSV = new float[3];
 
+        for (int i = start; i < end; i++) {
             int srcRGB = srcData[i];
 
             int randomInt = 0;
@@ -159,9 +171,6 @@ public class AddNoise extends ParametrizedFilter {
                 }
             }
         }
-        pt.finish();
-
-        return dest;
     }
 
     private BufferedImage addNoiseToGray(BufferedImage src, BufferedImage dest,
@@ -21,8 +21,6 @@ import pd.CannyEdgeDetector;
 import pixelitor.filters.gui.BooleanParam;
 import pixelitor.filters.gui.RangeParam;
 import pixelitor.filters.gui.ShowOriginal;
-import pixelitor.utils.MemoryInfo;
-import pixelitor.utils.Messages;
 
 import java.awt.image.BufferedImage;
 
@@ -56,18 +54,6 @@ public class Canny extends ParametrizedFilter {
 
     @Override
     public BufferedImage doTransform(BufferedImage src, BufferedImage dest) {
-        long estimatedMemoryMB = estimateNeededMemoryMB(src);
-        System.gc(); // needed for the memory estimation
-        MemoryInfo memoryInfo = new MemoryInfo();
-        long availableMemoryMB = memoryInfo.getAvailableMemoryMB();
-
-        if (estimatedMemoryMB > availableMemoryMB) {
-            showNotEnoughMemoryDialog(estimatedMemoryMB, availableMemoryMB);
-            dest = src;
-            return dest;
-        }
-
-        // do not cache this object because it holds a lot of memory!
         CannyEdgeDetector detector = new CannyEdgeDetector();
 
         detector.setLowThreshold(lowThreshold.getValueAsPercentage());
@@ -84,27 +70,6 @@ public class Canny extends ParametrizedFilter {
         return dest;
     }
 
-    private static void showNotEnoughMemoryDialog(long estimatedMemoryMB,
-                                                  long availableMemoryMB) {
-        String msg = "This image is too large for the Canny edge detection algorithm.\n" +
-                "Press Cancel in the following dialog and try with smaller images.\n" +
-                "Available memory is " + availableMemoryMB +
-                " megabytes, memory needed for this image is " + estimatedMemoryMB
-                + " megabytes.";
-        Messages.showInfo("Not enough memory", msg);
-    }
-
-    private static long estimateNeededMemoryMB(BufferedImage src) {
-        int width = src.getWidth();
-        int height = src.getHeight();
-        long numPixels = (long) width * height;
-        // 6 arrays with 4-byte data type
-        long estimatedMemoryMB = 6 * numPixels * 4 / MemoryInfo.ONE_MEGABYTE;
-        // 1.8 was found experimentally, this is still needed to prevent OutOfMemory errors
-        estimatedMemoryMB = (long) (estimatedMemoryMB * 1.8);
-        return estimatedMemoryMB;
-    }
-
     @Override
     public boolean supportsGray() {
         return false;
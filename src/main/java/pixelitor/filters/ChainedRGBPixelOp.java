@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.filters;
+
+/**
+ * Two {@link RGBPixelOp}s applied after each other, without
+ * storing the intermediate result. When a new operation is appended,
+ * it is merged with the last one if possible (for example two
+ * lookup tables are merged into a single lookup table).
+ */
+class ChainedRGBPixelOp implements RGBPixelOp {
+    private final RGBPixelOp first;
+    private final RGBPixelOp second;
+
+    ChainedRGBPixelOp(RGBPixelOp first, RGBPixelOp second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public int changeRGB(int a, int r, int g, int b) {
+        int rgb = first.changeRGB(a, r, g, b);
+        return second.changeRGB(
+                (rgb >>> 24) & 0xFF,
+                (rgb >>> 16) & 0xFF,
+                (rgb >>> 8) & 0xFF,
+                rgb & 0xFF);
+    }
+
+    @Override
+    public RGBPixelOp andThen(RGBPixelOp next) {
+        RGBPixelOp merged = second.andThen(next);
+        if (merged instanceof ChainedRGBPixelOp) {
+            // the last op and the next op could not be merged
+            return new ChainedRGBPixelOp(this, next);
+        }
+        return new ChainedRGBPixelOp(first, merged);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.filters;
+
+import com.jhlabs.image.PixelUtils;
+
+/**
+ * An {@link RGBPixelOp} that computes each new channel value as a
+ * linear combination of the old red, green and blue values plus an offset.
+ *
+ * Two such operations applied after each other are merged into a single
+ * matrix only if the result is provably the same as applying them one
+ * by one, including the truncation and clamping of the intermediate
+ * values. This is the case if one of them only selects channels.
+ */
+public class ChannelMatrixOp implements RGBPixelOp {
+    // row-major 3x4 matrix: the 3x3 channel weights and the offsets
+    private final float[] m;
+
+    public ChannelMatrixOp(float rfr, float rfg, float rfb, float rOffset,
+                           float gfr, float gfg, float gfb, float gOffset,
+                           float bfr, float bfg, float bfb, float bOffset) {
+        this(new float[]{
+                rfr, rfg, rfb, rOffset,
+                gfr, gfg, gfb, gOffset,
+                bfr, bfg, bfb, bOffset});
+    }
+
+    private ChannelMatrixOp(float[] m) {
+        this.m = m;
+    }
+
+    @Override
+    public int changeRGB(int a, int r, int g, int b) {
+        int newRed = (int) (m[0] * r + m[1] * g + m[2] * b + m[3]);
+        int newGreen = (int) (m[4] * r + m[5] * g + m[6] * b + m[7]);
+        int newBlue = (int) (m[8] * r + m[9] * g + m[10] * b + m[11]);
+
+        newRed = PixelUtils.clamp(newRed);
+        newGreen = PixelUtils.clamp(newGreen);
+        newBlue = PixelUtils.clamp(newBlue);
+
+        return (a << 24) | (newRed << 16) | (newGreen << 8) | newBlue;
+    }
+
+    @Override
+    public RGBPixelOp andThen(RGBPixelOp next) {
+        if (!(next instanceof ChannelMatrixOp)) {
+            return RGBPixelOp.super.andThen(next);
+        }
+        ChannelMatrixOp other = (ChannelMatrixOp) next;
+        if (other.isChannelSelection()) {
+            // each new row is an old row (including its clamping) or zero
+            float[] result = new float[12];
+            for (int row = 0; row < 3; row++) {
+                int selected = other.getSelectedChannel(row);
+                if (selected != -1) {
+                    System.arraycopy(m, selected * 4, result, row * 4, 4);
+                }
+            }
+            return new ChannelMatrixOp(result);
+        }
+        if (isChannelSelection() && selectsOnlyItself()) {
+            // some input channels are set to zero before the next matrix
+            float[] result = other.m.clone();
+            for (int channel = 0; channel < 3; channel++) {
+                if (getSelectedChannel(channel) == -1) {
+                    for (int row = 0; row < 3; row++) {
+                        result[row * 4 + channel] = 0;
+                    }
+                }
+            }
+            return new ChannelMatrixOp(result);
+        }
+        // the intermediate values must be truncated and clamped
+        return RGBPixelOp.super.andThen(next);
+    }
+
+    /**
+     * Returns true if every new channel is either an old
+     * channel (without scaling) or zero, without offsets
+     */
+    private boolean isChannelSelection() {
+        for (int row = 0; row < 3; row++) {
+            if (m[row * 4 + 3] != 0) {
+                return false;
+            }
+            int numOnes = 0;
+            for (int col = 0; col < 3; col++) {
+                float v = m[row * 4 + col];
+                if (v == 1) {
+                    numOnes++;
+                } else if (v != 0) {
+                    return false;
+                }
+            }
+            if (numOnes > 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // can be called only for channel selections
+    private boolean selectsOnlyItself() {
+        for (int row = 0; row < 3; row++) {
+            int selected = getSelectedChannel(row);
+            if (selected != -1 && selected != row) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // returns the old channel copied into the given row, or -1 for zero
+    private int getSelectedChannel(int row) {
+        for (int col = 0; col < 3; col++) {
+            if (m[row * 4 + col] == 1) {
+                return col;
+            }
+        }
+        return -1;
+    }
+}
@@ -17,7 +17,6 @@
 
 package pixelitor.filters;
 
-import com.jhlabs.image.PixelUtils;
 import pixelitor.filters.gui.ChannelMixerGUI;
 import pixelitor.filters.gui.FilterAction;
 import pixelitor.filters.gui.FilterGUI;
@@ -41,7 +40,7 @@ import static pixelitor.gui.utils.SliderSpinner.TextPosition.NONE;
 /**
  * The Channel Mixer filter
  */
-public class ChannelMixer extends ParametrizedFilter {
+public class ChannelMixer extends ParametrizedFilter implements PointOpFilter {
     public static final String NAME = "Channel Mixer";
 
     private static final int MIN_PERCENT = -200;
@@ -407,29 +406,7 @@ public class ChannelMixer extends ParametrizedFilter {
         boolean packedInt = ImageUtils.hasPackedIntArray(src);
 
         if (packedInt) {
-            int[] srcData = ImageUtils.getPixelsAsArray(src);
-            int[] destData = ImageUtils.getPixelsAsArray(dest);
-
-            int length = srcData.length;
-            assert length == destData.length;
-
-            for (int i = 0; i < length; i++) {
-                int rgb = srcData[i];
-                int a = rgb & 0xFF000000;
-                int r = (rgb >>> 16) & 0xFF;
-                int g = (rgb >>> 8) & 0xFF;
-                int b = (rgb) & 0xFF;
-
-                int newRed = (int) (rfr * r + rfg * g + rfb * b);
-                int newGreen = (int) (gfr * r + gfg * g + gfb * b);
-                int newBlue = (int) (bfr * r + bfg * g + bfb * b);
-
-                newRed = PixelUtils.clamp(newRed);
-                newGreen = PixelUtils.clamp(newGreen);
-                newBlue = PixelUtils.clamp(newBlue);
-
-                destData[i] = a | (newRed << 16) | (newGreen << 8) | newBlue;
-            }
+            dest = FilterUtils.runRGBPixelOp(toRGBPixelOp(), src, dest);
         } else { // not packed int
             BandCombineOp bandCombineOp = new BandCombineOp(new float[][]{
                     {rfr, rfg, rfb},
@@ -444,6 +421,20 @@ public class ChannelMixer extends ParametrizedFilter {
         return dest;
     }
 
+    @Override
+    public RGBPixelOp toRGBPixelOp() {
+        return new ChannelMatrixOp(
+                redFromRed.getValueAsPercentage(),
+                redFromGreen.getValueAsPercentage(),
+                redFromBlue.getValueAsPercentage(), 0,
+                greenFromRed.getValueAsPercentage(),
+                greenFromGreen.getValueAsPercentage(),
+                greenFromBlue.getValueAsPercentage(), 0,
+                blueFromRed.getValueAsPercentage(),
+                blueFromGreen.getValueAsPercentage(),
+                blueFromBlue.getValueAsPercentage(), 0);
+    }
+
     @Override
     public FilterGUI createGUI(Drawable dr) {
         return new ChannelMixerGUI(this, dr, presets);
@@ -23,7 +23,7 @@ import java.awt.image.BufferedImage;
 /**
  * Extracts a channel from the image
  */
-public class ExtractChannelFilter extends Filter {
+public class ExtractChannelFilter extends Filter implements PointOpFilter {
     private final RGBPixelOp rgbOp;
 
     public ExtractChannelFilter(RGBPixelOp rgbOp) {
@@ -35,6 +35,11 @@ public class ExtractChannelFilter extends Filter {
         return FilterUtils.runRGBPixelOp(rgbOp, src, dest);
     }
 
+    @Override
+    public RGBPixelOp toRGBPixelOp() {
+        return rgbOp;
+    }
+
     @Override
     public boolean supportsGray() {
         return false;
@@ -18,6 +18,7 @@
 package pixelitor.filters;
 
 import pixelitor.ChangeReason;
+import pixelitor.automate.macro.MacroRecorder;
 import pixelitor.gui.PixelitorWindow;
 import pixelitor.gui.utils.Dialogs;
 import pixelitor.gui.utils.GUIUtils;
@@ -25,11 +26,17 @@ import pixelitor.layers.Drawable;
 import pixelitor.layers.ImageLayer;
 import pixelitor.layers.LayerMask;
 import pixelitor.utils.ImageUtils;
+import pixelitor.utils.MemoryGovernor;
 import pixelitor.utils.Messages;
+import pixelitor.utils.VisibleForTesting;
+import pixelitor.utils.debug.Metrics;
 import pixelitor.utils.test.RandomGUITest;
 
 import java.awt.Component;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 import java.io.Serializable;
 
 import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
@@ -43,6 +50,8 @@ public abstract class Filter implements Serializable {
 
     private transient FilterAction filterAction;
 
+    public static final int NOT_TILEABLE = -1;
+
     // used for making sure that there are no
     // unnecessary filter executions triggered
     public static long runCount = 0;
@@ -55,6 +64,28 @@ public abstract class Filter implements Serializable {
      */
     protected abstract BufferedImage transform(BufferedImage src, BufferedImage dest);
 
+    /**
+     * Returns the number of neighboring rows that this filter needs above and below
+     * each pixel, or NOT_TILEABLE if the result of a pixel can depend on the whole
+     * image. If it's not NOT_TILEABLE, then the filter can be run in horizontal
+     * stripes when the image is too big for the available memory.
+     */
+    protected int getTileHalo() {
+        if (this instanceof PointOpFilter) {
+            return 0;
+        }
+        return NOT_TILEABLE;
+    }
+
+    /**
+     * Estimates the memory (in bytes) used by this filter while processing
+     * the given image, not counting the source and the destination images.
+     */
+    protected long estimateWorkingSetBytes(BufferedImage src) {
+        // most filters use an input and an output pixel array
+        return 2L * 4 * src.getWidth() * src.getHeight();
+    }
+
     /**
      * Whether a default destination image should be created before
      * running the filter. If this returns false,
@@ -73,6 +104,7 @@ public abstract class Filter implements Serializable {
      */
     public void startOn(Drawable dr) {
         startOn(dr, FILTER_WITHOUT_DIALOG);
+        MacroRecorder.recordFilter(this);
     }
 
     public void startOn(Drawable dr, ChangeReason cr) {
@@ -80,13 +112,21 @@ public abstract class Filter implements Serializable {
     }
 
     public void run(Drawable dr, ChangeReason cr, Component busyCursorParent) {
+        long startAllocated = Metrics.getAllocatedBytes();
         long startTime = System.nanoTime();
 
         Runnable task = () -> transformAndHandleExceptions(dr, cr);
         GUIUtils.runWithBusyCursor(busyCursorParent, task);
 
-        long totalTime = (System.nanoTime() - startTime) / 1_000_000;
-        Messages.showPerformanceMessage(getName(), totalTime);
+        long runTime = System.nanoTime() - startTime;
+        long allocated = startAllocated < 0 ? -1
+                : Math.max(0, Metrics.getAllocatedBytes() - startAllocated);
+        BufferedImage img = dr == null ? null : dr.getImage();
+        Metrics.filterRun(getName(),
+                img == null ? 0 : img.getWidth(),
+                img == null ? 0 : img.getHeight(),
+                runTime, allocated);
+        Messages.showPerformanceMessage(getName(), runTime / 1_000_000);
 
         FilterUtils.setLastFilter(this);
     }
@@ -147,11 +187,25 @@ public abstract class Filter implements Serializable {
         }
 
         BufferedImage dest = null;
-        if (createDefaultDestImg()) {
-            dest = ImageUtils.createImageWithSameCM(src);
+        int halo = getTileHalo();
+        int numStripes = 1;
+        if (halo != NOT_TILEABLE) {
+            long destBytes = 4L * src.getWidth() * src.getHeight();
+            // each stripe has a copy of its source and its own result
+            long copyBytesPerRow = 2 * 4L * src.getWidth();
+            numStripes = MemoryGovernor.calcNumStripes(src.getHeight(),
+                    destBytes, estimateWorkingSetBytes(src), copyBytesPerRow, halo);
         }
 
-        dest = transform(src, dest);
+        if (numStripes > 1) {
+            // slower, but it doesn't run out of memory
+            dest = transformInStripes(src, numStripes, halo);
+        } else {
+            if (createDefaultDestImg()) {
+                dest = ImageUtils.createImageWithSameCM(src);
+            }
+            dest = transform(src, dest);
+        }
 
         if (convertFromGray) { // convert the result back
             dest = ImageUtils.convertToGrayScaleImage(dest);
@@ -164,6 +218,39 @@ public abstract class Filter implements Serializable {
         return dest;
     }
 
+    @VisibleForTesting
+    BufferedImage transformInStripes(BufferedImage src, int numStripes, int halo) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        BufferedImage dest = ImageUtils.createImageWithSameCM(src);
+        WritableRaster destRaster = dest.getRaster();
+
+        int stripeHeight = (height + numStripes - 1) / numStripes;
+        for (int y = 0; y < height; y += stripeHeight) {
+            int rows = Math.min(stripeHeight, height - y);
+            int top = Math.max(0, y - halo);
+            int bottom = Math.min(height, y + rows + halo);
+
+            BufferedImage stripeSrc = ImageUtils.getCopyOfSubimage(src,
+                    new Rectangle(0, top, width, bottom - top));
+            BufferedImage stripeDest = null;
+            if (createDefaultDestImg()) {
+                stripeDest = ImageUtils.createImageWithSameCM(stripeSrc);
+            }
+            stripeDest = transform(stripeSrc, stripeDest);
+
+            if (stripeDest.getWidth() != width || stripeDest.getHeight() != bottom - top) {
+                throw new IllegalStateException(getName() + " changed the size of a stripe");
+            }
+
+            // copy the stripe without the halo rows into the result
+            Raster stripeRows = stripeDest.getRaster().createChild(
+                    0, y - top, width, rows, 0, y, null);
+            destRaster.setRect(stripeRows);
+        }
+        return dest;
+    }
+
     public void setFilterAction(FilterAction filterAction) {
         this.filterAction = filterAction;
     }
@@ -83,6 +83,16 @@ public class FilterAction extends DrawableAction {
         return filter;
     }
 
+    /**
+     * Creates a new filter instance, independent of the one used
+     * by this action, for example for replaying macros
+     */
+    public Filter createNewFilter() {
+        Filter newFilter = filterSupplier.get();
+        newFilter.setFilterAction(this);
+        return newFilter;
+    }
+
     public FilterAction withListNamePrefix(String listNamePrefix) {
         this.listNamePrefix = listNamePrefix;
         return this;
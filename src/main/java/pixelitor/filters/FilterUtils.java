@@ -17,8 +17,12 @@
 
 package pixelitor.filters;
 
+import com.jhlabs.image.PixelUtils;
+import pixelitor.ThreadPool;
+import pixelitor.menus.LazyMenu;
 import pixelitor.utils.ImageUtils;
 import pixelitor.utils.RandomUtils;
+import pixelitor.utils.debug.Metrics;
 
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
@@ -28,13 +32,14 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
 
-import static java.lang.String.format;
 import static java.util.Comparator.comparing;
 
 /**
  * A utility class with static methods for managing filters
  */
 public class FilterUtils {
+    // the filters in lazy menus are added only when their
+    // menu is populated, see LazyMenu.populateAll()
     private static final List<FilterAction> allFilters = new ArrayList<>();
 
     // a performance optimization
@@ -42,31 +47,45 @@ public class FilterUtils {
 
     private static Filter lastFilter = null;
 
+    // below this size running a point operation on multiple threads is not worth it
+    private static final int MIN_PIXELS_FOR_THREADS = 64 * 1024;
+
     private FilterUtils() {
     }
 
     // it returns an array because JComboBox does not accept Lists as constructor arguments
     public static FilterAction[] getAllFiltersSorted() {
+        LazyMenu.populateAll();
         FilterAction[] filters = allFilters.toArray(EMPTY_FA_ARRAY);
         Arrays.sort(filters, comparing(FilterAction::getName));
         return filters;
     }
 
     public static FilterAction[] getAnimationFilters() {
+        LazyMenu.populateAll();
         return allFilters.stream()
                 .filter(FilterAction::isAnimationFilter)
                 .toArray(FilterAction[]::new);
     }
 
     public static FilterAction[] getAnimationFiltersSorted() {
+        LazyMenu.populateAll();
         return allFilters.stream()
                 .filter(FilterAction::isAnimationFilter)
                 .sorted(comparing(FilterAction::getListName))
                 .toArray(FilterAction[]::new);
     }
 
+    public static Optional<FilterAction> findFilterAction(String name) {
+        LazyMenu.populateAll();
+        return allFilters.stream()
+                .filter(fa -> fa.getName().equals(name))
+                .findFirst();
+    }
+
     public static Filter getRandomFilter(Predicate<Filter> conditions) {
         // tries to avoid the instantiation of filters
+        LazyMenu.populateAll();
         FilterAction filterAction;
         do {
             // try a random filter until all conditions are true
@@ -78,6 +97,7 @@ public class FilterUtils {
 
     public static Filter[] getFiltersShuffled(Predicate<Filter> predicate) {
         // used only in test code, no problem if all filters are instantiated
+        LazyMenu.populateAll();
         Filter[] filters = allFilters.stream()
                 .map(FilterAction::getFilter)
                 .filter(predicate).toArray(Filter[]::new);
@@ -98,13 +118,56 @@ public class FilterUtils {
         return Optional.ofNullable(lastFilter);
     }
 
+    /**
+     * Runs the given point operation on all pixels in a single pass.
+     * Packed int images are processed in parallel strips,
+     * and premultiplied images are unpremultiplied only once, even
+     * if the operation is a chain of several fused operations.
+     * The source and the destination can be the same image.
+     */
     public static BufferedImage runRGBPixelOp(RGBPixelOp pixelOp,
                                               BufferedImage src,
                                               BufferedImage dest) {
+        if (!ImageUtils.hasPackedIntArray(src) || !ImageUtils.hasPackedIntArray(dest)) {
+            runRGBPixelOpSlow(pixelOp, src, dest);
+            return dest;
+        }
+
         int[] srcData = ImageUtils.getPixelsAsArray(src);
         int[] destData = ImageUtils.getPixelsAsArray(dest);
+        assert srcData.length == destData.length;
+        boolean premultiplied = src.isAlphaPremultiplied();
+
+        ThreadPool.parallelFor(srcData.length, MIN_PIXELS_FOR_THREADS, (start, end) ->
+                runRGBPixelOp(pixelOp, srcData, destData, start, end, premultiplied));
+
+        return dest;
+    }
+
+    /**
+     * Runs the given point operation only on the rows between startY
+     * (inclusive) and endY (exclusive) of two packed int images
+     */
+    public static void runRGBPixelOp(RGBPixelOp pixelOp,
+                                     BufferedImage src, BufferedImage dest,
+                                     int startY, int endY) {
+        assert ImageUtils.hasPackedIntArray(src) && ImageUtils.hasPackedIntArray(dest);
+
+        int[] srcData = ImageUtils.getPixelsAsArray(src);
+        int[] destData = ImageUtils.getPixelsAsArray(dest);
+        assert srcData.length == destData.length;
+        boolean premultiplied = src.isAlphaPremultiplied();
+        int width = src.getWidth();
+        int offset = startY * width;
+
+        ThreadPool.parallelFor((endY - startY) * width, MIN_PIXELS_FOR_THREADS, (start, end) ->
+                runRGBPixelOp(pixelOp, srcData, destData,
+                        offset + start, offset + end, premultiplied));
+    }
 
-        for (int i = 0; i < srcData.length; i++) {
+    private static void runRGBPixelOp(RGBPixelOp pixelOp, int[] srcData, int[] destData,
+                                      int start, int end, boolean premultiplied) {
+        for (int i = start; i < end; i++) {
             int rgb = srcData[i];
 
             int a = (rgb >>> 24) & 0xFF;
@@ -112,10 +175,96 @@ public class FilterUtils {
             int g = (rgb >>> 8) & 0xFF;
             int b = (rgb) & 0xFF;
 
-            destData[i] = pixelOp.changeRGB(a, r, g, b);
+            if (!premultiplied || a == 255) {
+                destData[i] = pixelOp.changeRGB(a, r, g, b);
+            } else if (a == 0) {
+                destData[i] = 0;
+            } else {
+                destData[i] = changePremultipliedRGB(pixelOp, rgb);
+            }
         }
+    }
 
-        return dest;
+    /**
+     * Runs the given point operations after each other on the given packed
+     * int image, in place and in a single pass. The result is exactly the
+     * same as running them one by one: the operations are merged only where
+     * this is exact, and the partially transparent pixels of premultiplied
+     * images are premultiplied again after each operation.
+     */
+    public static void runFusedRGBPixelOps(List<RGBPixelOp> ops, BufferedImage img) {
+        assert ImageUtils.hasPackedIntArray(img);
+
+        RGBPixelOp merged = ops.get(0);
+        for (int i = 1; i < ops.size(); i++) {
+            merged = merged.andThen(ops.get(i));
+        }
+        RGBPixelOp fused = merged;
+        RGBPixelOp[] stages = ops.toArray(new RGBPixelOp[0]);
+
+        int[] data = ImageUtils.getPixelsAsArray(img);
+        boolean premultiplied = img.isAlphaPremultiplied();
+        ThreadPool.parallelFor(data.length, MIN_PIXELS_FOR_THREADS, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                int rgb = data[i];
+                int a = (rgb >>> 24) & 0xFF;
+                if (!premultiplied || a == 255) {
+                    data[i] = fused.changeRGB(a,
+                            (rgb >>> 16) & 0xFF, (rgb >>> 8) & 0xFF, rgb & 0xFF);
+                } else if (a == 0) {
+                    data[i] = 0;
+                } else {
+                    for (RGBPixelOp stage : stages) {
+                        rgb = changePremultipliedRGB(stage, rgb);
+                    }
+                    data[i] = rgb;
+                }
+            }
+        });
+    }
+
+    // runs the operation on a partially transparent premultiplied pixel
+    private static int changePremultipliedRGB(RGBPixelOp pixelOp, int rgb) {
+        int a = (rgb >>> 24) & 0xFF;
+
+        // unpremultiply
+        float f = 255.0f / a;
+        int ur = Math.min(255, (int) (((rgb >>> 16) & 0xFF) * f));
+        int ug = Math.min(255, (int) (((rgb >>> 8) & 0xFF) * f));
+        int ub = Math.min(255, (int) ((rgb & 0xFF) * f));
+
+        int newRGB = pixelOp.changeRGB(a, ur, ug, ub);
+
+        // premultiply with the new alpha
+        int na = (newRGB >>> 24) & 0xFF;
+        float f2 = na * (1.0f / 255.0f);
+        int nr = PixelUtils.clamp((int) (((newRGB >>> 16) & 0xFF) * f2));
+        int ng = PixelUtils.clamp((int) (((newRGB >>> 8) & 0xFF) * f2));
+        int nb = PixelUtils.clamp((int) ((newRGB & 0xFF) * f2));
+
+        return (na << 24) | (nr << 16) | (ng << 8) | nb;
+    }
+
+    // used for images without a packed int array, for example for gray masks
+    private static void runRGBPixelOpSlow(RGBPixelOp pixelOp,
+                                          BufferedImage src,
+                                          BufferedImage dest) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        int[] line = new int[width];
+        for (int y = 0; y < height; y++) {
+            // getRGB returns non-premultiplied colors
+            src.getRGB(0, y, width, 1, line, 0, width);
+            for (int x = 0; x < width; x++) {
+                int rgb = line[x];
+                line[x] = pixelOp.changeRGB(
+                        (rgb >>> 24) & 0xFF,
+                        (rgb >>> 16) & 0xFF,
+                        (rgb >>> 8) & 0xFF,
+                        rgb & 0xFF);
+            }
+            dest.setRGB(0, y, width, 1, line, 0, width);
+        }
     }
 
     public static void addFilter(FilterAction filter) {
@@ -123,11 +272,12 @@ public class FilterUtils {
     }
 
     public static void createAllFilters() {
+        LazyMenu.populateAll();
         long startTime = System.nanoTime();
 
         allFilters.forEach(FilterAction::getFilter);
 
-        double estimatedSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
-        System.out.println(format("FilterUtils::createAllFilters: estimatedSeconds = '%.2f'", estimatedSeconds));
+        long totalTime = (System.nanoTime() - startTime) / 1_000_000;
+        Metrics.record("Creating All Filters", "ms", totalTime);
     }
 }
@@ -27,7 +27,7 @@ import java.awt.image.BufferedImage;
 /**
  * Hue-Saturation (and Colorize) filter
  */
-public class HueSat extends ParametrizedFilter {
+public class HueSat extends ParametrizedFilter implements PointOpFilter {
     public static final String NAME = "Hue/Saturation";
 
     private static final int MIN_HUE = -180;
@@ -75,6 +75,17 @@ public class HueSat extends ParametrizedFilter {
         return dest;
     }
 
+    @Override
+    public RGBPixelOp toRGBPixelOp() {
+        if (hue.getValue() == 0 && saturation.getValue() == 0 && brightness.getValue() == 0) {
+            return (a, r, g, b) -> (a << 24) | (r << 16) | (g << 8) | b;
+        }
+        Impl impl = new Impl(hue.getValueAsFloat() / 360.0f,
+                saturation.getValueAsPercentage(),
+                brightness.getValueAsPercentage());
+        return (a, r, g, b) -> impl.filterRGB(0, 0, (a << 24) | (r << 16) | (g << 8) | b);
+    }
+
     private static class Impl extends PointFilter {
         private final float hueShift;
         private final float satShift;
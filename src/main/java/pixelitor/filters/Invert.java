@@ -24,15 +24,18 @@ import java.awt.image.BufferedImage;
 /**
  * Invert filter
  */
-public class Invert extends Filter {
+public class Invert extends Filter implements PointOpFilter {
     // for compatibility with older adjustment layer tests
     private static final long serialVersionUID = -6279018636064203421L;
 
     @Override
     public BufferedImage transform(BufferedImage src, BufferedImage dest) {
-        invertImage(src, dest);
+        return FilterUtils.runRGBPixelOp(toRGBPixelOp(), src, dest);
+    }
 
-        return dest;
+    @Override
+    public RGBPixelOp toRGBPixelOp() {
+        return (a, r, g, b) -> (a << 24) | ((255 - r) << 16) | ((255 - g) << 8) | (255 - b);
     }
 
     public static void invertImage(BufferedImage src, BufferedImage dest) {
@@ -117,4 +117,17 @@ public abstract class ParametrizedFilter extends FilterWithGUI {
     public void addParamsToFront(FilterParam... params) {
         paramSet.addParamsToFront(params);
     }
+
+    /**
+     * Returns a new instance of this filter with the same settings
+     */
+    public ParametrizedFilter copy() {
+        return new ParametrizedFilterState(this).createFilter();
+    }
+
+    // the params can't be serialized (for example in adjustment
+    // layers), so only their state is written to the stream
+    protected Object writeReplace() {
+        return new ParametrizedFilterState(this);
+    }
 }
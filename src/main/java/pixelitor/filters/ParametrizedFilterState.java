@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.filters;
+
+import pixelitor.filters.gui.ParamSetState;
+
+import java.io.Serializable;
+
+/**
+ * The serialized form of a {@link ParametrizedFilter}: the params
+ * themselves are not serializable, therefore only the filter class,
+ * the filter name and the param values are saved.
+ */
+class ParametrizedFilterState implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String filterName;
+    private final Class<? extends ParametrizedFilter> filterClass;
+    private final ParamSetState paramSetState;
+
+    ParametrizedFilterState(ParametrizedFilter filter) {
+        filterName = filter.getName();
+        filterClass = filter.getClass();
+        paramSetState = filter.getParamSet().copyCompleteState();
+    }
+
+    /**
+     * Creates a new filter instance with the saved settings.
+     * The filter is created through its menu action if it exists,
+     * so that it has the same name as the original.
+     */
+    ParametrizedFilter createFilter() {
+        ParametrizedFilter filter = FilterUtils.findFilterAction(filterName)
+                .map(FilterAction::createNewFilter)
+                .filter(filterClass::isInstance)
+                .map(f -> (ParametrizedFilter) f)
+                .orElseGet(this::instantiateFilterClass);
+        filter.getParamSet().setState(paramSetState);
+        return filter;
+    }
+
+    private ParametrizedFilter instantiateFilterClass() {
+        try {
+            return filterClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(
+                    "The filter '" + filterName + "' cannot be created", e);
+        }
+    }
+
+    private Object readResolve() {
+        return createFilter();
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.filters;
+
+/**
+ * A filter that changes the colors of all pixels uniformly
+ * and independently from each other (a "point operation").
+ * Consecutive point operations can be fused into a single
+ * pass over the pixels.
+ */
+public interface PointOpFilter {
+    /**
+     * Returns the pixel operation corresponding to the current
+     * settings of the filter. The returned operation works
+     * with colors that are not premultiplied.
+     */
+    RGBPixelOp toRGBPixelOp();
+}
@@ -29,7 +29,7 @@ import java.awt.image.ShortLookupTable;
 /**
  * Posterize filter
  */
-public class Posterize extends ParametrizedFilter {
+public class Posterize extends ParametrizedFilter implements PointOpFilter {
     public static final String NAME = "Posterize";
 
     private final RangeParam redLevels = new RangeParam("Red", 2, 2, 50);
@@ -51,11 +51,7 @@ public class Posterize extends ParametrizedFilter {
 
     @Override
     public BufferedImage doTransform(BufferedImage src, BufferedImage dest) {
-        int numRedLevels = redLevels.getValue();
-        int numGreenLevels = greenLevels.getValue();
-        int numBlueLevels = blueLevels.getValue();
-        RGBLookup rgbLookup = new RGBLookup();
-        rgbLookup.initFromPosterize(numRedLevels, numGreenLevels, numBlueLevels);
+        RGBLookup rgbLookup = createLookup();
 
         BufferedImageOp filterOp = new FastLookupOp((ShortLookupTable) rgbLookup.getLookupOp());
         filterOp.filter(src, dest);
@@ -63,6 +59,20 @@ public class Posterize extends ParametrizedFilter {
         return dest;
     }
 
+    @Override
+    public RGBPixelOp toRGBPixelOp() {
+        return createLookup();
+    }
+
+    private RGBLookup createLookup() {
+        int numRedLevels = redLevels.getValue();
+        int numGreenLevels = greenLevels.getValue();
+        int numBlueLevels = blueLevels.getValue();
+        RGBLookup rgbLookup = new RGBLookup();
+        rgbLookup.initFromPosterize(numRedLevels, numGreenLevels, numBlueLevels);
+        return rgbLookup;
+    }
+
     @Override
     public boolean excludedFromAnimation() {
         return true;
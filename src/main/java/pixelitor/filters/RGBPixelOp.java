@@ -28,6 +28,15 @@ public interface RGBPixelOp {
      */
     int changeRGB(int a, int r, int g, int b);
 
+    /**
+     * Returns a composed operation that first applies this operation,
+     * and then the given one, without storing the intermediate result.
+     * Implementations can override this to merge the two operations.
+     */
+    default RGBPixelOp andThen(RGBPixelOp next) {
+        return new ChainedRGBPixelOp(this, next);
+    }
+
     default FilterAction toFilterAction(String name) {
         return new FilterAction(name,
                 () -> new ExtractChannelFilter(this))
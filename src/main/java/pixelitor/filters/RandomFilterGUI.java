@@ -25,6 +25,7 @@ import pixelitor.layers.Drawable;
 import javax.swing.*;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
+import java.awt.Window;
 import java.awt.event.ActionListener;
 
 import static javax.swing.BorderFactory.createTitledBorder;
@@ -41,6 +42,7 @@ public class RandomFilterGUI extends FilterGUI {
     private final JPanel northPanel;
     private final JButton backButton;
     private final JButton forwardButton;
+    private final JButton variationsButton;
 
     protected RandomFilterGUI(Drawable dr) {
         super(null, dr); // the actual filter will be determined bellow
@@ -53,6 +55,11 @@ public class RandomFilterGUI extends FilterGUI {
         backButton = createButton("Back", e -> showFilter(filterSource.getPrevious()));
         forwardButton = createButton("Forward", e -> showFilter(filterSource.getNext()));
         createButton("Next Random Filter", e -> showFilter(filterSource.getRandom()));
+        variationsButton = createButton("Variations...", e ->
+                VariationsGallery.showVariationsOf((ParametrizedFilter) filter,
+                        dr, getWindow(), this::variationChosen));
+        createButton("Random Gallery...", e ->
+                VariationsGallery.showRandomFilters(dr, getWindow(), this::variationChosen));
 
         add(northPanel, BorderLayout.NORTH);
         realSettingsPanel = new JPanel();
@@ -75,6 +82,17 @@ public class RandomFilterGUI extends FilterGUI {
     private void updateEnabled() {
         backButton.setEnabled(filterSource.hasPrevious());
         forwardButton.setEnabled(filterSource.hasNext());
+        variationsButton.setEnabled(filter instanceof ParametrizedFilter);
+    }
+
+    private void variationChosen(ParametrizedFilter variation) {
+        filterSource.addToHistory(variation);
+        showFilter(variation);
+        updateEnabled();
+    }
+
+    private Window getWindow() {
+        return SwingUtilities.getWindowAncestor(this);
     }
 
     private void showFilter(Filter newFilter) {
@@ -80,7 +80,14 @@ public class RandomFilterSource {
                         && (!(filter instanceof Fade))
                         && (!(filter instanceof RandomFilter))
                         ));
+        addToHistory(randomFilter);
+        return randomFilter;
+    }
 
+    /**
+     * Adds a filter chosen in some other way as the newest filter
+     */
+    public void addToHistory(Filter filter) {
         if (lastFilter != null) { // not the first call
             previousIndex++;
         }
@@ -92,10 +99,9 @@ public class RandomFilterSource {
         }
 
         nextIndex++;
-        history.add(randomFilter);
+        history.add(filter);
 
-        lastFilter = randomFilter;
-        return randomFilter;
+        lastFilter = filter;
     }
 
     public boolean hasPrevious() {
@@ -20,6 +20,7 @@ package pixelitor.filters;
 import com.jhlabs.image.AbstractBufferedImageOp;
 import pixelitor.utils.ImageUtils;
 import pixelitor.utils.ProgressTracker;
+import pixelitor.utils.Resampler;
 import pixelitor.utils.SubtaskProgressTracker;
 
 import java.awt.Graphics2D;
@@ -55,30 +56,19 @@ public class ResizingFilterHelper {
             public int getWorkUnits(double resizeFactor) {
                 return 1 + (int) (resizeFactor / 2); // estimate
             }
-        }, BILINEAR12 {
+        }, MITCHELL { // highest quality, in two separable passes
             @Override
             public BufferedImage scaleUp(BufferedImage src, BufferedImage smallDest,
                                          double resizeFactor, ProgressTracker pt) {
-                return ImageUtils.enlargeSmooth(smallDest, src.getWidth(), src.getHeight(),
-                        VALUE_INTERPOLATION_BILINEAR, 1.2, pt);
-            }
-
-            @Override
-            public int getWorkUnits(double resizeFactor) {
-                return ImageUtils.getNumStepsForEnlargeSmooth(resizeFactor, 1.2);
-            }
-        }, BILINEAR11 { // highest quality with 1.1 steps
-
-            @Override
-            public BufferedImage scaleUp(BufferedImage src, BufferedImage smallDest,
-                                         double resizeFactor, ProgressTracker pt) {
-                return ImageUtils.enlargeSmooth(smallDest, src.getWidth(), src.getHeight(),
-                        VALUE_INTERPOLATION_BILINEAR, 1.1, pt);
+                BufferedImage dest = Resampler.resize(smallDest,
+                        src.getWidth(), src.getHeight(), Resampler.Filter.MITCHELL);
+                pt.unitDone();
+                return dest;
             }
 
             @Override
             public int getWorkUnits(double resizeFactor) {
-                return ImageUtils.getNumStepsForEnlargeSmooth(resizeFactor, 1.1);
+                return 1;
             }
         };
 
@@ -146,16 +136,11 @@ public class ResizingFilterHelper {
     }
 
     private BufferedImage getDownscaledSource() {
-        // For the downscaling there is no quality improvement if it is done
-        // in multiple steps, so this is always done the fast way.
+        // averaging the covered pixels is fast, and unlike
+        // a simple drawImage, it doesn't skip any details
         int smallWidth = (int) (srcWidth / resizeFactor);
         int smallHeight = (int) (srcHeight / resizeFactor);
-        BufferedImage smallSrc = ImageUtils.createSysCompatibleImage(smallWidth, smallHeight);
-        Graphics2D g = smallSrc.createGraphics();
-        g.scale(1.0 / resizeFactor, 1.0 / resizeFactor);
-        g.drawImage(src, 0, 0, null);
-        g.dispose();
-        return smallSrc;
+        return Resampler.resize(src, smallWidth, smallHeight, Resampler.Filter.BOX);
     }
 
     public ProgressTracker createFilterTracker(ProgressTracker realTracker,
@@ -26,7 +26,7 @@ import java.awt.image.BufferedImage;
 /**
  * Sepia filter based on Daniel Wreczycki's sepia filter
  */
-public class Sepia extends ParametrizedFilter {
+public class Sepia extends ParametrizedFilter implements PointOpFilter {
     public static final String NAME = "Sepia";
 
     private final RangeParam intensity = new RangeParam("Intensity", 0, 20, 100);
@@ -50,4 +50,16 @@ public class Sepia extends ParametrizedFilter {
         dest = filter.filter(src, dest);
         return dest;
     }
+
+    /**
+     * The same as {@link SepiaFilter}, expressed as a channel matrix
+     */
+    @Override
+    public RGBPixelOp toRGBPixelOp() {
+        float third = 1.0f / 3;
+        return new ChannelMatrixOp(
+                third, third, third, 40,
+                third, third, third, 20,
+                third, third, third, -intensity.getValue());
+    }
 }
\ No newline at end of file
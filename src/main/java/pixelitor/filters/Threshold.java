@@ -31,7 +31,7 @@ import static pixelitor.gui.utils.SliderSpinner.TextPosition.BORDER;
 /**
  * The Threshold filter
  */
-public class Threshold extends ParametrizedFilter {
+public class Threshold extends ParametrizedFilter implements PointOpFilter {
     public static final String NAME = "Threshold";
 
     private static final int CRIT_LUMINOSITY = 1;
@@ -59,9 +59,13 @@ public class Threshold extends ParametrizedFilter {
 
     @Override
     public BufferedImage doTransform(BufferedImage src, BufferedImage dest) {
+        return FilterUtils.runRGBPixelOp(toRGBPixelOp(), src, dest);
+    }
+
+    @Override
+    public RGBPixelOp toRGBPixelOp() {
         int basedOn = criterion.getValue();
-        RGBPixelOp pixelOp = getRGBPixelOp(threshold.getValueAsDouble(), basedOn);
-        return FilterUtils.runRGBPixelOp(pixelOp, src, dest);
+        return getRGBPixelOp(threshold.getValueAsDouble(), basedOn);
     }
 
     private static RGBPixelOp getRGBPixelOp(double threshold, int basedOn) {
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters;
+
+import pixelitor.Build;
+import pixelitor.ThreadPool;
+import pixelitor.gui.utils.DialogBuilder;
+import pixelitor.layers.Drawable;
+import pixelitor.utils.Messages;
+import pixelitor.utils.Resampler;
+
+import javax.swing.*;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.GridLayout;
+import java.awt.Window;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.awt.event.WindowEvent.WINDOW_CLOSING;
+
+/**
+ * A grid of filter variations, rendered on a downscaled copy of
+ * the layer. The visible tiles are rendered concurrently, and only
+ * the chosen variation is run on the full-sized image.
+ */
+public class VariationsGallery extends JPanel {
+    private static final int NUM_VARIATIONS = 12;
+    private static final int NUM_COLUMNS = 4;
+    private static final int PROXY_SIZE = 180;
+
+    // the downscaled copy of the last source image
+    private static WeakReference<BufferedImage> proxySource = new WeakReference<>(null);
+    private static BufferedImage cachedProxy;
+
+    private final BufferedImage proxy;
+    private final Supplier<ParametrizedFilter> variationSupplier;
+    private final Consumer<ParametrizedFilter> choiceAction;
+    private final JPanel grid = new JPanel(new GridLayout(0, NUM_COLUMNS, 4, 4));
+    private final List<Tile> tiles = new ArrayList<>();
+    private final JScrollPane scrollPane;
+
+    // not the shared thread pool, because many filters submit
+    // tasks to it and wait for them, which could deadlock the pool
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            ThreadPool.getNumThreads(), r -> {
+                Thread t = new Thread(r, "[Variations Gallery]");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private ParametrizedFilter chosen;
+
+    private VariationsGallery(BufferedImage proxy,
+                              Supplier<ParametrizedFilter> variationSupplier,
+                              Consumer<ParametrizedFilter> choiceAction) {
+        super(new BorderLayout());
+        this.proxy = proxy;
+        this.variationSupplier = variationSupplier;
+        this.choiceAction = choiceAction;
+
+        JPanel northPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton moreButton = new JButton("More Variations");
+        moreButton.addActionListener(e -> addVariations());
+        northPanel.add(moreButton);
+        northPanel.add(new JLabel("Click on a variation to choose it."));
+        add(northPanel, BorderLayout.NORTH);
+
+        scrollPane = new JScrollPane(grid);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(20);
+        scrollPane.getViewport().addChangeListener(e -> renderVisibleTiles());
+        add(scrollPane, BorderLayout.CENTER);
+
+        addVariations();
+        int visibleRows = Math.min(3, (NUM_VARIATIONS + NUM_COLUMNS - 1) / NUM_COLUMNS);
+        Dimension tileSize = tiles.get(0).getPreferredSize();
+        scrollPane.setPreferredSize(new Dimension(
+                NUM_COLUMNS * (tileSize.width + 4) + 30,
+                visibleRows * (tileSize.height + 4) + 10));
+    }
+
+    /**
+     * Shows randomized variations of the given filter
+     */
+    public static void showVariationsOf(ParametrizedFilter filter, Drawable dr,
+                                        Window owner, Consumer<ParametrizedFilter> choiceAction) {
+        show(filter.getName() + " Variations", dr, owner, () -> {
+            ParametrizedFilter variation = filter.copy();
+            variation.randomizeSettings();
+            return variation;
+        }, choiceAction);
+    }
+
+    /**
+     * Shows randomly chosen filters with randomized settings
+     */
+    public static void showRandomFilters(Drawable dr, Window owner,
+                                         Consumer<ParametrizedFilter> choiceAction) {
+        show("Random Filters", dr, owner, () -> {
+            Filter filter = FilterUtils.getRandomFilter(f ->
+                    f instanceof ParametrizedFilter && !(f instanceof Fade));
+            ParametrizedFilter variation = ((ParametrizedFilter) filter).copy();
+            variation.randomizeSettings();
+            return variation;
+        }, choiceAction);
+    }
+
+    private static void show(String title, Drawable dr, Window owner,
+                             Supplier<ParametrizedFilter> variationSupplier,
+                             Consumer<ParametrizedFilter> choiceAction) {
+        BufferedImage proxy = getProxy(dr.getImageForFilterDialogs());
+        VariationsGallery gallery = new VariationsGallery(proxy, variationSupplier, choiceAction);
+
+        new DialogBuilder()
+                .title(title)
+                .owner(owner)
+                .content(gallery)
+                .okText("Close")
+                .noCancelButton()
+                .okAction(gallery::closed)
+                .cancelAction(gallery::closed)
+                .show();
+    }
+
+    /**
+     * Returns the downscaled copy of the given image, which
+     * is reused as long as the same image is used.
+     */
+    private static BufferedImage getProxy(BufferedImage src) {
+        if (proxySource.get() == src && cachedProxy != null) {
+            return cachedProxy;
+        }
+
+        int width = src.getWidth();
+        int height = src.getHeight();
+        double scale = Math.min(1.0, PROXY_SIZE / (double) Math.max(width, height));
+        int proxyWidth = Math.max(1, (int) (width * scale));
+        int proxyHeight = Math.max(1, (int) (height * scale));
+
+        cachedProxy = Resampler.resize(src, proxyWidth, proxyHeight);
+        proxySource = new WeakReference<>(src);
+        return cachedProxy;
+    }
+
+    private void addVariations() {
+        for (int i = 0; i < NUM_VARIATIONS; i++) {
+            Tile tile = new Tile(variationSupplier.get());
+            tiles.add(tile);
+            grid.add(tile);
+        }
+        grid.revalidate();
+        // render after the layout, when the visibility of the tiles is known
+        SwingUtilities.invokeLater(this::renderVisibleTiles);
+    }
+
+    /**
+     * Starts rendering the tiles that became visible,
+     * and cancels the rendering of the hidden ones.
+     */
+    private void renderVisibleTiles() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        for (Tile tile : tiles) {
+            if (tile.getVisibleRect().isEmpty()) {
+                tile.cancelRendering();
+            } else {
+                tile.startRendering();
+            }
+        }
+    }
+
+    private void variationClicked(ParametrizedFilter variation) {
+        chosen = variation;
+        Window window = SwingUtilities.getWindowAncestor(this);
+        // closes it the same way as the X button
+        window.dispatchEvent(new WindowEvent(window, WINDOW_CLOSING));
+    }
+
+    private void closed() {
+        tiles.forEach(Tile::cancelRendering);
+        executor.shutdownNow();
+
+        if (chosen != null) {
+            // this runs the chosen variation on the full-sized image
+            choiceAction.accept(chosen);
+        }
+    }
+
+    /**
+     * A single variation in the grid
+     */
+    private class Tile extends JComponent {
+        private static final int TEXT_HEIGHT = 18;
+
+        private final ParametrizedFilter variation;
+        private BufferedImage result;
+        private Future<?> rendering;
+        private boolean failed;
+
+        Tile(ParametrizedFilter variation) {
+            this.variation = variation;
+            setPreferredSize(new Dimension(PROXY_SIZE, PROXY_SIZE + TEXT_HEIGHT));
+            setToolTipText(variation.getName());
+            addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    variationClicked(variation);
+                }
+            });
+        }
+
+        void startRendering() {
+            if (result != null || failed || rendering != null) {
+                return;
+            }
+            rendering = executor.submit(() -> {
+                BufferedImage img = null;
+                try {
+                    img = variation.transformImage(proxy);
+                } catch (Exception e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return; // cancelled, nobody waits for the result
+                    }
+                    // some filters can fail with random settings: the
+                    // tile shows the failure, but in development the
+                    // exception should be seen, because it's a bug
+                    if (Build.CURRENT.isDevelopment()) {
+                        Messages.showExceptionOnEDT(e);
+                    } else {
+                        e.printStackTrace();
+                    }
+                }
+                BufferedImage finalImg = img;
+                SwingUtilities.invokeLater(() -> renderingFinished(finalImg));
+            });
+        }
+
+        private void renderingFinished(BufferedImage img) {
+            if (rendering == null) {
+                return; // it was cancelled in the meantime
+            }
+            rendering = null;
+            result = img;
+            failed = img == null;
+            repaint();
+        }
+
+        /**
+         * The filters don't check for interruption, therefore a
+         * running filter is not stopped, only its result is dropped.
+         * The rendering of the tiles that didn't start yet is skipped.
+         */
+        void cancelRendering() {
+            if (rendering != null) {
+                rendering.cancel(true);
+                rendering = null;
+            }
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            int width = getWidth();
+            int imgAreaHeight = getHeight() - TEXT_HEIGHT;
+
+            g.setColor(Color.DARK_GRAY);
+            g.fillRect(0, 0, width, imgAreaHeight);
+
+            String text;
+            if (result != null) {
+                int x = (width - result.getWidth()) / 2;
+                int y = (imgAreaHeight - result.getHeight()) / 2;
+                g.drawImage(result, x, y, null);
+                text = variation.getName();
+            } else if (failed) {
+                text = "Failed";
+            } else {
+                text = "Rendering...";
+            }
+
+            g.setColor(getForeground());
+            FontMetrics fm = g.getFontMetrics();
+            int textX = Math.max(0, (width - fm.stringWidth(text)) / 2);
+            g.drawString(text, textX, getHeight() - fm.getDescent() - 2);
+        }
+    }
+}
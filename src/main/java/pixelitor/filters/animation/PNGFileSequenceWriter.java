@@ -17,7 +17,9 @@
 
 package pixelitor.filters.animation;
 
-import pixelitor.io.TrackedIO;
+import pixelitor.io.OutputFormat;
+import pixelitor.io.PNGEncoder;
+import pixelitor.io.SaveSettings;
 import pixelitor.utils.Messages;
 
 import java.awt.image.BufferedImage;
@@ -45,7 +47,8 @@ public class PNGFileSequenceWriter implements AnimationWriter {
         fileSequenceNumber++;
         File outputFile = new File(outputDir, fileName);
 
-        TrackedIO.write(image, "PNG", outputFile);
+        PNGEncoder.write(image, outputFile,
+                new SaveSettings(OutputFormat.PNG, outputFile));
         numWrittenImages++;
     }
 
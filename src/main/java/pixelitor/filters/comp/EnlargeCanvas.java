@@ -19,6 +19,8 @@ package pixelitor.filters.comp;
 
 import pixelitor.Canvas;
 import pixelitor.Composition;
+import pixelitor.automate.macro.CompActionMacroStep;
+import pixelitor.automate.macro.MacroRecorder;
 import pixelitor.filters.gui.RangeParam;
 import pixelitor.gui.ImageComponents;
 import pixelitor.gui.utils.DialogBuilder;
@@ -34,6 +36,7 @@ import pixelitor.utils.Messages;
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.geom.AffineTransform;
+import java.io.Serializable;
 
 import static pixelitor.Composition.ImageChangeActions.REPAINT;
 import static pixelitor.gui.utils.SliderSpinner.TextPosition.BORDER;
@@ -41,7 +44,9 @@ import static pixelitor.gui.utils.SliderSpinner.TextPosition.BORDER;
 /**
  * Enlarges the canvas for all layers of a composition
  */
-public class EnlargeCanvas implements CompAction {
+public class EnlargeCanvas implements CompAction, Serializable {
+    private static final long serialVersionUID = 1L;
+
     private final int north;
     private final int east;
     private final int south;
@@ -111,8 +116,10 @@ public class EnlargeCanvas implements CompAction {
                 .content(p)
                 .okAction(() -> {
                     Composition comp = ImageComponents.getActiveCompOrNull();
-                    new EnlargeCanvas(p.getNorth(), p.getEast(), p.getSouth(), p.getWest())
-                            .process(comp);
+                    EnlargeCanvas action = new EnlargeCanvas(
+                            p.getNorth(), p.getEast(), p.getSouth(), p.getWest());
+                    action.process(comp);
+                    MacroRecorder.record(new CompActionMacroStep(action, "Enlarge Canvas"));
                 })
                 .show();
     }
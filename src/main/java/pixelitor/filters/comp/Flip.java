@@ -35,6 +35,11 @@ public class Flip extends SimpleCompAction {
         direction = dir;
     }
 
+    @Override
+    protected SimpleCompAction copy() {
+        return new Flip(direction);
+    }
+
     @Override
     protected void changeCanvas(Composition comp) {
         throw new IllegalStateException("should not be called");
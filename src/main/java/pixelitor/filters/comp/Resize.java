@@ -19,21 +19,30 @@ package pixelitor.filters.comp;
 
 import pixelitor.Canvas;
 import pixelitor.Composition;
+import pixelitor.ThreadPool;
 import pixelitor.history.History;
 import pixelitor.history.MultiLayerBackup;
 import pixelitor.history.MultiLayerEdit;
+import pixelitor.layers.Layer;
+import pixelitor.utils.MemoryGovernor;
 import pixelitor.utils.Messages;
+import pixelitor.utils.Resampler;
 
 import java.awt.geom.AffineTransform;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 import static pixelitor.Composition.ImageChangeActions.REPAINT;
 
 /**
  * Resizes all content layers of a composition
  */
-public class Resize implements CompAction {
-    private int canvasTargetWidth;
-    private int canvasTargetHeight;
+public class Resize implements CompAction, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int canvasTargetWidth;
+    private final int canvasTargetHeight;
 
     // if true, resizes an image so that the proportions
     // are kept and the result fits into the given dimensions
@@ -55,30 +64,38 @@ public class Resize implements CompAction {
             return;
         }
 
+        // the target size is calculated in local variables, so that the
+        // same instance can be used for many (possibly concurrently
+        // processed) compositions during batch resize
+        int targetWidth;
+        int targetHeight;
         if (resizeInBox) {
             double heightScale = canvasTargetHeight / (double) canvasCurrHeight;
             double widthScale = canvasTargetWidth / (double) canvasCurrWidth;
             double scale = Math.min(heightScale, widthScale);
 
-            canvasTargetWidth = (int) (scale * (double) canvasCurrWidth);
-            canvasTargetHeight = (int) (scale * (double) canvasCurrHeight);
+            targetWidth = (int) (scale * (double) canvasCurrWidth);
+            targetHeight = (int) (scale * (double) canvasCurrHeight);
+        } else {
+            targetWidth = canvasTargetWidth;
+            targetHeight = canvasTargetHeight;
         }
 
         String editName = "Resize";
         MultiLayerBackup backup = new MultiLayerBackup(comp, editName, true);
 
         comp.transformSelection(() -> {
-            double sx = ((double) canvasTargetWidth) / canvasCurrWidth;
-            double sy = ((double) canvasTargetHeight) / canvasCurrHeight;
+            double sx = ((double) targetWidth) / canvasCurrWidth;
+            double sy = ((double) targetHeight) / canvasCurrHeight;
             return AffineTransform.getScaleInstance(sx, sy);
         });
 
-        resizeLayers(comp);
+        resizeLayers(comp, targetWidth, targetHeight);
 
         MultiLayerEdit edit = new MultiLayerEdit(editName, comp, backup);
         History.addEdit(edit);
 
-        canvas.changeImSize(canvasTargetWidth, canvasTargetHeight);
+        canvas.changeImSize(targetWidth, targetHeight);
 
         // Only after the shared canvas size was updated.
         // The icon image could change if the proportions were
@@ -88,15 +105,44 @@ public class Resize implements CompAction {
         comp.imageChanged(REPAINT, true);
 
         Messages.showInStatusBar("Image resized to "
-                + canvasTargetWidth + " x " + canvasTargetHeight + " pixels.");
+                + targetWidth + " x " + targetHeight + " pixels.");
     }
 
-    private void resizeLayers(Composition comp) {
+    private static void resizeLayers(Composition comp, int targetWidth, int targetHeight) {
+        List<Layer> layers = new ArrayList<>();
         comp.forEachLayer(layer -> {
-            layer.resize(canvasTargetWidth, canvasTargetHeight);
+            layers.add(layer);
             if (layer.hasMask()) {
-                layer.getMask().resize(canvasTargetWidth, canvasTargetHeight);
+                layers.add(layer.getMask());
             }
         });
+
+        // each layer that is resized concurrently needs its own
+        // intermediate and result images, so only as many of them
+        // are resized at the same time as the memory allows
+        Canvas canvas = comp.getCanvas();
+        long bytesPerLayer = Math.max(1, Resampler.estimateMemory(
+                canvas.getImWidth(), canvas.getImHeight(), targetWidth, targetHeight));
+        long maxConcurrent = MemoryGovernor.getUsableBytes() / bytesPerLayer;
+
+        if (layers.size() < ThreadPool.getNumThreads() || maxConcurrent < 2) {
+            // resize them one after the other, each
+            // layer image is resized using all the threads
+            for (Layer layer : layers) {
+                layer.resize(targetWidth, targetHeight);
+            }
+        } else {
+            // resize the layers concurrently, each on a single thread
+            int batchSize = (int) Math.min(layers.size(), maxConcurrent);
+            for (int batchStart = 0; batchStart < layers.size(); batchStart += batchSize) {
+                List<Layer> batch = layers.subList(batchStart,
+                        Math.min(layers.size(), batchStart + batchSize));
+                ThreadPool.parallelFor(batch.size(), 2, (start, end) -> {
+                    for (int i = start; i < end; i++) {
+                        batch.get(i).resize(targetWidth, targetHeight);
+                    }
+                });
+            }
+        }
     }
 }
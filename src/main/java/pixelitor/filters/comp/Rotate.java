@@ -37,6 +37,11 @@ public class Rotate extends SimpleCompAction {
         this.angle = angle;
     }
 
+    @Override
+    protected SimpleCompAction copy() {
+        return new Rotate(angle);
+    }
+
     @Override
     protected void changeCanvas(Composition comp) {
         Canvas canvas = comp.getCanvas();
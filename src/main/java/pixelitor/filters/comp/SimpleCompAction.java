@@ -19,6 +19,8 @@ package pixelitor.filters.comp;
 
 import pixelitor.Canvas;
 import pixelitor.Composition;
+import pixelitor.automate.macro.CompActionMacroStep;
+import pixelitor.automate.macro.MacroRecorder;
 import pixelitor.gui.ImageComponents;
 import pixelitor.history.History;
 import pixelitor.history.MultiLayerBackup;
@@ -51,6 +53,9 @@ public abstract class SimpleCompAction extends AbstractAction implements CompAct
         Composition comp = ImageComponents.getActiveCompOrNull();
 
         process(comp);
+
+        // this menu action has listeners, therefore a copy is recorded
+        MacroRecorder.record(new CompActionMacroStep(copy(), getEditName()));
     }
 
     @Override
@@ -94,4 +99,9 @@ public abstract class SimpleCompAction extends AbstractAction implements CompAct
     protected abstract void applyTx(ContentLayer contentLayer);
 
     protected abstract AffineTransform createCanvasTX(Canvas canvas);
+
+    /**
+     * Returns a new instance with the same settings
+     */
+    protected abstract SimpleCompAction copy();
 }
@@ -67,6 +67,13 @@ public class Convolve extends FilterWithGUI {
         return dest;
     }
 
+    @Override
+    protected int getTileHalo() {
+        // both convolution methods handle the stripe
+        // edges in the same way as the image edges
+        return size / 2;
+    }
+
     @Override
     public FilterGUI createGUI(Drawable dr) {
         return new CustomConvolveGUI(this, dr);
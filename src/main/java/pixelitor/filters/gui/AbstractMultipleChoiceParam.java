@@ -56,16 +56,38 @@ public abstract class AbstractMultipleChoiceParam<E>
         return false;
     }
 
+    @Override
+    public boolean canCopyState() {
+        return true;
+    }
+
+    /**
+     * The state is the index of the selected item, because
+     * the items themselves are not necessarily serializable
+     */
     @Override
     public ParamState copyState() {
-        throw new UnsupportedOperationException();
+        Object selected = getSelectedItem();
+        for (int i = 0; i < getSize(); i++) {
+            if (getElementAt(i).equals(selected)) {
+                return new ChoiceState(i);
+            }
+        }
+        throw new IllegalStateException("selected item " + selected
+                + " not found in " + getName());
     }
 
     @Override
     public void setState(ParamState state) {
-        throw new UnsupportedOperationException();
+        int index = ((ChoiceState) state).selectedIndex;
+        setSelectedItem(getElementAt(index), false);
     }
 
+    /**
+     * Selects the given item, and runs the filter only if trigger is true
+     */
+    public abstract void setSelectedItem(Object item, boolean trigger);
+
     /**
      * Sets up the automatic enabling of another {@link FilterSetting}
      * depending on the selected item of this one.
@@ -119,4 +141,19 @@ public abstract class AbstractMultipleChoiceParam<E>
             }
         });
     }
+
+    private static class ChoiceState implements ParamState {
+        private static final long serialVersionUID = 1L;
+
+        private final int selectedIndex;
+
+        public ChoiceState(int selectedIndex) {
+            this.selectedIndex = selectedIndex;
+        }
+
+        @Override
+        public ChoiceState interpolate(ParamState endState, double progress) {
+            return progress < 0.5 ? this : (ChoiceState) endState;
+        }
+    }
 }
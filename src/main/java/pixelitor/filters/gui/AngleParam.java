@@ -194,6 +194,8 @@ public class AngleParam extends AbstractFilterParam {
     }
 
     private static class APState implements ParamState {
+        private static final long serialVersionUID = 1L;
+
         private final double angle;
 
         public APState(double angle) {
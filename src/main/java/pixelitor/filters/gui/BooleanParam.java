@@ -156,14 +156,19 @@ public class BooleanParam extends AbstractFilterParam {
         return false;
     }
 
+    @Override
+    public boolean canCopyState() {
+        return true;
+    }
+
     @Override
     public ParamState copyState() {
-        throw new UnsupportedOperationException();
+        return new BPState(currentValue);
     }
 
     @Override
     public void setState(ParamState state) {
-        throw new UnsupportedOperationException();
+        setValue(((BPState) state).value, true, false);
     }
 
     @Override
@@ -187,4 +192,20 @@ public class BooleanParam extends AbstractFilterParam {
         }
         changeListenerList.add(changeListener);
     }
+
+    private static class BPState implements ParamState {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean value;
+
+        public BPState(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public BPState interpolate(ParamState endState, double progress) {
+            // a boolean can only jump from the start value to the end value
+            return progress < 0.5 ? this : (BPState) endState;
+        }
+    }
 }
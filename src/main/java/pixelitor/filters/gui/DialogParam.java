@@ -23,7 +23,6 @@ import pixelitor.gui.utils.GUIUtils;
 import javax.swing.*;
 import java.awt.Rectangle;
 import java.util.Arrays;
-import java.util.Map;
 
 import static pixelitor.filters.gui.RandomizePolicy.ALLOW_RANDOMIZE;
 
@@ -88,7 +87,7 @@ public class DialogParam extends AbstractFilterParam {
 
     @Override
     public void setState(ParamState state) {
-
+        ((CompositeState) state).applyTo(children);
     }
 
     @Override
@@ -96,6 +95,12 @@ public class DialogParam extends AbstractFilterParam {
         return false;
     }
 
+    @Override
+    public boolean canCopyState() {
+        return Arrays.stream(children)
+                .allMatch(FilterParam::canCopyState);
+    }
+
     @Override
     public int getNumGridBagCols() {
         return 2;
@@ -142,22 +147,40 @@ public class DialogParam extends AbstractFilterParam {
         }
     }
 
+    /**
+     * The states of the children, in the order of the children
+     */
     static class CompositeState implements ParamState {
-        private Map<String, ParamState> childStates;
+        private static final long serialVersionUID = 1L;
+
+        private final ParamState[] childStates;
 
         public CompositeState(FilterParam[] children) {
-            for (FilterParam child : children) {
-                if (child.canBeAnimated()) {
-                    childStates.put(child.getName(), child.copyState());
-                }
+            childStates = new ParamState[children.length];
+            for (int i = 0; i < children.length; i++) {
+                childStates[i] = children[i].copyState();
+            }
+        }
+
+        private CompositeState(ParamState[] childStates) {
+            this.childStates = childStates;
+        }
+
+        public void applyTo(FilterParam[] children) {
+            assert children.length == childStates.length;
+            for (int i = 0; i < children.length; i++) {
+                children[i].setState(childStates[i]);
             }
         }
 
         @Override
         public CompositeState interpolate(ParamState endState, double progress) {
             CompositeState end = (CompositeState) endState;
-            // TODO
-            return null;
+            ParamState[] interpolated = new ParamState[childStates.length];
+            for (int i = 0; i < childStates.length; i++) {
+                interpolated[i] = childStates[i].interpolate(end.childStates[i], progress);
+            }
+            return new CompositeState(interpolated);
         }
     }
 }
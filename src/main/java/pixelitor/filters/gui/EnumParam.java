@@ -57,7 +57,7 @@ public class EnumParam<E extends Enum<E>> extends AbstractMultipleChoiceParam<E>
 
     @Override
     public void setSelectedItem(Object anItem) {
-        setSelectedItem((E) anItem, true);
+        setSelectedItem(anItem, true);
     }
 
     public void selectAndSetAsDefault(E item) {
@@ -65,7 +65,8 @@ public class EnumParam<E extends Enum<E>> extends AbstractMultipleChoiceParam<E>
         setSelectedItem(item, false);
     }
 
-    private void setSelectedItem(E value, boolean trigger) {
+    @Override
+    public void setSelectedItem(Object value, boolean trigger) {
         delegateModel.setSelectedItem(value);
 
         if (trigger) {
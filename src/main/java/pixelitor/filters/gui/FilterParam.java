@@ -44,16 +44,27 @@ public interface FilterParam extends FilterSetting, Resettable {
     /**
      * Captures the state of this parameter into the returned
      * "memento" object.
-     * Implemented only for parameters that can be animated.
+     * Implemented only for parameters that can be animated
+     * or that return true from {@link #canCopyState()}.
      */
     ParamState copyState();
 
     /**
      * Sets the internal state according to the given {@link ParamState}
-     * Implemented only for parameters that can be animated.
+     * Implemented only for parameters that can be animated
+     * or that return true from {@link #canCopyState()}.
      */
     void setState(ParamState state);
 
+    /**
+     * True if the state can be captured with {@link #copyState()}.
+     * Some parameters can't be animated, but their state
+     * can still be copied, for example when recording macros.
+     */
+    default boolean canCopyState() {
+        return canBeAnimated();
+    }
+
     /**
      * True if the value can be interpolated in some useful way.
      * All implementing classes return either always true or always false.
@@ -17,6 +17,7 @@
 
 package pixelitor.filters.gui;
 
+import pixelitor.automate.macro.MacroRecorder;
 import pixelitor.filters.Filter;
 import pixelitor.gui.utils.DialogBuilder;
 import pixelitor.layers.Drawable;
@@ -48,7 +49,10 @@ public abstract class FilterWithGUI extends Filter {
                 .name("filterDialog")
                 .content(gui)
                 .withScrollbars()
-                .okAction(() -> dr.onDialogAccepted(getName()))
+                .okAction(() -> {
+                    dr.onDialogAccepted(getName());
+                    MacroRecorder.recordFilter(this);
+                })
                 .cancelAction(dr::onDialogCanceled)
                 .show();
     }
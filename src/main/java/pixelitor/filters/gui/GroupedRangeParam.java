@@ -250,6 +250,8 @@ public class GroupedRangeParam extends AbstractFilterParam {
     }
 
     private static class GRState implements ParamState {
+        private static final long serialVersionUID = 1L;
+
         private final double[] values;
 
         public GRState(double[] values) {
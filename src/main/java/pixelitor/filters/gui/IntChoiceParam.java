@@ -94,6 +94,7 @@ public class IntChoiceParam extends AbstractMultipleChoiceParam<IntChoiceParam.V
         setSelectedItem(item, true);
     }
 
+    @Override
     public void setSelectedItem(Object item, boolean trigger) {
         if (!currentChoice.equals(item)) {
             currentChoice = (Value) item;
@@ -165,10 +165,26 @@ public class ParamSet {
         return new ParamSetState(this);
     }
 
+    /**
+     * Unlike {@link #copyState()}, this also includes the params
+     * that can't be animated, but can copy their state.
+     */
+    public ParamSetState copyCompleteState() {
+        return new ParamSetState(this, true);
+    }
+
+    /**
+     * Returns true if every param can copy its state,
+     * otherwise a complete state would silently miss some settings.
+     */
+    public boolean canCopyCompleteState() {
+        return Utils.allMatch(paramList, FilterParam::canCopyState);
+    }
+
     public void setState(ParamSetState newState) {
         Iterator<ParamState> newStateIterator = newState.iterator();
         paramList.stream()
-                .filter(FilterParam::canBeAnimated)
+                .filter(newState::includes)
                 .forEach(param -> {
                     ParamState newParamState = newStateIterator.next();
                     param.setState(newParamState);
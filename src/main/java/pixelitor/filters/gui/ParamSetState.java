@@ -17,6 +17,7 @@
 
 package pixelitor.filters.gui;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -24,15 +25,27 @@ import java.util.List;
 /**
  * Captures the state of all filter parameters in a given filter
  * (like the "Memento" design pattern)
- * Params that cannot be animated are not included
+ * Params that cannot be animated are not included,
+ * unless a complete state is requested
  */
-public class ParamSetState implements Iterable<ParamState> {
+public class ParamSetState implements Iterable<ParamState>, Serializable {
+    private static final long serialVersionUID = 1L;
+
     private List<ParamState> states = new ArrayList<>();
 
+    // true if the params that cannot be animated
+    // (but can copy their state) are also included
+    private final boolean complete;
+
     public ParamSetState(ParamSet paramSet) {
+        this(paramSet, false);
+    }
+
+    public ParamSetState(ParamSet paramSet, boolean complete) {
+        this.complete = complete;
         List<FilterParam> params = paramSet.getParams();
         for (FilterParam param : params) {
-            if(param.canBeAnimated()) {
+            if (includes(param)) {
                 ParamState state = param.copyState();
                 if (state == null) {
                     throw new IllegalArgumentException("State is null for the param " + param.getName());
@@ -42,11 +55,22 @@ public class ParamSetState implements Iterable<ParamState> {
         }
     }
 
-    private ParamSetState(List<ParamState> states) {
+    private ParamSetState(List<ParamState> states, boolean complete) {
         for (ParamState state : states) {
             assert state != null;
         }
         this.states = states;
+        this.complete = complete;
+    }
+
+    /**
+     * Returns true if the state of the given param is included in this object
+     */
+    boolean includes(FilterParam param) {
+        if (complete) {
+            return param.canCopyState();
+        }
+        return param.canBeAnimated();
     }
 
     private ParamState getParamState(int index) {
@@ -66,7 +90,7 @@ public class ParamSetState implements Iterable<ParamState> {
             ParamState interpolated = state.interpolate(endParamState, progress);
             interpolatedStates.add(interpolated);
         }
-        return new ParamSetState(interpolatedStates);
+        return new ParamSetState(interpolatedStates, complete);
     }
 
     @Override
@@ -16,11 +16,14 @@
  */
 package pixelitor.filters.gui;
 
+import java.io.Serializable;
+
 /**
  * Captures the state of a filter parameter at a given moment
  * (like the "Memento" design pattern)
+ * The states are serializable so that they can be stored in macros.
  */
-public interface ParamState {
+public interface ParamState extends Serializable {
     /**
      * Calculate a new interpolated ParamState object,
      * where the current object represents the starting state
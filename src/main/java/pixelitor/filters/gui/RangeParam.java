@@ -369,6 +369,8 @@ public class RangeParam extends AbstractFilterParam implements BoundedRangeModel
     }
 
     private static class RPState implements ParamState {
+        private static final long serialVersionUID = 1L;
+
         final double value;
 
         public RPState(double value) {
@@ -19,6 +19,8 @@ package pixelitor.filters.gui;
 
 import pixelitor.Canvas;
 import pixelitor.Composition;
+import pixelitor.automate.macro.CompActionMacroStep;
+import pixelitor.automate.macro.MacroRecorder;
 import pixelitor.filters.comp.Resize;
 import pixelitor.gui.ImageComponents;
 import pixelitor.gui.utils.DialogBuilder;
@@ -260,8 +262,11 @@ public class ResizePanel extends ValidatedPanel implements KeyListener, ItemList
         new DialogBuilder()
                 .validatedContent(p)
                 .title("Resize")
-                .okAction(() -> new Resize(p.getNewWidth(), p.getNewHeight(), false)
-                        .process(comp))
+                .okAction(() -> {
+                    Resize resize = new Resize(p.getNewWidth(), p.getNewHeight(), false);
+                    resize.process(comp);
+                    MacroRecorder.record(new CompActionMacroStep(resize, "Resize"));
+                })
                 .show();
     }
 
@@ -152,12 +152,13 @@ public class StrokeParam extends AbstractFilterParam {
 
     @Override
     public ParamState copyState() {
-        throw new UnsupportedOperationException();
+        return new DialogParam.CompositeState(allParams);
     }
 
     @Override
     public void setState(ParamState state) {
-        throw new UnsupportedOperationException();
+        ((DialogParam.CompositeState) state).applyTo(allParams);
+        StrokeType.SHAPE.setShapeType(shapeTypeParam.getSelected());
     }
 
     @Override
@@ -165,6 +166,11 @@ public class StrokeParam extends AbstractFilterParam {
         return false;
     }
 
+    @Override
+    public boolean canCopyState() {
+        return true;
+    }
+
     @Override
     public int getNumGridBagCols() {
         return 2;
@@ -101,14 +101,21 @@ public class TextParam extends AbstractFilterParam {
         return false;
     }
 
+    @Override
+    public boolean canCopyState() {
+        return true;
+    }
+
     @Override
     public ParamState copyState() {
-        throw new UnsupportedOperationException();
+        return new TPState(getValue());
     }
 
     @Override
     public void setState(ParamState state) {
-        throw new UnsupportedOperationException();
+        trigger = false;
+        setValue(((TPState) state).text);
+        trigger = true;
     }
 
     @Override
@@ -120,4 +127,19 @@ public class TextParam extends AbstractFilterParam {
     public boolean isTrigger() {
         return trigger;
     }
+
+    private static class TPState implements ParamState {
+        private static final long serialVersionUID = 1L;
+
+        private final String text;
+
+        public TPState(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public TPState interpolate(ParamState endState, double progress) {
+            return progress < 0.5 ? this : (TPState) endState;
+        }
+    }
 }
@@ -21,6 +21,8 @@ import net.jafama.FastMath;
 import pixelitor.filters.LittlePlanet;
 import pixelitor.utils.Utils;
 
+import java.util.Arrays;
+
 /**
  * The implementation of the {@link LittlePlanet} filter.
  * This is actually a rectangular -> polar filter with some extra features
@@ -60,6 +62,38 @@ public class LittlePlanetFilter extends CenteredTransformFilter {
         out[1] = ny;
     }
 
+    @Override
+    protected void transformInverseRow(int y, float[] outX, float[] outY) {
+        // the same calculations as in transformInverse,
+        // but the row-invariant values are calculated only once
+        float dy = cy - y;
+        float dy2 = dy * dy;
+        double radius = srcHeight * zoom / 2;
+        double twoPI = 2 * Math.PI;
+
+        for (int x = 0; x < outX.length; x++) {
+            float dx = x - cx;
+            double r = Math.sqrt(dx * dx + dy2);
+            double angle = Utils.atan2AngleToIntuitive(FastMath.atan2(dy, dx))
+                    + rotateResult;
+            if (angle > twoPI) {
+                angle -= twoPI;
+            }
+            float ratio = (float) (r / radius);
+            float ny = ImageMath.bias(ratio, innerZoom) * srcHeight;
+            if (!inverted) {
+                ny = srcHeight - ny;
+            }
+            outX[x] = (float) ((angle * srcWidth) / twoPI);
+            outY[x] = ny;
+        }
+    }
+
+    @Override
+    protected Object getGeometryKey() {
+        return Arrays.asList(cx, cy, rotateResult, zoom, innerZoom, inverted);
+    }
+
     public void setRotateResult(double turn) {
         this.rotateResult = turn;
     }
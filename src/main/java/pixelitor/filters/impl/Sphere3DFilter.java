@@ -19,6 +19,8 @@ package pixelitor.filters.impl;
 import net.jafama.FastMath;
 import pixelitor.filters.Sphere3D;
 
+import java.util.Arrays;
+
 /**
  * The implementation of the {@link Sphere3D} filter.
  *
@@ -70,6 +72,49 @@ public class Sphere3DFilter extends CenteredTransformFilter {
         out[1] = (float) (-phi1 / (Math.PI / 2) * Y);
     }
 
+    @Override
+    protected void transformInverseRow(int y, float[] outX, float[] outY) {
+        // the same calculations as in transformInverse,
+        // but the row-invariant values are calculated only once
+        float dy = y - cy;
+        double rd = 0.45 * Math.min(srcWidth, srcHeight);
+        double sa = FastMath.sin(alpha);
+        double sb = FastMath.sin(beta);
+        double ca = FastMath.cos(alpha);
+        double cb = FastMath.cos(beta);
+        int X = srcWidth / 2;
+        int Y = srcHeight / 2;
+
+        for (int x = 0; x < outX.length; x++) {
+            float dx = x - cx;
+            double r = Math.sqrt(dx * dx + dy * dy);
+            if (r > rd) {
+                outX[x] = -1;
+                outY[x] = -1;
+                continue;
+            }
+            double theta = FastMath.atan2(dy, dx) + Math.PI;
+            double phi = FastMath.acos(r / rd);
+
+            double x0 = FastMath.cos(theta) * FastMath.cos(phi);
+            double y0 = FastMath.sin(theta) * FastMath.cos(phi);
+            double z0 = FastMath.sin(phi);
+            double x1 = ca * x0 + sa * y0;
+            double z1 = -sa * -sb * x0 + ca * -sb * y0 + cb * z0;
+            double y1 = cb * -sa * x0 + cb * ca * y0 + sb * z0;
+            double theta1 = FastMath.atan(-x1 / y1);
+            double phi1 = FastMath.asin(z1);
+
+            outX[x] = (float) ((((((theta1 * 2) + gamma) % (2 * Math.PI)) - Math.PI) / Math.PI) * X);
+            outY[x] = (float) (-phi1 / (Math.PI / 2) * Y);
+        }
+    }
+
+    @Override
+    protected Object getGeometryKey() {
+        return Arrays.asList(cx, cy, alpha, beta, gamma);
+    }
+
     public void setAlpha(float alpha) {
         this.alpha = (float) (2 * Math.PI * alpha);
     }
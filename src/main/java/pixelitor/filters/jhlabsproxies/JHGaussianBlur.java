@@ -74,6 +74,12 @@ public class JHGaussianBlur extends ParametrizedFilter {
         return false;
     }
 
+    @Override
+    protected int getTileHalo() {
+        // the kernel reaches this far, and the edges are clamped
+        return (int) Math.ceil(radius.getValueAsFloat());
+    }
+
     public void setRadius(int newRadius) {
         radius.setValue(newRadius);
     }
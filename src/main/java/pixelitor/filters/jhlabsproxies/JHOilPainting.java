@@ -80,7 +80,7 @@ public class JHOilPainting extends ParametrizedFilter {
         if (r.shouldResize()) {
             ScaleUpQuality scaleUpQuality;
             if (detailQuality.getValue() == BETTER) {
-                scaleUpQuality = ScaleUpQuality.BILINEAR11;
+                scaleUpQuality = ScaleUpQuality.MITCHELL;
             } else if (detailQuality.getValue() == FASTER) {
                 scaleUpQuality = ScaleUpQuality.BILINEAR_FAST;
             } else {
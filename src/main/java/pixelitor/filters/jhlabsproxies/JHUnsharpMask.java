@@ -60,4 +60,10 @@ public class JHUnsharpMask extends ParametrizedFilter {
 
         return dest;
     }
-}
\ No newline at end of file
+
+    @Override
+    protected int getTileHalo() {
+        // the blur kernel reaches this far, and the edges are clamped
+        return (int) Math.ceil(radius.getValueAsFloat());
+    }
+}
@@ -17,6 +17,8 @@
 
 package pixelitor.filters.levels;
 
+import pixelitor.filters.PointOpFilter;
+import pixelitor.filters.RGBPixelOp;
 import pixelitor.filters.gui.FilterGUI;
 import pixelitor.filters.gui.FilterWithGUI;
 import pixelitor.filters.levels.gui.LevelsGUI;
@@ -32,7 +34,7 @@ import java.util.Objects;
 /**
  * The Levels filter
  */
-public class Levels extends FilterWithGUI {
+public class Levels extends FilterWithGUI implements PointOpFilter {
     private RGBLookup rgbLookup;
 
     public Levels() {
@@ -60,6 +62,14 @@ public class Levels extends FilterWithGUI {
         return dest;
     }
 
+    @Override
+    public RGBPixelOp toRGBPixelOp() {
+        if (rgbLookup == null) {
+            throw new IllegalStateException("rgbLookup not initialized");
+        }
+        return rgbLookup;
+    }
+
     @Override
     public void randomizeSettings() {
         int inputBlackValue = RandomUtils.nextInt(255);
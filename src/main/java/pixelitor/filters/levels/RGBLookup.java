@@ -17,6 +17,7 @@
 
 package pixelitor.filters.levels;
 
+import pixelitor.filters.RGBPixelOp;
 import pixelitor.filters.lookup.LookupFactory;
 import pixelitor.utils.VisibleForTesting;
 
@@ -26,7 +27,7 @@ import java.awt.image.LookupTable;
  * Manages 3 lookup tables, corresponding to the
  * R, G, B channels of a pixel-by-pixel adjustment
  */
-public class RGBLookup {
+public class RGBLookup implements RGBPixelOp {
     private static final int ARRAY_LENGTH = 256;
 
     private short[] redMap;
@@ -94,6 +95,31 @@ public class RGBLookup {
         return LookupFactory.createLookupFrom3Arrays(redMap, greenMap, blueMap);
     }
 
+    @Override
+    public int changeRGB(int a, int r, int g, int b) {
+        return (a << 24) | (redMap[r] << 16) | (greenMap[g] << 8) | blueMap[b];
+    }
+
+    /**
+     * Two lookups applied after each other are merged into a single lookup
+     */
+    @Override
+    public RGBPixelOp andThen(RGBPixelOp next) {
+        if (!(next instanceof RGBLookup)) {
+            return RGBPixelOp.super.andThen(next);
+        }
+        RGBLookup other = (RGBLookup) next;
+        short[] r = new short[ARRAY_LENGTH];
+        short[] g = new short[ARRAY_LENGTH];
+        short[] b = new short[ARRAY_LENGTH];
+        for (int i = 0; i < ARRAY_LENGTH; i++) {
+            r[i] = other.redMap[redMap[i]];
+            g[i] = other.greenMap[greenMap[i]];
+            b[i] = other.blueMap[blueMap[i]];
+        }
+        return new RGBLookup(r, g, b);
+    }
+
     public void initFromPosterize(int numRedLevels, int numGreenLevels, int numBlueLevels) {
         for (int i = 0; i < ARRAY_LENGTH; i++) {
             int mapping = (ARRAY_LENGTH - 1) * (numRedLevels * i / ARRAY_LENGTH) / (numRedLevels - 1);
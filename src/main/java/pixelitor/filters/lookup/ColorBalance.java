@@ -19,6 +19,8 @@ package pixelitor.filters.lookup;
 
 import com.jhlabs.image.PixelUtils;
 import pixelitor.filters.ParametrizedFilter;
+import pixelitor.filters.PointOpFilter;
+import pixelitor.filters.RGBPixelOp;
 import pixelitor.filters.gui.IntChoiceParam;
 import pixelitor.filters.gui.IntChoiceParam.Value;
 import pixelitor.filters.gui.RangeParam;
@@ -40,7 +42,7 @@ import static java.awt.Color.YELLOW;
 /**
  * Color balance filter
  */
-public class ColorBalance extends ParametrizedFilter {
+public class ColorBalance extends ParametrizedFilter implements PointOpFilter {
     private static final int EVERYTHING = 0;
     private static final int SHADOWS = 1;
     private static final int MIDTONES = 2;
@@ -78,8 +80,7 @@ public class ColorBalance extends ParametrizedFilter {
             return src;
         }
 
-        RGBLookup rgbLookup = new LookupHelper(cr, mg, yb, affect.getValue())
-                .getLookup();
+        RGBLookup rgbLookup = createLookup();
 
         BufferedImageOp filterOp = new FastLookupOp(
                 (ShortLookupTable) rgbLookup.getLookupOp());
@@ -89,6 +90,20 @@ public class ColorBalance extends ParametrizedFilter {
         return dest;
     }
 
+    @Override
+    public RGBPixelOp toRGBPixelOp() {
+        return createLookup();
+    }
+
+    private RGBLookup createLookup() {
+        float cr = cyanRed.getValueAsFloat();
+        float mg = magentaGreen.getValueAsFloat();
+        float yb = yellowBlue.getValueAsFloat();
+
+        return new LookupHelper(cr, mg, yb, affect.getValue())
+                .getLookup();
+    }
+
     private static class LookupHelper {
         private final float cyanRed;
         private final float magentaGreen;
@@ -17,7 +17,8 @@
 
 package pixelitor.filters.lookup;
 
-import com.jhlabs.image.PixelUtils;
+import pixelitor.filters.FilterUtils;
+import pixelitor.filters.levels.RGBLookup;
 import pixelitor.utils.ImageUtils;
 
 import java.awt.RenderingHints;
@@ -26,13 +27,12 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.BufferedImageOp;
 import java.awt.image.ColorModel;
-import java.awt.image.DataBufferInt;
 import java.awt.image.LookupOp;
 import java.awt.image.ShortLookupTable;
 
 /**
  * Performs 4-5 times faster than {@link LookupOp} if
- * the image has packed ints
+ * the image has packed ints (and it also uses multiple threads)
  */
 public class FastLookupOp implements BufferedImageOp {
     private final ShortLookupTable lut;
@@ -45,68 +45,9 @@ public class FastLookupOp implements BufferedImageOp {
     public BufferedImage filter(BufferedImage src, BufferedImage dst) {
         boolean packedInt = ImageUtils.hasPackedIntArray(src);
         if (packedInt) {
-            boolean notPremultiplied = !src.isAlphaPremultiplied();
-
-            int[] srcData = ((DataBufferInt) src.getRaster()
-                    .getDataBuffer()).getData();
-
-            int[] destData = ((DataBufferInt) dst.getRaster()
-                    .getDataBuffer()).getData();
-
-            int length = srcData.length;
-            assert length == destData.length;
-
             short[][] table = lut.getTable();
-
-            for (int i = 0; i < length; i++) {
-                int rgb = srcData[i];
-                int a = (rgb >>> 24) & 0xFF;
-                int r = (rgb >>> 16) & 0xFF;
-                int g = (rgb >>> 8) & 0xFF;
-                int b = (rgb) & 0xFF;
-
-                if (a == 255 || notPremultiplied) {
-                    r = table[0][r];
-                    g = table[1][g];
-                    b = table[2][b];
-                } else if (a == 0) {
-                    r = 0;
-                    g = 0;
-                    b = 0;
-                } else {
-                    // unpremultiply
-                    float f = 255.0f / a;
-                    int ur = (int) (r * f);
-                    int ug = (int) (g * f);
-                    int ub = (int) (b * f);
-
-                    if (ur > 255) {
-                        ur = 255;
-                    }
-                    if (ug > 255) {
-                        ug = 255;
-                    }
-                    if (ub > 255) {
-                        ub = 255;
-                    }
-
-                    // lookup
-                    ur = table[0][ur];
-                    ug = table[1][ug];
-                    ub = table[2][ub];
-
-                    // premultiply
-                    float f2 = a * (1.0f / 255.0f);
-                    r = (int) (ur * f2);
-                    g = (int) (ug * f2);
-                    b = (int) (ub * f2);
-
-                    r = PixelUtils.clamp(r);
-                    g = PixelUtils.clamp(g);
-                    b = PixelUtils.clamp(b);
-                }
-                destData[i] = (a << 24) | (r << 16) | (g << 8) | b;
-            }
+            RGBLookup lookup = new RGBLookup(table[0], table[1], table[2]);
+            FilterUtils.runRGBPixelOp(lookup, src, dst);
         } else { // fall back to a normal LookupOp
             BufferedImageOp lookupOp = new LookupOp(lut, null);
             lookupOp.filter(src, dst);
@@ -29,6 +29,7 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.Serializable;
 import java.util.Random;
+import java.util.function.Consumer;
 
 import static java.awt.Color.BLACK;
 import static java.awt.Color.WHITE;
@@ -132,7 +133,19 @@ public class TextSettings implements Serializable {
     }
 
     public BufferedImage watermarkImage(BufferedImage src, TextPainter textPainter) {
-        BufferedImage dest;
+        int width = src.getWidth();
+        int height = src.getHeight();
+        return watermarkImage(src, g -> {
+            textPainter.setFillPaint(WHITE);
+            textPainter.paint(g, this, width, height);
+        });
+    }
+
+    /**
+     * The given text painting callback should paint the text with white,
+     * it will be used on a black background as a bump map for the image.
+     */
+    public static BufferedImage watermarkImage(BufferedImage src, Consumer<Graphics2D> whiteTextPainter) {
         int width = src.getWidth();
         int height = src.getHeight();
         // the text is with white on black background on the bump map image
@@ -140,12 +153,10 @@ public class TextSettings implements Serializable {
         Graphics2D g = bumpImage.createGraphics();
         g.setColor(BLACK);
         g.fillRect(0, 0, width, height);
-        textPainter.setFillPaint(WHITE);
-        textPainter.paint(g, this, width, height);
+        whiteTextPainter.accept(g);
         g.dispose();
 
-        dest = ImageUtils.bumpMap(src, bumpImage, null);
-        return dest;
+        return ImageUtils.bumpMap(src, bumpImage, null);
     }
 
     public static TextSettings createRandomSettings(Random rand) {
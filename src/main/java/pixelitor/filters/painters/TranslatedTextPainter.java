@@ -18,6 +18,7 @@
 package pixelitor.filters.painters;
 
 import org.jdesktop.swingx.painter.TextPainter;
+import org.jdesktop.swingx.painter.effects.AbstractAreaEffect;
 import org.jdesktop.swingx.painter.effects.AreaEffect;
 
 import java.awt.Font;
@@ -27,6 +28,9 @@ import java.awt.Paint;
 import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 
 /**
  * A TextPainter that can have an extra translation (so that text
@@ -85,21 +89,9 @@ public class TranslatedTextPainter extends TextPainter {
 
         int tw = metrics.stringWidth(text);
         int th = metrics.getHeight();
-        Rectangle boundingBox = calculateLayout(tw, th, width, height);
 
         AffineTransform origTX = g.getTransform();
-
-        if (rotatedLayout != null) {
-            assert rotation != 0;
-
-            double topLeftX = rotatedLayout.getTopLeftX();
-            double topLeftY = rotatedLayout.getTopLeftY();
-            g.translate(topLeftX, topLeftY);
-            g.rotate(rotation, 0, 0);
-        } else {
-            assert rotation == 0;
-            g.translate(boundingBox.x, boundingBox.y);
-        }
+        g.transform(calcTextTransform(tw, th, width, height));
 
         if (paint != null) {
             g.setPaint(paint);
@@ -116,6 +108,78 @@ public class TranslatedTextPainter extends TextPainter {
         g.setTransform(origTX);
     }
 
+    /**
+     * Returns the transform from the coordinate system of the
+     * text (origin at the top left corner) to the canvas.
+     */
+    private AffineTransform calcTextTransform(int textWidth, int textHeight, int width, int height) {
+        Rectangle boundingBox = calculateLayout(textWidth, textHeight, width, height);
+
+        if (rotatedLayout != null) {
+            assert rotation != 0;
+
+            double topLeftX = rotatedLayout.getTopLeftX();
+            double topLeftY = rotatedLayout.getTopLeftY();
+            AffineTransform at = AffineTransform.getTranslateInstance(topLeftX, topLeftY);
+            at.rotate(rotation);
+            return at;
+        }
+
+        assert rotation == 0;
+        return AffineTransform.getTranslateInstance(boundingBox.x, boundingBox.y);
+    }
+
+    /**
+     * Returns the bounds of the pixels that can be touched when
+     * painting the text together with its area effects on a canvas
+     * of the given size. The bounds are not clipped to the canvas.
+     */
+    public Rectangle getPaintedBounds(int width, int height) {
+        // measure with the same font render context as the painting
+        BufferedImage tmp = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = tmp.createGraphics();
+        try {
+            configureGraphics(g);
+            Font font = calculateFont(null);
+            if (font != null) {
+                g.setFont(font);
+            }
+            String text = calculateText(null);
+            FontMetrics metrics = g.getFontMetrics(g.getFont());
+            int tw = metrics.stringWidth(text);
+            int th = metrics.getHeight();
+
+            Rectangle2D textBounds = new Rectangle(0, 0, tw, th);
+            if (font != null) {
+                Shape shape = provideShape(g, null, width, height);
+                textBounds = textBounds.createUnion(shape.getBounds2D());
+            }
+
+            double margin = 2;
+            AreaEffect[] effects = getAreaEffects();
+            if (effects != null) {
+                for (AreaEffect effect : effects) {
+                    if (!(effect instanceof AbstractAreaEffect)) {
+                        // unknown effect, assume that it can paint anywhere
+                        return new Rectangle(0, 0, width, height);
+                    }
+                    AbstractAreaEffect ae = (AbstractAreaEffect) effect;
+                    Point2D offset = ae.getOffset();
+                    double effectMargin = ae.getEffectWidth()
+                            + Math.abs(offset.getX()) + Math.abs(offset.getY()) + 2;
+                    margin = Math.max(margin, effectMargin);
+                }
+            }
+            textBounds.setRect(textBounds.getX() - margin, textBounds.getY() - margin,
+                    textBounds.getWidth() + 2 * margin, textBounds.getHeight() + 2 * margin);
+
+            AffineTransform at = calcTextTransform(tw, th, width, height);
+            return at.createTransformedShape(textBounds).getBounds();
+        } finally {
+            g.dispose();
+        }
+    }
+
     @Override
     protected String calculateText(Object component) {
         return getText();
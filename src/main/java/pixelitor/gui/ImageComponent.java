@@ -43,6 +43,7 @@ import pixelitor.tools.util.PRectangle;
 import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Lazy;
 import pixelitor.utils.debug.ImageComponentNode;
+import pixelitor.utils.debug.Metrics;
 import pixelitor.utils.test.Assertions;
 
 import javax.swing.*;
@@ -300,6 +301,7 @@ public class ImageComponent extends JComponent
 
     @Override
     public void paintComponent(Graphics g) {
+        long startTime = System.nanoTime();
         Shape originalClip = g.getClip();
 
         Graphics2D g2 = (Graphics2D) g;
@@ -332,6 +334,9 @@ public class ImageComponent extends JComponent
             BufferedImage compositeImage = comp.getCompositeImage();
             ImageUtils.drawImageWithClipping(g2, compositeImage);
 
+            // the shape being dragged, if it's not painted into the layer
+            Tools.SHAPES.paintOverlay(g2, comp);
+
             if (maskViewMode.showRuby()) {
                 LayerMask mask = comp.getActiveLayer().getMask();
                 assert mask != null : "no mask in " + maskViewMode;
@@ -365,6 +370,8 @@ public class ImageComponent extends JComponent
         }
 
         g2.setClip(originalClip);
+
+        Metrics.repainted(System.nanoTime() - startTime);
     }
 
     private void drawPixelGrid(Graphics2D g2) {
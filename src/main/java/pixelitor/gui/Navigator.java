@@ -44,7 +44,7 @@ import java.awt.event.ComponentEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
-import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 
 /**
  * The navigator component that allows the user to pan a zoomed-in image.
@@ -76,6 +76,12 @@ public class Navigator extends JComponent
     private int preferredWidth;
     private int preferredHeight;
 
+    // the scaled-down composite image is cached, so that moving
+    // the view box doesn't have to scale the full image again
+    private BufferedImage thumbImage;
+    private BufferedImage thumbSource;
+    private double thumbScaling;
+
     // it not null, the scaling factor should be calculated
     // based on this instead of the navigator size
     private ZoomLevel exactZoom = null;
@@ -247,6 +253,8 @@ public class Navigator extends JComponent
         scrollPane.getVerticalScrollBar().removeAdjustmentListener(adjListener);
 
         ic = null;
+        thumbImage = null;
+        thumbSource = null;
     }
 
     // updates the view box rectangle position based on the ic
@@ -299,17 +307,31 @@ public class Navigator extends JComponent
 
         checkerBoardPainter.paint(g2, null, thumbWidth, thumbHeight);
 
-        AffineTransform origTX = g2.getTransform();
-
-        g2.scale(imgScalingRatio, imgScalingRatio);
-        g2.drawImage(ic.getComp().getCompositeImage(), 0, 0, null);
-        g2.setTransform(origTX);
+        g2.drawImage(getThumbImage(), 0, 0, null);
 
         g2.setStroke(VIEW_BOX_STROKE);
         g2.setColor(viewBoxColor);
         g2.draw(viewBoxRect);
     }
 
+    private BufferedImage getThumbImage() {
+        BufferedImage composite = ic.getComp().getCompositeImage();
+        // the composite image is recreated when it changes
+        if (composite != thumbSource || imgScalingRatio != thumbScaling) {
+            int width = Math.max(1, (int) Math.ceil(composite.getWidth() * imgScalingRatio));
+            int height = Math.max(1, (int) Math.ceil(composite.getHeight() * imgScalingRatio));
+            thumbImage = ImageUtils.createSysCompatibleImage(width, height);
+            Graphics2D g = thumbImage.createGraphics();
+            g.scale(imgScalingRatio, imgScalingRatio);
+            g.drawImage(composite, 0, 0, null);
+            g.dispose();
+
+            thumbSource = composite;
+            thumbScaling = imgScalingRatio;
+        }
+        return thumbImage;
+    }
+
     @Override
     public void mousePressed(MouseEvent e) {
         if (e.isPopupTrigger()) {
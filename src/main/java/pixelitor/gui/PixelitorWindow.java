@@ -28,6 +28,7 @@ import pixelitor.tools.Tools;
 import pixelitor.tools.gui.ToolSettingsPanelContainer;
 import pixelitor.tools.gui.ToolsPanel;
 import pixelitor.utils.AppPreferences;
+import pixelitor.utils.debug.StartupTiming;
 
 import javax.swing.*;
 import java.awt.BorderLayout;
@@ -54,6 +55,8 @@ public class PixelitorWindow extends JFrame {
         setupWindowClosing();
 
         addMenus();
+        StartupTiming.phaseFinished("Frame and Menu Bar");
+
         addImagesArea();
         addLayersAndHistograms();
         addToolsPanel();
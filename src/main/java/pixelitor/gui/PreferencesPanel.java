@@ -23,10 +23,16 @@ import pixelitor.gui.utils.Dialogs;
 import pixelitor.gui.utils.GridBagHelper;
 import pixelitor.gui.utils.TextFieldValidator;
 import pixelitor.history.History;
+import pixelitor.io.IOThread;
+import pixelitor.io.PNGEncoder.RowFilter;
+import pixelitor.io.SaveSettings;
 import pixelitor.layers.LayerButtonLayout;
 
 import javax.swing.*;
 import java.awt.GridBagLayout;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
 
 import static java.lang.Integer.parseInt;
 
@@ -36,6 +42,9 @@ import static java.lang.Integer.parseInt;
 public class PreferencesPanel extends JPanel {
     private final JTextField undoLevelsTF;
     private final JComboBox<IntChoiceParam.Value> thumbSizeCB;
+    private final JComboBox<Integer> readerThreadsCB;
+    private final JComboBox<Integer> pngCompressionCB;
+    private final JComboBox<RowFilter> pngRowFilterCB;
 
     private PreferencesPanel() {
         setLayout(new GridBagLayout());
@@ -70,6 +79,31 @@ public class PreferencesPanel extends JPanel {
 
         gbh.addLabelWithControl("Layer/Mask Thumb Sizes: ", thumbSizeCB);
         thumbSizeCB.addActionListener(e -> updateThumbSize());
+
+        int currentThreads = IOThread.getNumReaderThreads();
+        Set<Integer> threadChoices = new TreeSet<>(Arrays.asList(1, 2, 4, 8, 16));
+        threadChoices.add(currentThreads);
+        readerThreadsCB = new JComboBox<>(threadChoices.toArray(new Integer[0]));
+        readerThreadsCB.setName("readerThreadsCB");
+        readerThreadsCB.setSelectedItem(currentThreads);
+        gbh.addLabelWithControl("Parallel File Reads: ", readerThreadsCB);
+        readerThreadsCB.addActionListener(e ->
+                IOThread.setNumReaderThreads((Integer) readerThreadsCB.getSelectedItem()));
+
+        // 0 is the fastest, 9 creates the smallest files
+        pngCompressionCB = new JComboBox<>(new Integer[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+        pngCompressionCB.setName("pngCompressionCB");
+        pngCompressionCB.setSelectedItem(SaveSettings.getDefaultPNGCompressionLevel());
+        gbh.addLabelWithControl("PNG Compression Level: ", pngCompressionCB);
+        pngCompressionCB.addActionListener(e -> SaveSettings.setDefaultPNGCompressionLevel(
+                (Integer) pngCompressionCB.getSelectedItem()));
+
+        pngRowFilterCB = new JComboBox<>(RowFilter.values());
+        pngRowFilterCB.setName("pngRowFilterCB");
+        pngRowFilterCB.setSelectedItem(SaveSettings.getDefaultPNGRowFilter());
+        gbh.addLabelWithControl("PNG Row Filter: ", pngRowFilterCB);
+        pngRowFilterCB.addActionListener(e -> SaveSettings.setDefaultPNGRowFilter(
+                (RowFilter) pngRowFilterCB.getSelectedItem()));
     }
 
     private boolean validate(JDialog d) {
@@ -18,7 +18,7 @@
 package pixelitor.gui.utils;
 
 import pixelitor.io.FileUtils;
-import pixelitor.io.TrackedIO;
+import pixelitor.io.ThumbnailCache;
 import pixelitor.utils.JProgressBarTracker;
 import pixelitor.utils.Messages;
 import pixelitor.utils.ProgressPanel;
@@ -27,13 +27,12 @@ import pixelitor.utils.ProgressTracker;
 import javax.swing.*;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.EventQueue;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
 
 import static java.awt.Color.BLACK;
 import static java.awt.Color.WHITE;
@@ -51,7 +50,8 @@ public class ImagePreviewPanel extends JPanel implements PropertyChangeListener
     private static final int MSG_X = 20;
     private static final int MSG_Y = 10;
 
-    private final Map<String, ThumbInfo> thumbsCache;
+    // the file whose thumbnail should be shown when it's ready
+    private File selectedFile;
 
     private final ProgressPanel progressPanel;
 
@@ -59,7 +59,6 @@ public class ImagePreviewPanel extends JPanel implements PropertyChangeListener
         this.progressPanel = progressPanel;
         setPreferredSize(new Dimension(SIZE, SIZE));
         backgroundColor = getBackground();
-        thumbsCache = new HashMap<>();
 
         this.progressPanel.setVisible(true);
     }
@@ -67,53 +66,58 @@ public class ImagePreviewPanel extends JPanel implements PropertyChangeListener
     // the property change events form the JFileChooser
     @Override
     public void propertyChange(PropertyChangeEvent e) {
-        File file = getFileFromFileChooserEvent(e);
-        if (file == null) {
+        String propertyName = e.getPropertyName();
+        if (JFileChooser.DIRECTORY_CHANGED_PROPERTY.equals(propertyName)) {
+            selectedFile = null;
             thumbInfo = null;
             repaint();
+
+            File dir = (File) e.getNewValue();
+            ThumbnailCache.prefetch(dir, getAvailableWidth(), getAvailableHeight());
+            return;
+        }
+        if (!JFileChooser.SELECTED_FILE_CHANGED_PROPERTY.equals(propertyName)) {
             return;
         }
 
-        String filePath = file.getAbsolutePath();
-        if (FileUtils.hasSupportedInputExt(file)) {
-            createThumbImage(file, filePath);
-            repaint();
+        File file = (File) e.getNewValue();
+        selectedFile = file;
+        thumbInfo = null;
+        if (file != null && FileUtils.hasSupportedInputExt(file)) {
+            showThumbImage(file);
         }
+        repaint();
     }
 
-    private void createThumbImage(File file, String filePath) {
-        if (thumbsCache.containsKey(filePath)) {
-            thumbInfo = thumbsCache.get(filePath);
+    private void showThumbImage(File file) {
+        int availableWidth = getAvailableWidth();
+        int availableHeight = getAvailableHeight();
+
+        ThumbInfo cached = ThumbnailCache.getIfCached(file, availableWidth, availableHeight);
+        if (cached != null) {
+            thumbInfo = cached;
             return;
         }
 
         // TODO A problem is that ora and pxc files are reported as "Unrecognized"
-        try {
-            int availableWidth = getWidth() - EMPTY_SPACE_AT_LEFT;
-            int availableHeight = getHeight();
-
-            ProgressTracker pt = new JProgressBarTracker(progressPanel);
-            thumbInfo = TrackedIO.readSubsampledThumb(file, availableWidth, availableHeight, pt);
-            thumbsCache.put(filePath, thumbInfo);
-        } catch (Exception ex) {
-            Messages.showException(ex);
-        }
+        ProgressTracker pt = new JProgressBarTracker(progressPanel);
+        ThumbnailCache.getAsync(file, availableWidth, availableHeight, pt)
+                .whenComplete((info, ex) -> EventQueue.invokeLater(() -> {
+                    if (ex != null) {
+                        Messages.showException(ex);
+                    } else if (file.equals(selectedFile)) {
+                        thumbInfo = info;
+                        repaint();
+                    }
+                }));
     }
 
-    private static File getFileFromFileChooserEvent(PropertyChangeEvent e) {
-        File file;
-        String propertyName = e.getPropertyName();
-        switch (propertyName) {
-            case JFileChooser.DIRECTORY_CHANGED_PROPERTY:
-                file = null;
-                break;
-            case JFileChooser.SELECTED_FILE_CHANGED_PROPERTY:
-                file = (File) e.getNewValue();
-                break;
-            default:
-                file = null;
-        }
-        return file;
+    private int getAvailableWidth() {
+        return getWidth() - EMPTY_SPACE_AT_LEFT;
+    }
+
+    private int getAvailableHeight() {
+        return getHeight();
     }
 
     @Override
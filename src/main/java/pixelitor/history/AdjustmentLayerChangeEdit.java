@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.history;
+
+import pixelitor.Composition;
+import pixelitor.filters.gui.ParamSetState;
+import pixelitor.layers.AdjustmentLayer;
+
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+
+/**
+ * A PixelitorEdit that represents the editing of the filter
+ * settings of an adjustment layer
+ */
+public class AdjustmentLayerChangeEdit extends PixelitorEdit {
+    private ParamSetState backupState;
+    private AdjustmentLayer layer;
+
+    public AdjustmentLayerChangeEdit(Composition comp, AdjustmentLayer layer, ParamSetState oldState) {
+        super("Adjustment Layer Change", comp);
+
+        this.backupState = oldState;
+        this.layer = layer;
+    }
+
+    @Override
+    public void undo() throws CannotUndoException {
+        super.undo();
+
+        swapFilterState();
+    }
+
+    @Override
+    public void redo() throws CannotRedoException {
+        super.redo();
+
+        swapFilterState();
+    }
+
+    private void swapFilterState() {
+        ParamSetState tmp = layer.getFilterState();
+        layer.setFilterState(backupState);
+        backupState = tmp;
+    }
+
+    @Override
+    public void die() {
+        super.die();
+
+        layer = null;
+    }
+}
@@ -23,9 +23,11 @@ import pixelitor.layers.MaskViewMode;
 
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
+import java.util.Objects;
 
 /**
- * Used when a file is reloaded.
+ * Used when a file is reloaded, or when a macro
+ * was run with a single backup of the composition.
  */
 public class CompositionReplacedEdit extends PixelitorEdit {
     private Composition newComp;
@@ -36,7 +38,7 @@ public class CompositionReplacedEdit extends PixelitorEdit {
                                    Composition oldComp, Composition newComp,
                                    MaskViewMode oldMode) {
         super(name, oldComp);
-        assert oldComp.getFile().equals(newComp.getFile());
+        assert Objects.equals(oldComp.getFile(), newComp.getFile());
 
         this.newComp = newComp;
         this.oldMode = oldMode;
@@ -80,6 +80,11 @@ public class ContentLayerMoveEdit extends PixelitorEdit {
         }
     }
 
+    @Override
+    public long getMemoryBytes() {
+        return imageEdit == null ? 0 : imageEdit.getMemoryBytes();
+    }
+
     @Override
     public void die() {
         super.die();
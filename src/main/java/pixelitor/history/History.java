@@ -29,6 +29,7 @@ import pixelitor.utils.Icons;
 import pixelitor.utils.Messages;
 import pixelitor.utils.VisibleForTesting;
 import pixelitor.utils.debug.DebugNode;
+import pixelitor.utils.debug.Metrics;
 import pixelitor.utils.test.Events;
 
 import javax.swing.*;
@@ -100,6 +101,8 @@ public class History {
         numUndoneEdits = 0;
         undoableEditSupport.postEdit(edit);
 
+        Metrics.editAdded(edit.getName(), edit.getMemoryBytes());
+
         if (Build.CURRENT != Build.FINAL) {
             Events.postAddToHistoryEvent(edit);
             ConsistencyChecks.checkAll(edit.getComp(), false);
@@ -112,23 +115,8 @@ public class History {
     public static void addToolArea(Rectangle rect, BufferedImage origImage,
                                    Drawable dr, boolean relativeToImage,
                                    String toolName) {
-        assert rect.width > 0 : "rectangle.width = " + rect.width;
-        assert rect.height > 0 : "rectangle.height = " + rect.height;
-
-        if (!relativeToImage) {
-            // if the coordinates are relative to the canvas,
-            // translate them to be relative to the image
-            int dx = -dr.getTX();
-            int dy = -dr.getTY();
-            rect.translate(dx, dy);
-        }
-
-        rect = SwingUtilities.computeIntersection(0, 0,
-                origImage.getWidth(), origImage.getHeight(), // full image bounds
-                rect
-        );
-
         assert (origImage != null);
+        rect = toImageArea(rect, origImage, dr, relativeToImage);
         if (rect.isEmpty()) {
             return;
         }
@@ -143,6 +131,42 @@ public class History {
         addEdit(edit);
     }
 
+    /**
+     * Similar to the other addToolArea, but the original pixels
+     * are taken from the tiles saved during the drawing
+     */
+    public static void addToolArea(Rectangle rect, TileBackup backup,
+                                   Drawable dr, boolean relativeToImage,
+                                   String toolName) {
+        rect = toImageArea(rect, backup.getImage(), dr, relativeToImage);
+        if (rect.isEmpty()) {
+            return;
+        }
+
+        PartialImageEdit edit = new PartialImageEdit(toolName, dr.getComp(),
+                dr, backup.getOriginalData(rect), false);
+        addEdit(edit);
+    }
+
+    private static Rectangle toImageArea(Rectangle rect, BufferedImage image,
+                                         Drawable dr, boolean relativeToImage) {
+        assert rect.width > 0 : "rectangle.width = " + rect.width;
+        assert rect.height > 0 : "rectangle.height = " + rect.height;
+
+        if (!relativeToImage) {
+            // if the coordinates are relative to the canvas,
+            // translate them to be relative to the image
+            int dx = -dr.getTX();
+            int dy = -dr.getTY();
+            rect.translate(dx, dy);
+        }
+
+        return SwingUtilities.computeIntersection(0, 0,
+                image.getWidth(), image.getHeight(), // full image bounds
+                rect
+        );
+    }
+
     public static String getUndoPresentationName() {
         return undoManager.getUndoPresentationName();
     }
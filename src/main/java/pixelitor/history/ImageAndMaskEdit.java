@@ -70,6 +70,11 @@ public class ImageAndMaskEdit extends ImageEdit {
         updateGUI();
     }
 
+    @Override
+    public long getMemoryBytes() {
+        return super.getMemoryBytes() + maskImageEdit.getMemoryBytes();
+    }
+
     @Override
     public void die() {
         super.die();
@@ -19,6 +19,7 @@ package pixelitor.history;
 
 import pixelitor.Composition;
 import pixelitor.layers.Drawable;
+import pixelitor.utils.ImageUtils;
 import pixelitor.utils.debug.DebugNode;
 
 import javax.swing.undo.CannotRedoException;
@@ -135,6 +136,15 @@ public class ImageEdit extends FadeableEdit {
         dr = null;
     }
 
+    @Override
+    public long getMemoryBytes() {
+        BufferedImage backupImage = imgRef == null ? null : imgRef.get();
+        if (backupImage == null) {
+            return 0;
+        }
+        return ImageUtils.getSizeInBytes(backupImage.getRaster());
+    }
+
     @Override
     public BufferedImage getBackupImage() {
         if(imgRef != null) {
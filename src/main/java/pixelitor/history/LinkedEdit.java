@@ -68,6 +68,11 @@ public class LinkedEdit extends PixelitorEdit {
         return first.canRepeat() && second.canRepeat();
     }
 
+    @Override
+    public long getMemoryBytes() {
+        return first.getMemoryBytes() + second.getMemoryBytes();
+    }
+
     @Override
     public DebugNode getDebugNode() {
         DebugNode node = super.getDebugNode();
@@ -79,6 +79,11 @@ public class MergeDownEdit extends PixelitorEdit {
         imageLayer.updateIconImage();
     }
 
+    @Override
+    public long getMemoryBytes() {
+        return imageEdit.getMemoryBytes();
+    }
+
     @Override
     public void die() {
         super.die();
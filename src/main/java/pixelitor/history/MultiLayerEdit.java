@@ -184,6 +184,11 @@ public class MultiLayerEdit extends PixelitorEdit {
         }
     }
 
+    @Override
+    public long getMemoryBytes() {
+        return imageEdit == null ? 0 : imageEdit.getMemoryBytes();
+    }
+
     @Override
     public void die() {
         super.die();
@@ -46,13 +46,20 @@ public class PartialImageEdit extends FadeableEdit {
 
     public PartialImageEdit(String name, Composition comp, Drawable dr,
                             BufferedImage image, Rectangle saveRect, boolean canRepeat) {
+        this(name, comp, dr, image.getData(saveRect), canRepeat);
+    }
+
+    /**
+     * The bounds of the given raster determine the saved area
+     */
+    public PartialImageEdit(String name, Composition comp, Drawable dr,
+                            Raster backupRaster, boolean canRepeat) {
         super(name, comp, dr);
 
         this.canRepeat = canRepeat;
         this.dr = dr;
-        this.saveRect = saveRect;
-
-        backupRaster = image.getData(this.saveRect);
+        this.saveRect = backupRaster.getBounds();
+        this.backupRaster = backupRaster;
     }
 
     @Override
@@ -90,6 +97,8 @@ public class PartialImageEdit extends FadeableEdit {
 
         backupRaster = tmpRaster;
 
+        // the layer isn't necessarily active during undo
+        dr.contentChanged();
         comp.imageChanged();
         dr.updateIconImage();
     }
@@ -128,6 +137,11 @@ public class PartialImageEdit extends FadeableEdit {
         return canRepeat;
     }
 
+    @Override
+    public long getMemoryBytes() {
+        return backupRaster == null ? 0 : ImageUtils.getSizeInBytes(backupRaster);
+    }
+
     @Override
     public BufferedImage getBackupImage() {
         // recreate the full image as if it was backed up entirely
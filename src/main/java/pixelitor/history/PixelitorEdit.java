@@ -92,6 +92,14 @@ public abstract class PixelitorEdit extends AbstractUndoableEdit {
         return false;
     }
 
+    /**
+     * Returns the approximate number of bytes held by this edit
+     * for undo/redo, not counting the small bookkeeping objects.
+     */
+    public long getMemoryBytes() {
+        return 0;
+    }
+
     @Override
     public String toString() {
         return name;
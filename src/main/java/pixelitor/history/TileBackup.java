@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.history;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+/**
+ * Saves the original pixels of an image lazily, tile by tile,
+ * just before they are modified for the first time.
+ * This way only the touched parts of a large image are copied.
+ */
+public class TileBackup {
+    private static final int TILE_SIZE = 128;
+
+    private final BufferedImage image;
+    private final int numTilesX;
+    private final int numTilesY;
+
+    // null elements mean that the tile was not touched yet
+    private final Raster[] tiles;
+
+    public TileBackup(BufferedImage image) {
+        this.image = image;
+        numTilesX = (image.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        numTilesY = (image.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        tiles = new Raster[numTilesX * numTilesY];
+    }
+
+    /**
+     * Saves the not yet saved tiles intersecting the
+     * given area, which is relative to the image
+     */
+    public void saveArea(Rectangle area) {
+        Rectangle r = area.intersection(getImageBounds());
+        if (r.isEmpty()) {
+            return;
+        }
+        int startTX = r.x / TILE_SIZE;
+        int endTX = (r.x + r.width - 1) / TILE_SIZE;
+        int startTY = r.y / TILE_SIZE;
+        int endTY = (r.y + r.height - 1) / TILE_SIZE;
+        for (int ty = startTY; ty <= endTY; ty++) {
+            for (int tx = startTX; tx <= endTX; tx++) {
+                int index = ty * numTilesX + tx;
+                if (tiles[index] == null) {
+                    Rectangle tileRect = new Rectangle(tx * TILE_SIZE, ty * TILE_SIZE,
+                            TILE_SIZE, TILE_SIZE).intersection(getImageBounds());
+                    tiles[index] = image.getData(tileRect);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the original pixels of the given area, which is relative to
+     * the image. The pixels outside the saved tiles are taken from the
+     * current image, because they were not modified.
+     */
+    public Raster getOriginalData(Rectangle area) {
+        WritableRaster result = image.getRaster().createCompatibleWritableRaster(area);
+        image.copyData(result);
+
+        int startTX = area.x / TILE_SIZE;
+        int endTX = Math.min(numTilesX - 1, (area.x + area.width - 1) / TILE_SIZE);
+        int startTY = area.y / TILE_SIZE;
+        int endTY = Math.min(numTilesY - 1, (area.y + area.height - 1) / TILE_SIZE);
+        for (int ty = startTY; ty <= endTY; ty++) {
+            for (int tx = startTX; tx <= endTX; tx++) {
+                Raster tile = tiles[ty * numTilesX + tx];
+                if (tile != null) {
+                    result.setRect(tile);
+                }
+            }
+        }
+        return result;
+    }
+
+    public int getNumSavedTiles() {
+        int count = 0;
+        for (Raster tile : tiles) {
+            if (tile != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    private Rectangle getImageBounds() {
+        return new Rectangle(0, 0, image.getWidth(), image.getHeight());
+    }
+}
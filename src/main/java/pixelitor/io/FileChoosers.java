@@ -18,8 +18,10 @@
 package pixelitor.io;
 
 import pixelitor.Composition;
+import pixelitor.automate.macro.Macro;
 import pixelitor.gui.GlobalKeyboardWatch;
 import pixelitor.gui.PixelitorWindow;
+import pixelitor.gui.utils.ConfirmSaveFileChooser;
 import pixelitor.gui.utils.ImagePreviewPanel;
 import pixelitor.gui.utils.SaveFileChooser;
 import pixelitor.utils.Messages;
@@ -48,6 +50,7 @@ public class FileChoosers {
     private static final FileFilter tiffFilter = new FileNameExtensionFilter("TIFF files", "tiff", "tif");
     private static final FileFilter pxcFilter = new FileNameExtensionFilter("PXC files", "pxc");
     public static final FileFilter oraFilter = new FileNameExtensionFilter("OpenRaster files", "ora");
+    public static final FileNameExtensionFilter macroFilter = new FileNameExtensionFilter("Pixelitor macros", Macro.FILE_EXT);
 
     private static final FileFilter[] OPEN_SAVE_FILTERS;
 
@@ -262,4 +265,43 @@ public class FileChoosers {
             setDefaultSaveExtensions();
         }
     }
+
+    /**
+     * Returns the selected macro file, or null if the selection was cancelled
+     */
+    public static File selectMacroFileToSave() {
+        JFileChooser chooser = new ConfirmSaveFileChooser(Dirs.getLastSave());
+        chooser.setFileFilter(macroFilter);
+
+        GlobalKeyboardWatch.setDialogActive(true);
+        int status = chooser.showSaveDialog(PixelitorWindow.getInstance());
+        GlobalKeyboardWatch.setDialogActive(false);
+
+        if (status != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        File selectedFile = chooser.getSelectedFile();
+        if (!FileUtils.getExt(selectedFile.getName()).isPresent()) {
+            selectedFile = new File(selectedFile.getAbsolutePath() + '.' + Macro.FILE_EXT);
+        }
+        Dirs.setLastSave(selectedFile.getParentFile());
+        return selectedFile;
+    }
+
+    /**
+     * Returns the selected macro file, or null if the selection was cancelled
+     */
+    public static File selectMacroFileToOpen() {
+        JFileChooser chooser = new JFileChooser(Dirs.getLastOpen());
+        chooser.setFileFilter(macroFilter);
+
+        GlobalKeyboardWatch.setDialogActive(true);
+        int status = chooser.showOpenDialog(PixelitorWindow.getInstance());
+        GlobalKeyboardWatch.setDialogActive(false);
+
+        if (status != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        return chooser.getSelectedFile();
+    }
 }
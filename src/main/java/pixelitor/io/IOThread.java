@@ -18,6 +18,8 @@
 package pixelitor.io;
 
 import pixelitor.ThreadPool;
+import pixelitor.utils.AppPreferences;
+import pixelitor.utils.debug.Metrics;
 
 import java.io.File;
 import java.util.HashSet;
@@ -25,10 +27,17 @@ import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
- * Makes sure that only one IO task runs at a time
+ * Makes sure that only one IO task runs at a time.
+ * The only exception is opening multiple files, where
+ * the files are read in parallel by the reader threads.
  */
 public class IOThread {
     private static final ThreadFactory threadFactory
@@ -36,6 +45,22 @@ public class IOThread {
     private static final ExecutorService executor
             = Executors.newSingleThreadExecutor(threadFactory);
 
+    private static final AtomicInteger readerThreadCount = new AtomicInteger();
+    private static final ThreadPoolExecutor readerExecutor;
+    private static int numReaderThreads;
+
+    static {
+        int defaultNumThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+        numReaderThreads = Math.max(1, AppPreferences.loadNumReaderThreads(defaultNumThreads));
+
+        readerExecutor = new ThreadPoolExecutor(
+                numReaderThreads, numReaderThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "[IO reader thread " + readerThreadCount.incrementAndGet() + "]"));
+        // the threads are not kept alive if no files are opened
+        readerExecutor.allowCoreThreadTimeOut(true);
+    }
+
     private static final Set<String> currentPaths = new HashSet<>();
 
     // can be set to true for testing things like
@@ -53,6 +78,58 @@ public class IOThread {
         return executor;
     }
 
+    /**
+     * Returns the executor that reads multiple input files in parallel
+     */
+    public static Executor getReaderExecutor() {
+        return readerExecutor;
+    }
+
+    /**
+     * Wraps the given file reading task so that its
+     * throughput is recorded in the {@link Metrics}
+     */
+    public static <T> Supplier<T> measuredRead(File file, Supplier<T> task) {
+        return () -> {
+            long startTime = System.nanoTime();
+            T result = task.get();
+            Metrics.fileRead(file, System.nanoTime() - startTime);
+            return result;
+        };
+    }
+
+    /**
+     * Wraps the given file writing task so that its
+     * throughput is recorded in the {@link Metrics}
+     */
+    public static Runnable measuredWrite(File file, Runnable task) {
+        return () -> {
+            long startTime = System.nanoTime();
+            task.run();
+            Metrics.fileWritten(file, System.nanoTime() - startTime);
+        };
+    }
+
+    public static int getNumReaderThreads() {
+        return numReaderThreads;
+    }
+
+    public static void setNumReaderThreads(int newValue) {
+        if (newValue < 1) {
+            throw new IllegalArgumentException("newValue = " + newValue);
+        }
+        // the maximum must be increased before the core size
+        // and decreased after it
+        if (newValue > numReaderThreads) {
+            readerExecutor.setMaximumPoolSize(newValue);
+            readerExecutor.setCorePoolSize(newValue);
+        } else {
+            readerExecutor.setCorePoolSize(newValue);
+            readerExecutor.setMaximumPoolSize(newValue);
+        }
+        numReaderThreads = newValue;
+    }
+
     /**
      * Returns true if the file is currently processed or queued to be processed,
      * otherwise it returns false and marks the file as processed
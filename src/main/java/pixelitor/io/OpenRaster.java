@@ -24,11 +24,14 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import pixelitor.Composition;
+import pixelitor.ThreadPool;
+import pixelitor.io.PNGEncoder.RowFilter;
 import pixelitor.layers.BlendingMode;
 import pixelitor.layers.ImageLayer;
 import pixelitor.layers.Layer;
 import pixelitor.utils.ImageUtils;
 import pixelitor.utils.ProgressTracker;
+import pixelitor.utils.Resampler;
 import pixelitor.utils.StatusBarProgressTracker;
 import pixelitor.utils.SubtaskProgressTracker;
 import pixelitor.utils.Utils;
@@ -36,18 +39,29 @@ import pixelitor.utils.Utils;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.StringReader;
 import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -62,74 +76,88 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  */
 public class OpenRaster {
     private static final String MERGED_IMAGE_NAME = "mergedimage.png";
+    private static final String THUMBNAIL_NAME = "Thumbnails/thumbnail.png";
+    private static final int THUMBNAIL_SIZE = 256;
 
     private OpenRaster() {
     }
 
-    public static void uncheckedWrite(Composition comp, File outFile, boolean addMergedImage) {
+    public static void uncheckedWrite(Composition comp, SaveSettings settings, boolean addMergedImage) {
         try {
-            write(comp, outFile, addMergedImage);
+            write(comp, settings, addMergedImage);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
-    public static void write(Composition comp, File outFile, boolean addMergedImage) throws IOException {
-        ProgressTracker pt = new StatusBarProgressTracker("Writing " + outFile.getName(), 100);
-
-        FileOutputStream fos = new FileOutputStream(outFile);
-        ZipOutputStream zos = new ZipOutputStream(fos);
+    public static void write(Composition comp, SaveSettings settings, boolean addMergedImage) throws IOException {
+        File outFile = settings.getFile();
+        int compressionLevel = settings.getPNGCompressionLevel();
+        RowFilter rowFilter = settings.getPNGRowFilter();
 
         String stackXML = format("<?xml version='1.0' encoding='UTF-8'?>\n" +
                 "<image w=\"%d\" h=\"%d\">\n" +
                 "<stack>\n", comp.getCanvasImWidth(), comp.getCanvasImHeight());
 
+        List<Callable<EncodedEntry>> pngs = new ArrayList<>();
         int numLayers = comp.getNumLayers();
-        int numImageLayers = comp.getNumImageLayers();
-        if (addMergedImage) {
-            numImageLayers++;
-        }
-        double workRatio = 1.0 / numImageLayers;
-
         // Reverse iteration: in stack.xml the first element in a stack is the uppermost.
         for (int i = numLayers - 1; i >= 0; i--) {
             Layer layer = comp.getLayer(i);
             if (layer instanceof ImageLayer) {
                 ImageLayer imageLayer = (ImageLayer) layer;
-                ProgressTracker spt = new SubtaskProgressTracker(workRatio, pt);
-                stackXML += writeLayer(imageLayer, i, zos, spt);
+                stackXML += createLayerXML(imageLayer, i);
+                String entryName = format("data/%d.png", i);
+                BufferedImage image = imageLayer.getImage();
+                pngs.add(() -> encodePNG(entryName, image, compressionLevel, rowFilter));
             }
         }
 
         if (addMergedImage) {
-            zos.putNextEntry(new ZipEntry(MERGED_IMAGE_NAME));
-            ProgressTracker subTaskTracker = new SubtaskProgressTracker(workRatio, pt);
-            BufferedImage img = comp.getCompositeImage();
-            TrackedIO.writeToStream(img, zos, "PNG", subTaskTracker);
-            zos.closeEntry();
+            BufferedImage merged = comp.getCompositeImage();
+            pngs.add(() -> encodePNG(MERGED_IMAGE_NAME, merged, compressionLevel, rowFilter));
+            pngs.add(() -> encodePNG(THUMBNAIL_NAME, createThumbnail(merged),
+                    compressionLevel, rowFilter));
         }
 
         stackXML += "</stack>\n</image>";
 
-        // write the stack.xml file
-        zos.putNextEntry(new ZipEntry("stack.xml"));
-        zos.write(stackXML.getBytes(UTF_8));
-        zos.closeEntry();
-
-        // write the mimetype
-        zos.putNextEntry(new ZipEntry("mimetype"));
-        zos.write("image/openraster".getBytes(UTF_8));
-        zos.closeEntry();
-        zos.close();
+        // The PNG files are encoded in parallel, and are written in
+        // order as they become ready. Only a limited number of them
+        // is encoded ahead, so that the encoded data of all the layers
+        // is never in memory. They are already compressed,
+        // so they are not compressed again in the zip file.
+        int maxEncodedAhead = ThreadPool.getNumThreads();
+        Iterator<Callable<EncodedEntry>> toEncode = pngs.iterator();
+        Deque<Future<EncodedEntry>> encoding = new ArrayDeque<>();
+
+        ProgressTracker pt = new StatusBarProgressTracker(
+                "Writing " + outFile.getName(), pngs.size());
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(outFile))) {
+            // the mimetype must be the first, uncompressed entry
+            writeStoredEntry(zos, new EncodedEntry("mimetype",
+                    "image/openraster".getBytes(UTF_8)));
+
+            zos.putNextEntry(new ZipEntry("stack.xml"));
+            zos.write(stackXML.getBytes(UTF_8));
+            zos.closeEntry();
 
-        pt.finish();
+            while (toEncode.hasNext() || !encoding.isEmpty()) {
+                while (toEncode.hasNext() && encoding.size() < maxEncodedAhead) {
+                    encoding.add(ThreadPool.submit2(toEncode.next()));
+                }
+                writeStoredEntry(zos, getEncoded(encoding.remove()));
+                pt.unitDone();
+            }
+        } finally {
+            // in case of an error, don't continue the encoding
+            encoding.forEach(png -> png.cancel(true));
+            pt.finish();
+        }
     }
 
-    private static String writeLayer(ImageLayer layer,
-                                     int layerIndex,
-                                     ZipOutputStream zos,
-                                     ProgressTracker pt) throws IOException {
-        String stackXML = format(Locale.ENGLISH,
+    private static String createLayerXML(ImageLayer layer, int layerIndex) {
+        return format(Locale.ENGLISH,
                 "<layer name=\"%s\" visibility=\"%s\" composite-op=\"%s\" opacity=\"%f\" src=\"data/%d.png\" x=\"%d\" y=\"%d\"/>\n",
                 layer.getName(),
                 layer.getVisibilityAsORAString(),
@@ -138,14 +166,62 @@ public class OpenRaster {
                 layerIndex,
                 layer.getTX(),
                 layer.getTY());
-        ZipEntry entry = new ZipEntry(format("data/%d.png", layerIndex));
-        zos.putNextEntry(entry);
-        BufferedImage image = layer.getImage();
+    }
+
+    private static BufferedImage createThumbnail(BufferedImage img) {
+        Dimension size = ImageUtils.calcThumbDimensions(img, THUMBNAIL_SIZE);
+        if (size.width >= img.getWidth() && size.height >= img.getHeight()) {
+            return img;
+        }
+        return Resampler.resize(img, size.width, size.height);
+    }
+
+    private static EncodedEntry encodePNG(String entryName, BufferedImage img,
+                                          int compressionLevel, RowFilter rowFilter) throws IOException {
+        return new EncodedEntry(entryName, PNGEncoder.encode(img, compressionLevel, rowFilter));
+    }
+
+    private static EncodedEntry getEncoded(Future<EncodedEntry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("ORA writing was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
 
-        TrackedIO.writeToStream(image, zos, "PNG", pt);
+    private static void writeStoredEntry(ZipOutputStream zos, EncodedEntry encoded) throws IOException {
+        byte[] bytes = encoded.bytes;
+        ZipEntry entry = new ZipEntry(encoded.entryName);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(bytes.length);
+        entry.setCompressedSize(bytes.length);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        entry.setCrc(crc.getValue());
 
+        zos.putNextEntry(entry);
+        zos.write(bytes);
         zos.closeEntry();
-        return stackXML;
+    }
+
+    /**
+     * The contents of a zip entry, encoded in memory
+     */
+    private static class EncodedEntry {
+        private final String entryName;
+        private final byte[] bytes;
+
+        EncodedEntry(String entryName, byte[] bytes) {
+            this.entryName = entryName;
+            this.bytes = bytes;
+        }
     }
 
     public static Composition read(File file) throws IOException, ParserConfigurationException, SAXException {
@@ -165,7 +241,7 @@ public class OpenRaster {
 
                 if (name.equalsIgnoreCase("stack.xml")) {
                     stackXML = extractString(zipFile.getInputStream(entry));
-                } else if (name.equalsIgnoreCase(MERGED_IMAGE_NAME)) {
+                } else if (isViewerImage(name)) {
                     // no need for that
                 } else if (hasPNGExtension(name)) {
                     ProgressTracker spt = new SubtaskProgressTracker(workRatio, pt);
@@ -245,13 +321,19 @@ public class OpenRaster {
         while (fileEntries.hasMoreElements()) {
             ZipEntry entry = fileEntries.nextElement();
             String name = entry.getName().toLowerCase();
-            if (name.endsWith("png") && !name.equals(MERGED_IMAGE_NAME)) {
+            if (name.endsWith("png") && !isViewerImage(name)) {
                 numImageFiles++;
             }
         }
         return numImageFiles;
     }
 
+    // the merged image and the thumbnail are only for image viewers
+    private static boolean isViewerImage(String entryName) {
+        return entryName.equalsIgnoreCase(MERGED_IMAGE_NAME)
+                || entryName.toLowerCase().startsWith("thumbnails/");
+    }
+
     private static boolean hasPNGExtension(String name) {
         return FileUtils.getExt(name)
                 .filter(s -> s.equalsIgnoreCase("png"))
@@ -17,6 +17,7 @@
 
 package pixelitor.io;
 
+import org.xml.sax.SAXException;
 import pixelitor.Composition;
 import pixelitor.automate.SingleDirChooser;
 import pixelitor.gui.ImageComponents;
@@ -25,19 +26,29 @@ import pixelitor.layers.Layer;
 import pixelitor.layers.LayerMask;
 import pixelitor.layers.TextLayer;
 import pixelitor.menus.file.RecentFilesMenu;
+import pixelitor.utils.MemoryInfo;
 import pixelitor.utils.Messages;
+import pixelitor.utils.ProgressTracker;
+import pixelitor.utils.StatusBarProgressTracker;
 import pixelitor.utils.Utils;
 
+import javax.xml.parsers.ParserConfigurationException;
 import java.awt.EventQueue;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 import static java.lang.String.format;
+import static pixelitor.utils.MemoryInfo.ONE_MEGABYTE;
 import static pixelitor.utils.Utils.getJavaMainVersion;
 
 /**
@@ -64,24 +75,56 @@ public class OpenSave {
     }
 
     public static CompletableFuture<Composition> loadCompFromFileAsync(File file) {
+        return loadCompFromFileAsync(file, IOThread.getExecutor());
+    }
+
+    private static CompletableFuture<Composition> loadCompFromFileAsync(File file,
+                                                                        Executor executor) {
         CompletableFuture<Composition> cf;
 
         String ext = FileUtils.getExt(file.getName()).orElse("");
         if ("pxc".equals(ext)) {
-            cf = loadLayered(file, "pxc");
+            cf = loadLayered(file, "pxc", executor);
         } else if ("ora".equals(ext)) {
-            cf = loadLayered(file, "ora");
+            cf = loadLayered(file, "ora", executor);
         } else {
-            cf = loadSimpleFile(file);
+            cf = loadSimpleFile(file, executor);
         }
 
         return cf;
     }
 
+    /**
+     * Loads a composition on the current thread, without adding it
+     * to the GUI and without showing any dialogs.
+     * Used by the headless batch processing.
+     * Returns null if the file could not be decoded as an image.
+     */
+    public static Composition loadCompFromFile(File file) throws IOException {
+        String ext = FileUtils.getExt(file.getName()).orElse("");
+        if ("pxc".equals(ext)) {
+            try {
+                return PXCFormat.read(file);
+            } catch (NotPxcFormatException e) {
+                throw new IOException(e);
+            }
+        } else if ("ora".equals(ext)) {
+            try {
+                return OpenRaster.read(file);
+            } catch (ParserConfigurationException | SAXException e) {
+                throw new IOException(e);
+            }
+        } else {
+            BufferedImage img = TrackedIO.read(file);
+            return Composition.fromImage(img, file, null);
+        }
+    }
+
     // loads an a file with a single-layer image format
-    private static CompletableFuture<Composition> loadSimpleFile(File file) {
+    private static CompletableFuture<Composition> loadSimpleFile(File file,
+                                                                 Executor executor) {
         return CompletableFuture.supplyAsync(
-                () -> TrackedIO.uncheckedRead(file), IOThread.getExecutor())
+                IOThread.measuredRead(file, () -> TrackedIO.uncheckedRead(file)), executor)
                 .handle((img, e) -> handleDecodingError(file, img, e))
                 .thenApply(img -> Composition.fromImage(img, file, null));
     }
@@ -118,7 +161,8 @@ public class OpenSave {
     }
 
     private static CompletableFuture<Composition> loadLayered(File selectedFile,
-                                                              String type) {
+                                                              String type,
+                                                              Executor executor) {
         Callable<Composition> loadTask;
         switch (type) {
             case "pxc":
@@ -132,8 +176,7 @@ public class OpenSave {
         }
 
         return CompletableFuture.supplyAsync(
-                Utils.toSupplier(loadTask),
-                IOThread.getExecutor());
+                IOThread.measuredRead(selectedFile, Utils.toSupplier(loadTask)), executor);
     }
 
     public static void save(boolean saveAs) {
@@ -178,6 +221,8 @@ public class OpenSave {
                     settings.setOutputFormat(saveSettings.getOutputFormat());
                 }
                 JpegOutput.writeJPG(image, selectedFile, settings);
+            } else if (format == OutputFormat.PNG) {
+                PNGEncoder.write(image, selectedFile, saveSettings);
             } else {
                 TrackedIO.write(image, format.toString(), selectedFile);
             }
@@ -199,13 +244,88 @@ public class OpenSave {
         EventQueue.invokeLater(() -> Messages.showError("Cannot save", msg));
     }
 
+    /**
+     * Opens all supported image files in the given directory. The files
+     * are read in parallel by the reader threads of {@link IOThread},
+     * but a file is admitted only if its estimated decoded size
+     * fits into the available memory.
+     */
     public static void openAllImagesInDir(File dir) {
         File[] files = FileUtils.listSupportedInputFilesIn(dir);
-        if (files != null) {
-            for (File file : files) {
-                // make sure only one file is read at a time
-                openFileAsync(file).join();
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Arrays.sort(files);
+
+        // the admission control blocks, therefore it can't run on the EDT
+        new Thread(() -> openFilesInParallel(files), "[Open Files Thread]").start();
+    }
+
+    private static void openFilesInParallel(File[] files) {
+        // the permits are megabytes
+        long availableMB = new MemoryInfo().getAvailableMemoryMB();
+        int budgetMB = (int) Math.max(1, Math.min(availableMB * 3 / 4, Integer.MAX_VALUE));
+        Semaphore memoryBudget = new Semaphore(budgetMB, true);
+
+        ProgressTracker pt = new StatusBarProgressTracker(
+                "Opening " + files.length + " files", files.length);
+        List<CompletableFuture<Composition>> futures = new ArrayList<>();
+        for (int i = 0; i < files.length; i++) {
+            File file = files[i];
+            if (IOThread.isProcessing(file)) {
+                fileDone(pt);
+                continue;
             }
+
+            long estimatedMB = TrackedIO.estimateDecodedBytes(file) / ONE_MEGABYTE;
+            int neededMB = (int) Math.max(1, Math.min(estimatedMB, budgetMB));
+
+            // the parallel reads together can't use more than the budget
+            memoryBudget.acquireUninterruptibly(neededMB);
+
+            // the already opened images also use memory
+            if (!fitsIntoMemory(estimatedMB, futures)) {
+                memoryBudget.release(neededMB);
+                IOThread.processingFinishedFor(file);
+
+                int numNotOpened = files.length - i;
+                EventQueue.invokeLater(() -> Messages.showError("Not Enough Memory",
+                        format("%d of the %d files were not opened, " +
+                                "because there is not enough memory.", numNotOpened, files.length)));
+                break;
+            }
+
+            futures.add(loadCompFromFileAsync(file, IOThread.getReaderExecutor())
+                    .thenApplyAsync(comp -> addJustLoadedComp(comp, file),
+                            EventQueue::invokeLater)
+                    .whenComplete((comp, e) -> {
+                        memoryBudget.release(neededMB);
+                        IOThread.processingFinishedFor(file);
+                        fileDone(pt);
+                    })
+                    .exceptionally(Messages::showExceptionOnEDT));
+        }
+
+        futures.forEach(CompletableFuture::join);
+        synchronized (pt) {
+            pt.finish();
+        }
+    }
+
+    private static boolean fitsIntoMemory(long neededMB,
+                                          List<CompletableFuture<Composition>> running) {
+        if (neededMB < new MemoryInfo().getAvailableMemoryMB()) {
+            return true;
+        }
+        // check again after the running reads are finished
+        running.forEach(CompletableFuture::join);
+        return neededMB < new MemoryInfo().getAvailableMemoryMB();
+    }
+
+    // called from the reader threads and from the EDT
+    private static void fileDone(ProgressTracker pt) {
+        synchronized (pt) {
+            pt.unitDone();
         }
     }
 
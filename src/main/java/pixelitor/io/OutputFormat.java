@@ -39,7 +39,7 @@ public enum OutputFormat {
     }, ORA(true, true) {
         @Override
         public Runnable getSaveTask(Composition comp, SaveSettings settings) {
-            return () -> OpenRaster.uncheckedWrite(comp, settings.getFile(), false);
+            return () -> OpenRaster.uncheckedWrite(comp, settings, false);
         }
     };
 
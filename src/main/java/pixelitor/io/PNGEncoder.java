@@ -0,0 +1,461 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.io;
+
+import pixelitor.ThreadPool;
+import pixelitor.utils.ProgressTracker;
+import pixelitor.utils.StatusBarProgressTracker;
+import pixelitor.utils.VisibleForTesting;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * A PNG encoder that filters and deflates horizontal stripes
+ * of the image in parallel. The stripes are compressed into
+ * separate raw deflate blocks ending on a byte boundary, so
+ * they can be concatenated into one zlib stream.
+ */
+public class PNGEncoder {
+    public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+
+    private static final byte[] SIGNATURE = {
+            (byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+    private static final int COLOR_TYPE_GRAY = 0;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    // the approximate amount of filtered data deflated by one task
+    private static final int STRIPE_BYTES = 256 * 1024;
+    private static final int MIN_STRIPE_HEIGHT = 16;
+    // the deflate window size
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * The scanline filter. ADAPTIVE chooses the filter with the
+     * smallest sum of absolute differences for each row.
+     */
+    public enum RowFilter {
+        NONE("None"), SUB("Sub"), UP("Up"), AVERAGE("Average"),
+        PAETH("Paeth"), ADAPTIVE("Adaptive");
+
+        private final String guiName;
+
+        RowFilter(String guiName) {
+            this.guiName = guiName;
+        }
+
+        @Override
+        public String toString() {
+            return guiName;
+        }
+    }
+
+    private PNGEncoder() {
+        // do not instantiate
+    }
+
+    public static void write(BufferedImage img, File file, SaveSettings settings) throws IOException {
+        ProgressTracker pt = new StatusBarProgressTracker(
+                "Writing " + file.getName(), calcNumStripes(img));
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(img, out, settings.getPNGCompressionLevel(), settings.getPNGRowFilter(), pt);
+        } finally {
+            pt.finish();
+        }
+    }
+
+    public static byte[] encode(BufferedImage img, int compressionLevel, RowFilter filter) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        write(img, bos, compressionLevel, filter, ProgressTracker.NULL_TRACKER);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Writes the given image in PNG format, updating
+     * the given tracker after each stripe.
+     */
+    public static void write(BufferedImage img, OutputStream os,
+                             int compressionLevel, RowFilter filter,
+                             ProgressTracker pt) throws IOException {
+        Source source = new Source(img);
+        int height = img.getHeight();
+        int stripeHeight = calcStripeHeight(img);
+        int numStripes = calcNumStripes(img);
+
+        DataOutputStream out = new DataOutputStream(os);
+        out.write(SIGNATURE);
+        writeHeader(out, img.getWidth(), height, source.colorType);
+
+        // the stripes are encoded in batches, so that the
+        // compressed data of the whole image is never in memory
+        int batchSize = 2 * ThreadPool.getNumThreads();
+        Stripe[] batch = new Stripe[batchSize];
+        long adler = 1;
+        for (int batchStart = 0; batchStart < numStripes; batchStart += batchSize) {
+            int firstStripe = batchStart;
+            int numInBatch = Math.min(batchSize, numStripes - batchStart);
+            ThreadPool.parallelFor(numInBatch, 2, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    int y0 = (firstStripe + i) * stripeHeight;
+                    int y1 = Math.min(height, y0 + stripeHeight);
+                    batch[i] = encodeStripe(source, y0, y1,
+                            compressionLevel, filter, y1 == height);
+                }
+            });
+
+            for (int i = 0; i < numInBatch; i++) {
+                Stripe stripe = batch[i];
+                batch[i] = null;
+                adler = combineAdlers(adler, stripe.adler, stripe.uncompressedLength);
+
+                ByteArrayOutputStream idat = new ByteArrayOutputStream(stripe.compressed.length + 6);
+                if (firstStripe + i == 0) {
+                    idat.write(zlibHeader(compressionLevel));
+                }
+                idat.write(stripe.compressed);
+                if (firstStripe + i == numStripes - 1) {
+                    // the zlib trailer is the checksum of the uncompressed data
+                    new DataOutputStream(idat).writeInt((int) adler);
+                }
+                writeChunk(out, "IDAT", idat.toByteArray());
+                pt.unitDone();
+            }
+        }
+
+        writeChunk(out, "IEND", new byte[0]);
+        out.flush();
+    }
+
+    private static int calcStripeHeight(BufferedImage img) {
+        int rowBytes = img.getWidth() * calcBytesPerPixel(img) + 1;
+        return Math.max(MIN_STRIPE_HEIGHT, STRIPE_BYTES / rowBytes);
+    }
+
+    private static int calcNumStripes(BufferedImage img) {
+        int stripeHeight = calcStripeHeight(img);
+        return (img.getHeight() + stripeHeight - 1) / stripeHeight;
+    }
+
+    private static int calcBytesPerPixel(BufferedImage img) {
+        if (img.getType() == TYPE_BYTE_GRAY) {
+            return 1;
+        }
+        return img.getColorModel().hasAlpha() ? 4 : 3;
+    }
+
+    private static void writeHeader(DataOutputStream out, int width, int height, int colorType) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(13);
+        DataOutputStream header = new DataOutputStream(bos);
+        header.writeInt(width);
+        header.writeInt(height);
+        header.writeByte(8); // bit depth
+        header.writeByte(colorType);
+        header.writeByte(0); // compression method
+        header.writeByte(0); // filter method
+        header.writeByte(0); // no interlace
+        writeChunk(out, "IHDR", bos.toByteArray());
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+
+        out.writeInt(data.length);
+        out.write(typeBytes);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static byte[] zlibHeader(int compressionLevel) {
+        int cmf = 0x78; // deflate with a 32K window
+        int flevel;
+        if (compressionLevel < 2) {
+            flevel = 0;
+        } else if (compressionLevel < 6) {
+            flevel = 1;
+        } else if (compressionLevel == 6) {
+            flevel = 2;
+        } else {
+            flevel = 3;
+        }
+        int flg = flevel << 6;
+        // the header as a 16 bit number must be a multiple of 31
+        flg += (31 - (cmf * 256 + flg) % 31) % 31;
+        return new byte[]{(byte) cmf, (byte) flg};
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive
+     * blocks of data, like adler32_combine in zlib.
+     */
+    @VisibleForTesting
+    static long combineAdlers(long adler1, long adler2, long length2) {
+        long base = 65521;
+        long rem = length2 % base;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (rem * sum1) % base;
+        sum1 += (adler2 & 0xFFFF) + base - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + base - rem;
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum2 >= (base << 1)) {
+            sum2 -= (base << 1);
+        }
+        if (sum2 >= base) {
+            sum2 -= base;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    private static Stripe encodeStripe(Source source, int y0, int y1,
+                                       int compressionLevel, RowFilter filter,
+                                       boolean last) {
+        int rowBytes = source.width * source.bytesPerPixel;
+        int bpp = source.bytesPerPixel;
+        byte[] prevRow = new byte[rowBytes];
+        byte[] row = new byte[rowBytes];
+        // one buffer for each basic filter, with the filter type first
+        byte[][] filtered = new byte[5][rowBytes + 1];
+        int[] argbRow = new int[source.width];
+
+        // Like in pigz, the last 32K of the previous stripe's data is used
+        // as a preset dictionary, so that splitting the image into stripes
+        // costs almost nothing in compression. The filtered rows
+        // of the previous stripe are calculated again for this.
+        int dictRows = (DICTIONARY_SIZE + rowBytes) / (rowBytes + 1);
+        int yStart = Math.max(0, y0 - dictRows);
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(DICTIONARY_SIZE + rowBytes + 1);
+        if (yStart > 0) {
+            source.readRow(yStart - 1, prevRow, argbRow);
+        }
+
+        Deflater deflater = new Deflater(compressionLevel, true);
+        Adler32 adler = new Adler32();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(STRIPE_BYTES / 2);
+        byte[] buf = new byte[16 * 1024];
+
+        for (int y = yStart; y < y1; y++) {
+            source.readRow(y, row, argbRow);
+
+            byte[] chosen;
+            if (filter == RowFilter.ADAPTIVE) {
+                chosen = null;
+                long minSum = Long.MAX_VALUE;
+                for (int type = 0; type < 5; type++) {
+                    long sum = filterRow(type, row, prevRow, bpp, filtered[type]);
+                    if (sum < minSum) {
+                        minSum = sum;
+                        chosen = filtered[type];
+                    }
+                }
+            } else {
+                chosen = filtered[filter.ordinal()];
+                filterRow(filter.ordinal(), row, prevRow, bpp, chosen);
+            }
+
+            if (y < y0) {
+                dictionary.write(chosen, 0, chosen.length);
+                if (y == y0 - 1) {
+                    byte[] dict = dictionary.toByteArray();
+                    int dictLength = Math.min(DICTIONARY_SIZE, dict.length);
+                    deflater.setDictionary(dict, dict.length - dictLength, dictLength);
+                }
+            } else {
+                adler.update(chosen);
+                deflater.setInput(chosen);
+                while (!deflater.needsInput()) {
+                    int n = deflater.deflate(buf);
+                    out.write(buf, 0, n);
+                }
+            }
+
+            byte[] tmp = prevRow;
+            prevRow = row;
+            row = tmp;
+        }
+
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buf);
+                out.write(buf, 0, n);
+            }
+        } else {
+            // ends the block on a byte boundary without ending the stream
+            int n;
+            do {
+                n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                out.write(buf, 0, n);
+            } while (n == buf.length);
+        }
+        deflater.end();
+
+        long uncompressedLength = (long) (y1 - y0) * (rowBytes + 1);
+        return new Stripe(out.toByteArray(), adler.getValue(), uncompressedLength);
+    }
+
+    /**
+     * Filters a row with the given basic filter type, and returns
+     * the sum of the absolute differences from the predicted values.
+     */
+    private static long filterRow(int type, byte[] row, byte[] prevRow, int bpp, byte[] out) {
+        out[0] = (byte) type;
+        int length = row.length;
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            int x = row[i] & 0xFF;
+            int a = i >= bpp ? row[i - bpp] & 0xFF : 0;
+            int b = prevRow[i] & 0xFF;
+            int predicted;
+            switch (type) {
+                case 0:
+                    predicted = 0;
+                    break;
+                case 1:
+                    predicted = a;
+                    break;
+                case 2:
+                    predicted = b;
+                    break;
+                case 3:
+                    predicted = (a + b) >>> 1;
+                    break;
+                default:
+                    int c = i >= bpp ? prevRow[i - bpp] & 0xFF : 0;
+                    predicted = paeth(a, b, c);
+                    break;
+            }
+            int difference = x - predicted;
+            out[i + 1] = (byte) difference;
+            // the unwrapped difference works better than the filtered byte
+            sum += Math.abs(difference);
+        }
+        return sum;
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        if (pb <= pc) {
+            return b;
+        }
+        return c;
+    }
+
+    /**
+     * The compressed data of a stripe
+     */
+    private static class Stripe {
+        final byte[] compressed;
+        final long adler;
+        final long uncompressedLength;
+
+        Stripe(byte[] compressed, long adler, long uncompressedLength) {
+            this.compressed = compressed;
+            this.adler = adler;
+            this.uncompressedLength = uncompressedLength;
+        }
+    }
+
+    /**
+     * Reads the rows of the image as PNG samples
+     */
+    private static class Source {
+        final BufferedImage img;
+        final WritableRaster raster;
+        final int width;
+        final int type;
+        final int colorType;
+        final int bytesPerPixel;
+
+        Source(BufferedImage img) {
+            this.img = img;
+            raster = img.getRaster();
+            width = img.getWidth();
+            type = img.getType();
+            bytesPerPixel = calcBytesPerPixel(img);
+            if (bytesPerPixel == 1) {
+                colorType = COLOR_TYPE_GRAY;
+            } else if (bytesPerPixel == 4) {
+                colorType = COLOR_TYPE_RGBA;
+            } else {
+                colorType = COLOR_TYPE_RGB;
+            }
+        }
+
+        void readRow(int y, byte[] row, int[] argbRow) {
+            if (type == TYPE_BYTE_GRAY) {
+                raster.getDataElements(0, y, width, 1, row);
+                return;
+            }
+
+            if (type == TYPE_INT_ARGB || type == TYPE_INT_RGB) {
+                raster.getDataElements(0, y, width, 1, argbRow);
+            } else {
+                // converts other types, including the premultiplied ones
+                img.getRGB(0, y, width, 1, argbRow, 0, width);
+            }
+
+            int i = 0;
+            if (bytesPerPixel == 4) {
+                for (int x = 0; x < width; x++) {
+                    int argb = argbRow[x];
+                    row[i++] = (byte) (argb >>> 16);
+                    row[i++] = (byte) (argb >>> 8);
+                    row[i++] = (byte) argb;
+                    row[i++] = (byte) (argb >>> 24);
+                }
+            } else {
+                for (int x = 0; x < width; x++) {
+                    int rgb = argbRow[x];
+                    row[i++] = (byte) (rgb >>> 16);
+                    row[i++] = (byte) (rgb >>> 8);
+                    row[i++] = (byte) rgb;
+                }
+            }
+        }
+    }
+}
@@ -46,7 +46,7 @@ import static pixelitor.utils.ImageUtils.getPixelsAsArray;
 public class PXCFormat {
     private static final int CURRENT_PXC_VERSION_NUMBER = 0x03;
 
-    // tracks the reading-writing of the whole file
+    // tracks the writing of the whole file
     private static ProgressTracker mainPT;
 
     private static double workRatioForOneImage;
@@ -56,11 +56,12 @@ public class PXCFormat {
 
     public static Composition read(File file) throws NotPxcFormatException {
         long fileSize = file.length();
-        mainPT = new StatusBarProgressTracker(
+        // a local tracker, so that files can be read in parallel
+        ProgressTracker pt = new StatusBarProgressTracker(
                 "Reading " + file.getName(), (int) fileSize);
         Composition comp = null;
         try (InputStream is = new ProgressTrackingInputStream(
-                new FileInputStream(file), mainPT)) {
+                new FileInputStream(file), pt)) {
             int firstByte = is.read();
             int secondByte = is.read();
             if (firstByte == 0xAB && secondByte == 0xC4) {
@@ -91,9 +92,8 @@ public class PXCFormat {
             try (GZIPInputStream gs = new GZIPInputStream(is)) {
                 try (ObjectInput ois = new ObjectInputStream(gs)) {
                     comp = (Composition) ois.readObject();
-                    mainPT.finish();
-                    mainPT = null;
-                    
+                    pt.finish();
+
                     // file is transient in Composition because the pxc file can be renamed
                     comp.setFile(file);
                 }
@@ -105,7 +105,9 @@ public class PXCFormat {
         return comp;
     }
 
-    public static void write(Composition comp, File f) {
+    // synchronized because the shared progress tracker
+    // is also used while serializing the layer images
+    public static synchronized void write(Composition comp, File f) {
         mainPT = new StatusBarProgressTracker(
                 "Writing " + f.getName(), 100);
         int numImages = comp.calcNumImages();
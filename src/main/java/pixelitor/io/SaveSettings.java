@@ -17,12 +17,23 @@
 
 package pixelitor.io;
 
+import pixelitor.io.PNGEncoder.RowFilter;
+import pixelitor.utils.AppPreferences;
+
 import java.io.File;
 
 public class SaveSettings {
+    // the PNG settings of the new save settings, set in the preferences
+    private static int defaultPNGCompressionLevel = AppPreferences.loadPNGCompressionLevel();
+    private static RowFilter defaultPNGRowFilter = AppPreferences.loadPNGRowFilter();
+
     private File file; // the output file
     private OutputFormat outputFormat;
 
+    // the speed/size tradeoff of the PNG output
+    private int pngCompressionLevel = defaultPNGCompressionLevel;
+    private RowFilter pngRowFilter = defaultPNGRowFilter;
+
     public SaveSettings() {
     }
 
@@ -46,4 +57,35 @@ public class SaveSettings {
     public OutputFormat getOutputFormat() {
         return outputFormat;
     }
+
+    public int getPNGCompressionLevel() {
+        return pngCompressionLevel;
+    }
+
+    public RowFilter getPNGRowFilter() {
+        return pngRowFilter;
+    }
+
+    public static int getDefaultPNGCompressionLevel() {
+        return defaultPNGCompressionLevel;
+    }
+
+    /**
+     * Sets the deflate level of the later PNG outputs from 0
+     * (fastest, largest files) to 9 (slowest, smallest files)
+     */
+    public static void setDefaultPNGCompressionLevel(int level) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("level = " + level);
+        }
+        defaultPNGCompressionLevel = level;
+    }
+
+    public static RowFilter getDefaultPNGRowFilter() {
+        return defaultPNGRowFilter;
+    }
+
+    public static void setDefaultPNGRowFilter(RowFilter rowFilter) {
+        defaultPNGRowFilter = rowFilter;
+    }
 }
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.io;
+
+import pixelitor.gui.utils.ThumbInfo;
+import pixelitor.utils.ProgressTracker;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The thumbnails of image files shown in the open file chooser.
+ * They are cached in memory (LRU) and on disk, keyed by the path,
+ * the last modification time and the thumbnail size.
+ * On disk there is only one thumbnail for each path and thumbnail size,
+ * and the disk cache is limited in size (LRU by the last access).
+ * The thumbnails of the browsed directory are prefetched in the background.
+ */
+public class ThumbnailCache {
+    private static final int MAX_MEMORY_ENTRIES = 300;
+    private static final int DISK_FORMAT_VERSION = 2;
+
+    // files smaller than this are decoded quickly anyway
+    private static final long MIN_FILE_SIZE_FOR_DISK = 256 * 1024;
+
+    // if the disk cache grows bigger than the maximum, the least
+    // recently used thumbnails are deleted until it shrinks to the target
+    private static final long MAX_DISK_BYTES = 64L * 1024 * 1024;
+    private static final long PRUNED_DISK_BYTES = 48L * 1024 * 1024;
+
+    // the size of the disk cache, or -1 if it's not known yet
+    private static long diskBytes = -1;
+
+    private static final File diskCacheDir = new File(
+            System.getProperty("user.home"), ".pixelitor" + File.separator + "thumbs");
+
+    private static final Map<String, ThumbInfo> memoryCache
+            = Collections.synchronizedMap(new LinkedHashMap<String, ThumbInfo>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ThumbInfo> eldest) {
+            return size() > MAX_MEMORY_ENTRIES;
+        }
+    });
+
+    // the thumbnails that are being read right now
+    private static final Map<String, CompletableFuture<ThumbInfo>> inProgress
+            = new ConcurrentHashMap<>();
+
+    // the requested thumbnails have their own thread,
+    // so that they don't wait behind the prefetching
+    private static final ExecutorService requestExecutor
+            = Executors.newSingleThreadExecutor(r -> createThread(r, "[Thumbnail thread]"));
+    private static final ExecutorService prefetchExecutor
+            = Executors.newSingleThreadExecutor(r -> createThread(r, "[Thumbnail prefetch thread]"));
+
+    // incremented when another directory is browsed,
+    // so that the old prefetching can stop
+    private static final AtomicInteger prefetchGeneration = new AtomicInteger();
+
+    private ThumbnailCache() {
+    }
+
+    private static Thread createThread(Runnable r, String name) {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    }
+
+    /**
+     * Returns the thumbnail if it's in the memory cache, otherwise null.
+     * Can be called on the EDT, because it never touches the disk.
+     */
+    public static ThumbInfo getIfCached(File file, int maxWidth, int maxHeight) {
+        return memoryCache.get(createKey(file, maxWidth, maxHeight));
+    }
+
+    /**
+     * Returns the thumbnail asynchronously. The result is null if
+     * the file is not an image format readable by ImageIO.
+     */
+    public static CompletableFuture<ThumbInfo> getAsync(File file, int maxWidth, int maxHeight,
+                                                        ProgressTracker pt) {
+        String key = createKey(file, maxWidth, maxHeight);
+        ThumbInfo cached = memoryCache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<ThumbInfo> running = inProgress.get(key);
+        if (running != null) { // being prefetched
+            return running;
+        }
+        return CompletableFuture.supplyAsync(
+                () -> getOrRead(file, key, maxWidth, maxHeight, pt), requestExecutor);
+    }
+
+    /**
+     * Starts reading the thumbnails of the given directory in the background,
+     * and stops the prefetching of the previously browsed directory.
+     */
+    public static void prefetch(File dir, int maxWidth, int maxHeight) {
+        int generation = prefetchGeneration.incrementAndGet();
+        if (dir == null || maxWidth <= 0 || maxHeight <= 0) {
+            return;
+        }
+        prefetchExecutor.execute(() -> {
+            File[] files = FileUtils.listSupportedInputFilesIn(dir);
+            if (files == null) {
+                return;
+            }
+            Arrays.sort(files);
+            for (File file : files) {
+                if (generation != prefetchGeneration.get()) {
+                    return; // another directory is browsed
+                }
+                String key = createKey(file, maxWidth, maxHeight);
+                try {
+                    getOrRead(file, key, maxWidth, maxHeight, null);
+                } catch (UncheckedIOException e) {
+                    // ignored while prefetching, the error will
+                    // be shown if the user selects the file
+                }
+            }
+        });
+    }
+
+    private static ThumbInfo getOrRead(File file, String key,
+                                       int maxWidth, int maxHeight,
+                                       ProgressTracker pt) {
+        ThumbInfo cached = memoryCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<ThumbInfo> ours = new CompletableFuture<>();
+        CompletableFuture<ThumbInfo> running = inProgress.putIfAbsent(key, ours);
+        if (running != null) { // the other thread is reading it
+            return running.join();
+        }
+
+        try {
+            File diskFile = getDiskFile(file, maxWidth, maxHeight);
+            ThumbInfo thumbInfo = readFromDisk(file, diskFile);
+            if (thumbInfo == null) {
+                thumbInfo = TrackedIO.readSubsampledThumb(file, maxWidth, maxHeight, pt);
+                if (thumbInfo != null) {
+                    writeToDisk(file, diskFile, thumbInfo);
+                }
+            }
+            if (thumbInfo != null) {
+                memoryCache.put(key, thumbInfo);
+            }
+            ours.complete(thumbInfo);
+            return thumbInfo;
+        } catch (IOException e) {
+            UncheckedIOException ue = new UncheckedIOException(e);
+            ours.completeExceptionally(ue);
+            throw ue;
+        } finally {
+            inProgress.remove(key);
+        }
+    }
+
+    private static String createKey(File file, int maxWidth, int maxHeight) {
+        return file.getAbsolutePath() + '|' + file.lastModified()
+                + '|' + file.length() + '|' + maxWidth + 'x' + maxHeight;
+    }
+
+    /**
+     * Returns the cache file for the given file and thumbnail size.
+     * The modification time is stored in the cache file, so that
+     * the thumbnail of a modified file replaces the old thumbnail.
+     */
+    private static File getDiskFile(File file, int maxWidth, int maxHeight) {
+        String diskKey = file.getAbsolutePath() + '|' + maxWidth + 'x' + maxHeight;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(diskKey.getBytes(StandardCharsets.UTF_8));
+            return new File(diskCacheDir, new BigInteger(1, digest).toString(16) + ".thumb");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ThumbInfo readFromDisk(File file, File diskFile) {
+        if (file.length() < MIN_FILE_SIZE_FOR_DISK) {
+            return null;
+        }
+        if (!diskFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(diskFile)))) {
+            if (in.readInt() != DISK_FORMAT_VERSION
+                    || in.readLong() != file.lastModified()
+                    || in.readLong() != file.length()) {
+                return null; // it will be overwritten
+            }
+            int origWidth = in.readInt();
+            int origHeight = in.readInt();
+            BufferedImage thumb = ImageIO.read(in);
+            if (thumb == null) {
+                return null;
+            }
+            // the modification time of the cache file is the last access time
+            diskFile.setLastModified(System.currentTimeMillis());
+            return new ThumbInfo(thumb, origWidth, origHeight);
+        } catch (IOException e) {
+            // a corrupt cache file is simply recreated
+            diskFile.delete();
+            return null;
+        }
+    }
+
+    private static void writeToDisk(File file, File diskFile, ThumbInfo thumbInfo) {
+        if (file.length() < MIN_FILE_SIZE_FOR_DISK) {
+            return;
+        }
+        if (!diskCacheDir.exists() && !diskCacheDir.mkdirs()) {
+            return;
+        }
+        try {
+            // written to a temporary file first, so that other
+            // threads or instances never see a half-written file
+            File tmpFile = File.createTempFile("thumb", ".tmp", diskCacheDir);
+            boolean written;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                out.writeInt(DISK_FORMAT_VERSION);
+                out.writeLong(file.lastModified());
+                out.writeLong(file.length());
+                out.writeInt(thumbInfo.getOrigWidth());
+                out.writeInt(thumbInfo.getOrigHeight());
+                written = ImageIO.write(thumbInfo.getThumb(), "png", out);
+            }
+            if (!written) {
+                tmpFile.delete();
+                return;
+            }
+            long newBytes = tmpFile.length();
+            long oldBytes = diskFile.length(); // 0 if it doesn't exist
+            // an old thumbnail of the same file is replaced
+            Files.move(tmpFile.toPath(), diskFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            diskCacheChanged(newBytes - oldBytes);
+        } catch (IOException e) {
+            // the disk cache is only an optimization
+        }
+    }
+
+    private static synchronized void diskCacheChanged(long addedBytes) {
+        if (diskBytes < 0) {
+            diskBytes = pruneDiskCache(Long.MAX_VALUE);
+        } else {
+            diskBytes += addedBytes;
+        }
+        if (diskBytes > MAX_DISK_BYTES) {
+            diskBytes = pruneDiskCache(PRUNED_DISK_BYTES);
+        }
+    }
+
+    /**
+     * Deletes the least recently used thumbnails until the
+     * disk cache is not bigger than the given target size.
+     * Returns the size of the remaining cache.
+     */
+    private static long pruneDiskCache(long targetBytes) {
+        File[] files = diskCacheDir.listFiles((dir, name) -> name.endsWith(".thumb"));
+        if (files == null) {
+            return 0;
+        }
+        // read the times only once, because they can change while sorting
+        Map<File, Long> accessTimes = new HashMap<>();
+        long totalBytes = 0;
+        for (File f : files) {
+            accessTimes.put(f, f.lastModified());
+            totalBytes += f.length();
+        }
+        Arrays.sort(files, Comparator.comparing(accessTimes::get));
+
+        for (File f : files) {
+            if (totalBytes <= targetBytes) {
+                break;
+            }
+            long length = f.length();
+            if (f.delete()) {
+                totalBytes -= length;
+            }
+        }
+        return totalBytes;
+    }
+}
@@ -31,6 +31,7 @@ import javax.imageio.ImageTypeSpecifier;
 import javax.imageio.ImageWriter;
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -45,6 +46,9 @@ import static pixelitor.utils.ImageUtils.createThumbnail;
  * Utility methods like in ImageIO, but with progress tracking
  */
 public class TrackedIO {
+    // used for the memory estimation of layered formats
+    private static final int COMPRESSION_RATIO_GUESS = 10;
+
     private TrackedIO() {
         // do not instantiate
     }
@@ -141,6 +145,45 @@ public class TrackedIO {
         return image;
     }
 
+    /**
+     * Returns the dimensions of the first image in the given file
+     * without decoding the pixels, or null if no reader was found
+     */
+    public static Dimension readDimensions(File file) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Estimates the memory needed for the decoded pixels of the given file
+     */
+    public static long estimateDecodedBytes(File file) {
+        Dimension size = null;
+        try {
+            size = readDimensions(file);
+        } catch (IOException e) {
+            // the real error will be reported while loading
+        }
+        if (size != null) {
+            return 4L * size.width * size.height;
+        }
+        // for layered formats the image size cannot
+        // be read without decoding the file
+        return file.length() * COMPRESSION_RATIO_GUESS;
+    }
+
     /**
      * Reads a subsampled image. It requires far less memory,
      * can be almost twice as fast as reading all pixels,
@@ -19,6 +19,7 @@ package pixelitor.layers;
 
 import pixelitor.Composition;
 import pixelitor.Composition.LayerAdder;
+import pixelitor.filters.Filter;
 import pixelitor.filters.Invert;
 import pixelitor.gui.ImageComponent;
 import pixelitor.gui.ImageComponents;
@@ -46,12 +47,22 @@ public class AddAdjLayerAction extends AbstractAction
 
     @Override
     public void actionPerformed(ActionEvent e) {
+        addNewLayer("Invert", new Invert());
+    }
+
+    /**
+     * Adds a new adjustment layer with the given filter to
+     * the active composition, and lets the user edit its settings
+     */
+    public static void addNewLayer(String name, Filter filter) {
         Composition comp = ImageComponents.getActiveCompOrNull();
-        AdjustmentLayer adjustmentLayer = new AdjustmentLayer(comp, "Invert", new Invert());
+        AdjustmentLayer adjustmentLayer = new AdjustmentLayer(comp, name, filter);
 
         new LayerAdder(comp)
                 .withHistory("New Adjustment Layer")
                 .add(adjustmentLayer);
+
+        adjustmentLayer.configure();
     }
 
     @Override
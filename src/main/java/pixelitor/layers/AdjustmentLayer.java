@@ -19,26 +19,57 @@ package pixelitor.layers;
 
 import pixelitor.Composition;
 import pixelitor.filters.Filter;
-import pixelitor.filters.gui.FilterWithGUI;
+import pixelitor.filters.FilterUtils;
+import pixelitor.filters.ParametrizedFilter;
+import pixelitor.filters.PointOpFilter;
+import pixelitor.filters.RGBPixelOp;
+import pixelitor.filters.gui.ParamSet;
+import pixelitor.filters.gui.ParamSetState;
+import pixelitor.gui.PixelitorWindow;
+import pixelitor.gui.utils.DialogBuilder;
+import pixelitor.gui.utils.GUIUtils;
+import pixelitor.history.AdjustmentLayerChangeEdit;
+import pixelitor.history.History;
+import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Utils;
+import pixelitor.utils.test.RandomGUITest;
 
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.List;
 
 /**
- * A global adjustment to all the layers that are bellow this layer
- *
- * (Not fully implemented and not enabled by default.
- * Most importantly the editing of filter parameters is missing)
+ * A global adjustment to all the layers that are bellow this layer.
+ * The result is cached, and it is recalculated only if the
+ * layers bellow this layer or the filter settings change.
  */
 public class AdjustmentLayer extends Layer {
     private static final long serialVersionUID = 2L;
 
     private final Filter filter;
 
+    // incremented every time the filter settings change
+    private transient long settingsVersion;
+
+    private transient Object nextInputKey;
+    private transient ImageLayer nextEditedLayer;
+    private transient boolean nextCanUpdatePartially;
+
+    private transient Object cachedKey;
+    private transient BufferedImage cachedOutput;
+    // the content version of the edited layer bellow, when the cache was updated
+    private transient long cachedEditedVersion;
+    // incremented every time the cached output changes
+    private transient long outputVersion;
+
+    private transient Object maskedKey;
+    private transient BufferedImage maskedOutput;
+
     public AdjustmentLayer(Composition comp, String name, Filter filter) {
         super(comp, name, null);
         this.filter = filter;
@@ -52,9 +83,14 @@ public class AdjustmentLayer extends Layer {
 
     @Override
     public Layer duplicate(boolean sameName) {
-        // TODO the filter should be copied so that it can be adjusted independently
         String duplicateName = sameName ? name : Utils.createCopyName(name);
-        AdjustmentLayer d = new AdjustmentLayer(comp, duplicateName, filter);
+
+        // filters without params have no settings that could be shared
+        Filter filterCopy = filter;
+        if (filter instanceof ParametrizedFilter) {
+            filterCopy = ((ParametrizedFilter) filter).copy();
+        }
+        AdjustmentLayer d = new AdjustmentLayer(comp, duplicateName, filterCopy);
 
         if (hasMask()) {
             d.addConfiguredMask(mask.duplicate(d));
@@ -73,11 +109,143 @@ public class AdjustmentLayer extends Layer {
         // do nothing
     }
 
+    /**
+     * Sets the key of the image that will be passed to the next
+     * {@link #actOnImageFromLayerBellow(BufferedImage)} call. The result
+     * is cached only if this key is not null, and it is reused
+     * as long as the key and the filter settings don't change.
+     * The key doesn't change with the tracked in-place edits of the
+     * given edited (active) layer bellow, if there is one. If the changes
+     * of its pixels don't spread to other pixels until they reach this layer,
+     * then a point filter is run again only on the rows that were edited.
+     */
+    public void setNextInput(Object inputKey, ImageLayer editedLayer,
+                             boolean canUpdatePartially) {
+        nextInputKey = inputKey;
+        nextEditedLayer = editedLayer;
+        nextCanUpdatePartially = canUpdatePartially;
+    }
+
     @Override
     public BufferedImage actOnImageFromLayerBellow(BufferedImage src) {
+        Object inputKey = nextInputKey;
+        ImageLayer editedLayer = nextEditedLayer;
+        boolean canUpdatePartially = nextCanUpdatePartially;
+        nextInputKey = null;
+        nextEditedLayer = null;
+        if (inputKey == null) {
+            return transform(src);
+        }
+
+        long editedVersion = editedLayer == null ? 0 : editedLayer.getContentVersion();
+        List<Object> key = Arrays.asList(inputKey, settingsVersion, editedLayer);
+        if (key.equals(cachedKey) && editedVersion != cachedEditedVersion) {
+            Rectangle area = canUpdatePartially
+                    ? editedLayer.getChangedAreaSince(cachedEditedVersion)
+                    : null;
+            if (area != null && updateCachedOutput(src, area)) {
+                cachedEditedVersion = editedVersion;
+                outputVersion++;
+            } else {
+                cachedKey = null;
+            }
+        }
+        if (!key.equals(cachedKey)) {
+            cachedOutput = transform(src);
+            if (cachedOutput == src) { // the filter had nothing to do
+                cachedOutput = ImageUtils.copyImage(src);
+            }
+            cachedKey = key;
+            cachedEditedVersion = editedVersion;
+            outputVersion++;
+        }
+        return cachedOutput;
+    }
+
+    /**
+     * Runs the point filter again on the rows of the given area, where
+     * the new source image differs from the one that was filtered last time.
+     * Returns false if this is not possible.
+     */
+    private boolean updateCachedOutput(BufferedImage src, Rectangle area) {
+        if (!isPointOperation()
+                || !ImageUtils.hasPackedIntArray(src)
+                || !ImageUtils.hasPackedIntArray(cachedOutput)
+                || src.getWidth() != cachedOutput.getWidth()
+                || src.getHeight() != cachedOutput.getHeight()) {
+            return false;
+        }
+        Rectangle rows = area.intersection(new Rectangle(0, 0, src.getWidth(), src.getHeight()));
+        if (!rows.isEmpty()) {
+            RGBPixelOp op = ((PointOpFilter) filter).toRGBPixelOp();
+            FilterUtils.runRGBPixelOp(op, src, cachedOutput, rows.y, rows.y + rows.height);
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the filter changes every pixel independently of
+     * the other pixels, so that local changes bellow stay local
+     */
+    public boolean isPointOperation() {
+        return filter instanceof PointOpFilter;
+    }
+
+    @Override
+    protected BufferedImage applyMask(BufferedImage transformed) {
+        if (transformed != cachedOutput) {
+            return super.applyMask(transformed);
+        }
+        // the masked image is cached as long as the output and the mask don't change
+        List<Object> key = Arrays.asList(outputVersion,
+                mask.getContentVersion(), mask.getTX(), mask.getTY());
+        if (!key.equals(maskedKey)) {
+            maskedOutput = super.applyMask(cachedOutput);
+            maskedKey = key;
+        }
+        return maskedOutput;
+    }
+
+    private BufferedImage transform(BufferedImage src) {
+        if (filter instanceof PointOpFilter && ImageUtils.hasPackedIntArray(src)) {
+            BufferedImage dest = ImageUtils.createImageWithSameCM(src);
+            RGBPixelOp op = ((PointOpFilter) filter).toRGBPixelOp();
+            FilterUtils.runRGBPixelOp(op, src, dest);
+            return dest;
+        }
         return filter.transformImage(src);
     }
 
+    @Override
+    protected Object getContentKey() {
+        return settingsVersion;
+    }
+
+    /**
+     * Forgets the cached result, for example because the filter settings changed
+     */
+    public void invalidateCache() {
+        cachedKey = null;
+        cachedOutput = null;
+        maskedKey = null;
+        maskedOutput = null;
+    }
+
+    /**
+     * Returns the point operation of this layer if it can be fused with
+     * the neighboring adjustment layers when the composite image is
+     * calculated, or null if the layer must be applied on its own.
+     */
+    public RGBPixelOp getFusablePixelOp() {
+        if (useMask() || !isNormalAndOpaque()) {
+            return null;
+        }
+        if (filter instanceof PointOpFilter) {
+            return ((PointOpFilter) filter).toRGBPixelOp();
+        }
+        return null;
+    }
+
     @Override
     public void paintLayerOnGraphics(Graphics2D g, boolean firstVisibleLayer) {
         throw new UnsupportedOperationException();
@@ -90,11 +258,46 @@ public class AdjustmentLayer extends Layer {
                 + ", super=" + super.toString() + '}';
     }
 
+    public boolean hasSettings() {
+        return filter instanceof ParametrizedFilter;
+    }
+
+    /**
+     * Shows a dialog for editing the filter settings.
+     * The image is updated while the settings are adjusted.
+     */
     public void configure() {
-        System.out.println("AdjustmentLayer::configure: 1");
-        if (!(filter instanceof FilterWithGUI)) {
+        if (!hasSettings() || RandomGUITest.isRunning()) {
             return;
         }
-        System.out.println("AdjustmentLayer::configure: 2");
+
+        ParamSet paramSet = ((ParametrizedFilter) filter).getParamSet();
+        ParamSetState oldState = paramSet.copyCompleteState();
+        paramSet.setAdjustmentListener(this::settingsChanged);
+
+        new DialogBuilder()
+                .title("Edit " + name)
+                .owner(PixelitorWindow.getInstance())
+                .content(GUIUtils.arrangeParamsInVerticalGridBag(paramSet.getParams()))
+                .withScrollbars()
+                .okAction(() -> History.addEdit(
+                        new AdjustmentLayerChangeEdit(comp, this, oldState)))
+                .cancelAction(() -> setFilterState(oldState))
+                .show();
+    }
+
+    public ParamSetState getFilterState() {
+        return ((ParametrizedFilter) filter).getParamSet().copyCompleteState();
+    }
+
+    public void setFilterState(ParamSetState state) {
+        ((ParametrizedFilter) filter).getParamSet().setState(state);
+        settingsChanged();
+    }
+
+    private void settingsChanged() {
+        settingsVersion++;
+        invalidateCache();
+        comp.imageChanged();
     }
 }
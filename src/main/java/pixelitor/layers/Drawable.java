@@ -21,6 +21,7 @@ import pixelitor.ChangeReason;
 import pixelitor.Composition;
 
 import java.awt.Composite;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 
 /**
@@ -31,6 +32,19 @@ import java.awt.image.BufferedImage;
 public interface Drawable {
     BufferedImage getImage();
 
+    /**
+     * Must be called after the pixels of the image were
+     * modified in place, because the cached renderings
+     * of the layer are keyed on the content version
+     */
+    void contentChanged();
+
+    /**
+     * Like {@link #contentChanged()}, but only the pixels
+     * in the given area (relative to the canvas) were modified
+     */
+    void regionChanged(Rectangle canvasArea);
+
     void setImage(BufferedImage newImage);
 
     void startPreviewing();
@@ -69,6 +83,12 @@ public interface Drawable {
 
     void updateIconImage();
 
+    /**
+     * Updates the icon image after only the given area
+     * (relative to the canvas) has changed
+     */
+    void updateIconImage(Rectangle changedArea);
+
     Composition getComp();
 
     int getTX();
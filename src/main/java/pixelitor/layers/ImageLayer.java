@@ -33,6 +33,7 @@ import pixelitor.selection.Selection;
 import pixelitor.tools.Tools;
 import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Messages;
+import pixelitor.utils.Resampler;
 import pixelitor.utils.Utils;
 import pixelitor.utils.VisibleForTesting;
 import pixelitor.utils.test.Assertions;
@@ -50,9 +51,10 @@ import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.awt.RenderingHints.KEY_INTERPOLATION;
-import static java.awt.RenderingHints.VALUE_INTERPOLATION_BICUBIC;
 import static java.awt.RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
@@ -96,6 +98,9 @@ public class ImageLayer extends ContentLayer implements Drawable {
 
     private static final long serialVersionUID = 2L;
 
+    // the source of the content versions, unique across all layers
+    private static final AtomicLong versionCounter = new AtomicLong();
+
     //
     // transient variables from here!
     //
@@ -119,6 +124,18 @@ public class ImageLayer extends ContentLayer implements Drawable {
      */
     private transient BufferedImage filterSourceImage;
 
+    /**
+     * Changes every time the visible pixels change, used as cache key
+     */
+    private transient long contentVersion;
+
+    // The version set by the last contentChanged call. The later
+    // versions only changed the pixels in trackedArea (relative to
+    // the canvas, null if there were no such changes), therefore
+    // the cached renderings can be updated partially.
+    private transient long untrackedVersion;
+    private transient Rectangle trackedArea;
+
     private ImageLayer(Composition comp, String name, Layer parent) {
         super(comp, name, parent);
     }
@@ -258,10 +275,12 @@ public class ImageLayer extends ContentLayer implements Drawable {
 
     private void setPreviewWithSelection(BufferedImage newImage) {
         previewImage = replaceSelectedPart(previewImage, newImage);
+        contentChanged();
     }
 
     private void setImageWithSelection(BufferedImage newImage) {
         image = replaceSelectedPart(image, newImage);
+        contentChanged();
         imageRefChanged();
 
         comp.imageChanged(INVALIDATE_CACHE);
@@ -300,6 +319,7 @@ public class ImageLayer extends ContentLayer implements Drawable {
     public void setImage(BufferedImage newImage) {
         BufferedImage oldRef = image;
         image = requireNonNull(newImage);
+        contentChanged();
         imageRefChanged();
 
         assert Assertions.checkRasterMinimum(newImage);
@@ -433,6 +453,7 @@ public class ImageLayer extends ContentLayer implements Drawable {
             // (the user does something, but then resets the params to a do-nothing state)
             boolean shouldRefresh = image != previewImage;
             previewImage = image;
+            contentChanged();
 
             if (shouldRefresh) {
                 imageRefChanged();
@@ -473,6 +494,9 @@ public class ImageLayer extends ContentLayer implements Drawable {
         setImageWithSelection(transformedImage);
 
         if (!cr.needsUndo()) {
+            // the next filter (for example in a macro) must
+            // start from the new image even without undo
+            filterSourceImage = null;
             return;
         }
 
@@ -664,6 +688,7 @@ public class ImageLayer extends ContentLayer implements Drawable {
 
         tmpDrawingLayer.paintOn(g, -getTX(), -getTY());
         g.dispose();
+        contentChanged();
 
         tmpDrawingLayer.dispose();
         tmpDrawingLayer = null;
@@ -851,9 +876,8 @@ public class ImageLayer extends ContentLayer implements Drawable {
             }
         }
 
-        BufferedImage resizedImg = ImageUtils.getFasterScaledInstance(
-                image, imgTargetWidth, imgTargetHeight,
-                VALUE_INTERPOLATION_BICUBIC);
+        BufferedImage resizedImg = Resampler.resize(
+                image, imgTargetWidth, imgTargetHeight);
         setImage(resizedImg);
 
         if (bigLayer) {
@@ -939,6 +963,55 @@ public class ImageLayer extends ContentLayer implements Drawable {
         }
     }
 
+    @Override
+    protected Object getContentKey() {
+        return Arrays.asList(contentVersion, getTX(), getTY());
+    }
+
+    /**
+     * Like {@link #getContentKey()}, but it doesn't change if only
+     * the tracked area changed, see {@link #getChangedAreaSince(long)}
+     */
+    @Override
+    protected Object getActiveContentKey() {
+        return Arrays.asList(untrackedVersion, getTX(), getTY());
+    }
+
+    @Override
+    public void contentChanged() {
+        contentVersion = versionCounter.incrementAndGet();
+        untrackedVersion = contentVersion;
+        trackedArea = null;
+    }
+
+    @Override
+    public void regionChanged(Rectangle canvasArea) {
+        contentVersion = versionCounter.incrementAndGet();
+        if (trackedArea == null) {
+            trackedArea = new Rectangle(canvasArea);
+        } else {
+            trackedArea.add(canvasArea);
+        }
+    }
+
+    /**
+     * Returns the area (relative to the canvas) where the pixels could
+     * have changed since the given content version, or null if it's not known
+     */
+    public Rectangle getChangedAreaSince(long version) {
+        if (version < untrackedVersion) {
+            return null;
+        }
+        if (version == contentVersion || trackedArea == null) {
+            return new Rectangle();
+        }
+        return new Rectangle(trackedArea);
+    }
+
+    public long getContentVersion() {
+        return contentVersion;
+    }
+
     /**
      * Returns the image that should be shown by this layer.
      */
@@ -982,6 +1055,8 @@ public class ImageLayer extends ContentLayer implements Drawable {
 
     private void setState(State newState) {
         state = newState;
+        // the visible image can be different in the new state
+        contentChanged();
         if (newState == NORMAL) { // back to normal: cleanup
             previewImage = null;
             filterSourceImage = null;
@@ -1021,6 +1096,11 @@ public class ImageLayer extends ContentLayer implements Drawable {
         getUI().updateLayerIconImage(this);
     }
 
+    @Override
+    public void updateIconImage(Rectangle changedArea) {
+        getUI().updateLayerIconImage(this, changedArea);
+    }
+
     /**
      * Deletes the layer mask, but its effect is transferred
      * to the transparency of the layer
@@ -1033,6 +1113,7 @@ public class ImageLayer extends ContentLayer implements Drawable {
         MaskViewMode oldMode = comp.getIC().getMaskViewMode();
 
         mask.applyToImage(image);
+        contentChanged();
         deleteMask(false);
 
         if (addToHistory) {
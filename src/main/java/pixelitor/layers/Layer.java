@@ -34,6 +34,7 @@ import pixelitor.history.LayerVisibilityChangeEdit;
 import pixelitor.history.LinkedEdit;
 import pixelitor.history.PixelitorEdit;
 import pixelitor.selection.Selection;
+import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Messages;
 
 import java.awt.AlphaComposite;
@@ -46,6 +47,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static java.awt.AlphaComposite.DstIn;
@@ -86,6 +88,11 @@ public abstract class Layer implements Serializable {
      */
     private transient boolean maskEditing = false;
 
+    // the result of the last masked rendering and the state it was
+    // rendered from, see paintLayerOnGraphicsWithMask
+    private transient BufferedImage maskedImage;
+    private transient List<Object> maskedImageKey;
+
     Layer(Composition comp, String name, Layer parent) {
         assert comp != null;
         assert name != null;
@@ -360,7 +367,7 @@ public abstract class Layer implements Serializable {
      * Adjustment layers and watermarked text layers change the
      * BufferedImage, while other layers just paint on the Graphics2D.
      * If the BufferedImage is changed, this method returns the new image
-     * and null otherwise.
+     * and null otherwise. The returned image must not be modified.
      */
     public BufferedImage applyLayer(Graphics2D g,
                                     BufferedImage imageSoFar,
@@ -378,34 +385,113 @@ public abstract class Layer implements Serializable {
         return null;
     }
 
+    /**
+     * Returns true if {@link #applyLayer(Graphics2D, BufferedImage, boolean)}
+     * doesn't modify the given image, it only reads it.
+     */
+    public boolean leavesImageSoFarUnchanged() {
+        return isAdjustment && !useMask() && isNormalAndOpaque();
+    }
+
     // used by the non-adjustment stuff
     // This method assumes that the composite of the graphics is already
     // set up according to the transparency and blending mode
     public abstract void paintLayerOnGraphics(Graphics2D g, boolean firstVisibleLayer);
 
     /**
-     * Returns the masked image for the non-adjustment case.
-     * The returned image is canvas-sized, and the masks and the
-     * translations are taken into account
+     * Paints the masked layer for the non-adjustment case.
+     * The masked image is canvas-sized, and the masks and the
+     * translations are taken into account. The masked image is
+     * reused as long as the content and the mask don't change,
+     * and its buffer is reused even if they change.
      */
     private void paintLayerOnGraphicsWithMask(Graphics2D g, boolean firstVisibleLayer) {
-//        Canvas canvas = comp.getCanvas();
+        List<Object> key = createMaskedImageKey(firstVisibleLayer);
+        if (key == null || !key.equals(maskedImageKey)) {
+            renderMaskedImage(firstVisibleLayer);
+            maskedImageKey = key;
+        }
+
+        setupDrawingComposite(g, firstVisibleLayer);
+        g.drawImage(maskedImage, 0, 0, null);
+    }
+
+    private void renderMaskedImage(boolean firstVisibleLayer) {
+        int width = canvas.getImWidth();
+        int height = canvas.getImHeight();
+        Graphics2D mig;
+        if (maskedImage != null
+                && maskedImage.getWidth() == width
+                && maskedImage.getHeight() == height) {
+            mig = maskedImage.createGraphics();
+            mig.setComposite(AlphaComposite.Clear);
+            mig.fillRect(0, 0, width, height);
+            mig.setComposite(AlphaComposite.SrcOver);
+        } else {
+            maskedImage = new BufferedImage(width, height, TYPE_INT_ARGB);
+            mig = maskedImage.createGraphics();
+        }
 
-        // 1. create the masked image
-        // TODO the masked image should be cached
-        BufferedImage maskedImage = new BufferedImage(
-                canvas.getImWidth(), canvas.getImHeight(), TYPE_INT_ARGB);
-        Graphics2D mig = maskedImage.createGraphics();
         paintLayerOnGraphics(mig, firstVisibleLayer);
         mig.setComposite(DstIn);
         mig.drawImage(mask.getTransparencyImage(),
                 mask.getTX(), mask.getTY(), null);
         mig.dispose();
+    }
 
-        // 2. paint the masked image onto the graphics
-//            g.drawImage(maskedImage, getTX(), getTY(), null);
-        setupDrawingComposite(g, firstVisibleLayer);
-        g.drawImage(maskedImage, 0, 0, null);
+    /**
+     * Returns the state that determines the masked image, or null if it
+     * can't be reused. The active layer can be edited in place,
+     * therefore its masked image is always rendered again.
+     */
+    private List<Object> createMaskedImageKey(boolean firstVisibleLayer) {
+        if (isActive()) {
+            return null;
+        }
+        Object contentKey = getContentKey();
+        if (contentKey == null) {
+            return null;
+        }
+        return Arrays.asList(contentKey, firstVisibleLayer,
+                canvas.getImWidth(), canvas.getImHeight(),
+                mask.getContentVersion(), mask.getTX(), mask.getTY());
+    }
+
+    /**
+     * Returns an object that is equal to the object returned by the
+     * previous call if the painted content of this layer (including the
+     * translation) or the settings of an adjustment didn't change since then. It is used for caching, and
+     * returning null (the default) means that the content is not cached.
+     */
+    protected Object getContentKey() {
+        return null;
+    }
+
+    /**
+     * Like {@link #getContentKey()}, but for the active layer, which can be
+     * edited in place. Returning null (the default) means that the
+     * content of the active layer is not cached.
+     */
+    protected Object getActiveContentKey() {
+        return null;
+    }
+
+    /**
+     * Returns the state that determines how this layer changes the
+     * composite image, or null if it isn't known. The key of the active
+     * layer doesn't change with the tracked in-place edits, therefore
+     * its users also have to check {@link ImageLayer#getChangedAreaSince(long)}.
+     */
+    public Object createCompositeKey(boolean firstVisibleLayer) {
+        Object contentKey = isActive() ? getActiveContentKey() : getContentKey();
+        if (contentKey == null) {
+            return null;
+        }
+        Object maskKey = useMask()
+                ? Arrays.asList(mask.getContentVersion(), mask.getTX(), mask.getTY())
+                : null;
+        return Arrays.asList(this, contentKey, firstVisibleLayer,
+                opacity, blendingMode, maskKey);
     }
 
     /**
@@ -418,7 +504,7 @@ public abstract class Layer implements Serializable {
         }
         BufferedImage transformed = actOnImageFromLayerBellow(imgSoFar);
         if (useMask()) {
-            mask.applyToImage(transformed);
+            transformed = applyMask(transformed);
         }
         if (!useMask() && isNormalAndOpaque()) {
             return transformed;
@@ -432,7 +518,20 @@ public abstract class Layer implements Serializable {
     }
 
     /**
-     * Used by adjustment layers and watermarked text layers
+     * Returns the result of {@link #actOnImageFromLayerBellow(BufferedImage)}
+     * with the mask applied. The given image can be cached by the layer,
+     * therefore it's not modified, and the result must not be modified either.
+     */
+    protected BufferedImage applyMask(BufferedImage transformed) {
+        BufferedImage masked = ImageUtils.copyImage(transformed);
+        mask.applyToImage(masked);
+        return masked;
+    }
+
+    /**
+     * Used by adjustment layers and watermarked text layers.
+     * The returned image can be cached by the layer,
+     * therefore it must not be modified.
      */
     protected abstract BufferedImage actOnImageFromLayerBellow(BufferedImage src);
 
@@ -563,7 +662,7 @@ public abstract class Layer implements Serializable {
         }
     }
 
-    private boolean useMask() {
+    protected boolean useMask() {
         return mask != null && maskEnabled;
     }
 
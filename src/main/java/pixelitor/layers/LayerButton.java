@@ -29,6 +29,9 @@ import pixelitor.utils.VisibleForTesting;
 import javax.swing.*;
 import javax.swing.border.Border;
 import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.EventQueue;
+import java.awt.Rectangle;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
@@ -37,6 +40,7 @@ import static javax.swing.BorderFactory.createCompoundBorder;
 import static javax.swing.BorderFactory.createLineBorder;
 import static javax.swing.BorderFactory.createMatteBorder;
 import static pixelitor.layers.LayerButtonLayout.thumbSize;
+import static pixelitor.utils.ImageUtils.calcThumbDimensions;
 import static pixelitor.utils.ImageUtils.createThumbnail;
 
 /**
@@ -123,6 +127,10 @@ public class LayerButton extends JToggleButton {
     private final JLabel layerIconLabel;
     private JLabel maskIconLabel;
 
+    // the currently shown thumbnails, kept for the incremental updates
+    private BufferedImage layerThumb;
+    private BufferedImage maskThumb;
+
     /**
      * The Y coordinate in the parent when it is not dragging
      */
@@ -321,6 +329,35 @@ public class LayerButton extends JToggleButton {
         ThreadPool.submit(notEDT);
     }
 
+    /**
+     * Updates only the part of the icon image which corresponds
+     * to the given changed area (relative to the canvas)
+     */
+    public void updateLayerIconImage(ImageLayer layer, Rectangle changedArea) {
+        boolean isMask = layer instanceof LayerMask;
+        BufferedImage thumb = isMask ? maskThumb : layerThumb;
+        BufferedImage img = layer.getCanvasSizedSubImage();
+        Dimension thumbDim = calcThumbDimensions(img, thumbSize);
+
+        // the shown thumbnail can be modified only on the EDT
+        boolean canUpdate = EventQueue.isDispatchThread()
+                && thumb != null
+                && thumb.getWidth() == thumbDim.width
+                && thumb.getHeight() == thumbDim.height;
+        if (isMask) {
+            // the red X of a disabled mask would be partially overwritten
+            canUpdate = canUpdate && layer.getParent().isMaskEnabled();
+        }
+        if (!canUpdate) {
+            updateLayerIconImage(layer);
+            return;
+        }
+
+        CheckerboardPainter painter = isMask ? null : checkerBoardPainter;
+        ImageUtils.updateThumbnail(thumb, img, changedArea, painter);
+        repaint();
+    }
+
     private void updateIconOnEDT(ImageLayer layer, boolean isMask, BufferedImage thumb) {
         if (isMask) {
             if (!hasMaskIcon()) {
@@ -330,8 +367,10 @@ public class LayerButton extends JToggleButton {
             if (disabledMask) {
                 ImageUtils.paintRedXOn(thumb);
             }
+            maskThumb = thumb;
             maskIconLabel.setIcon(new ImageIcon(thumb));
         } else {
+            layerThumb = thumb;
             layerIconLabel.setIcon(new ImageIcon(thumb));
         }
         repaint();
@@ -27,6 +27,7 @@ import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Composite;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.IndexColorModel;
@@ -142,6 +143,14 @@ public class LayerMask extends ImageLayer {
         }
     }
 
+    @Override
+    public void updateIconImage(Rectangle changedArea) {
+        LayerButton button = getUI();
+        if(button != null) {
+            button.updateLayerIconImage(this, changedArea);
+        }
+    }
+
     /**
      * Duplicates this layer mask, and attaches the duplicated mask
      * to the given layer
@@ -38,12 +38,18 @@ import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Utils;
 import pixelitor.utils.test.RandomGUITest;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.List;
 
+import static java.awt.Color.WHITE;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
 import static org.jdesktop.swingx.painter.AbstractLayoutPainter.HorizontalAlignment.CENTER;
 import static org.jdesktop.swingx.painter.AbstractLayoutPainter.HorizontalAlignment.LEFT;
 import static org.jdesktop.swingx.painter.AbstractLayoutPainter.VerticalAlignment.TOP;
@@ -56,6 +62,13 @@ public class TextLayer extends ContentLayer {
     private transient TranslatedTextPainter painter;
     private TextSettings settings;
 
+    // The rendered text with the area effects, bounded to the box of the text.
+    // It doesn't depend on the translation, which is applied when it's drawn.
+    private transient BufferedImage textImage;
+    private transient int textImageX;
+    private transient int textImageY;
+    private transient List<Object> textImageKey;
+
     public TextLayer(Composition comp) {
         this(comp, "");
     }
@@ -190,8 +203,48 @@ public class TextLayer extends ContentLayer {
 
     @Override
     public void paintLayerOnGraphics(Graphics2D g, boolean firstVisibleLayer) {
-        painter.setFillPaint(settings.getColor());
-        painter.paint(g, null, comp.getCanvasImWidth(), comp.getCanvasImHeight());
+        paintTextImage(g, settings.getColor());
+    }
+
+    /**
+     * Paints the text with the given color, re-rendering
+     * the cached text image only if necessary
+     */
+    private void paintTextImage(Graphics2D g, Color color) {
+        int canvasWidth = comp.getCanvasImWidth();
+        int canvasHeight = comp.getCanvasImHeight();
+
+        // the settings are replaced (not modified) when the text is edited
+        List<Object> key = Arrays.asList(settings, color, canvasWidth, canvasHeight);
+        if (!key.equals(textImageKey)) {
+            renderTextImage(color, canvasWidth, canvasHeight);
+            textImageKey = key;
+        }
+
+        if (textImage != null) {
+            g.drawImage(textImage, textImageX + getTX(), textImageY + getTY(), null);
+        }
+    }
+
+    private void renderTextImage(Color color, int canvasWidth, int canvasHeight) {
+        textImage = null;
+        if (canvasWidth < 1 || canvasHeight < 1) {
+            return;
+        }
+        Rectangle bounds = painter.getPaintedBounds(canvasWidth, canvasHeight);
+        if (bounds.isEmpty()) {
+            return;
+        }
+
+        textImage = new BufferedImage(bounds.width, bounds.height, TYPE_INT_ARGB_PRE);
+        Graphics2D g = textImage.createGraphics();
+        g.translate(-bounds.x, -bounds.y);
+        painter.setFillPaint(color);
+        painter.paint(g, null, canvasWidth, canvasHeight);
+        g.dispose();
+
+        textImageX = bounds.x - getTX();
+        textImageY = bounds.y - getTY();
     }
 
     @Override
@@ -208,7 +261,7 @@ public class TextLayer extends ContentLayer {
     @Override
     public BufferedImage actOnImageFromLayerBellow(BufferedImage src) {
         assert settings.isWatermark(); // should be called only in this case
-        return settings.watermarkImage(src, painter);
+        return TextSettings.watermarkImage(src, g -> paintTextImage(g, WHITE));
     }
 
     @Override
@@ -228,6 +281,12 @@ public class TextLayer extends ContentLayer {
         painter.setTranslation(x, y);
     }
 
+    @Override
+    protected Object getContentKey() {
+        // the settings are replaced (not modified) when the text is edited
+        return Arrays.asList(settings, getTX(), getTY());
+    }
+
     public void setSettings(TextSettings settings) {
         this.settings = settings;
 
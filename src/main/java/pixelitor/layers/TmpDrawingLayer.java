@@ -17,33 +17,64 @@
 
 package pixelitor.layers;
 
+import java.awt.AlphaComposite;
 import java.awt.Composite;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
 import java.util.Objects;
 
 /**
  * A temporary drawing layer for the tools that use blending modes.
  */
 public class TmpDrawingLayer {
+    // The canvas-sized image is reused by the next temporary layer
+    // instead of allocating a new one for every brush stroke.
+    // It is cleared (only where it was painted) when it's given back,
+    // so the tools must mark everything they paint as dirty.
+    private static SoftReference<BufferedImage> freeImageRef;
+
     private BufferedImage image;
     private final Graphics2D g;
     private final Composite composite;
 
+    // the area that was possibly painted, or null if unknown
+    private Rectangle dirtyArea;
+
     public TmpDrawingLayer(ImageLayer imageLayer, Composite composite) {
         this.composite = Objects.requireNonNull(composite);
 
         // the image is never translated,
         // the coordinates are relative to the canvas
-        image = imageLayer.createCanvasSizedTmpImage();
+        image = takeFreeImage(imageLayer.canvas.getImWidth(), imageLayer.canvas.getImHeight());
+        if (image == null) {
+            image = imageLayer.createCanvasSizedTmpImage();
+        }
 
         g = image.createGraphics();
     }
 
+    private static BufferedImage takeFreeImage(int width, int height) {
+        if (freeImageRef == null) {
+            return null;
+        }
+        BufferedImage free = freeImageRef.get();
+        freeImageRef = null;
+        if (free != null && free.getWidth() == width && free.getHeight() == height) {
+            return free;
+        }
+        return null;
+    }
+
     public Graphics2D getGraphics() {
         return g;
     }
 
+    public BufferedImage getImage() {
+        return image;
+    }
+
     public int getWidth() {
         return image.getWidth();
     }
@@ -52,14 +83,48 @@ public class TmpDrawingLayer {
         return image.getHeight();
     }
 
+    /**
+     * Marks the given area (relative to the canvas) as possibly painted.
+     * If no area is marked, then the whole layer is considered painted.
+     */
+    public void markDirty(Rectangle area) {
+        if (dirtyArea == null) {
+            dirtyArea = new Rectangle(area);
+        } else {
+            dirtyArea.add(area);
+        }
+    }
+
+    private Rectangle getPaintedArea() {
+        Rectangle imageBounds = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        if (dirtyArea == null) {
+            return imageBounds;
+        }
+        return dirtyArea.intersection(imageBounds);
+    }
+
     public void dispose() {
+        // clear the painted area and give back the image for reuse
+        Rectangle painted = getPaintedArea();
+        if (!painted.isEmpty()) {
+            g.setComposite(AlphaComposite.Clear);
+            g.setClip(null);
+            g.fillRect(painted.x, painted.y, painted.width, painted.height);
+        }
         g.dispose();
-        image.flush();
+
+        freeImageRef = new SoftReference<>(image);
         image = null;
     }
 
     public void paintOn(Graphics2D g, int tx, int ty) {
+        Rectangle r = getPaintedArea();
+        if (r.isEmpty()) {
+            return;
+        }
         g.setComposite(composite);
-        g.drawImage(image, tx, ty, null);
+        g.drawImage(image,
+                tx + r.x, ty + r.y, tx + r.x + r.width, ty + r.y + r.height,
+                r.x, r.y, r.x + r.width, r.y + r.height, null);
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.menus;
+
+import pixelitor.gui.utils.GUIUtils;
+
+import javax.swing.*;
+import java.awt.EventQueue;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Consumer;
+
+/**
+ * A submenu whose items are created only when it is first opened
+ * (or when all menus are populated in the background after the startup).
+ * Submenus containing items with keyboard shortcuts shouldn't be lazy,
+ * because the shortcuts of the not yet created items wouldn't work.
+ */
+public class LazyMenu extends PMenu {
+    // the lazy creation can be turned off with -Dpixelitor.eagerMenus=true
+    private static final boolean ENABLED = !"true".equals(
+            System.getProperty("pixelitor.eagerMenus"));
+
+    // modified only on the EDT
+    private static final Deque<LazyMenu> unpopulated = new ConcurrentLinkedDeque<>();
+
+    private Consumer<PMenu> populator;
+
+    public LazyMenu(String name, Consumer<PMenu> populator) {
+        super(name);
+        this.populator = populator;
+
+        if (ENABLED) {
+            unpopulated.add(this);
+        } else {
+            populate();
+        }
+    }
+
+    @Override
+    public JPopupMenu getPopupMenu() {
+        populate();
+        return super.getPopupMenu();
+    }
+
+    private void populate() {
+        if (populator == null) {
+            // already populated (or called from the JMenu constructor)
+            return;
+        }
+        assert EventQueue.isDispatchThread() : "not EDT thread";
+
+        Consumer<PMenu> p = populator;
+        populator = null;
+        unpopulated.remove(this);
+        p.accept(this);
+    }
+
+    /**
+     * Creates the items of all lazy menus right now. This also registers
+     * the filter actions contained in them.
+     */
+    public static void populateAll() {
+        if (unpopulated.isEmpty()) {
+            return;
+        }
+        if (!EventQueue.isDispatchThread()) {
+            GUIUtils.invokeAndWait(LazyMenu::populateAll);
+            return;
+        }
+
+        LazyMenu menu;
+        // populating a menu can add new lazy submenus to the deque
+        while ((menu = unpopulated.peek()) != null) {
+            menu.populate();
+        }
+    }
+
+    /**
+     * Populates the lazy menus one by one in separate EDT events,
+     * so that the GUI remains responsive in the meantime.
+     */
+    public static void populateAllGradually(Runnable whenDone) {
+        EventQueue.invokeLater(() -> {
+            LazyMenu next = unpopulated.peek();
+            if (next == null) {
+                whenDone.run();
+            } else {
+                next.populate();
+                populateAllGradually(whenDone);
+            }
+        });
+    }
+}
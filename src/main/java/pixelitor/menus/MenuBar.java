@@ -25,7 +25,9 @@ import pixelitor.Pixelitor;
 import pixelitor.TipsOfTheDay;
 import pixelitor.automate.AutoPaint;
 import pixelitor.automate.BatchFilterWizard;
+import pixelitor.automate.BatchMacro;
 import pixelitor.automate.BatchResize;
+import pixelitor.automate.macro.MacroRecorder;
 import pixelitor.colors.palette.ColorSwatchClickHandler;
 import pixelitor.colors.palette.FullPalette;
 import pixelitor.colors.palette.PalettePanel;
@@ -93,6 +95,7 @@ import pixelitor.utils.Messages;
 import pixelitor.utils.OpenInBrowserAction;
 import pixelitor.utils.Tests3x3;
 import pixelitor.utils.debug.AppNode;
+import pixelitor.utils.debug.MetricsPanel;
 import pixelitor.utils.test.Events;
 import pixelitor.utils.test.RandomGUITest;
 import pixelitor.utils.test.SplashImageCreator;
@@ -101,6 +104,7 @@ import javax.swing.*;
 import java.awt.BorderLayout;
 import java.awt.image.BufferedImage;
 import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
 
 import static java.lang.String.format;
 import static javax.swing.BorderFactory.createEmptyBorder;
@@ -256,7 +260,7 @@ public class MenuBar extends JMenuBar {
 
         fileMenu.addSeparator();
 
-        fileMenu.add(createAutomateSubmenu(pw));
+        fileMenu.add(new LazyMenu("Automate", sub -> addAutomateItems(sub, pw)));
 
         if (!JVM.isMac) {
             fileMenu.addAlwaysEnabledAction(new ScreenCaptureAction());
@@ -276,9 +280,7 @@ public class MenuBar extends JMenuBar {
         return fileMenu;
     }
 
-    private static JMenu createAutomateSubmenu(PixelitorWindow pw) {
-        PMenu sub = new PMenu("Automate");
-
+    private static void addAutomateItems(PMenu sub, PixelitorWindow pw) {
         sub.addAlwaysEnabledAction(new MenuAction("Batch Resize...") {
             @Override
             public void onClick() {
@@ -307,7 +309,35 @@ public class MenuBar extends JMenuBar {
             }
         });
 
-        return sub;
+        sub.addSeparator();
+
+        sub.addAlwaysEnabledAction(new MenuAction("Start Recording Macro") {
+            @Override
+            public void onClick() {
+                MacroRecorder.startRecording();
+            }
+        });
+
+        sub.addAlwaysEnabledAction(new MenuAction("Stop Recording Macro...") {
+            @Override
+            public void onClick() {
+                MacroRecorder.stopRecordingAndSave();
+            }
+        });
+
+        sub.addAction(new MenuAction("Run Macro...") {
+            @Override
+            public void onClick() {
+                MacroRecorder.loadAndRunOnActiveImage();
+            }
+        });
+
+        sub.addAlwaysEnabledAction(new MenuAction("Batch Macro...") {
+            @Override
+            public void onClick() {
+                BatchMacro.start();
+            }
+        });
     }
 
     private static JMenu createEditMenu() {
@@ -555,10 +585,26 @@ public class MenuBar extends JMenuBar {
                 AddAdjLayerAction.INSTANCE.actionPerformed(null);
             }
         });
+        addAdjustmentLayerAction(sub, HueSat.NAME, HueSat::new);
+        addAdjustmentLayerAction(sub, "Color Balance", ColorBalance::new);
+        addAdjustmentLayerAction(sub, ChannelMixer.NAME, ChannelMixer::new);
+        addAdjustmentLayerAction(sub, Posterize.NAME, Posterize::new);
+        addAdjustmentLayerAction(sub, Sepia.NAME, Sepia::new);
+        addAdjustmentLayerAction(sub, Threshold.NAME, Threshold::new);
 
         return sub;
     }
 
+    private static void addAdjustmentLayerAction(PMenu sub, String name,
+                                                 Supplier<Filter> filterSupplier) {
+        sub.addAction(new MenuAction(name + " Adjustment") {
+            @Override
+            public void onClick() {
+                AddAdjLayerAction.addNewLayer(name, filterSupplier.get());
+            }
+        });
+    }
+
     private static JMenu createSelectMenu() {
         PMenu selectMenu = new PMenu("Select", 'S');
 
@@ -667,16 +713,14 @@ public class MenuBar extends JMenuBar {
         colorsMenu.buildFilter(ChannelMixer.NAME, ChannelMixer::new)
                 .add();
 
-        colorsMenu.add(createExtractChannelsSubmenu());
-        colorsMenu.add(createReduceColorsSubmenu());
+        colorsMenu.add(new LazyMenu("Extract Channels", MenuBar::addExtractChannelsFilters));
+        colorsMenu.add(new LazyMenu("Reduce Colors", MenuBar::addReduceColorsFilters));
         colorsMenu.add(createFillSubmenu());
 
         return colorsMenu;
     }
 
-    private static JMenu createExtractChannelsSubmenu() {
-        PMenu sub = new PMenu("Extract Channels");
-
+    private static void addExtractChannelsFilters(PMenu sub) {
         sub.addFilter("Extract Channel", ExtractChannel::new);
 
         sub.addSeparator();
@@ -694,13 +738,9 @@ public class MenuBar extends JMenuBar {
         sub.addFilter(ExtractChannelFilter.getHueChannelFA());
         sub.addFilter(ExtractChannelFilter.getHueInColorsChannelFA());
         sub.addFilter(ExtractChannelFilter.getSaturationChannelFA());
-
-        return sub;
     }
 
-    private static JMenu createReduceColorsSubmenu() {
-        PMenu sub = new PMenu("Reduce Colors");
-
+    private static void addReduceColorsFilters(PMenu sub) {
         sub.addFilter(JHQuantize.NAME, JHQuantize::new);
         sub.addFilter(Posterize.NAME, Posterize::new);
         sub.addFilter(Threshold.NAME, Threshold::new);
@@ -714,8 +754,6 @@ public class MenuBar extends JMenuBar {
         sub.addSeparator();
 
         sub.addFilter(JHDither.NAME, JHDither::new);
-
-        return sub;
     }
 
     private static JMenu createFillSubmenu() {
@@ -741,15 +779,15 @@ public class MenuBar extends JMenuBar {
     private static JMenu createFilterMenu() {
         PMenu filterMenu = new PMenu("Filter", 'T');
 
-        filterMenu.add(createBlurSharpenSubmenu());
-        filterMenu.add(createDistortSubmenu());
-        filterMenu.add(createDislocateSubmenu());
-        filterMenu.add(createLightSubmenu());
-        filterMenu.add(createNoiseSubmenu());
-        filterMenu.add(createRenderSubmenu());
-        filterMenu.add(createArtisticSubmenu());
-        filterMenu.add(createFindEdgesSubmenu());
-        filterMenu.add(createOtherSubmenu());
+        filterMenu.add(new LazyMenu("Blur/Sharpen", MenuBar::addBlurSharpenFilters));
+        filterMenu.add(new LazyMenu("Distort", MenuBar::addDistortFilters));
+        filterMenu.add(new LazyMenu("Dislocate", MenuBar::addDislocateFilters));
+        filterMenu.add(new LazyMenu("Light", MenuBar::addLightFilters));
+        filterMenu.add(new LazyMenu("Noise", MenuBar::addNoiseFilters));
+        filterMenu.add(new LazyMenu("Render", MenuBar::addRenderFilters));
+        filterMenu.add(new LazyMenu("Artistic", MenuBar::addArtisticFilters));
+        filterMenu.add(new LazyMenu("Find Edges", MenuBar::addFindEdgesFilters));
+        filterMenu.add(new LazyMenu("Other", MenuBar::addOtherFilters));
 
         // TODO does it still make sense to add the old text filter?
         filterMenu.buildFilter(TextFilter.createFilterAction())
@@ -758,9 +796,7 @@ public class MenuBar extends JMenuBar {
         return filterMenu;
     }
 
-    private static JMenu createBlurSharpenSubmenu() {
-        PMenu sub = new PMenu("Blur/Sharpen");
-
+    private static void addBlurSharpenFilters(PMenu sub) {
         sub.addFilter(JHBoxBlur.NAME, JHBoxBlur::new);
         sub.addFilter(JHFocus.NAME, JHFocus::new);
         sub.addFilter(JHGaussianBlur.NAME, JHGaussianBlur::new);
@@ -770,13 +806,9 @@ public class MenuBar extends JMenuBar {
         sub.addFilter(SPIN_ZOOM_BLUR.createFilterAction());
         sub.addSeparator();
         sub.addFilter(JHUnsharpMask.NAME, JHUnsharpMask::new);
-
-        return sub;
     }
 
-    private static JMenu createDistortSubmenu() {
-        PMenu sub = new PMenu("Distort");
-
+    private static void addDistortFilters(PMenu sub) {
         sub.addFilter(JHSwirlPinchBulge.NAME, JHSwirlPinchBulge::new);
         sub.addFilter(CircleToSquare.NAME, CircleToSquare::new);
         sub.addFilter(JHPerspective.NAME, JHPerspective::new);
@@ -806,38 +838,26 @@ public class MenuBar extends JMenuBar {
         sub.addFilter(LittlePlanet.NAME, LittlePlanet::new);
         sub.addFilter(JHPolarCoordinates.NAME, JHPolarCoordinates::new);
         sub.addFilter(JHWrapAroundArc.NAME, JHWrapAroundArc::new);
-
-        return sub;
     }
 
-    private static JMenu createDislocateSubmenu() {
-        PMenu sub = new PMenu("Dislocate");
-
+    private static void addDislocateFilters(PMenu sub) {
         sub.addFilter(DrunkVision.NAME, DrunkVision::new);
         sub.addFilter(JHKaleidoscope.NAME, JHKaleidoscope::new);
         sub.addFilter(JHOffset.NAME, JHOffset::new);
         sub.addFilter(Mirror.NAME, Mirror::new);
         sub.addFilter(Slice.NAME, Slice::new);
         sub.addFilter(JHVideoFeedback.NAME, JHVideoFeedback::new);
-
-        return sub;
     }
 
-    private static JMenu createLightSubmenu() {
-        PMenu sub = new PMenu("Light");
-
+    private static void addLightFilters(PMenu sub) {
         sub.addFilter(Flashlight.NAME, Flashlight::new);
         sub.addFilter(JHGlint.NAME, JHGlint::new);
         sub.addFilter(JHGlow.NAME, JHGlow::new);
         sub.addFilter(JHRays.NAME, JHRays::new);
         sub.addFilter(JHSparkle.NAME, JHSparkle::new);
-
-        return sub;
     }
 
-    private static JMenu createNoiseSubmenu() {
-        PMenu sub = new PMenu("Noise");
-
+    private static void addNoiseFilters(PMenu sub) {
         sub.buildFilter(JHReduceNoise.NAME, JHReduceNoise::new)
                 .noGUI()
                 .add();
@@ -849,13 +869,9 @@ public class MenuBar extends JMenuBar {
 
         sub.addFilter(AddNoise.NAME, AddNoise::new);
         sub.addFilter(JHPixelate.NAME, JHPixelate::new);
-
-        return sub;
     }
 
-    private static JMenu createRenderSubmenu() {
-        PMenu sub = new PMenu("Render");
-
+    private static void addRenderFilters(PMenu sub) {
         sub.addFilter(Clouds.NAME, Clouds::new);
         sub.addFilter(JHPlasma.NAME, JHPlasma::new);
         sub.addFilter(ValueNoise.NAME, ValueNoise::new);
@@ -872,35 +888,23 @@ public class MenuBar extends JMenuBar {
 
         sub.addSeparator();
 
-        sub.add(createRenderGeometrySubmenu());
-        sub.add(createRenderShapesSubmenu());
-
-        return sub;
+        sub.add(new LazyMenu("Geometry", MenuBar::addRenderGeometryFilters));
+        sub.add(new LazyMenu("Shapes", MenuBar::addRenderShapesFilters));
     }
 
-    private static JMenu createRenderShapesSubmenu() {
-        PMenu sub = new PMenu("Shapes");
-
+    private static void addRenderShapesFilters(PMenu sub) {
         sub.addFilter("Flower of Life", FlowerOfLife::new);
         sub.addFilter("Lissajous Curve", Lissajous::new);
         sub.addFilter("Mystic Rose", MysticRose::new);
         sub.addFilter("Spirograph", Spirograph::new);
         sub.addFilter("Grid", RenderGrid::new);
-
-        return sub;
     }
 
-    private static JMenu createRenderGeometrySubmenu() {
-        PMenu sub = new PMenu("Geometry");
-
+    private static void addRenderGeometryFilters(PMenu sub) {
         sub.addFilter(Starburst.NAME, Starburst::new);
-
-        return sub;
     }
 
-    private static JMenu createArtisticSubmenu() {
-        PMenu sub = new PMenu("Artistic");
-
+    private static void addArtisticFilters(PMenu sub) {
         sub.addFilter(JHCrystallize.NAME, JHCrystallize::new);
         sub.addFilter(JHEmboss.NAME, JHEmboss::new);
         sub.addFilter(JHOilPainting.NAME, JHOilPainting::new);
@@ -912,37 +916,25 @@ public class MenuBar extends JMenuBar {
         sub.addFilter(JHStamp.NAME, JHStamp::new);
         sub.addFilter(JHWeave.NAME, JHWeave::new);
 
-        sub.add(createHalftoneSubmenu());
-
-        return sub;
+        sub.add(new LazyMenu("Halftone", MenuBar::addHalftoneFilters));
     }
 
-    private static JMenu createHalftoneSubmenu() {
-        PMenu sub = new PMenu("Halftone");
-
+    private static void addHalftoneFilters(PMenu sub) {
         sub.addFilter(JHStripedHalftone.NAME, JHStripedHalftone::new);
         sub.addFilter(JHConcentricHalftone.NAME, JHConcentricHalftone::new);
         sub.addFilter(JHColorHalftone.NAME, JHColorHalftone::new);
-
-        return sub;
     }
 
 
-    private static JMenu createFindEdgesSubmenu() {
-        PMenu sub = new PMenu("Find Edges");
-
+    private static void addFindEdgesFilters(PMenu sub) {
         sub.addFilter(JHConvolutionEdge.NAME, JHConvolutionEdge::new);
         sub.addAction(new FilterAction(JHLaplacian.NAME, JHLaplacian::new)
                 .withoutGUI());
         sub.addFilter(JHDifferenceOfGaussians.NAME, JHDifferenceOfGaussians::new);
         sub.addFilter("Canny", Canny::new);
-
-        return sub;
     }
 
-    private static JMenu createOtherSubmenu() {
-        PMenu sub = new PMenu("Other");
-
+    private static void addOtherFilters(PMenu sub) {
         sub.addFilter(JHDropShadow.NAME, JHDropShadow::new);
         sub.addFilter(Morphology.NAME, Morphology::new);
         sub.addFilter("Random Filter", RandomFilter::new);
@@ -960,8 +952,6 @@ public class MenuBar extends JMenuBar {
         sub.buildFilter(JHInvertTransparency.NAME, JHInvertTransparency::new)
                 .noGUI()
                 .add();
-
-        return sub;
     }
 
     private static JMenu createViewMenu(PixelitorWindow pw) {
@@ -986,7 +976,7 @@ public class MenuBar extends JMenuBar {
 
         viewMenu.addSeparator();
 
-        viewMenu.add(createColorVariationsSubmenu(pw));
+        viewMenu.add(new LazyMenu("Color Variations", sub -> addColorVariationsItems(sub, pw)));
         viewMenu.addAlwaysEnabledAction(new MenuAction("Color Palette...") {
             @Override
             public void onClick() {
@@ -1027,22 +1017,21 @@ public class MenuBar extends JMenuBar {
         return viewMenu;
     }
 
-    private static JMenu createColorVariationsSubmenu(PixelitorWindow pw) {
-        PMenu variations = new PMenu("Color Variations");
-        variations.addAlwaysEnabledAction(new MenuAction("Foreground...") {
+    private static void addColorVariationsItems(PMenu sub, PixelitorWindow pw) {
+        sub.addAlwaysEnabledAction(new MenuAction("Foreground...") {
             @Override
             public void onClick() {
                 PalettePanel.showFGVariationsDialog(pw);
             }
         });
-        variations.addAlwaysEnabledAction(new MenuAction(
+        sub.addAlwaysEnabledAction(new MenuAction(
                 "HSB Mix Foreground with Background...") {
             @Override
             public void onClick() {
                 PalettePanel.showHSBMixDialog(pw, true);
             }
         });
-        variations.addAlwaysEnabledAction(new MenuAction(
+        sub.addAlwaysEnabledAction(new MenuAction(
                 "RGB Mix Foreground with Background...") {
             @Override
             public void onClick() {
@@ -1050,29 +1039,28 @@ public class MenuBar extends JMenuBar {
             }
         });
 
-        variations.addSeparator();
+        sub.addSeparator();
 
-        variations.addAlwaysEnabledAction(new MenuAction("Background...") {
+        sub.addAlwaysEnabledAction(new MenuAction("Background...") {
             @Override
             public void onClick() {
                 PalettePanel.showBGVariationsDialog(pw);
             }
         });
-        variations.addAlwaysEnabledAction(new MenuAction(
+        sub.addAlwaysEnabledAction(new MenuAction(
                 "HSB Mix Background with Foreground...") {
             @Override
             public void onClick() {
                 PalettePanel.showHSBMixDialog(pw, false);
             }
         });
-        variations.addAlwaysEnabledAction(new MenuAction(
+        sub.addAlwaysEnabledAction(new MenuAction(
                 "RGB Mix Background with Foreground...") {
             @Override
             public void onClick() {
                 PalettePanel.showRGBMixDialog(pw, false);
             }
         });
-        return variations;
     }
 
     private static JMenu createArrangeWindowsSubmenu() {
@@ -1105,10 +1093,10 @@ public class MenuBar extends JMenuBar {
     private static JMenu createDevelopMenu(PixelitorWindow pw) {
         PMenu developMenu = new PMenu("Develop", 'D');
 
-        developMenu.add(createDebugSubmenu(pw));
+        developMenu.add(new LazyMenu("Debug", sub -> addDebugItems(sub, pw)));
         developMenu.add(createTestSubmenu(pw));
-        developMenu.add(createSplashSubmenu());
-        developMenu.add(createExperimentalSubmenu());
+        developMenu.add(new LazyMenu("Splash", MenuBar::addSplashItems));
+        developMenu.add(new LazyMenu("Experimental", MenuBar::addExperimentalFilters));
 
         developMenu.addAlwaysEnabledAction(new MenuAction("Filter Creator...") {
             @Override
@@ -1225,9 +1213,7 @@ public class MenuBar extends JMenuBar {
         return developMenu;
     }
 
-    private static JMenu createDebugSubmenu(PixelitorWindow pw) {
-        PMenu sub = new PMenu("Debug");
-
+    private static void addDebugItems(PMenu sub, PixelitorWindow pw) {
         sub.addAction(new MenuAction("repaint() on the active image") {
             @Override
             public void onClick() {
@@ -1279,8 +1265,6 @@ public class MenuBar extends JMenuBar {
                 GlobalKeyboardWatch.registerDebugMouseWatching(false);
             }
         });
-
-        return sub;
     }
 
     private static JMenu createTestSubmenu(PixelitorWindow pw) {
@@ -1305,9 +1289,7 @@ public class MenuBar extends JMenuBar {
         return sub;
     }
 
-    private static JMenu createSplashSubmenu() {
-        PMenu sub = new PMenu("Splash");
-
+    private static void addSplashItems(PMenu sub) {
         sub.addAlwaysEnabledAction(new MenuAction("Create Splash Image") {
             @Override
             public void onClick() {
@@ -1321,13 +1303,9 @@ public class MenuBar extends JMenuBar {
                 SplashImageCreator.saveManySplashImages();
             }
         });
-
-        return sub;
     }
 
-    private static JMenu createExperimentalSubmenu() {
-        PMenu sub = new PMenu("Experimental");
-
+    private static void addExperimentalFilters(PMenu sub) {
         sub.addFilter(Contours.NAME, Contours::new);
         sub.addFilter(JHCustomHalftone.NAME, JHCustomHalftone::new);
 
@@ -1339,8 +1317,6 @@ public class MenuBar extends JMenuBar {
         sub.addFilter(Sphere3D.NAME, Sphere3D::new);
         sub.addFilter("Grid", RenderGrid::new);
         sub.addFilter(JHCheckerFilter.NAME, JHCheckerFilter::new);
-
-        return sub;
     }
 
     private static JMenu createHelpMenu(PixelitorWindow pw) {
@@ -1382,6 +1358,13 @@ public class MenuBar extends JMenuBar {
             }
         });
 
+        helpMenu.addAlwaysEnabledAction(new MenuAction("Performance Metrics...") {
+            @Override
+            public void onClick() {
+                MetricsPanel.showDialog();
+            }
+        });
+
         helpMenu.add(new MenuAction("Check for Update...") {
             @Override
             public void onClick() {
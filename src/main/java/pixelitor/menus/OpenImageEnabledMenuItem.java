@@ -28,7 +28,8 @@ import javax.swing.*;
 public class OpenImageEnabledMenuItem extends JMenuItem implements ActiveImageChangeListener {
     public OpenImageEnabledMenuItem(Action a) {
         super(a);
-        setEnabled(false);
+        // it can be created lazily, after some images were opened
+        setEnabled(ImageComponents.hasActiveImage());
         ImageComponents.addActiveImageChangeListener(this);
     }
 
@@ -23,6 +23,8 @@ import pixelitor.gui.utils.DialogBuilder;
 import pixelitor.gui.utils.Dialogs;
 import pixelitor.io.FileChoosers;
 import pixelitor.io.OpenRaster;
+import pixelitor.io.OutputFormat;
+import pixelitor.io.SaveSettings;
 
 import javax.swing.*;
 import java.io.File;
@@ -34,7 +36,7 @@ public class OpenRasterExportPanel extends JPanel {
     private final JCheckBox mergedLayersCB;
 
     private OpenRasterExportPanel() {
-        mergedLayersCB = new JCheckBox("Add merged image? (Useful only for image viewers)", false);
+        mergedLayersCB = new JCheckBox("Add merged image and thumbnail? (Useful only for image viewers)", false);
         add(mergedLayersCB);
     }
 
@@ -67,7 +69,8 @@ public class OpenRasterExportPanel extends JPanel {
         File file = FileChoosers.selectSaveFileForSpecificFormat(FileChoosers.oraFilter);
         if (file != null) {
             boolean addMergedImage = p.exportMergedImage();
-            Runnable saveTask = () -> OpenRaster.uncheckedWrite(comp, file, addMergedImage);
+            SaveSettings settings = new SaveSettings(OutputFormat.ORA, file);
+            Runnable saveTask = () -> OpenRaster.uncheckedWrite(comp, settings, addMergedImage);
             comp.saveAsync(saveTask, file, true);
         }
     }
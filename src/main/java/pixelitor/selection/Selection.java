@@ -31,6 +31,11 @@ import java.awt.Shape;
 import java.awt.Stroke;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 import static java.awt.BasicStroke.CAP_BUTT;
 import static java.awt.BasicStroke.JOIN_ROUND;
@@ -41,17 +46,33 @@ import static java.awt.Color.WHITE;
  * Represents a selection on an image.
  */
 public class Selection {
+    // one timer animates all the marching selections
+    private static final Timer marchingAntsTimer = new Timer(100, e -> marchAll());
+    private static final List<Selection> marchingSelections = new ArrayList<>();
+
     private float dashPhase;
     private ImageComponent ic;
-    private Timer marchingAntsTimer;
 
     // The shape that is currently drawn.
     // The coordinates are in image space, relative to the canvas.
     private Shape shape;
 
-    private static final double DASH_WIDTH = 1.0;
+    // The flattened outline of the shape at the last used zoom and
+    // the rectangles covering it. They are in component space,
+    // relative to the canvas, and are recreated only if the
+    // shape or the zoom changes.
+    private Path2D cachedOutline;
+    private List<Rectangle> outlineStrips;
+    private double cachedViewScale;
+
     private static final float DASH_LENGTH = 4.0f;
     private static final float[] MARCHING_ANTS_DASH = {DASH_LENGTH, DASH_LENGTH};
+    private static final Stroke WHITE_STROKE = new BasicStroke(1.0f);
+
+    private static final double FLATNESS = 0.5;
+    private static final int STRIP_TILE_SIZE = 64;
+    // above this, a single repaint is cheaper
+    private static final int MAX_STRIPS = 48;
 
     private boolean hidden = false;
     private boolean dead = false;
@@ -75,7 +96,7 @@ public class Selection {
         // the shapes can be shared
         this.shape = orig.shape;
 
-        // the Timer is not copied! - setIC starts it
+        // not marching yet - setIC starts it
     }
 
     public void startMarching() {
@@ -86,25 +107,67 @@ public class Selection {
         assert !dead : "dead selection";
         assert ic != null : "no ic in selection";
 
-        marchingAntsTimer = new Timer(100, null);
-        marchingAntsTimer.addActionListener(evt -> {
-            if(!hidden) {
-                dashPhase += 1.0f / (float) ic.getViewScale();
-                repaint();
-            }
-        });
-        marchingAntsTimer.start();
+        if (!marchingSelections.contains(this)) {
+            marchingSelections.add(this);
+        }
+        if (!marchingAntsTimer.isRunning()) {
+            marchingAntsTimer.start();
+        }
     }
 
     public void stopMarching() {
-        if (marchingAntsTimer != null) {
+        marchingSelections.remove(this);
+        if (marchingSelections.isEmpty()) {
             marchingAntsTimer.stop();
-            marchingAntsTimer = null;
         }
     }
 
     public boolean isMarching() {
-        return marchingAntsTimer != null;
+        return marchingSelections.contains(this);
+    }
+
+    private static void marchAll() {
+        // copied, because a repaint could stop a selection
+        for (Selection selection : new ArrayList<>(marchingSelections)) {
+            selection.march();
+        }
+    }
+
+    private void march() {
+        if (hidden || ic == null) {
+            return;
+        }
+        dashPhase = (dashPhase + 1.0f) % (2 * DASH_LENGTH);
+        repaintOutline();
+    }
+
+    /**
+     * Repaints only the strips along the outline, because
+     * the repaint manager would merge the separate
+     * repaint requests into their bounding rectangle.
+     */
+    private void repaintOutline() {
+        if (shape == null || !ic.isShowing()) {
+            return;
+        }
+
+        updateOutline(ic.getViewScale());
+        if (outlineStrips == null) {
+            ic.repaint();
+            return;
+        }
+
+        int canvasStartX = (int) ic.imageXToComponentSpace(0);
+        int canvasStartY = (int) ic.imageYToComponentSpace(0);
+        Rectangle visible = ic.getVisibleRect();
+        for (Rectangle strip : outlineStrips) {
+            Rectangle r = new Rectangle(strip);
+            r.translate(canvasStartX, canvasStartY);
+            r = r.intersection(visible);
+            if (!r.isEmpty()) {
+                ic.paintImmediately(r);
+            }
+        }
     }
 
     public void paintMarchingAnts(Graphics2D g2) {
@@ -114,37 +177,163 @@ public class Selection {
             return;
         }
 
-        paintAnts(g2, shape, dashPhase);
+        paintAnts(g2);
     }
 
-    private void paintAnts(Graphics2D g2, Shape shape, float phase) {
-        // As the selection coordinates are in image space, this is
-        // called with a Graphics2D transformed into image space.
-        // The line width has to be scaled to compensate.
+    private void paintAnts(Graphics2D g2) {
+        // This is called with a Graphics2D transformed into image
+        // space, but the cached outline is in component space.
         double viewScale = ic.getViewScale();
-        float lineWidth = (float) (DASH_WIDTH / viewScale);
+        updateOutline(viewScale);
 
-        float[] dash;
-        if (viewScale == 1.0) { // the most common case
-            dash = MARCHING_ANTS_DASH;
-        } else {
-            float scaledDashLength = (float) (DASH_LENGTH / viewScale);
-            dash = new float[]{scaledDashLength, scaledDashLength};
-        }
+        AffineTransform imageTransform = g2.getTransform();
+        g2.scale(1.0 / viewScale, 1.0 / viewScale);
 
         g2.setPaint(WHITE);
-        Stroke stroke = new BasicStroke(lineWidth, CAP_BUTT,
-                JOIN_ROUND, 0.0f, dash,
-                phase);
-        g2.setStroke(stroke);
-        g2.draw(shape);
+        g2.setStroke(WHITE_STROKE);
+        g2.draw(cachedOutline);
 
         g2.setPaint(BLACK);
-        Stroke stroke2 = new BasicStroke(lineWidth, CAP_BUTT,
-                JOIN_ROUND, 0.0f, dash,
-                (float) (phase + DASH_LENGTH / viewScale));
-        g2.setStroke(stroke2);
-        g2.draw(shape);
+        g2.setStroke(new BasicStroke(1.0f, CAP_BUTT,
+                JOIN_ROUND, 0.0f, MARCHING_ANTS_DASH, dashPhase));
+        g2.draw(cachedOutline);
+
+        g2.setTransform(imageTransform);
+    }
+
+    private void updateOutline(double viewScale) {
+        if (cachedOutline != null && cachedViewScale == viewScale) {
+            return;
+        }
+
+        AffineTransform at = AffineTransform.getScaleInstance(viewScale, viewScale);
+        cachedOutline = new Path2D.Float();
+        cachedOutline.append(shape.getPathIterator(at, FLATNESS), false);
+        cachedViewScale = viewScale;
+        outlineStrips = calcOutlineStrips(cachedOutline);
+    }
+
+    private void invalidateOutline() {
+        cachedOutline = null;
+        outlineStrips = null;
+    }
+
+    /**
+     * Returns a few rectangles covering the given flattened outline,
+     * or null if it would take too many rectangles.
+     */
+    private static List<Rectangle> calcOutlineStrips(Path2D outline) {
+        Rectangle bounds = outline.getBounds();
+        // the stroke can extend one pixel outside the bounds
+        bounds.grow(1, 1);
+        int tiles = STRIP_TILE_SIZE;
+        int cols = (bounds.width + tiles - 1) / tiles;
+        int rows = (bounds.height + tiles - 1) / tiles;
+        if ((long) cols * rows > 1_000_000) {
+            return null;
+        }
+
+        // mark the tiles touched by the outline segments
+        BitSet marked = new BitSet(cols * rows);
+        double[] coords = new double[6];
+        double lastX = 0, lastY = 0;
+        double moveX = 0, moveY = 0;
+        for (PathIterator it = outline.getPathIterator(null); !it.isDone(); it.next()) {
+            int type = it.currentSegment(coords);
+            if (type == PathIterator.SEG_MOVETO) {
+                moveX = coords[0];
+                moveY = coords[1];
+                markTile(marked, moveX, moveY, bounds, cols, rows);
+                lastX = moveX;
+                lastY = moveY;
+            } else if (type == PathIterator.SEG_LINETO) {
+                markSegment(marked, lastX, lastY, coords[0], coords[1], bounds, cols, rows);
+                lastX = coords[0];
+                lastY = coords[1];
+            } else if (type == PathIterator.SEG_CLOSE) {
+                markSegment(marked, lastX, lastY, moveX, moveY, bounds, cols, rows);
+                lastX = moveX;
+                lastY = moveY;
+            }
+        }
+
+        // merge the marked tiles into horizontal runs, and the runs
+        // into taller strips if they have the same horizontal extent
+        List<Rectangle> strips = new ArrayList<>();
+        List<Rectangle> lastRowRuns = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            List<Rectangle> rowRuns = new ArrayList<>();
+            int col = marked.nextSetBit(row * cols);
+            int rowEnd = (row + 1) * cols;
+            while (col >= 0 && col < rowEnd) {
+                int runEnd = Math.min(marked.nextClearBit(col), rowEnd);
+                int x = bounds.x + (col - row * cols) * tiles;
+                int width = (runEnd - col) * tiles;
+
+                Rectangle run = null;
+                for (Rectangle above : lastRowRuns) {
+                    if (above.x == x && above.width == width) {
+                        above.height += tiles;
+                        run = above;
+                        break;
+                    }
+                }
+                if (run == null) {
+                    run = new Rectangle(x, bounds.y + row * tiles, width, tiles);
+                    strips.add(run);
+                    if (strips.size() > MAX_STRIPS) {
+                        return null;
+                    }
+                }
+                rowRuns.add(run);
+                col = marked.nextSetBit(runEnd);
+            }
+            lastRowRuns = rowRuns;
+        }
+
+        // the stroke can extend into the neighboring tiles
+        strips.forEach(strip -> strip.grow(1, 1));
+        return strips;
+    }
+
+    private static void markSegment(BitSet marked, double x1, double y1,
+                                    double x2, double y2,
+                                    Rectangle bounds, int cols, int rows) {
+        // split the segment into pieces shorter than a tile,
+        // and mark all the tiles under the bounds of each piece
+        double length = Math.hypot(x2 - x1, y2 - y1);
+        int steps = (int) (length / STRIP_TILE_SIZE) + 1;
+        double prevX = x1;
+        double prevY = y1;
+        for (int i = 1; i <= steps; i++) {
+            double t = i / (double) steps;
+            double x = x1 + t * (x2 - x1);
+            double y = y1 + t * (y2 - y1);
+            int minCol = tileCol(Math.min(prevX, x), bounds, cols);
+            int maxCol = tileCol(Math.max(prevX, x), bounds, cols);
+            int minRow = tileRow(Math.min(prevY, y), bounds, rows);
+            int maxRow = tileRow(Math.max(prevY, y), bounds, rows);
+            for (int row = minRow; row <= maxRow; row++) {
+                marked.set(row * cols + minCol, row * cols + maxCol + 1);
+            }
+            prevX = x;
+            prevY = y;
+        }
+    }
+
+    private static void markTile(BitSet marked, double x, double y,
+                                 Rectangle bounds, int cols, int rows) {
+        marked.set(tileRow(y, bounds, rows) * cols + tileCol(x, bounds, cols));
+    }
+
+    private static int tileCol(double x, Rectangle bounds, int cols) {
+        int col = (int) ((x - bounds.x) / STRIP_TILE_SIZE);
+        return Math.max(0, Math.min(cols - 1, col));
+    }
+
+    private static int tileRow(double y, Rectangle bounds, int rows) {
+        int row = (int) ((y - bounds.y) / STRIP_TILE_SIZE);
+        return Math.max(0, Math.min(rows - 1, row));
     }
 
     public void die() {
@@ -169,6 +358,8 @@ public class Selection {
 
     public void setShape(Shape currentShape) {
         this.shape = currentShape;
+        // the lasso can change the same shape object
+        invalidateOutline();
     }
 
     /**
@@ -181,6 +372,7 @@ public class Selection {
         assert comp == ic.getComp();
         if (shape != null) {
             shape = comp.clipShapeToCanvasSize(shape);
+            invalidateOutline();
 
             repaint();
 
@@ -211,6 +403,7 @@ public class Selection {
 
         Shape backupShape = shape;
         shape = type.modify(oldArea, outlineArea);
+        invalidateOutline();
 
         Composition comp = ic.getComp();
         boolean stillSelection = clipToCanvasSize(comp);
@@ -226,6 +419,7 @@ public class Selection {
     public Shape transform(AffineTransform at) {
         Shape backupShape = shape;
         shape = at.createTransformedShape(shape);
+        invalidateOutline();
         return backupShape;
     }
 
@@ -252,7 +446,7 @@ public class Selection {
         if(hide) {
             stopMarching();
         } else {
-            if(marchingAntsTimer == null) {
+            if (!isMarching()) {
                 startMarching();
             }
         }
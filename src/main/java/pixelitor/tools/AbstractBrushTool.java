@@ -19,20 +19,23 @@ package pixelitor.tools;
 
 import org.jdesktop.swingx.combobox.EnumComboBoxModel;
 import pixelitor.Composition;
+import pixelitor.automate.macro.MacroRecorder;
+import pixelitor.automate.macro.ToolStrokeMacroStep;
 import pixelitor.filters.gui.RangeParam;
 import pixelitor.gui.ImageComponent;
 import pixelitor.gui.utils.DialogBuilder;
 import pixelitor.gui.utils.GUIUtils;
 import pixelitor.gui.utils.GridBagHelper;
 import pixelitor.gui.utils.SliderSpinner;
-import pixelitor.history.History;
 import pixelitor.layers.Drawable;
 import pixelitor.tools.brushes.AffectedArea;
 import pixelitor.tools.brushes.Brush;
 import pixelitor.tools.brushes.LazyMouseBrush;
 import pixelitor.tools.brushes.SymmetryBrush;
+import pixelitor.tools.util.ArcLengthSampler;
 import pixelitor.tools.util.PMouseEvent;
 import pixelitor.tools.util.PPoint;
+import pixelitor.tools.util.PRectangle;
 import pixelitor.utils.VisibleForTesting;
 import pixelitor.utils.debug.DebugNode;
 
@@ -41,10 +44,12 @@ import java.awt.Composite;
 import java.awt.Cursor;
 import java.awt.Graphics2D;
 import java.awt.GridBagLayout;
+import java.awt.Rectangle;
 import java.awt.Shape;
-import java.awt.geom.FlatteningPathIterator;
-import java.awt.geom.PathIterator;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 import static java.awt.RenderingHints.KEY_ANTIALIASING;
 import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
@@ -88,6 +93,10 @@ public abstract class AbstractBrushTool extends Tool {
 
     DrawDestination drawDestination;
 
+    // the last brush stroke in image coordinates,
+    // used only while a macro is recorded
+    private Path2D recordedStroke;
+
     AbstractBrushTool(String name, char activationKeyChar,
                       String iconFileName, String toolMessage, Cursor cursor) {
         super(name, activationKeyChar, iconFileName, toolMessage,
@@ -226,6 +235,24 @@ public abstract class AbstractBrushTool extends Tool {
         } else {
             affectedArea.initAt(e);
         }
+
+        if (MacroRecorder.isRecording()) {
+            startRecordedStroke(e, withLine);
+        }
+    }
+
+    private void startRecordedStroke(PPoint p, boolean withLine) {
+        Point2D lastPoint = null;
+        if (withLine && recordedStroke != null) {
+            lastPoint = recordedStroke.getCurrentPoint();
+        }
+        recordedStroke = new Path2D.Double();
+        if (lastPoint != null) {
+            recordedStroke.moveTo(lastPoint.getX(), lastPoint.getY());
+            recordedStroke.lineTo(p.getImX(), p.getImY());
+        } else {
+            recordedStroke.moveTo(p.getImX(), p.getImY());
+        }
     }
 
     protected boolean withLine(PMouseEvent e) {
@@ -238,6 +265,10 @@ public abstract class AbstractBrushTool extends Tool {
     @Override
     public void mouseDragged(PMouseEvent e) {
         newMousePoint(e.getComp().getActiveDrawableOrThrow(), e, false);
+
+        if (MacroRecorder.isRecording() && recordedStroke != null) {
+            recordedStroke.lineTo(e.getImX(), e.getImY());
+        }
     }
 
     @Override
@@ -253,13 +284,16 @@ public abstract class AbstractBrushTool extends Tool {
 
         Composition comp = e.getComp();
         finishBrushStroke(comp.getActiveDrawableOrThrow());
+
+        if (MacroRecorder.isRecording() && recordedStroke != null) {
+            MacroRecorder.record(new ToolStrokeMacroStep(getName(), recordedStroke));
+        }
     }
 
     private void finishBrushStroke(Drawable dr) {
-        BufferedImage originalImage = drawDestination.getOriginalImage(dr, this);
-        History.addToolArea(affectedArea.asRectangle(brush.getActualRadius()),
-                originalImage, dr,
-                false, getName());
+        affectedArea.setGrowListener(null);
+        double radius = brush.getActualRadius();
+        drawDestination.addToolAreaEdit(affectedArea.asRectangle(radius), dr, this);
 
         if (graphics != null) {
             graphics.dispose();
@@ -268,7 +302,7 @@ public abstract class AbstractBrushTool extends Tool {
 
         drawDestination.finishBrushStroke(dr);
 
-        dr.updateIconImage();
+        dr.updateIconImage(affectedArea.asRectangle(radius));
 
         dr.getComp().imageChanged(HISTOGRAM);
     }
@@ -300,7 +334,12 @@ public abstract class AbstractBrushTool extends Tool {
             comp.applySelectionClipping(g);
         }
 
+        // the destination has to know in advance where the brush will paint
+        affectedArea.setGrowListener(area -> drawDestination.areaWillChange(
+                dr, area.asRectangle(brush.getActualRadius())));
+
         brush.setTarget(comp, g);
+        initializeDrawImage(drawDestination.getDrawImage(dr));
         return g;
     }
 
@@ -311,6 +350,13 @@ public abstract class AbstractBrushTool extends Tool {
     protected void initializeGraphics(Graphics2D g) {
     }
 
+    /**
+     * An opportunity for the subclasses to give their brushes direct
+     * access to the canvas-sized image the brush stroke is drawn on
+     */
+    protected void initializeDrawImage(BufferedImage drawImage) {
+    }
+
     // overridden in brush tools with blending mode
     protected Composite getComposite() {
         return null;
@@ -326,6 +372,9 @@ public abstract class AbstractBrushTool extends Tool {
             graphics.setRenderingHint(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON);
 
             if (lineConnect) {
+                // the line starts from the end of the last stroke
+                drawDestination.areaWillChange(dr,
+                        affectedArea.asRectangle(brush.getActualRadius()));
                 brush.lineConnectTo(p);
             } else {
                 brush.startAt(p);
@@ -385,60 +434,63 @@ public abstract class AbstractBrushTool extends Tool {
         try {
             respectSelection = false;
 
-            doTrace(dr, shape);
-
-            finishBrushStroke(dr);
+            if (doTrace(dr, shape)) {
+                brush.finish();
+                finishBrushStroke(dr);
+            }
         } finally {
             resetState();
         }
     }
 
-    private void doTrace(Drawable dr, Shape shape) {
-        ImageComponent ic = dr.getComp().getIC();
-        PPoint startingPoint = null;
-
-        PathIterator fpi = new FlatteningPathIterator(
-                shape.getPathIterator(null), 1.0);
-
-//        MeasuredShape[] subpaths = MeasuredShape.getSubpaths(shape, 3.0f);
-//        GeneralPath gp = new GeneralPath();
-//        subpaths[0].writeShape(new GeneralPathWriter(gp));
-//        PathIterator fpi = gp.getPathIterator(null);
-
-        boolean brushStrokePrepared = false;
-        float[] coords = new float[2];
-        while (!fpi.isDone()) {
-            int type = fpi.currentSegment(coords);
-            double x = coords[0];
-            double y = coords[1];
-            PPoint p = PPoint.lazyFromIm(x, y, ic);
-            affectedArea.updateWith(p);
-
-            switch (type) {
-                case PathIterator.SEG_MOVETO:
-                    // we can get here more than once if there are multiple subpaths!
-                    startingPoint = p;
-                    if (!brushStrokePrepared) {
-                        // TODO this should not be here, and it should not need
-                        // a point argument, but it is here because some hacks
-                        // in the clone and smudge tools need that point
-                        prepareProgrammaticBrushStroke(dr, p);
-                        brushStrokePrepared = true;
-                    }
-                    brush.startAt(p);
-                    break;
-                case PathIterator.SEG_LINETO:
+    /**
+     * Paints the brush stroke along the given shape.
+     * Returns false if there was nothing to paint.
+     */
+    private boolean doTrace(Drawable dr, Shape shape) {
+        Composition comp = dr.getComp();
+        ImageComponent ic = comp.getIC();
+
+        // all the points are calculated before painting, placed at
+        // the spacing of the brush along the arc length of the shape
+        List<double[]> subpaths = ArcLengthSampler.sample(
+                shape, brush.getPreferredSpacing());
+        if (subpaths.isEmpty()) {
+            return false;
+        }
+
+        brush.setBatchMode(true);
+        try {
+            boolean brushStrokePrepared = false;
+            for (double[] points : subpaths) {
+                // we can get here more than once if there are multiple subpaths!
+                PPoint start = PPoint.lazyFromIm(points[0], points[1], ic);
+                affectedArea.updateWith(start);
+                if (!brushStrokePrepared) {
+                    // TODO this should not be here, and it should not need
+                    // a point argument, but it is here because some hacks
+                    // in the clone and smudge tools need that point
+                    prepareProgrammaticBrushStroke(dr, start);
+                    brushStrokePrepared = true;
+                }
+                brush.startAt(start);
+
+                for (int i = 2; i < points.length; i += 2) {
+                    PPoint p = PPoint.lazyFromIm(points[i], points[i + 1], ic);
+                    affectedArea.updateWith(p);
                     brush.continueTo(p);
-                    break;
-                case PathIterator.SEG_CLOSE:
-                    brush.continueTo(startingPoint);
-                    break;
-                default:
-                    throw new IllegalArgumentException("type = " + type);
+                }
             }
+        } finally {
+            brush.setBatchMode(false);
+        }
 
-            fpi.next();
+        // a single repaint instead of one for each segment
+        if (ic != null) {
+            Rectangle area = affectedArea.asRectangle(brush.getActualRadius());
+            comp.updateRegion(PRectangle.fromIm(area, ic));
         }
+        return true;
     }
 
     public void increaseBrushSize() {
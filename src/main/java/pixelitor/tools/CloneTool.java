@@ -221,6 +221,11 @@ public class CloneTool extends BlendingModeBrushTool {
         return false; // this tool uses Alt-click for source selection
     }
 
+    @Override
+    protected void initializeDrawImage(BufferedImage drawImage) {
+        cloneBrush.setTargetImage(drawImage);
+    }
+
     @Override
     protected Symmetry getSymmetry() {
         throw new UnsupportedOperationException("no symmetry");
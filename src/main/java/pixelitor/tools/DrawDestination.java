@@ -17,12 +17,15 @@
 
 package pixelitor.tools;
 
+import pixelitor.history.History;
+import pixelitor.history.TileBackup;
 import pixelitor.layers.Drawable;
-import pixelitor.utils.ImageUtils;
+import pixelitor.layers.TmpDrawingLayer;
 import pixelitor.utils.test.Assertions;
 
 import java.awt.Composite;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 
 /**
@@ -32,9 +35,17 @@ import java.awt.image.BufferedImage;
  */
 public enum DrawDestination {
     TMP_LAYER {
+        private TmpDrawingLayer tmpLayer;
+
         @Override
         public Graphics2D createGraphics(Drawable dr, Composite composite) {
-            return dr.createTmpDrawingLayer(composite).getGraphics();
+            tmpLayer = dr.createTmpDrawingLayer(composite);
+            return tmpLayer.getGraphics();
+        }
+
+        @Override
+        public BufferedImage getDrawImage(Drawable dr) {
+            return tmpLayer.getImage();
         }
 
         @Override
@@ -42,19 +53,30 @@ public enum DrawDestination {
             // nothing to be done
         }
 
+        @Override
+        public void areaWillChange(Drawable dr, Rectangle canvasRect) {
+            // only the painted area has to be merged and cleared,
+            // the extra pixel is for the antialiasing and the rounding
+            Rectangle dirtyRect = new Rectangle(canvasRect);
+            dirtyRect.grow(1, 1);
+            tmpLayer.markDirty(dirtyRect);
+        }
+
         @Override
         public void finishBrushStroke(Drawable dr) {
             dr.mergeTmpDrawingLayerDown();
+            tmpLayer = null;
         }
 
         @Override
-        public BufferedImage getOriginalImage(Drawable dr, AbstractBrushTool tool) {
-            // it can simply return the drawable image because
+        public void addToolAreaEdit(Rectangle rect, Drawable dr, AbstractBrushTool tool) {
+            // it can simply use the drawable image because
             // the drawing was on the temporary layer
-            return dr.getImage();
+            History.addToolArea(rect, dr.getImage(), dr, false, tool.getName());
         }
     }, DIRECT {
-        private BufferedImage copyBeforeStart;
+        // the original pixels are saved lazily, only where the brush goes
+        private TileBackup backup;
 
         @Override
         public Graphics2D createGraphics(Drawable dr, Composite composite) {
@@ -63,39 +85,65 @@ public enum DrawDestination {
             return drawImage.createGraphics();
         }
 
+        @Override
+        public BufferedImage getDrawImage(Drawable dr) {
+            return dr.getCanvasSizedSubImage();
+        }
+
         @Override
         public void prepareBrushStroke(Drawable dr) {
             BufferedImage image = dr.getImage();
 
             assert Assertions.checkRasterMinimum(image);
 
-            copyBeforeStart = ImageUtils.copyImage(image);
+            backup = new TileBackup(image);
+        }
+
+        @Override
+        public void areaWillChange(Drawable dr, Rectangle canvasRect) {
+            Rectangle imageRect = new Rectangle(canvasRect);
+            imageRect.translate(-dr.getTX(), -dr.getTY());
+            // the rounding of the final undo area can differ slightly
+            imageRect.grow(1, 1);
+            backup.saveArea(imageRect);
         }
 
         @Override
         public void finishBrushStroke(Drawable dr) {
-            copyBeforeStart.flush();
-            copyBeforeStart = null;
+            backup = null;
+            dr.contentChanged();
         }
 
         @Override
-        public BufferedImage getOriginalImage(Drawable dr, AbstractBrushTool tool) {
-            if (copyBeforeStart == null) {
-                throw new IllegalStateException("copyBeforeStart is null for " + tool.getName());
+        public void addToolAreaEdit(Rectangle rect, Drawable dr, AbstractBrushTool tool) {
+            if (backup == null) {
+                throw new IllegalStateException("backup is null for " + tool.getName());
             }
 
-            return copyBeforeStart;
+            History.addToolArea(rect, backup, dr, false, tool.getName());
         }
     };
 
     public abstract Graphics2D createGraphics(Drawable dr, Composite composite);
 
+    /**
+     * Returns the canvas-sized image on which the Graphics2D
+     * returned by createGraphics paints
+     */
+    public abstract BufferedImage getDrawImage(Drawable dr);
+
     public abstract void prepareBrushStroke(Drawable dr);
 
+    /**
+     * Called before the brush paints into a new part of the
+     * given rectangle, which is relative to the canvas
+     */
+    public abstract void areaWillChange(Drawable dr, Rectangle canvasRect);
+
     public abstract void finishBrushStroke(Drawable dr);
 
     /**
-     * Returns the original (untouched) image for undo
+     * Adds the undo edit of the finished brush stroke
      */
-    public abstract BufferedImage getOriginalImage(Drawable dr, AbstractBrushTool tool);
+    public abstract void addToolAreaEdit(Rectangle rect, Drawable dr, AbstractBrushTool tool);
 }
@@ -174,6 +174,7 @@ public class PaintBucketTool extends Tool {
                 g.dispose();
                 workingImage.flush();
             }
+            dr.contentChanged();
             comp.imageChanged();
             dr.updateIconImage();
         }
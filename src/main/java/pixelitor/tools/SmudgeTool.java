@@ -117,6 +117,11 @@ public class SmudgeTool extends AbstractBrushTool {
         smudgeBrush.setupFirstPoint(sourceImage, p, strengthParam.getValueAsPercentage());
     }
 
+    @Override
+    protected void initializeDrawImage(BufferedImage drawImage) {
+        smudgeBrush.setTargetImage(drawImage);
+    }
+
     @Override
     protected Symmetry getSymmetry() {
         throw new UnsupportedOperationException("no symmetry");
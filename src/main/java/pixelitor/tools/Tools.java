@@ -100,11 +100,15 @@ public class Tools {
         return currentTool == t;
     }
 
+    /**
+     * Returns true if the shape being dragged by the shapes tool
+     * has to be painted into the active layer
+     */
     public static boolean isShapesDrawing() {
         if (currentTool != SHAPES) {
             return false;
         }
-        return SHAPES.isDrawing();
+        return SHAPES.isDrawingIntoLayer();
     }
 
     public static void increaseActiveBrushSize() {
@@ -35,6 +35,7 @@ public abstract class AbstractBrush implements Brush {
     protected double radius = AbstractBrushTool.DEFAULT_BRUSH_RADIUS;
     protected double diameter;
     protected PPoint previous;
+    protected boolean batchMode;
 
     protected AbstractBrush(double radius) {
         setRadius(radius);
@@ -58,9 +59,16 @@ public abstract class AbstractBrush implements Brush {
         this.targetG = g;
     }
 
+    @Override
+    public void setBatchMode(boolean batchMode) {
+        this.batchMode = batchMode;
+    }
+
     // always call it before rememberPrevious!
     protected void updateComp(PPoint p) {
-        comp.updateRegion(previous, p, diameter);
+        if (!batchMode) {
+            comp.updateRegion(previous, p, diameter);
+        }
     }
 
     // always call it after updateComp!
@@ -21,6 +21,7 @@ import pixelitor.tools.util.PPoint;
 import pixelitor.utils.debug.DebugNode;
 
 import java.awt.Rectangle;
+import java.util.function.Consumer;
 
 /**
  * Calculates the area affected by a brush for the undo.
@@ -32,9 +33,16 @@ public class AffectedArea {
     private double maxX = 0;
     private double maxY = 0;
 
+    // notified when the area grows, before the brush paints into the new part
+    private Consumer<AffectedArea> growListener;
+
     public AffectedArea() {
     }
 
+    public void setGrowListener(Consumer<AffectedArea> growListener) {
+        this.growListener = growListener;
+    }
+
     /**
      * Initialize the area with a brush position
      */
@@ -45,6 +53,10 @@ public class AffectedArea {
         minY = y;
         maxX = x;
         maxY = y;
+
+        if (growListener != null) {
+            growListener.accept(this);
+        }
     }
 
     /**
@@ -53,16 +65,25 @@ public class AffectedArea {
     public void updateWith(PPoint p) {
         double x = p.getImX();
         double y = p.getImY();
+        boolean grown = false;
         if(x > maxX) {
             maxX = x;
+            grown = true;
         } else if(x < minX) {
             minX = x;
+            grown = true;
         }
 
         if(y > maxY) {
             maxY = y;
+            grown = true;
         } else if(y < minY) {
             minY = y;
+            grown = true;
+        }
+
+        if (grown && growListener != null) {
+            growListener.accept(this);
         }
     }
 
@@ -40,6 +40,11 @@ public class AffectedAreaTracker implements Brush {
         delegate.setTarget(comp, g);
     }
 
+    @Override
+    public void setBatchMode(boolean batchMode) {
+        delegate.setBatchMode(batchMode);
+    }
+
     @Override
     public void setRadius(double radius) {
         delegate.setRadius(radius);
@@ -67,6 +67,13 @@ public interface Brush {
      */
     void finish();
 
+    /**
+     * In batch mode the brush doesn't update the composition after the
+     * individual segments, because the caller updates the whole painted
+     * area once, after the brush stroke is finished.
+     */
+    default void setBatchMode(boolean batchMode) {}
+
     default void dispose() {}
 
     DebugNode getDebugNode();
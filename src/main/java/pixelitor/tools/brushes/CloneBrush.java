@@ -50,7 +50,7 @@ public class CloneBrush extends CopyBrush {
     }
 
     public void setSource(BufferedImage image, double x, double y) {
-        this.sourceImage = image;
+        setSourceImage(image);
         this.srcX = x;
         this.srcY = y;
         newSourcePointWasJustSet = true;
@@ -75,6 +75,13 @@ public class CloneBrush extends CopyBrush {
 
     @Override
     void setupBrushStamp(PPoint p) {
+        if (canCopyPixels() && !isTransformed()) {
+            copySourceToStamp(toPixel(p.getImX() - dx),
+                    toPixel(p.getImY() - dy), 255);
+            super.debugImage();
+            return;
+        }
+
         Graphics2D g = brushImage.createGraphics();
 
         type.beforeDrawImage(g);
@@ -86,7 +93,7 @@ public class CloneBrush extends CopyBrush {
                 (dx - p.getImX()),
                 (dy - p.getImY()));
 
-        if (scaleX != 1.0 || scaleY != 1.0 || rotate != 0.0) {
+        if (isTransformed()) {
             g.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
             // we need to scale/rotate the image
             // around the source point, so translate first
@@ -104,14 +111,25 @@ public class CloneBrush extends CopyBrush {
         super.debugImage();
     }
 
+    private boolean isTransformed() {
+        return scaleX != 1.0 || scaleY != 1.0 || rotate != 0.0;
+    }
+
     @Override
     public void putDab(PPoint p, double theta) {
+        // the repainting is done once for each mouse
+        // event by the superclass, not for each dab
+        if (canCopyPixels() && !isTransformed()) {
+            blendStampIntoTarget(toPixel(p.getImX() - radius),
+                    toPixel(p.getImY() - radius));
+            return;
+        }
+
         AffineTransform transform = AffineTransform.getTranslateInstance(
                 p.getImX() - radius,
                 p.getImY() - radius
         );
         targetG.drawImage(brushImage, transform, null);
-        updateComp(p);
     }
 
     public void setAligned(boolean aligned) {
@@ -17,23 +17,53 @@
 
 package pixelitor.tools.brushes;
 
+import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Utils;
 import pixelitor.utils.debug.DebugNode;
 
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
-import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
 import static pixelitor.tools.brushes.AngleSettings.NOT_ANGLE_AWARE;
 
 /**
  * An abstract superclass for the clone and smudge brushes.
  * Both of them copy a source image into the target.
+ *
+ * If both the source and the target have packed int pixels, the dabs
+ * are copied and blended directly between the int arrays, without
+ * creating a Graphics2D for each dab. Otherwise (for example for
+ * layer masks or non-rectangular selections) the Graphics2D of the
+ * target is used.
  */
 public abstract class CopyBrush extends DabsBrush {
     protected BufferedImage sourceImage;
     protected BufferedImage brushImage;
     protected CopyBrushType type;
 
+    // DIV_TABLE[(a << 8) | v] = v * 255 / a, rounded and clamped
+    private static final byte[] DIV_TABLE = createDivTable();
+
+    // the pixels of the source image, or null if not accessible
+    protected PackedPixels sourcePixels;
+
+    // the pixels of the brush image, in premultiplied ARGB
+    private int[] stampPixels;
+    private int stampSize;
+
+    // the pixels of the image the current stroke is drawn on,
+    // or null if the Graphics2D has to be used
+    private PackedPixels targetPixels;
+
+    // the writable area of the target, respecting a rectangular selection
+    private int minX;
+    private int minY;
+    private int maxX; // exclusive
+    private int maxY; // exclusive
+
     // can be set from the develop menu
     private static boolean debugBrushImage = false;
 
@@ -47,11 +77,227 @@ public abstract class CopyBrush extends DabsBrush {
         super.setRadius(radius);
         if (type != null) { // cannot initialize properly when called from superclass constructor
             int size = (int) diameter;
-            brushImage = new BufferedImage(size, size, TYPE_INT_ARGB);
+            // premultiplied, so that the blending can skip a multiplication
+            brushImage = new BufferedImage(size, size, TYPE_INT_ARGB_PRE);
+            stampPixels = ImageUtils.getPixelsAsArray(brushImage);
+            stampSize = size;
             type.setSize(diameter);
         }
     }
 
+    protected void setSourceImage(BufferedImage sourceImage) {
+        this.sourceImage = sourceImage;
+        sourcePixels = PackedPixels.of(sourceImage);
+    }
+
+    /**
+     * Sets the canvas-sized image that the Graphics2D given in
+     * setTarget paints on. Must be called after setTarget.
+     */
+    public void setTargetImage(BufferedImage targetImage) {
+        targetPixels = null;
+        if (targetImage == null || !PackedPixels.isSupportedTarget(targetImage)) {
+            return;
+        }
+
+        minX = 0;
+        minY = 0;
+        maxX = targetImage.getWidth();
+        maxY = targetImage.getHeight();
+
+        Shape clip = targetG.getClip();
+        if (clip != null) {
+            if (!(clip instanceof Rectangle2D)) {
+                // only rectangular selections are handled without Graphics2D
+                return;
+            }
+            // the pixels whose centers are inside the rectangle
+            Rectangle2D rect = (Rectangle2D) clip;
+            minX = Math.max(minX, (int) Math.ceil(rect.getMinX() - 0.5));
+            minY = Math.max(minY, (int) Math.ceil(rect.getMinY() - 0.5));
+            maxX = Math.min(maxX, (int) Math.ceil(rect.getMaxX() - 0.5));
+            maxY = Math.min(maxY, (int) Math.ceil(rect.getMaxY() - 0.5));
+        }
+
+        targetPixels = PackedPixels.of(targetImage);
+    }
+
+    /**
+     * Returns true if the dabs of the current stroke
+     * can be processed without Graphics2D
+     */
+    protected boolean canCopyPixels() {
+        return targetPixels != null && sourcePixels != null;
+    }
+
+    /**
+     * Copies the dab-sized window of the source image that starts at the
+     * given source coordinates into the brush image, applying the dab mask
+     * and the given opacity (0-255)
+     */
+    protected void copySourceToStamp(int srcX, int srcY, int opacity) {
+        PackedPixels src = sourcePixels;
+        int[] mask = type.getDabMask();
+        int size = stampSize;
+
+        // the range where the source exists, other pixels become transparent
+        int startX = Math.max(0, -srcX);
+        int endX = Math.min(size, src.width - srcX);
+
+        for (int y = 0; y < size; y++) {
+            int rowStart = y * size;
+            int sy = srcY + y;
+            if (sy < 0 || sy >= src.height || startX >= endX) {
+                Arrays.fill(stampPixels, rowStart, rowStart + size, 0);
+                continue;
+            }
+            Arrays.fill(stampPixels, rowStart, rowStart + startX, 0);
+            Arrays.fill(stampPixels, rowStart + endX, rowStart + size, 0);
+
+            int srcIndex = src.index(srcX + startX, sy);
+            for (int x = startX; x < endX; x++, srcIndex++) {
+                int i = rowStart + x;
+                int m = mask[i];
+                if (m == 0) {
+                    stampPixels[i] = 0;
+                    continue;
+                }
+                int argb = src.getARGB(srcIndex);
+                int a = mul255(mul255(argb >>> 24, m), opacity);
+                stampPixels[i] = premultiply(argb, a);
+            }
+        }
+    }
+
+    /**
+     * Fills the brush image with the given non-premultiplied color,
+     * applying the dab mask and the given opacity (0-255)
+     */
+    protected void fillStamp(int argb, int opacity) {
+        int[] mask = type.getDabMask();
+        int alpha = mul255(argb >>> 24, opacity);
+        for (int i = 0; i < stampPixels.length; i++) {
+            stampPixels[i] = premultiply(argb, mul255(alpha, mask[i]));
+        }
+    }
+
+    // returns the color channels of argb premultiplied with the given alpha
+    private static int premultiply(int argb, int a) {
+        if (a == 0) {
+            return 0;
+        }
+        if (a == 255) {
+            return argb | 0xFF_00_00_00;
+        }
+        int r = mul255((argb >> 16) & 0xFF, a);
+        int g = mul255((argb >> 8) & 0xFF, a);
+        int b = mul255(argb & 0xFF, a);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Blends the brush image into the target with the SrcOver rule,
+     * with its top-left corner at the given target coordinates.
+     */
+    protected void blendStampIntoTarget(int destX, int destY) {
+        PackedPixels dest = targetPixels;
+        int size = stampSize;
+
+        int startX = Math.max(minX, destX);
+        int endX = Math.min(maxX, destX + size);
+        int startY = Math.max(minY, destY);
+        int endY = Math.min(maxY, destY + size);
+
+        int[] stamp = stampPixels;
+        int[] destData = dest.data;
+        boolean premultiplied = dest.premultiplied;
+
+        for (int y = startY; y < endY; y++) {
+            int stampIndex = (y - destY) * size + (startX - destX);
+            int destIndex = dest.index(startX, y);
+            for (int x = startX; x < endX; x++, stampIndex++, destIndex++) {
+                int src = stamp[stampIndex];
+                int sa = src >>> 24;
+                if (sa == 0) {
+                    continue;
+                }
+                if (sa == 255) {
+                    destData[destIndex] = src;
+                } else if (premultiplied) {
+                    destData[destIndex] = srcOverPremultiplied(src, sa, destData[destIndex]);
+                } else {
+                    destData[destIndex] = srcOver(src, sa, destData[destIndex]);
+                }
+            }
+        }
+    }
+
+    // SrcOver of a premultiplied source for a non-premultiplied destination
+    private static int srcOver(int src, int sa, int dst) {
+        int da = dst >>> 24;
+        if (da == 0) {
+            return ImageUtils.unPremultiply(src);
+        }
+
+        int inv = 255 - sa;
+        if (da == 255) { // the common case of an opaque destination
+            int r = ((src >> 16) & 0xFF) + mul255((dst >> 16) & 0xFF, inv);
+            int g = ((src >> 8) & 0xFF) + mul255((dst >> 8) & 0xFF, inv);
+            int b = (src & 0xFF) + mul255(dst & 0xFF, inv);
+            return 0xFF_00_00_00 | (r << 16) | (g << 8) | b;
+        }
+
+        // the contribution of the destination, as in Java2D's loops
+        int dstF = mul255(da, inv);
+        int a = sa + dstF;
+        int r = ((src >> 16) & 0xFF) + mul255((dst >> 16) & 0xFF, dstF);
+        int g = ((src >> 8) & 0xFF) + mul255((dst >> 8) & 0xFF, dstF);
+        int b = (src & 0xFF) + mul255(dst & 0xFF, dstF);
+
+        if (a < 255) { // un-premultiply using the table instead of divisions
+            int row = a << 8;
+            r = DIV_TABLE[row | r] & 0xFF;
+            g = DIV_TABLE[row | g] & 0xFF;
+            b = DIV_TABLE[row | b] & 0xFF;
+        }
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    // SrcOver of a premultiplied source for a premultiplied destination
+    private static int srcOverPremultiplied(int src, int sa, int dst) {
+        int inv = 255 - sa;
+        int a = sa + mul255(dst >>> 24, inv);
+        int r = ((src >> 16) & 0xFF) + mul255((dst >> 16) & 0xFF, inv);
+        int g = ((src >> 8) & 0xFF) + mul255((dst >> 8) & 0xFF, inv);
+        int b = (src & 0xFF) + mul255(dst & 0xFF, inv);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private static byte[] createDivTable() {
+        byte[] table = new byte[256 * 256];
+        for (int a = 1; a < 256; a++) {
+            for (int v = 0; v < 256; v++) {
+                int value = Math.min(255, (v * 255 + a / 2) / a);
+                table[(a << 8) | v] = (byte) value;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Returns the pixel that a drawImage with the given (fractional)
+     * translation and nearest neighbor interpolation would use
+     */
+    protected static int toPixel(double coord) {
+        return (int) Math.floor(coord + 0.5);
+    }
+
+    // returns a * b / 255, rounded, for values between 0 and 255
+    private static int mul255(int a, int b) {
+        int t = a * b + 128;
+        return (t + (t >> 8)) >> 8;
+    }
+
     public void typeChanged(CopyBrushType type) {
         this.type = type;
         type.setSize(diameter);
@@ -20,6 +20,7 @@ package pixelitor.tools.brushes;
 import pixelitor.utils.ImageUtils;
 
 import java.awt.AlphaComposite;
+import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.image.BufferedImage;
@@ -33,8 +34,13 @@ public enum CopyBrushType {
 
         @Override
         public void setSize(double size) {
-            super.setSize(size);
             transparencyImage = ImageUtils.createSoftTransparencyImage((int) size);
+            super.setSize(size);
+        }
+
+        @Override
+        int[] createDabMask(int size) {
+            return getAlphas(transparencyImage);
         }
 
         @Override
@@ -53,8 +59,21 @@ public enum CopyBrushType {
 
         @Override
         public void setSize(double size) {
-            super.setSize(size);
             circleClip = new Ellipse2D.Double(0, 0, size, size);
+            super.setSize(size);
+        }
+
+        @Override
+        int[] createDabMask(int size) {
+            // exactly the pixels that are inside the clipping shape
+            BufferedImage clipImage = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = clipImage.createGraphics();
+            g.setClip(circleClip);
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, size, size);
+            g.dispose();
+
+            return getAlphas(clipImage);
         }
 
         @Override
@@ -85,6 +104,9 @@ public enum CopyBrushType {
     private final String guiName;
     protected double size;
 
+    // the opacity (0-255) of each pixel of a dab
+    private int[] dabMask;
+
     CopyBrushType(String guiName) {
         this.guiName = guiName;
     }
@@ -101,6 +123,27 @@ public enum CopyBrushType {
 
     public void setSize(double size) {
         this.size = size;
+        dabMask = createDabMask((int) size);
+    }
+
+    /**
+     * Creates the dab opacities used when the pixels are copied directly,
+     * without Graphics2D. They must match the effect of
+     * {@link #beforeDrawImage(Graphics2D)} and {@link #afterDrawImage(Graphics2D)}.
+     */
+    abstract int[] createDabMask(int size);
+
+    public int[] getDabMask() {
+        return dabMask;
+    }
+
+    private static int[] getAlphas(BufferedImage image) {
+        int[] pixels = ImageUtils.getPixelsAsArray(image);
+        int[] alphas = new int[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            alphas[i] = pixels[i] >>> 24;
+        }
+        return alphas;
     }
 
     @Override
@@ -60,6 +60,16 @@ public abstract class DabsBrush extends AbstractBrush {
 
     public abstract void putDab(PPoint p, double theta);
 
+    @Override
+    public double getActualRadius() {
+        AngleSettings angleSettings = settings.getAngleSettings();
+        if (angleSettings.isAngleAware() || angleSettings.shouldJitterAngle()) {
+            // the corners of a rotated dab can be this far from its center
+            return radius * Math.sqrt(2) + 1.0;
+        }
+        return super.getActualRadius();
+    }
+
     @Override
     public void startAt(PPoint p) {
         super.startAt(p);
@@ -79,6 +79,11 @@ public class LazyMouseBrush implements Brush {
         ic = comp.getIC();
     }
 
+    @Override
+    public void setBatchMode(boolean batchMode) {
+        delegate.setBatchMode(batchMode);
+    }
+
     @Override
     public void setRadius(double radius) {
         delegate.setRadius(radius);
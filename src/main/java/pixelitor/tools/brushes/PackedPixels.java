@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.tools.brushes;
+
+import pixelitor.utils.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * Direct access to the int array behind a packed int image,
+ * which can also be a subimage of a bigger image.
+ */
+final class PackedPixels {
+    final int[] data;
+    final int width;
+    final int height;
+    final boolean premultiplied;
+    final boolean hasAlpha;
+
+    // the array index of the (0, 0) pixel
+    private final int offset;
+    private final int stride;
+
+    private PackedPixels(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+
+        data = buffer.getData();
+        width = image.getWidth();
+        height = image.getHeight();
+        stride = sm.getScanlineStride();
+        // the sample model translation is negative for subimages
+        offset = buffer.getOffset()
+                - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX();
+
+        int type = image.getType();
+        premultiplied = type == TYPE_INT_ARGB_PRE;
+        hasAlpha = type != TYPE_INT_RGB;
+    }
+
+    /**
+     * Returns the pixels of the given image, or null if
+     * it is not an image with packed int pixels
+     */
+    static PackedPixels of(BufferedImage image) {
+        if (image == null || !ImageUtils.hasPackedIntArray(image)) {
+            return null;
+        }
+        return new PackedPixels(image);
+    }
+
+    int index(int x, int y) {
+        return offset + y * stride + x;
+    }
+
+    /**
+     * Returns the pixel at the given array index as non-premultiplied ARGB
+     */
+    int getARGB(int index) {
+        int pixel = data[index];
+        if (!hasAlpha) {
+            return 0xFF_00_00_00 | pixel;
+        }
+        if (premultiplied) {
+            return ImageUtils.unPremultiply(pixel);
+        }
+        return pixel;
+    }
+
+    /**
+     * Returns true if the blending code can write into the given image
+     */
+    static boolean isSupportedTarget(BufferedImage image) {
+        int type = image.getType();
+        return type == TYPE_INT_ARGB || type == TYPE_INT_ARGB_PRE;
+    }
+}
@@ -55,7 +55,7 @@ public class SmudgeBrush extends CopyBrush {
     }
 
     public void setupFirstPoint(BufferedImage sourceImage, PPoint src, float strength) {
-        this.sourceImage = sourceImage;
+        setSourceImage(sourceImage);
         last = src;
         this.strength = strength;
         firstUsageInStroke = true;
@@ -63,6 +63,19 @@ public class SmudgeBrush extends CopyBrush {
 
     @Override
     void setupBrushStamp(PPoint p) {
+        if (canCopyPixels()) {
+            int opacity = (int) (strength * 255);
+            if (firstUsageInStroke && fingerPainting) {
+                fillStamp(getFGColor().getRGB(), opacity);
+            } else {
+                copySourceToStamp(toPixel(last.getImX() - radius),
+                        toPixel(last.getImY() - radius), opacity);
+            }
+            firstUsageInStroke = false;
+            super.debugImage();
+            return;
+        }
+
         Graphics2D g = brushImage.createGraphics();
         type.beforeDrawImage(g);
 
@@ -88,6 +101,16 @@ public class SmudgeBrush extends CopyBrush {
 
     @Override
     public void putDab(PPoint p, double theta) {
+        // the repainting is done once for each mouse
+        // event by the superclass, not for each dab
+        if (canCopyPixels()) {
+            // the strength is already applied to the stamp
+            blendStampIntoTarget(toPixel(p.getImX() - radius),
+                    toPixel(p.getImY() - radius));
+            last = p;
+            return;
+        }
+
         AffineTransform transform = AffineTransform.getTranslateInstance(
                 p.getImX() - radius,
                 p.getImY() - radius
@@ -106,8 +129,6 @@ public class SmudgeBrush extends CopyBrush {
         targetG.drawImage(brushImage, transform, null);
 
         last = p;
-
-        updateComp(p);
     }
 
     public void setFingerPainting(boolean fingerPainting) {
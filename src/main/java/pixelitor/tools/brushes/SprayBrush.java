@@ -33,6 +33,11 @@ import static pixelitor.utils.RandomUtils.nextGaussian;
 
 public class SprayBrush extends AbstractBrush {
     private static final int DELAY_MILLIS = 50;
+
+    // the Gaussian offsets are limited to this many standard deviations,
+    // so that the painted area is known before the spraying
+    private static final double MAX_DEVIATIONS = 4.0;
+
     private final SprayBrushSettings settings;
     private Timer timer;
     private double minShapeRadius;
@@ -42,7 +47,6 @@ public class SprayBrush extends AbstractBrush {
     private boolean randomOpacity;
     private double mouseX;
     private double mouseY;
-    private double maxRadiusSoFar;
     private boolean isEraser;
     private final CachedFloatRandom rnd = new CachedFloatRandom();
 
@@ -60,9 +64,11 @@ public class SprayBrush extends AbstractBrush {
 
     @Override
     public double getActualRadius() {
-        // The points have a Gaussian distribution, so the actual
-        // radius is theoretically infinite, so we return the maximum observed value
-        return maxShapeRadius + maxRadiusSoFar;
+        // calculated from the settings, because it can be
+        // called before startAt, when a new stroke begins
+        double shapeRadius = settings.getShapeRadius();
+        double maxShape = shapeRadius + settings.getRadiusVariability() * shapeRadius;
+        return maxShape + MAX_DEVIATIONS * radius + 1.0;
     }
 
     @Override
@@ -77,7 +83,6 @@ public class SprayBrush extends AbstractBrush {
 
         shapeType = settings.getShapeType();
         randomOpacity = settings.randomOpacity();
-        maxRadiusSoFar = Double.MIN_VALUE;
 
         timer = new Timer(DELAY_MILLIS, e -> sprayOnce());
         timer.start();
@@ -99,11 +104,8 @@ public class SprayBrush extends AbstractBrush {
         double maxY = Double.MIN_VALUE;
 
         for (int i = 0; i < numSimultaneousPoints; i++) {
-            double dx = nextGaussian() * radius;
-            double x = mouseX + dx;
-            double dy = nextGaussian() * radius;
-            double y = mouseY + dy;
-            updateTheMaxRadius(dx, dy);
+            double x = mouseX + nextOffset();
+            double y = mouseY + nextOffset();
 
             if (randomOpacity) {
                 if (isEraser) {
@@ -131,6 +133,9 @@ public class SprayBrush extends AbstractBrush {
                 minY = y;
             }
         }
+        if (batchMode) {
+            return;
+        }
         ImageComponent ic = comp.getIC();
         PRectangle area = PRectangle.fromIm(
                 minX - maxShapeRadius,
@@ -141,25 +146,14 @@ public class SprayBrush extends AbstractBrush {
         comp.updateRegion(area);
     }
 
-    private void updateTheMaxRadius(double dx, double dy) {
-        if (dx > 0) {
-            if (dx > maxRadiusSoFar) {
-                maxRadiusSoFar = dx;
-            }
-        } else {
-            if (-dx > maxRadiusSoFar) {
-                maxRadiusSoFar = -dx;
-            }
-        }
-        if (dy > 0) {
-            if (dy > maxRadiusSoFar) {
-                maxRadiusSoFar = dy;
-            }
-        } else {
-            if (-dy > maxRadiusSoFar) {
-                maxRadiusSoFar = -dy;
-            }
+    private double nextOffset() {
+        double deviations = nextGaussian();
+        if (deviations > MAX_DEVIATIONS) {
+            deviations = MAX_DEVIATIONS;
+        } else if (deviations < -MAX_DEVIATIONS) {
+            deviations = -MAX_DEVIATIONS;
         }
+        return deviations * radius;
     }
 
     @Override
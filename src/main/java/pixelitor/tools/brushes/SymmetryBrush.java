@@ -61,6 +61,13 @@ public class SymmetryBrush implements Brush {
         }
     }
 
+    @Override
+    public void setBatchMode(boolean batchMode) {
+        for(int i = 0; i < numInstantiatedBrushes; i++) {
+            brushes[i].setBatchMode(batchMode);
+        }
+    }
+
     @Override
     public void setRadius(double radius) {
         for(int i = 0; i < numInstantiatedBrushes; i++) {
@@ -97,6 +97,8 @@ public class Gradient {
 
         g.dispose();
         dr.mergeTmpDrawingLayerDown();
+        // layer masks are drawn on directly
+        dr.contentChanged();
         dr.updateIconImage();
     }
 
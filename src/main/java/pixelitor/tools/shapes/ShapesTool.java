@@ -23,23 +23,30 @@ import pixelitor.Composition;
 import pixelitor.filters.gui.ParamAdjustmentListener;
 import pixelitor.filters.gui.StrokeParam;
 import pixelitor.filters.painters.EffectsPanel;
+import pixelitor.gui.ImageComponent;
 import pixelitor.gui.utils.DialogBuilder;
 import pixelitor.gui.utils.GUIUtils;
 import pixelitor.history.History;
 import pixelitor.history.NewSelectionEdit;
 import pixelitor.history.PixelitorEdit;
 import pixelitor.history.SelectionChangeEdit;
+import pixelitor.layers.BlendingMode;
 import pixelitor.layers.Drawable;
+import pixelitor.layers.ImageLayer;
+import pixelitor.layers.Layer;
+import pixelitor.layers.MaskViewMode;
 import pixelitor.selection.Selection;
 import pixelitor.tools.ClipStrategy;
 import pixelitor.tools.DragTool;
 import pixelitor.tools.util.DragDisplayType;
 import pixelitor.tools.util.ImDrag;
 import pixelitor.tools.util.PMouseEvent;
+import pixelitor.tools.util.PRectangle;
 import pixelitor.utils.Cursors;
 import pixelitor.utils.debug.DebugNode;
 
 import javax.swing.*;
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
@@ -49,6 +56,7 @@ import java.awt.image.BufferedImage;
 
 import static java.awt.RenderingHints.KEY_ANTIALIASING;
 import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
 import static pixelitor.Composition.ImageChangeActions.REPAINT;
 
 /**
@@ -78,6 +86,14 @@ public class ShapesTool extends DragTool {
     private Shape backupSelectionShape = null;
     private boolean drawing = false;
 
+    // If possible, the shape being dragged is rendered into a small overlay
+    // image, which is painted over the cached composite image. Otherwise the
+    // composite image is recalculated with the shape painted into the layer.
+    private boolean drawingIntoOverlay = false;
+    private BufferedImage overlayImage;
+    private Rectangle overlayBounds;
+    private Composition overlayComp;
+
     private Stroke stroke;
 
     public ShapesTool() {
@@ -141,6 +157,7 @@ public class ShapesTool extends DragTool {
     public void dragStarted(PMouseEvent e) {
         Composition comp = e.getComp();
         backupSelectionShape = comp.getSelectionShape();
+        drawingIntoOverlay = canUseOverlay(comp);
     }
 
     @Override
@@ -150,10 +167,166 @@ public class ShapesTool extends DragTool {
 
         Composition comp = e.getComp();
 
-        // this will trigger paintOverLayer, therefore the continuous drawing of the shape
-        // TODO it could be optimized not to repaint the whole image, however
-        // it is not easy as some shapes extend beyond their drag rectangle
-        comp.imageChanged(REPAINT);
+        if (drawingIntoOverlay) {
+            updateOverlay(comp);
+        } else {
+            // this will trigger paintOverLayer, therefore the continuous drawing of the shape
+            comp.imageChanged(REPAINT);
+        }
+    }
+
+    /**
+     * The overlay gives the same result as painting into the layer only if
+     * the active layer is a visible image layer that is simply painted
+     * (normal blending, full opacity, no mask) over the layers below it
+     */
+    private boolean canUseOverlay(Composition comp) {
+        if (getSelectedAction().createSelection()) {
+            // nothing is painted, only the selection changes
+            return true;
+        }
+
+        ImageComponent ic = comp.getIC();
+        if (ic == null || ic.getMaskViewMode() != MaskViewMode.NORMAL) {
+            return false;
+        }
+
+        Layer layer = comp.getActiveLayer();
+        if (!(layer instanceof ImageLayer)
+                || !layer.isVisible()
+                || layer.isMaskEditing()
+                || (layer.hasMask() && layer.isMaskEnabled())
+                || layer.getOpacity() < 1.0f
+                || layer.getBlendingMode() != BlendingMode.NORMAL) {
+            return false;
+        }
+
+        // there must be nothing visible above the active layer
+        for (int i = comp.getNumLayers() - 1; i >= 0; i--) {
+            Layer above = comp.getLayer(i);
+            if (above == layer) {
+                return true;
+            }
+            if (above.isVisible()) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void updateOverlay(Composition comp) {
+        Rectangle oldBounds = overlayBounds;
+        overlayComp = comp;
+
+        if (getSelectedAction().createSelection()) {
+            // only the selection shape is updated
+            if (!userDrag.isClick()) {
+                // paintShape is skipped, but the selection might need this
+                initStrokeForOpenShapes();
+                updateSelection(getSelectedType().getShape(userDrag.toImDrag()), comp);
+            }
+            overlayBounds = null;
+            comp.repaint();
+            return;
+        }
+
+        Shape shape = getSelectedType().getShape(userDrag.toImDrag());
+        Rectangle bounds = calcShapeBounds(shape, getSelectedAction());
+        bounds = bounds.intersection(comp.getCanvasImBounds());
+
+        if (bounds.isEmpty() || userDrag.isClick()) {
+            overlayBounds = null;
+        } else {
+            int width = bounds.width;
+            int height = bounds.height;
+            if (overlayImage == null
+                    || overlayImage.getWidth() < width
+                    || overlayImage.getHeight() < height) {
+                // grow generously, so that it isn't reallocated at every mouse move
+                int newWidth = Math.max(width, overlayImage == null ? 0 : overlayImage.getWidth());
+                int newHeight = Math.max(height, overlayImage == null ? 0 : overlayImage.getHeight());
+                overlayImage = new BufferedImage(newWidth + newWidth / 2,
+                        newHeight + newHeight / 2, TYPE_INT_ARGB_PRE);
+            }
+
+            Graphics2D g = overlayImage.createGraphics();
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, width, height);
+            g.setComposite(AlphaComposite.SrcOver);
+            g.translate(-bounds.x, -bounds.y);
+            comp.applySelectionClipping(g);
+            paintShape(g, shape, comp);
+            g.dispose();
+
+            overlayBounds = bounds;
+        }
+
+        // repaint only the area that was or is covered by the shape
+        Rectangle repaintArea = oldBounds;
+        if (overlayBounds != null) {
+            repaintArea = repaintArea == null ? overlayBounds : repaintArea.union(overlayBounds);
+        }
+        if (repaintArea != null) {
+            Rectangle area = new Rectangle(repaintArea);
+            area.grow(2, 2);
+            // the composite (and the navigator) is updated only in dragFinished
+            comp.repaintRegion(PRectangle.fromIm(area, comp.getIC()));
+        }
+    }
+
+    /**
+     * Paints the overlay of the shape being dragged over the
+     * composite image of the given composition
+     */
+    public void paintOverlay(Graphics2D g, Composition comp) {
+        if (drawingIntoOverlay && overlayBounds != null && overlayComp == comp) {
+            int x = overlayBounds.x;
+            int y = overlayBounds.y;
+            int width = overlayBounds.width;
+            int height = overlayBounds.height;
+            g.drawImage(overlayImage, x, y, x + width, y + height,
+                    0, 0, width, height, null);
+        }
+    }
+
+    private void clearOverlay() {
+        drawingIntoOverlay = false;
+        overlayBounds = null;
+        overlayComp = null;
+        overlayImage = null;
+    }
+
+    /**
+     * Returns the bounds of the area that can be affected by
+     * painting the given shape, including the stroke and the effects
+     */
+    private Rectangle calcShapeBounds(Shape shape, ShapesAction action) {
+        int thickness = 0;
+        int extraStrokeThickness = 0;
+        if (action.hasStrokePaintSelection()) {
+            thickness = strokeParam.getStrokeWidth();
+
+            StrokeType strokeType = strokeParam.getStrokeType();
+            extraStrokeThickness = strokeType.getExtraWidth(thickness);
+            thickness += extraStrokeThickness;
+        }
+
+        int effectThickness = 0;
+        if (effectsPanel != null) {
+            effectThickness = effectsPanel.getMaxEffectThickness();
+
+            // the extra stroke thickness must be added
+            // because the effect can be on the stroke
+            effectThickness += extraStrokeThickness;
+        }
+
+        if (effectThickness > thickness) {
+            thickness = effectThickness;
+        }
+
+        Rectangle shapeBounds = shape.getBounds();
+        shapeBounds.grow(thickness, thickness);
+        return shapeBounds;
     }
 
     @Override
@@ -168,33 +341,9 @@ public class ShapesTool extends DragTool {
         if (!selectionMode) {
 //            saveImageForUndo(comp);
 
-            int thickness = 0;
-            int extraStrokeThickness = 0;
-            if (action.hasStrokePaintSelection()) {
-                thickness = strokeParam.getStrokeWidth();
-
-                StrokeType strokeType = strokeParam.getStrokeType();
-                extraStrokeThickness = strokeType.getExtraWidth(thickness);
-                thickness += extraStrokeThickness;
-            }
-
-            int effectThickness = 0;
-            if (effectsPanel != null) {
-                effectThickness = effectsPanel.getMaxEffectThickness();
-
-                // the extra stroke thickness must be added
-                // because the effect can be on the stroke
-                effectThickness += extraStrokeThickness;
-            }
-
-            if (effectThickness > thickness) {
-                thickness = effectThickness;
-            }
-
             ShapeType shapeType = getSelectedType();
             Shape currentShape = shapeType.getShape(userDrag.toImDrag());
-            Rectangle shapeBounds = currentShape.getBounds();
-            shapeBounds.grow(thickness, thickness);
+            Rectangle shapeBounds = calcShapeBounds(currentShape, action);
 
             if (!shapeBounds.isEmpty()) {
                 BufferedImage originalImage = dr.getImage();
@@ -203,6 +352,9 @@ public class ShapesTool extends DragTool {
             }
             paintShape(dr, currentShape);
 
+            // the layer is composited only now, with the final
+            // shape, this also updates the navigator
+            clearOverlay();
             comp.imageChanged();
             dr.updateIconImage();
         } else { // selection mode
@@ -221,6 +373,7 @@ public class ShapesTool extends DragTool {
         }
 
         drawing = false;
+        clearOverlay();
         stroke = null;
     }
 
@@ -293,6 +446,7 @@ public class ShapesTool extends DragTool {
 
         paintShape(g2, shape, comp);
         g2.dispose();
+        dr.contentChanged();
     }
 
     /**
@@ -305,9 +459,7 @@ public class ShapesTool extends DragTool {
         }
         ImDrag imDrag = userDrag.toImDrag();
 
-        if (strokeForOpenShapes == null) {
-            strokeForOpenShapes = new BasicStroke(1);
-        }
+        initStrokeForOpenShapes();
 
         ShapeType shapeType = getSelectedType();
 
@@ -363,31 +515,44 @@ public class ShapesTool extends DragTool {
         }
 
         if (action.createSelection()) {
-            Shape selectionShape;
-            if (action.hasStrokeSettings()) {
-                if (stroke == null) {
-                    stroke = strokeParam.createStroke();
-                }
-                selectionShape = stroke.createStrokedShape(shape);
-            } else if (!shapeType.isClosed()) {
-                if (strokeForOpenShapes == null) {
-                    throw new IllegalStateException("action = " + action
-                            + ", shapeType = " + shapeType);
-                }
-                selectionShape = strokeForOpenShapes.createStrokedShape(shape);
-            } else {
-                selectionShape = shape;
-            }
+            updateSelection(shape, comp);
+        }
+    }
+
+    private void initStrokeForOpenShapes() {
+        if (strokeForOpenShapes == null) {
+            strokeForOpenShapes = new BasicStroke(1);
+        }
+    }
 
-            Selection selection = comp.getSelection();
+    private void updateSelection(Shape shape, Composition comp) {
+        ShapesAction action = getSelectedAction();
+        ShapeType shapeType = getSelectedType();
 
-            if (selection != null) {
-                // this code is called for each drag event:
-                // update the selection shape
-                selection.setShape(selectionShape);
-            } else {
-                comp.createSelectionFromShape(selectionShape);
+        Shape selectionShape;
+        if (action.hasStrokeSettings()) {
+            if (stroke == null) {
+                stroke = strokeParam.createStroke();
+            }
+            selectionShape = stroke.createStrokedShape(shape);
+        } else if (!shapeType.isClosed()) {
+            if (strokeForOpenShapes == null) {
+                throw new IllegalStateException("action = " + action
+                        + ", shapeType = " + shapeType);
             }
+            selectionShape = strokeForOpenShapes.createStrokedShape(shape);
+        } else {
+            selectionShape = shape;
+        }
+
+        Selection selection = comp.getSelection();
+
+        if (selection != null) {
+            // this code is called for each drag event:
+            // update the selection shape
+            selection.setShape(selectionShape);
+        } else {
+            comp.createSelectionFromShape(selectionShape);
         }
     }
 
@@ -395,6 +560,14 @@ public class ShapesTool extends DragTool {
         return drawing;
     }
 
+    /**
+     * Returns true if the shape being dragged has to be painted
+     * into the active layer while calculating the composite image
+     */
+    public boolean isDrawingIntoLayer() {
+        return drawing && !drawingIntoOverlay;
+    }
+
     private void enableStrokeSettings(boolean b) {
         strokeSettingsButton.setEnabled(b);
 
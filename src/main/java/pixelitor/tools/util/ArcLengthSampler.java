@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools.util;
+
+import java.awt.Shape;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Places points along the subpaths of a shape
+ * at equal arc length distances from each other.
+ */
+public final class ArcLengthSampler {
+    // the maximal distance between the curves and their flattened version
+    private static final double FLATNESS = 0.25;
+
+    private final double spacing;
+    private final List<double[]> subpaths = new ArrayList<>();
+
+    // the points of the current subpath as x, y pairs
+    private double[] points = new double[64];
+    private int numCoords;
+
+    // the arc length remaining until the next point
+    private double untilNext;
+
+    private ArcLengthSampler(double spacing) {
+        this.spacing = spacing;
+    }
+
+    /**
+     * Returns the points of each subpath as x, y pairs. The first
+     * point is always the start and the last point is always the end
+     * of the subpath. If the spacing is not positive, the vertices
+     * of the flattened shape are returned without resampling.
+     */
+    public static List<double[]> sample(Shape shape, double spacing) {
+        ArcLengthSampler sampler = new ArcLengthSampler(spacing);
+        sampler.walk(new FlatteningPathIterator(
+                shape.getPathIterator(null), FLATNESS));
+        return sampler.subpaths;
+    }
+
+    private void walk(PathIterator it) {
+        double[] coords = new double[6];
+        double lastX = 0;
+        double lastY = 0;
+        double moveX = 0;
+        double moveY = 0;
+        boolean started = false;
+
+        while (!it.isDone()) {
+            int type = it.currentSegment(coords);
+            switch (type) {
+                case PathIterator.SEG_MOVETO:
+                    if (started) {
+                        finishSubpath(lastX, lastY);
+                    }
+                    started = true;
+                    moveX = coords[0];
+                    moveY = coords[1];
+                    lastX = moveX;
+                    lastY = moveY;
+                    addPoint(moveX, moveY);
+                    untilNext = spacing;
+                    break;
+                case PathIterator.SEG_LINETO:
+                    lineTo(lastX, lastY, coords[0], coords[1]);
+                    lastX = coords[0];
+                    lastY = coords[1];
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    lineTo(lastX, lastY, moveX, moveY);
+                    lastX = moveX;
+                    lastY = moveY;
+                    break;
+                default:
+                    throw new IllegalArgumentException("type = " + type);
+            }
+            it.next();
+        }
+        if (started) {
+            finishSubpath(lastX, lastY);
+        }
+    }
+
+    private void lineTo(double x0, double y0, double x1, double y1) {
+        if (spacing <= 0) {
+            addPoint(x1, y1);
+            return;
+        }
+
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double length = Math.sqrt(dx * dx + dy * dy);
+
+        double dist = untilNext;
+        while (dist <= length) {
+            double t = dist / length;
+            addPoint(x0 + t * dx, y0 + t * dy);
+            dist += spacing;
+        }
+        untilNext = dist - length;
+    }
+
+    private void finishSubpath(double endX, double endY) {
+        // make sure that the stroke reaches the end of the subpath
+        double dx = endX - points[numCoords - 2];
+        double dy = endY - points[numCoords - 1];
+        if (dx * dx + dy * dy > 1.0e-6) {
+            addPoint(endX, endY);
+        }
+        subpaths.add(Arrays.copyOf(points, numCoords));
+        numCoords = 0;
+    }
+
+    private void addPoint(double x, double y) {
+        if (numCoords + 2 > points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[numCoords++] = x;
+        points[numCoords++] = y;
+    }
+}
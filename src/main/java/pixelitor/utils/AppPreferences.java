@@ -24,6 +24,10 @@ import pixelitor.gui.ImageArea;
 import pixelitor.gui.PixelitorWindow;
 import pixelitor.history.History;
 import pixelitor.io.Dirs;
+import pixelitor.io.IOThread;
+import pixelitor.io.PNGEncoder;
+import pixelitor.io.PNGEncoder.RowFilter;
+import pixelitor.io.SaveSettings;
 import pixelitor.layers.LayerButtonLayout;
 import pixelitor.menus.file.RecentFile;
 import pixelitor.menus.file.RecentFilesMenu;
@@ -80,6 +84,11 @@ public final class AppPreferences {
 
     private static final String THUMB_SIZE_KEY = "thumb_size";
 
+    private static final String NUM_READER_THREADS_KEY = "num_reader_threads";
+
+    private static final String PNG_COMPRESSION_LEVEL_KEY = "png_compression_level";
+    private static final String PNG_ROW_FILTER_KEY = "png_row_filter";
+
     private AppPreferences() {
     }
 
@@ -249,6 +258,36 @@ public final class AppPreferences {
         mainNode.putInt(THUMB_SIZE_KEY, LayerButtonLayout.getThumbSize());
     }
 
+    public static int loadNumReaderThreads(int defaultValue) {
+        return mainNode.getInt(NUM_READER_THREADS_KEY, defaultValue);
+    }
+
+    private static void saveNumReaderThreads() {
+        mainNode.putInt(NUM_READER_THREADS_KEY, IOThread.getNumReaderThreads());
+    }
+
+    public static int loadPNGCompressionLevel() {
+        int level = mainNode.getInt(PNG_COMPRESSION_LEVEL_KEY, PNGEncoder.DEFAULT_COMPRESSION_LEVEL);
+        if (level < 0 || level > 9) {
+            return PNGEncoder.DEFAULT_COMPRESSION_LEVEL;
+        }
+        return level;
+    }
+
+    public static RowFilter loadPNGRowFilter() {
+        String name = mainNode.get(PNG_ROW_FILTER_KEY, RowFilter.ADAPTIVE.name());
+        try {
+            return RowFilter.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return RowFilter.ADAPTIVE;
+        }
+    }
+
+    private static void savePNGSettings() {
+        mainNode.putInt(PNG_COMPRESSION_LEVEL_KEY, SaveSettings.getDefaultPNGCompressionLevel());
+        mainNode.put(PNG_ROW_FILTER_KEY, SaveSettings.getDefaultPNGRowFilter().name());
+    }
+
     public static void savePrefsAndExit() {
         savePreferencesBeforeExit();
         System.exit(0);
@@ -264,6 +303,8 @@ public final class AppPreferences {
         WorkSpace.saveVisibility();
         saveUndoLevels();
         saveThumbSize();
+        saveNumReaderThreads();
+        savePNGSettings();
         TipsOfTheDay.saveNextTipNr();
         saveNewImageSize();
     }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import pixelitor.ThreadPool;
+
+/**
+ * Exact Euclidean distance transform in linear time, using the
+ * algorithm of Felzenszwalb and Huttenlocher ("Distance Transforms
+ * of Sampled Functions"). The columns and then the rows are
+ * transformed independently, so both passes run in parallel.
+ */
+public class DistanceTransform {
+    private static final double INF = 1.0e20;
+    private static final float FLOAT_INF = (float) INF;
+    private static final int MIN_PIXELS_FOR_THREADS = 64 * 1024;
+
+    private DistanceTransform() {
+    }
+
+    /**
+     * Returns for every pixel the squared distance to the nearest
+     * feature pixel. A pixel is a feature pixel if its value in the
+     * given 0-255 coverage array is at least 128 (when toInside is true)
+     * or less than 128 (when toInside is false).
+     * The distance is Float.MAX_VALUE if there are no feature pixels.
+     */
+    public static float[] squaredDistances(byte[] coverage, int width, int height, boolean toInside) {
+        assert coverage.length == width * height;
+
+        // pass 1: the distances along the columns
+        float[] colDist = new float[width * height];
+        ThreadPool.parallelFor(width, MIN_PIXELS_FOR_THREADS / Math.max(1, height), (start, end) -> {
+            for (int x = start; x < end; x++) {
+                transformColumn(coverage, colDist, x, width, height, toInside);
+            }
+        });
+
+        // pass 2: the rows, using the column distances as sampled function
+        float[] result = new float[width * height];
+        ThreadPool.parallelFor(height, MIN_PIXELS_FOR_THREADS / Math.max(1, width), (start, end) -> {
+            double[] f = new double[width];
+            double[] d = new double[width];
+            int[] v = new int[width];
+            double[] z = new double[width + 1];
+            for (int y = start; y < end; y++) {
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    f[x] = colDist[offset + x];
+                }
+                transform1D(f, d, v, z, width);
+                for (int x = 0; x < width; x++) {
+                    double dist = d[x];
+                    result[offset + x] = dist >= INF ? Float.MAX_VALUE : (float) dist;
+                }
+            }
+        });
+        return result;
+    }
+
+    private static boolean isFeature(byte b, boolean toInside) {
+        return ((b & 0xFF) >= 128) == toInside;
+    }
+
+    /**
+     * The 1D transform of a binary function is the squared
+     * distance to the nearest feature pixel, calculated in two scans.
+     */
+    private static void transformColumn(byte[] coverage, float[] out,
+                                        int x, int width, int height, boolean toInside) {
+        float dist = FLOAT_INF;
+        for (int y = 0, i = x; y < height; y++, i += width) {
+            if (isFeature(coverage[i], toInside)) {
+                dist = 0;
+            } else if (dist < FLOAT_INF) {
+                dist++;
+            }
+            out[i] = dist;
+        }
+        dist = FLOAT_INF;
+        for (int y = height - 1, i = x + y * width; y >= 0; y--, i -= width) {
+            if (out[i] == 0) {
+                dist = 0;
+            } else if (dist < FLOAT_INF) {
+                dist++;
+            }
+            if (dist < out[i]) {
+                out[i] = dist;
+            }
+        }
+        for (int y = 0, i = x; y < height; y++, i += width) {
+            float dy = out[i];
+            out[i] = dy >= FLOAT_INF ? FLOAT_INF : dy * dy;
+        }
+    }
+
+    /**
+     * The lower envelope of parabolas rooted at (q, f[q]).
+     */
+    private static void transform1D(double[] f, double[] d, int[] v, double[] z, int n) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = -INF;
+        z[1] = INF;
+        for (int q = 1; q < n; q++) {
+            double s = intersection(f, q, v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = intersection(f, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = INF;
+        }
+
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            int dq = q - v[k];
+            d[q] = dq * dq + f[v[k]];
+        }
+    }
+
+    private static double intersection(double[] f, int q, int p) {
+        return ((f[q] + q * q) - (f[p] + p * p)) / (2.0 * q - 2.0 * p);
+    }
+}
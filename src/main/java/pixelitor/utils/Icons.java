@@ -17,12 +17,21 @@
 package pixelitor.utils;
 
 import javax.swing.*;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Toolkit;
 import java.net.URL;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Icon-related static utility methods
  */
 public final class Icons {
+    // the icons that were created, but not loaded yet
+    private static final Queue<LazyIcon> notLoaded = new ConcurrentLinkedQueue<>();
+
     private static final Icon westArrowIcon = load("west_arrow.gif");
     private static final Icon diceIcon = load("dice.png");
     private static final Icon dice2Icon = load("dice2.png");
@@ -53,7 +62,19 @@ public final class Icons {
         assert iconFileName != null;
 
         URL imgURL = ImageUtils.resourcePathToURL(iconFileName);
-        return new ImageIcon(imgURL);
+        return new LazyIcon(imgURL);
+    }
+
+    /**
+     * Loads the images of all icons created so far, so that
+     * they are ready when they are painted for the first time.
+     * Can be called on any thread.
+     */
+    public static void preloadAll() {
+        LazyIcon icon;
+        while ((icon = notLoaded.poll()) != null) {
+            icon.ensureLoaded();
+        }
     }
 
     public static Icon getNorthArrowIcon() {
@@ -79,4 +100,62 @@ public final class Icons {
     public static Icon getRedoIcon() {
         return redoIcon;
     }
-}
\ No newline at end of file
+
+    /**
+     * An {@link ImageIcon} that loads its image only when it is first
+     * needed, because at startup most icons are not shown immediately.
+     * Subclassing {@link ImageIcon} is necessary, because the look and feels
+     * can create disabled icons only from ImageIcons.
+     */
+    private static class LazyIcon extends ImageIcon {
+        private volatile URL url;
+
+        LazyIcon(URL url) {
+            this.url = url;
+            notLoaded.add(this);
+        }
+
+        private void ensureLoaded() {
+            if (url == null) {
+                return;
+            }
+            synchronized (this) {
+                if (url != null) {
+                    setImage(Toolkit.getDefaultToolkit().getImage(url));
+                    setDescription(url.toExternalForm());
+                    url = null;
+                }
+            }
+        }
+
+        @Override
+        public Image getImage() {
+            ensureLoaded();
+            return super.getImage();
+        }
+
+        @Override
+        public int getImageLoadStatus() {
+            ensureLoaded();
+            return super.getImageLoadStatus();
+        }
+
+        @Override
+        public synchronized void paintIcon(Component c, Graphics g, int x, int y) {
+            ensureLoaded();
+            super.paintIcon(c, g, x, y);
+        }
+
+        @Override
+        public int getIconWidth() {
+            ensureLoaded();
+            return super.getIconWidth();
+        }
+
+        @Override
+        public int getIconHeight() {
+            ensureLoaded();
+            return super.getIconHeight();
+        }
+    }
+}
@@ -88,15 +88,26 @@ public class ImageUtils {
     public static final double DEG_315_IN_RADIANS = 0.7853981634;
     private static final Color CHECKERBOARD_GRAY = new Color(200, 200, 200);
 
-    private static final GraphicsConfiguration graphicsConfiguration = GraphicsEnvironment
-            .getLocalGraphicsEnvironment()
-            .getDefaultScreenDevice()
-            .getDefaultConfiguration();
-    private static final ColorModel defaultColorModel = graphicsConfiguration.getColorModel();
+    // null in headless mode (batch processing without a screen),
+    // in this case plain TYPE_INT_ARGB images are used
+    private static final GraphicsConfiguration graphicsConfiguration = initGraphicsConfiguration();
+    private static final ColorModel defaultColorModel = graphicsConfiguration != null
+            ? graphicsConfiguration.getColorModel()
+            : ColorModel.getRGBdefault();
 
     private ImageUtils() {
     }
 
+    private static GraphicsConfiguration initGraphicsConfiguration() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return GraphicsEnvironment
+                .getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice()
+                .getDefaultConfiguration();
+    }
+
     public static CheckerboardPainter createCheckerboardPainter() {
         return new CheckerboardPainter(CHECKERBOARD_GRAY, Color.WHITE);
     }
@@ -110,8 +121,7 @@ public class ImageUtils {
             return input;
         }
 
-        BufferedImage output = graphicsConfiguration
-                .createCompatibleImage(input.getWidth(), input.getHeight(), TRANSLUCENT);
+        BufferedImage output = createSysCompatibleImage(input.getWidth(), input.getHeight());
         Graphics2D g = output.createGraphics();
         g.drawImage(input, 0, 0, null);
         g.dispose();
@@ -122,6 +132,9 @@ public class ImageUtils {
     public static BufferedImage createSysCompatibleImage(int width, int height) {
         assert (width > 0) && (height > 0);
 
+        if (graphicsConfiguration == null) {
+            return new BufferedImage(width, height, TYPE_INT_ARGB);
+        }
         return graphicsConfiguration.createCompatibleImage(width, height, TRANSLUCENT);
     }
 
@@ -623,6 +636,45 @@ public class ImageUtils {
         return thumb;
     }
 
+    /**
+     * Updates only the part of a thumbnail created by createThumbnail
+     * which corresponds to the given changed area of the source.
+     * The result is the same as recreating the whole thumbnail.
+     */
+    public static void updateThumbnail(BufferedImage thumb, BufferedImage src,
+                                       Rectangle srcArea, CheckerboardPainter painter) {
+        int thumbWidth = thumb.getWidth();
+        int thumbHeight = thumb.getHeight();
+        double scaleX = thumbWidth / (double) src.getWidth();
+        double scaleY = thumbHeight / (double) src.getHeight();
+
+        // one extra pixel on each side because of the rounding
+        int x1 = (int) Math.floor(srcArea.x * scaleX) - 1;
+        int y1 = (int) Math.floor(srcArea.y * scaleY) - 1;
+        int x2 = (int) Math.ceil((srcArea.x + srcArea.width) * scaleX) + 1;
+        int y2 = (int) Math.ceil((srcArea.y + srcArea.height) * scaleY) + 1;
+        Rectangle thumbArea = new Rectangle(x1, y1, x2 - x1, y2 - y1)
+                .intersection(new Rectangle(0, 0, thumbWidth, thumbHeight));
+        if (thumbArea.isEmpty()) {
+            return;
+        }
+
+        Graphics2D g = thumb.createGraphics();
+        g.clip(thumbArea);
+        if (painter != null) {
+            painter.paint(g, null, thumbWidth, thumbHeight);
+        } else {
+            g.setComposite(AlphaComposite.Clear);
+            g.fill(thumbArea);
+            g.setComposite(AlphaComposite.SrcOver);
+        }
+
+        g.setRenderingHint(KEY_INTERPOLATION,
+                VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.drawImage(src, 0, 0, thumbWidth, thumbHeight, null);
+        g.dispose();
+    }
+
     public static void paintRedXOn(BufferedImage thumb) {
         int thumbWidth = thumb.getWidth();
         int thumbHeight = thumb.getHeight();
@@ -637,12 +689,25 @@ public class ImageUtils {
         g.dispose();
     }
 
+    /**
+     * Returns the number of bytes used by the pixels of the given raster,
+     * which for a subimage is less than the size of the shared data buffer.
+     */
+    public static long getSizeInBytes(Raster raster) {
+        int bitsPerElement = DataBuffer.getDataTypeSize(raster.getTransferType());
+        return (long) raster.getWidth() * raster.getHeight()
+                * raster.getNumDataElements() * bitsPerElement / 8;
+    }
+
     public static BufferedImage copyImage(BufferedImage src) {
         assert src != null;
 
         WritableRaster raster = null;
         try {
-            raster = src.copyData(null);
+            // copyData(null) would create a raster with the
+            // location and size of the parent for subimages
+            raster = src.getRaster().createCompatibleWritableRaster();
+            src.copyData(raster);
         } catch (OutOfMemoryError e) {
             Dialogs.showOutOfMemoryDialog(e);
         }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import static pixelitor.utils.MemoryInfo.ONE_MEGABYTE;
+
+/**
+ * Decides whether an operation fits into the available heap,
+ * and if not, into how many horizontal stripes it should be split.
+ */
+public class MemoryGovernor {
+    // kept free for the previews, the history and the GUI
+    private static final double RESERVED_RATIO = 0.15;
+    private static final long MIN_RESERVED_BYTES = 64L * ONE_MEGABYTE;
+
+    // the stripes should not be thinner than this
+    private static final int MIN_STRIPE_HEIGHT = 32;
+
+    private MemoryGovernor() {
+    }
+
+    /**
+     * Returns the number of bytes that can be used by an operation
+     * without touching the reserve.
+     */
+    public static long getUsableBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        long maxMemory = runtime.maxMemory();
+        long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+        long reserve = Math.max(MIN_RESERVED_BYTES, (long) (maxMemory * RESERVED_RATIO));
+        return maxMemory - usedMemory - reserve;
+    }
+
+    /**
+     * Returns the number of horizontal stripes for processing an image
+     * of the given height, or 1 if it can be processed in one go.
+     *
+     * @param fixedBytes   the memory needed independently of the splitting,
+     *                     for example for the full-sized result
+     * @param workingBytes the extra memory needed when processing the whole image at once
+     * @param copyBytesPerRow the extra memory needed for each row of a stripe
+     *                     (including the halo rows) only when it is split, for
+     *                     example for the copies of the stripe source and result
+     * @param halo         the number of extra rows needed above and below each stripe
+     */
+    public static int calcNumStripes(int height, long fixedBytes, long workingBytes,
+                                     long copyBytesPerRow, int halo) {
+        long usable = getUsableBytes();
+        if (fixedBytes + workingBytes <= usable) {
+            return 1;
+        }
+        long usableForStripes = usable - fixedBytes;
+        if (usableForStripes <= 0) {
+            // even the result doesn't fit, splitting can't help
+            return 1;
+        }
+
+        long bytesPerRow = Math.max(1, workingBytes / height + copyBytesPerRow);
+        long rowsPerStripe = usableForStripes / bytesPerRow - 2L * halo;
+        rowsPerStripe = Math.max(rowsPerStripe, Math.max(MIN_STRIPE_HEIGHT, halo));
+        return (int) Math.min(height, (height + rowsPerStripe - 1) / rowsPerStripe);
+    }
+}
@@ -96,6 +96,14 @@ public class Messages {
         return msgHandler;
     }
 
+    /**
+     * Replaces the message handler, for example with a
+     * {@link ConsoleMessageHandler} when running without a GUI
+     */
+    public static void setMessageHandler(MessageHandler msgHandler) {
+        Messages.msgHandler = msgHandler;
+    }
+
     public static void showPerformanceMessage(String filterName, long totalTime) {
         String msg;
         if (totalTime < 1000) {
@@ -0,0 +1,520 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import pixelitor.ThreadPool;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * High-quality image resizing with separable filters.
+ * The image is resized first along the axis where this results
+ * in the smaller intermediate image, and then along the other,
+ * using weight tables that are calculated only once for each
+ * output column and row. Both passes run on all CPU cores.
+ */
+public class Resampler {
+    // smaller images are not worth splitting between the threads
+    private static final int MIN_ROWS_FOR_THREADS = 64;
+
+    /**
+     * The resampling filters
+     */
+    public enum Filter {
+        /**
+         * Averages the covered pixels. Fast, and good for downsizing.
+         */
+        BOX(0.5) {
+            @Override
+            double weight(double x) {
+                return (x > -0.5 && x <= 0.5) ? 1.0 : 0.0;
+            }
+        },
+        /**
+         * Mitchell-Netravali cubic (B = C = 1/3). Smooth,
+         * without visible ringing, good for enlarging.
+         */
+        MITCHELL(2.0) {
+            @Override
+            double weight(double x) {
+                double b = 1.0 / 3.0;
+                double c = 1.0 / 3.0;
+                x = Math.abs(x);
+                double x2 = x * x;
+                if (x < 1.0) {
+                    return ((12 - 9 * b - 6 * c) * x * x2
+                            + (-18 + 12 * b + 6 * c) * x2
+                            + (6 - 2 * b)) / 6.0;
+                }
+                if (x < 2.0) {
+                    return ((-b - 6 * c) * x * x2
+                            + (6 * b + 30 * c) * x2
+                            + (-12 * b - 48 * c) * x
+                            + (8 * b + 24 * c)) / 6.0;
+                }
+                return 0.0;
+            }
+        },
+        /**
+         * Windowed sinc with three lobes. Sharp, good for downsizing.
+         */
+        LANCZOS3(3.0) {
+            @Override
+            double weight(double x) {
+                if (x == 0.0) {
+                    return 1.0;
+                }
+                if (x <= -3.0 || x >= 3.0) {
+                    return 0.0;
+                }
+                double px = Math.PI * x;
+                return 3.0 * Math.sin(px) * Math.sin(px / 3.0) / (px * px);
+            }
+        };
+
+        private final double support;
+
+        Filter(double support) {
+            this.support = support;
+        }
+
+        abstract double weight(double x);
+
+        /**
+         * Returns the filter that gives the best quality
+         * when resizing from the given size to the target size.
+         */
+        public static Filter forResizing(int srcWidth, int srcHeight,
+                                         int targetWidth, int targetHeight) {
+            if (targetWidth < srcWidth || targetHeight < srcHeight) {
+                return LANCZOS3;
+            }
+            return MITCHELL;
+        }
+    }
+
+    private Resampler() {
+    }
+
+    /**
+     * Resizes the given image with the filter that is best for the given sizes.
+     */
+    public static BufferedImage resize(BufferedImage src, int targetWidth, int targetHeight) {
+        Filter filter = Filter.forResizing(src.getWidth(), src.getHeight(),
+                targetWidth, targetHeight);
+        return resize(src, targetWidth, targetHeight, filter);
+    }
+
+    /**
+     * Returns a resized copy of the given image. The returned image has the
+     * same type as the source, except for unusual image types, which are
+     * converted to TYPE_INT_ARGB.
+     */
+    public static BufferedImage resize(BufferedImage src, int targetWidth, int targetHeight,
+                                       Filter filter) {
+        assert targetWidth > 0 && targetHeight > 0;
+
+        if (src.getRaster().getParent() != null) {
+            // the pixel array of a subimage belongs to the whole parent image
+            src = ImageUtils.copyImage(src);
+        }
+
+        int srcWidth = src.getWidth();
+        int srcHeight = src.getHeight();
+        Weights horWeights = new Weights(srcWidth, targetWidth, filter);
+        Weights verWeights = new Weights(srcHeight, targetHeight, filter);
+
+        if (src.getType() == TYPE_BYTE_GRAY) {
+            return resizeGray(src, targetWidth, targetHeight, horWeights, verWeights);
+        }
+
+        if (!ImageUtils.hasPackedIntArray(src)) {
+            src = ImageUtils.convertToARGB(src, false);
+        }
+        return resizePacked(src, targetWidth, targetHeight, horWeights, verWeights);
+    }
+
+    /**
+     * Returns the approximate number of bytes needed for resizing
+     * an image of the given size, including the result.
+     */
+    public static long estimateMemory(int srcWidth, int srcHeight,
+                                      int targetWidth, int targetHeight) {
+        long tmpPixels = Math.min((long) targetWidth * srcHeight,
+                (long) srcWidth * targetHeight);
+        return 8 * tmpPixels + 4L * targetWidth * targetHeight;
+    }
+
+    private static BufferedImage resizePacked(BufferedImage src,
+                                              int targetWidth, int targetHeight,
+                                              Weights horWeights, Weights verWeights) {
+        int type = src.getType();
+        boolean hasAlpha = type != TYPE_INT_RGB;
+        boolean premultiplied = type == TYPE_INT_ARGB_PRE;
+
+        BufferedImage dest = ImageUtils.createImageWithSameCM(src, targetWidth, targetHeight);
+        PixelRows srcRows = new IntRows(ImageUtils.getPixelsAsArray(src),
+                src.getWidth(), src.getHeight(), hasAlpha, premultiplied);
+        PixelRows destRows = new IntRows(ImageUtils.getPixelsAsArray(dest),
+                targetWidth, targetHeight, hasAlpha, premultiplied);
+        resizeRows(srcRows, destRows, horWeights, verWeights);
+        return dest;
+    }
+
+    private static BufferedImage resizeGray(BufferedImage src,
+                                            int targetWidth, int targetHeight,
+                                            Weights horWeights, Weights verWeights) {
+        BufferedImage dest = new BufferedImage(targetWidth, targetHeight, TYPE_BYTE_GRAY);
+        PixelRows srcRows = new GrayRows(getGrayPixels(src), src.getWidth(), src.getHeight());
+        PixelRows destRows = new GrayRows(getGrayPixels(dest), targetWidth, targetHeight);
+        resizeRows(srcRows, destRows, horWeights, verWeights);
+        return dest;
+    }
+
+    private static byte[] getGrayPixels(BufferedImage img) {
+        return ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+    }
+
+    private static void resizeRows(PixelRows src, PixelRows dest,
+                                   Weights horWeights, Weights verWeights) {
+        // the intermediate image is as big as the source
+        // along one axis, and as big as the result along the other
+        boolean horizontalFirst = (long) dest.width * src.height
+                <= (long) src.width * dest.height;
+        int tmpWidth = horizontalFirst ? dest.width : src.width;
+        int tmpHeight = horizontalFirst ? src.height : dest.height;
+
+        PixelRows tmp;
+        if (src.channels == 1) {
+            tmp = new GrayRows(new byte[tmpWidth * tmpHeight], tmpWidth, tmpHeight);
+        } else {
+            // premultiplied alpha and 16 bits per channel, so that the
+            // rounding errors of the premultiplication don't change the colors
+            tmp = new LongRows(new long[tmpWidth * tmpHeight], tmpWidth, tmpHeight);
+        }
+
+        if (horizontalFirst) {
+            resizeHorizontally(src, tmp, horWeights);
+            resizeVertically(tmp, dest, verWeights);
+        } else {
+            resizeVertically(src, tmp, verWeights);
+            resizeHorizontally(tmp, dest, horWeights);
+        }
+    }
+
+    private static void resizeHorizontally(PixelRows src, PixelRows dest, Weights weights) {
+        int channels = src.channels;
+        ThreadPool.parallelFor(dest.height, MIN_ROWS_FOR_THREADS, (start, end) -> {
+            float[] in = new float[channels * src.width];
+            float[] out = new float[channels * dest.width];
+            for (int y = start; y < end; y++) {
+                src.read(y, in);
+                for (int x = 0; x < dest.width; x++) {
+                    int first = weights.first[x];
+                    int count = weights.count[x];
+                    int weightIndex = x * weights.maxCount;
+                    for (int c = 0; c < channels; c++) {
+                        float sum = 0;
+                        for (int k = 0; k < count; k++) {
+                            sum += weights.weights[weightIndex + k]
+                                    * in[channels * (first + k) + c];
+                        }
+                        out[channels * x + c] = sum;
+                    }
+                }
+                dest.write(y, out);
+            }
+        });
+    }
+
+    private static void resizeVertically(PixelRows src, PixelRows dest, Weights weights) {
+        int rowLength = src.channels * src.width;
+        ThreadPool.parallelFor(dest.height, MIN_ROWS_FOR_THREADS, (start, end) -> {
+            float[] in = new float[rowLength];
+            float[] sums = new float[rowLength];
+            for (int y = start; y < end; y++) {
+                Arrays.fill(sums, 0.0f);
+                int first = weights.first[y];
+                int count = weights.count[y];
+                int weightIndex = y * weights.maxCount;
+                // row by row, so that the source is read sequentially
+                for (int k = 0; k < count; k++) {
+                    float w = weights.weights[weightIndex + k];
+                    src.read(first + k, in);
+                    for (int i = 0; i < rowLength; i++) {
+                        sums[i] += w * in[i];
+                    }
+                }
+                dest.write(y, sums);
+            }
+        });
+    }
+
+    private static int clamp(float v) {
+        int i = (int) (v + 0.5f);
+        if (i < 0) {
+            return 0;
+        }
+        if (i > 255) {
+            return 255;
+        }
+        return i;
+    }
+
+    private static int clamp16(float v) {
+        int i = (int) (v + 0.5f);
+        if (i < 0) {
+            return 0;
+        }
+        if (i > 0xFFFF) {
+            return 0xFFFF;
+        }
+        return i;
+    }
+
+    /**
+     * Packs the given premultiplied 16-bit channels,
+     * making sure that no color channel is bigger than the alpha.
+     */
+    private static long pack16(float a, float r, float g, float b) {
+        long la = clamp16(a);
+        long lr = Math.min(clamp16(r), la);
+        long lg = Math.min(clamp16(g), la);
+        long lb = Math.min(clamp16(b), la);
+        return (la << 48) | (lr << 32) | (lg << 16) | lb;
+    }
+
+    /**
+     * Converts the given premultiplied 16-bit channels
+     * into a packed 8-bit ARGB value.
+     */
+    private static int to8Bits(float a, float r, float g, float b, boolean premultiplied) {
+        int ia = clamp(a / 257);
+        if (ia == 0) {
+            return 0;
+        }
+        float m;
+        if (premultiplied) {
+            m = 1.0f / 257;
+        } else {
+            m = 255.0f / a;
+        }
+        int ir = clamp(Math.min(r, a) * m);
+        int ig = clamp(Math.min(g, a) * m);
+        int ib = clamp(Math.min(b, a) * m);
+        if (premultiplied) {
+            ir = Math.min(ir, ia);
+            ig = Math.min(ig, ia);
+            ib = Math.min(ib, ia);
+        }
+        return (ia << 24) | (ir << 16) | (ig << 8) | ib;
+    }
+
+    /**
+     * The pixels of an image, read and written one row at a time
+     * as floats with premultiplied alpha and 16 bits per channel
+     * (or as 8-bit gray values, if there is only one channel)
+     */
+    private abstract static class PixelRows {
+        final int width;
+        final int height;
+        final int channels;
+
+        PixelRows(int width, int height, int channels) {
+            this.width = width;
+            this.height = height;
+            this.channels = channels;
+        }
+
+        abstract void read(int y, float[] row);
+
+        abstract void write(int y, float[] row);
+    }
+
+    private static class IntRows extends PixelRows {
+        private final int[] pixels;
+        private final boolean hasAlpha;
+        private final boolean premultiplied;
+
+        IntRows(int[] pixels, int width, int height, boolean hasAlpha, boolean premultiplied) {
+            super(width, height, 4);
+            this.pixels = pixels;
+            this.hasAlpha = hasAlpha;
+            this.premultiplied = premultiplied;
+        }
+
+        @Override
+        void read(int y, float[] row) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int rgb = pixels[offset + x];
+                int a = hasAlpha ? (rgb >>> 24) : 255;
+                float r = (rgb >>> 16) & 0xFF;
+                float g = (rgb >>> 8) & 0xFF;
+                float b = rgb & 0xFF;
+                float m = 257;
+                if (!premultiplied && a != 255) {
+                    m *= a / 255.0f;
+                }
+                int i = 4 * x;
+                row[i] = a * 257;
+                row[i + 1] = r * m;
+                row[i + 2] = g * m;
+                row[i + 3] = b * m;
+            }
+        }
+
+        @Override
+        void write(int y, float[] row) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int i = 4 * x;
+                int argb = to8Bits(row[i], row[i + 1], row[i + 2], row[i + 3], premultiplied);
+                if (!hasAlpha) {
+                    argb |= 0xFF_00_00_00;
+                }
+                pixels[offset + x] = argb;
+            }
+        }
+    }
+
+    private static class LongRows extends PixelRows {
+        private final long[] pixels;
+
+        LongRows(long[] pixels, int width, int height) {
+            super(width, height, 4);
+            this.pixels = pixels;
+        }
+
+        @Override
+        void read(int y, float[] row) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                long argb = pixels[offset + x];
+                int i = 4 * x;
+                row[i] = (int) (argb >>> 48);
+                row[i + 1] = (int) ((argb >>> 32) & 0xFFFF);
+                row[i + 2] = (int) ((argb >>> 16) & 0xFFFF);
+                row[i + 3] = (int) (argb & 0xFFFF);
+            }
+        }
+
+        @Override
+        void write(int y, float[] row) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int i = 4 * x;
+                pixels[offset + x] = pack16(row[i], row[i + 1], row[i + 2], row[i + 3]);
+            }
+        }
+    }
+
+    private static class GrayRows extends PixelRows {
+        private final byte[] pixels;
+
+        GrayRows(byte[] pixels, int width, int height) {
+            super(width, height, 1);
+            this.pixels = pixels;
+        }
+
+        @Override
+        void read(int y, float[] row) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                row[x] = pixels[offset + x] & 0xFF;
+            }
+        }
+
+        @Override
+        void write(int y, float[] row) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                pixels[offset + x] = (byte) clamp(row[x]);
+            }
+        }
+    }
+
+    /**
+     * The precomputed contributions of the source pixels
+     * to each output pixel along one axis
+     */
+    private static class Weights {
+        private final int[] first;
+        private final int[] count;
+        private final float[] weights;
+        private final int maxCount;
+
+        Weights(int srcSize, int destSize, Filter filter) {
+            first = new int[destSize];
+            count = new int[destSize];
+
+            if (srcSize == destSize) {
+                // each output pixel is the corresponding source pixel
+                maxCount = 1;
+                weights = new float[destSize];
+                for (int i = 0; i < destSize; i++) {
+                    first[i] = i;
+                    count[i] = 1;
+                    weights[i] = 1.0f;
+                }
+                return;
+            }
+
+            double scale = srcSize / (double) destSize;
+            // when downsizing, the filter is stretched to cover all the source pixels
+            double filterScale = Math.max(scale, 1.0);
+            double support = filter.support * filterScale;
+            maxCount = (int) Math.ceil(support) * 2 + 1;
+            weights = new float[destSize * maxCount];
+
+            double[] w = new double[maxCount];
+            for (int i = 0; i < destSize; i++) {
+                double center = (i + 0.5) * scale;
+                int min = Math.max(0, (int) (center - support + 0.5));
+                int max = Math.min(srcSize, (int) (center + support + 0.5));
+                int n = Math.min(max - min, maxCount);
+
+                double sum = 0;
+                for (int k = 0; k < n; k++) {
+                    w[k] = filter.weight((min + k - center + 0.5) / filterScale);
+                    sum += w[k];
+                }
+                if (sum == 0) {
+                    // can happen with the box filter: use the nearest pixel
+                    min = Math.min(srcSize - 1, (int) center);
+                    n = 1;
+                    w[0] = 1.0;
+                    sum = 1.0;
+                }
+
+                first[i] = min;
+                count[i] = n;
+                int offset = i * maxCount;
+                for (int k = 0; k < n; k++) {
+                    weights[offset + k] = (float) (w[k] / sum);
+                }
+            }
+        }
+    }
+}
@@ -24,12 +24,11 @@ import java.util.Random;
 
 /**
  * Support for "reseed" buttons in filters. The idea is
- * that the filter uses the random number generator defined
+ * that the filter uses the random number generator created
  * here, and the actions reseed it.
  */
 public class ReseedSupport {
-    private static long seed = System.nanoTime();
-    private static final Random rand = new Random();
+    private static volatile long seed = System.nanoTime();
 
     private ReseedSupport() {
     }
@@ -39,12 +38,21 @@ public class ReseedSupport {
      * make sure that the filter runs with the same random numbers
      * as before when the re-run is NOT caused by pressing
      * the "reseed" button.
-     * Returns the random number generator which is reseeded.
+     * Returns a new random number generator with the current seed,
+     * so that filters running at the same time don't share it.
      * This must be called at the beginning of the filter.
      */
     public static Random reInitialize() {
-        rand.setSeed(seed);
-        return rand;
+        return new Random(seed);
+    }
+
+    /**
+     * Returns the current seed. Filters that process the image in
+     * parallel can create a {@link RandomStream} for each row (or tile)
+     * from this seed, which gives the same result for every re-run.
+     */
+    public static long getSeed() {
+        return seed;
     }
 
     /**
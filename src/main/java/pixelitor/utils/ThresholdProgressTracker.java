@@ -33,12 +33,10 @@ public abstract class ThresholdProgressTracker implements ProgressTracker {
     private int lastPercent = 0;
 
     private boolean showingProgress = false;
-    private final boolean runningOnEDT;
 
     protected ThresholdProgressTracker(int numComputationUnits) {
         this.numComputationUnits = numComputationUnits;
         startTime = System.currentTimeMillis();
-        runningOnEDT = EventQueue.isDispatchThread();
     }
 
     @Override
@@ -54,6 +52,9 @@ public abstract class ThresholdProgressTracker implements ProgressTracker {
     }
 
     private void update() {
+        // checked for each call, because a tracker created
+        // on the EDT can be used by a background thread
+        boolean runningOnEDT = EventQueue.isDispatchThread();
         if (!showingProgress) {
             double millis = System.currentTimeMillis() - startTime;
             if (millis > THRESHOLD_MILLIS) {
@@ -82,7 +83,7 @@ public abstract class ThresholdProgressTracker implements ProgressTracker {
     @Override
     public void finish() {
         if (showingProgress) {
-            if (runningOnEDT) {
+            if (EventQueue.isDispatchThread()) {
                 finishProgressTracking();
             } else {
                 EventQueue.invokeLater(this::finishProgressTracking);
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.debug;
+
+/**
+ * Receives the measurements of {@link Metrics} as events,
+ * implemented by the optional Flight Recorder integration.
+ */
+interface EventSink {
+    void filterRun(String filterName, int width, int height,
+                   int threads, long nanos, long allocatedBytes);
+
+    void compositeRebuilt(int numLayers, int width, int height, long nanos);
+
+    void repainted(long nanos);
+
+    void editAdded(String editName, long memoryBytes);
+
+    void fileIO(String operation, String fileName, long bytes, long nanos);
+}
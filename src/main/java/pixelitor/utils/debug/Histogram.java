@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.debug;
+
+import static java.lang.String.format;
+
+/**
+ * A histogram of non-negative values with power-of-two buckets,
+ * which is cheap enough to be updated on hot paths.
+ */
+public class Histogram {
+    private static final int NUM_BUCKETS = 64;
+
+    private final String unit;
+    private final long[] buckets = new long[NUM_BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public Histogram(String unit) {
+        this.unit = unit;
+    }
+
+    public synchronized void record(long value) {
+        value = Math.max(0, value);
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        // bucket i holds the values in [2^(i-1), 2^i)
+        buckets[NUM_BUCKETS - Long.numberOfLeadingZeros(value)]++;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns an upper estimate of the given percentile,
+     * which is precise only up to the bucket boundaries.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= threshold) {
+                long bucketMax = i == 0 ? 0 : (1L << i) - 1;
+                return Math.min(bucketMax, max);
+            }
+        }
+        return max;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (count == 0) {
+            return "no data";
+        }
+        return format("count = %d, mean = %.1f %s, min = %d, p50 <= %d, p95 <= %d, max = %d",
+                count, sum / (double) count, unit, min,
+                getPercentile(50), getPercentile(95), max);
+    }
+}
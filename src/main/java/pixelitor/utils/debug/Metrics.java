@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.debug;
+
+import pixelitor.ThreadPool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A registry of performance counters and histograms, shown in the
+ * "Performance Metrics" dialog and exportable to a file. If the app
+ * was built with the "jfr" Maven profile and the JVM supports Flight
+ * Recorder, the same measurements are also committed as custom JFR events.
+ */
+public class Metrics {
+    private static final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+
+    // null if the JFR events were not built or the JVM has no JFR
+    private static final EventSink jfrEvents = loadJFREvents();
+    private static volatile long startTime = System.currentTimeMillis();
+
+    private Metrics() {
+    }
+
+    private static EventSink loadJFREvents() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (EventSink) Class.forName("pixelitor.utils.debug.JFREvents")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    public static void count(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    public static void record(String name, String unit, long value) {
+        histograms.computeIfAbsent(name, k -> new Histogram(unit)).record(value);
+    }
+
+    public static void filterRun(String filterName, int width, int height,
+                                 long nanos, long allocatedBytes) {
+        int threads = ThreadPool.getNumThreads();
+        count("Filter Runs", 1);
+        record("Filter Run Time", "ms", nanos / 1_000_000);
+        record("Filter Run Time: " + filterName, "ms", nanos / 1_000_000);
+        if (allocatedBytes >= 0) {
+            record("Filter Allocation", "MB", allocatedBytes >> 20);
+        }
+        if (jfrEvents != null) {
+            jfrEvents.filterRun(filterName, width, height, threads, nanos, allocatedBytes);
+        }
+    }
+
+    public static void compositeRebuilt(int numLayers, int width, int height, long nanos) {
+        count("Composite Rebuilds", 1);
+        record("Composite Rebuild Time", "us", nanos / 1000);
+        if (jfrEvents != null) {
+            jfrEvents.compositeRebuilt(numLayers, width, height, nanos);
+        }
+    }
+
+    public static void repainted(long nanos) {
+        record("Image Repaint Time", "us", nanos / 1000);
+        if (jfrEvents != null) {
+            jfrEvents.repainted(nanos);
+        }
+    }
+
+    public static void editAdded(String editName, long memoryBytes) {
+        count("History Edits", 1);
+        count("History Edit Bytes", memoryBytes);
+        record("History Edit Memory", "KB", memoryBytes >> 10);
+        if (jfrEvents != null) {
+            jfrEvents.editAdded(editName, memoryBytes);
+        }
+    }
+
+    public static void fileRead(File file, long nanos) {
+        fileIO("Read", file, nanos);
+    }
+
+    public static void fileWritten(File file, long nanos) {
+        fileIO("Write", file, nanos);
+    }
+
+    private static void fileIO(String operation, File file, long nanos) {
+        long bytes = file.length();
+        count("File " + operation + " Bytes", bytes);
+        if (nanos > 0) {
+            long kbPerSec = (long) (bytes / 1024.0 / (nanos / 1.0e9));
+            record("File " + operation + " Throughput", "KB/s", kbPerSec);
+        }
+        if (jfrEvents != null) {
+            jfrEvents.fileIO(operation, file.getName(), bytes, nanos);
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by all live
+     * threads, or -1 if the JVM can't measure it. Threads that
+     * finished in the meantime make the differences approximate.
+     */
+    public static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported()
+                || !sunBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : sunBean.getThreadAllocatedBytes(sunBean.getAllThreadIds())) {
+            if (bytes > 0) { // -1 for the threads that died
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    public static void reset() {
+        counters.clear();
+        histograms.clear();
+        startTime = System.currentTimeMillis();
+    }
+
+    public static DebugNode createDebugNode() {
+        DebugNode node = new DebugNode("Performance Metrics", "metrics");
+        node.addString("Since", new Date(startTime).toString());
+        node.addBoolean("JFR Events", jfrEvents != null);
+        counters.forEach((name, value) -> node.addString(name, String.valueOf(value.sum())));
+        histograms.forEach((name, histogram) -> node.addString(name, histogram.toString()));
+        return node;
+    }
+
+    public static void exportTo(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, UTF_8.name())) {
+            out.println(createDebugNode().toDetailedString());
+        }
+    }
+}
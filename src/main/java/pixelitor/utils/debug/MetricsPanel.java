@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils.debug;
+
+import pixelitor.gui.PixelitorWindow;
+import pixelitor.gui.utils.ConfirmSaveFileChooser;
+import pixelitor.gui.utils.DialogBuilder;
+import pixelitor.io.Dirs;
+import pixelitor.utils.Messages;
+
+import javax.swing.*;
+import javax.swing.tree.DefaultTreeModel;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Shows the {@link Metrics} in a tree, similarly to the
+ * "Internal State" tree, and allows exporting them to a file
+ */
+public class MetricsPanel extends JPanel {
+    private final JTree tree;
+
+    private MetricsPanel() {
+        super(new BorderLayout());
+
+        tree = new JTree(Metrics.createDebugNode());
+        add(new JScrollPane(tree), BorderLayout.CENTER);
+
+        JPanel buttonsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refresh());
+        buttonsPanel.add(refreshButton);
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            Metrics.reset();
+            refresh();
+        });
+        buttonsPanel.add(resetButton);
+        add(buttonsPanel, BorderLayout.NORTH);
+    }
+
+    private void refresh() {
+        tree.setModel(new DefaultTreeModel(Metrics.createDebugNode()));
+    }
+
+    public static void showDialog() {
+        new DialogBuilder()
+                .title("Performance Metrics")
+                .content(new MetricsPanel())
+                .okText("Export to File...")
+                .cancelText("Close")
+                .validator(d -> {
+                    exportToFile();
+                    return false; // prevents the dialog from closing
+                })
+                .owner(PixelitorWindow.getInstance())
+                .show();
+    }
+
+    private static void exportToFile() {
+        JFileChooser chooser = new ConfirmSaveFileChooser(Dirs.getLastSave());
+        chooser.setSelectedFile(new File(Dirs.getLastSave(), "pixelitor_metrics.txt"));
+        if (chooser.showSaveDialog(PixelitorWindow.getInstance()) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        try {
+            Metrics.exportTo(file);
+            Messages.showFileSavedMessage(file);
+        } catch (IOException e) {
+            Messages.showException(e);
+        }
+    }
+}
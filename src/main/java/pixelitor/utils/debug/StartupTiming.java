@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.utils.debug;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Measures the startup phases of the app. The durations are added
+ * to the {@link Metrics}, and if the app is started with
+ * -Dpixelitor.startupReport=true, they are also printed.
+ */
+public final class StartupTiming {
+    private static final boolean PRINT_REPORT = "true".equals(
+            System.getProperty("pixelitor.startupReport"));
+
+    // the class is initialized at the beginning of main
+    private static final long mainStartTime = System.nanoTime();
+    private static long lastPhaseEndTime = mainStartTime;
+
+    // phase name => duration in milliseconds
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+
+    private StartupTiming() {
+    }
+
+    /**
+     * Called at the beginning of main to initialize the class
+     */
+    public static void mainStarted() {
+        // nothing to do, the static initializer did the work
+    }
+
+    /**
+     * Records the time elapsed since the end of the previous phase
+     */
+    public static synchronized void phaseFinished(String phaseName) {
+        long now = System.nanoTime();
+        phases.put(phaseName, (now - lastPhaseEndTime) / 1_000_000);
+        lastPhaseEndTime = now;
+    }
+
+    /**
+     * Records the total startup time and prints the report if requested
+     */
+    public static synchronized void startupFinished() {
+        long sinceMainStart = (System.nanoTime() - mainStartTime) / 1_000_000;
+        // the management classes are loaded only at the end,
+        // because their loading is not free either
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        long beforeMain = Math.max(0, uptime - sinceMainStart);
+
+        Metrics.record("Startup: Before main", "ms", beforeMain);
+        phases.forEach((name, millis) -> Metrics.record("Startup: " + name, "ms", millis));
+        Metrics.record("Startup: Total", "ms", beforeMain + sinceMainStart);
+
+        if (PRINT_REPORT) {
+            System.out.println(createReport(beforeMain));
+        }
+    }
+
+    private static String createReport(long beforeMain) {
+        StringBuilder sb = new StringBuilder("Startup times in ms (phase, since JVM start):\n");
+        String lineFormat = "  %-24s %6d %7d%n";
+        long total = beforeMain;
+        sb.append(format(lineFormat, "Before main", beforeMain, total));
+        for (Map.Entry<String, Long> entry : phases.entrySet()) {
+            total += entry.getValue();
+            sb.append(format(lineFormat, entry.getKey(), entry.getValue(), total));
+        }
+        return sb.toString();
+    }
+}
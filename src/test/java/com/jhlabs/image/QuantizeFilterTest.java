@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.jhlabs.image;
+
+import org.junit.Test;
+import pixelitor.ThreadPool;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the parallel quantization and dithering give
+ * the same result as when everything runs on a single thread.
+ */
+public class QuantizeFilterTest {
+    // big enough to be processed on multiple threads
+    private static final int WIDTH = 401;
+    private static final int HEIGHT = 297;
+
+    @Test
+    public void testParallelSameAsSingleThreaded() throws InterruptedException, ExecutionException {
+        BufferedImage src = createTestImage();
+        for (int numColors : new int[]{8, 100, 256}) {
+            for (boolean dither : new boolean[]{false, true}) {
+                String desc = numColors + " colors, dither = " + dither;
+                QuantizeFilter filter = createFilter(numColors, dither);
+
+                BufferedImage parallel = filter.createIndexedImage(src);
+                // ThreadPool.parallelFor doesn't start new threads
+                // if it's called from a pool thread
+                BufferedImage singleThreaded = ThreadPool.submit2(
+                        () -> filter.createIndexedImage(src)).get();
+
+                IndexColorModel cm = (IndexColorModel) parallel.getColorModel();
+                assertThat(cm.getMapSize()).as(desc).isLessThanOrEqualTo(numColors);
+                assertThat(getPalette(parallel)).as(desc)
+                        .isEqualTo(getPalette(singleThreaded));
+                assertThat(getIndices(parallel)).as(desc)
+                        .isEqualTo(getIndices(singleThreaded));
+            }
+        }
+    }
+
+    private static QuantizeFilter createFilter(int numColors, boolean dither) {
+        QuantizeFilter filter = new QuantizeFilter("Quantize");
+        filter.setNumColors(numColors);
+        filter.setDither(dither);
+        // serpentine dithering is always sequential
+        filter.setSerpentine(false);
+        return filter;
+    }
+
+    /**
+     * A gradient with noise, so that there are many colors and
+     * the dithering errors are carried over long distances
+     */
+    private static BufferedImage createTestImage() {
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        Random random = new Random(42);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int r = x * 255 / WIDTH;
+                int g = y * 255 / HEIGHT;
+                int b = random.nextInt(256);
+                img.setRGB(x, y, 0xFF_00_00_00 | (r << 16) | (g << 8) | b);
+            }
+        }
+        return img;
+    }
+
+    private static int[] getPalette(BufferedImage img) {
+        IndexColorModel cm = (IndexColorModel) img.getColorModel();
+        int[] palette = new int[cm.getMapSize()];
+        cm.getRGBs(palette);
+        return palette;
+    }
+
+    private static byte[] getIndices(BufferedImage img) {
+        return ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pd;
+
+import org.junit.Test;
+import pixelitor.ThreadPool;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link CannyEdgeDetector}
+ */
+public class CannyEdgeDetectorTest {
+    private static final int WHITE = 0xFF_FF_FF_FF;
+
+    @Test
+    public void testParallelSameAsSingleThreaded() throws InterruptedException, ExecutionException {
+        // several stripes, so that it is processed on multiple threads
+        BufferedImage src = createShapesImage(337, 301);
+        for (boolean normalized : new boolean[]{false, true}) {
+            int[] parallel = detectEdges(src, normalized);
+            // ThreadPool.parallelFor doesn't start new threads
+            // if it's called from a pool thread
+            int[] singleThreaded = ThreadPool.submit2(
+                    () -> detectEdges(src, normalized)).get();
+
+            assertThat(countEdgePixels(parallel)).isGreaterThan(0);
+            assertThat(parallel).as("normalized = " + normalized)
+                    .isEqualTo(singleThreaded);
+        }
+    }
+
+    @Test
+    public void testVeryLongEdge() {
+        // the contour of a serpentine is a single connected edge
+        // with hundreds of thousands of pixels, which would
+        // overflow the stack if it was followed recursively
+        int size = 1000;
+        int spacing = 8;
+        BufferedImage src = new BufferedImage(size, size, TYPE_INT_ARGB);
+        Graphics2D g = src.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, size, size);
+        g.setColor(Color.WHITE);
+        for (int y = spacing; y < size - spacing; y += spacing) {
+            g.fillRect(spacing, y, size - 2 * spacing, spacing / 2);
+            // connect to the next row, alternately at the right and left ends
+            int x = (y / spacing) % 2 == 1 ? size - spacing - spacing / 2 : spacing;
+            g.fillRect(x, y, spacing / 2, spacing);
+        }
+        g.dispose();
+
+        int[] edges = detectEdges(src, false);
+        assertThat(countEdgePixels(edges)).isGreaterThan(200_000);
+    }
+
+    private static int[] detectEdges(BufferedImage src, boolean normalized) {
+        CannyEdgeDetector detector = new CannyEdgeDetector();
+        detector.setContrastNormalized(normalized);
+        detector.setSourceImage(src);
+        detector.process();
+        return ImageUtils.getPixelsAsArray(detector.getEdgesImage());
+    }
+
+    private static int countEdgePixels(int[] pixels) {
+        int count = 0;
+        for (int pixel : pixels) {
+            if (pixel == WHITE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static BufferedImage createShapesImage(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, TYPE_INT_ARGB);
+        Random random = new Random(3);
+        Graphics2D g = img.createGraphics();
+        g.setColor(Color.GRAY);
+        g.fillRect(0, 0, width, height);
+        for (int i = 0; i < 40; i++) {
+            g.setColor(new Color(random.nextInt(0x1_00_00_00)));
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            int w = 10 + random.nextInt(80);
+            int h = 10 + random.nextInt(80);
+            if (random.nextBoolean()) {
+                g.fillOval(x, y, w, h);
+            } else {
+                g.fillRect(x, y, w, h);
+            }
+        }
+        g.dispose();
+        return img;
+    }
+}
@@ -17,9 +17,15 @@
 
 package pixelitor;
 
+import com.jhlabs.image.QuantizeFilterTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
+import pd.CannyEdgeDetectorTest;
+import pixelitor.automate.macro.MacroTest;
+import pixelitor.filters.AddNoiseTest;
+import pixelitor.filters.RGBPixelOpTest;
 import pixelitor.filters.RandomFilterSourceTest;
+import pixelitor.filters.StripedFilterTest;
 import pixelitor.filters.comp.MultiLayerEditTest;
 import pixelitor.filters.gui.BooleanParamTest;
 import pixelitor.filters.gui.FilterParamTest;
@@ -29,6 +35,7 @@ import pixelitor.filters.gui.ParamStateTest;
 import pixelitor.filters.gui.RangeParamTest;
 import pixelitor.filters.levels.LevelsTest;
 import pixelitor.history.PixelitorUndoManagerTest;
+import pixelitor.io.PNGEncoderTest;
 import pixelitor.layers.ContentLayerTest;
 import pixelitor.layers.ImageLayerTest;
 import pixelitor.layers.LayerBlendingModesTest;
@@ -37,7 +44,10 @@ import pixelitor.layers.TextLayerTest;
 import pixelitor.tools.AbstractBrushToolTest;
 import pixelitor.tools.ToolTest;
 import pixelitor.tools.guidelines.RectGuidelineTest;
+import pixelitor.tools.util.ArcLengthSamplerTest;
 import pixelitor.transform.TransformHelperTest;
+import pixelitor.utils.DistanceTransformTest;
+import pixelitor.utils.ResamplerTest;
 import pixelitor.utils.TrackedIOTest;
 import pixelitor.utils.UtilsTest;
 
@@ -60,9 +70,13 @@ import pixelitor.utils.UtilsTest;
 //        AllTestsSuite.class,
 
         AbstractBrushToolTest.class,
+        ArcLengthSamplerTest.class,
+        AddNoiseTest.class,
         BooleanParamTest.class,
+        CannyEdgeDetectorTest.class,
         CompositionTest.class,
         ContentLayerTest.class,
+        DistanceTransformTest.class,
         FilterParamTest.class,
         ImageLayerTest.class,
         TrackedIOTest.class,
@@ -70,13 +84,19 @@ import pixelitor.utils.UtilsTest;
         LayerBlendingModesTest.class,
         LayerTest.class,
         LevelsTest.class,
+        MacroTest.class,
         MultiLayerEditTest.class,
         ParamSetTest.class,
         ParamStateTest.class,
+        PNGEncoderTest.class,
         PixelitorUndoManagerTest.class,
+        QuantizeFilterTest.class,
         RandomFilterSourceTest.class,
+        RGBPixelOpTest.class,
         RangeParamTest.class,
         RectGuidelineTest.class,
+        ResamplerTest.class,
+        StripedFilterTest.class,
         TextLayerTest.class,
         ToolTest.class,
         TransformHelperTest.class,
@@ -22,7 +22,9 @@ import org.junit.Test;
 import pixelitor.colors.FillType;
 import pixelitor.io.OpenRaster;
 import pixelitor.io.OpenSave;
+import pixelitor.io.OutputFormat;
 import pixelitor.io.PXCFormat;
+import pixelitor.io.SaveSettings;
 import pixelitor.layers.AdjustmentLayer;
 import pixelitor.layers.BlendingMode;
 import pixelitor.layers.ImageLayer;
@@ -189,7 +191,7 @@ public class CompositionCreationTest {
         Composition comp = testMultiLayerRead(f, extraCheck);
 
         File tmp = File.createTempFile("pix_tmp", ".ora");
-        OpenRaster.write(comp, tmp, true);
+        OpenRaster.write(comp, new SaveSettings(OutputFormat.ORA, tmp), true);
 
         // read back and test
         testMultiLayerRead(tmp, extraCheck);
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.automate.macro;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pixelitor.Build;
+import pixelitor.Composition;
+import pixelitor.TestHelper;
+import pixelitor.filters.HueSat;
+import pixelitor.filters.comp.Flip;
+import pixelitor.filters.gui.RangeParam;
+import pixelitor.layers.ImageLayer;
+import pixelitor.tools.gui.ToolSettingsPanel;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pixelitor.filters.comp.Flip.Direction.HORIZONTAL;
+import static pixelitor.tools.Tools.BRUSH;
+
+/**
+ * Checks that a saved and loaded macro replays the same result
+ */
+public class MacroTest {
+    @BeforeClass
+    public static void setupClass() {
+        Build.setTestingMode();
+        TestHelper.setupMockFgBgSelector();
+        BRUSH.setSettingsPanel(new ToolSettingsPanel());
+        BRUSH.initSettingsPanel();
+    }
+
+    @Test
+    public void testLoadedMacroGivesSameResult() throws IOException {
+        Macro macro = createMacro();
+
+        File file = File.createTempFile("pix_tmp", "." + Macro.FILE_EXT);
+        macro.save(file);
+        Macro loaded = Macro.load(file);
+        file.delete();
+
+        assertThat(loaded.getName()).isEqualTo(macro.getName());
+        assertThat(loaded.getNumSteps()).isEqualTo(macro.getNumSteps());
+
+        Composition comp = createTestComposition();
+        Composition loadedComp = createTestComposition();
+        int[] before = getPixels(comp, 1).clone();
+
+        macro.process(comp);
+        loaded.process(loadedComp);
+
+        assertThat(getPixels(comp, 1)).isNotEqualTo(before);
+        for (int i = 0; i < comp.getNumLayers(); i++) {
+            assertThat(getPixels(loadedComp, i))
+                    .as("layer " + i)
+                    .isEqualTo(getPixels(comp, i));
+        }
+    }
+
+    /**
+     * A macro with a tool stroke, a filter with
+     * non-default settings and a composition action
+     */
+    private static Macro createMacro() {
+        List<MacroStep> steps = new ArrayList<>();
+
+        Path2D stroke = new Path2D.Double();
+        stroke.moveTo(2, 3);
+        stroke.lineTo(15, 7);
+        stroke.lineTo(5, 8);
+        steps.add(new ToolStrokeMacroStep(BRUSH.getName(), stroke));
+
+        HueSat hueSat = new HueSat();
+        RangeParam hue = (RangeParam) hueSat.getParamSet().getParams().get(0);
+        hue.setValue(90, false);
+        steps.add(FilterMacroStep.from(hueSat).get());
+
+        steps.add(new CompActionMacroStep(new Flip(HORIZONTAL), "Flip"));
+
+        return new Macro("Test Macro", steps);
+    }
+
+    private static Composition createTestComposition() {
+        Composition comp = TestHelper.create2LayerComposition(false);
+        // something colorful that the filter can change
+        BufferedImage image = ((ImageLayer) comp.getLayer(1)).getImage();
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.RED,
+                image.getWidth(), image.getHeight(), Color.BLUE));
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.dispose();
+        return comp;
+    }
+
+    private static int[] getPixels(Composition comp, int layerIndex) {
+        ImageLayer layer = (ImageLayer) comp.getLayer(layerIndex);
+        return ImageUtils.getPixelsAsArray(layer.getImage());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.filters;
+
+import org.junit.Test;
+import pixelitor.ThreadPool;
+import pixelitor.filters.gui.FilterParam;
+import pixelitor.filters.gui.IntChoiceParam;
+import pixelitor.filters.gui.RangeParam;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the noise doesn't depend on the number of threads,
+ * and that it is the same for every run with the same seed.
+ */
+public class AddNoiseTest {
+    // big enough to be processed on multiple threads
+    private static final int WIDTH = 301;
+    private static final int HEIGHT = 199;
+
+    @Test
+    public void testDefaultSettings() throws InterruptedException, ExecutionException {
+        checkRepeatable(new AddNoise());
+    }
+
+    @Test
+    public void testDesaturatedCoverageAnim() throws InterruptedException, ExecutionException {
+        AddNoise filter = new AddNoise();
+        List<FilterParam> params = filter.getParamSet().getParams();
+        ((RangeParam) params.get(0)).setValue(80, false); // coverage
+        ((RangeParam) params.get(1)).setValue(30, false); // saturation
+        ((RangeParam) params.get(2)).setValue(60, false); // opacity
+        IntChoiceParam method = (IntChoiceParam) params.get(3);
+        method.setSelectedItem(method.getElementAt(1), false);
+
+        checkRepeatable(filter);
+    }
+
+    private static void checkRepeatable(AddNoise filter) throws InterruptedException, ExecutionException {
+        BufferedImage src = createTestImage();
+
+        int[] parallel = runFilter(filter, src);
+        // ThreadPool.parallelFor doesn't start new threads
+        // if it's called from a pool thread
+        int[] singleThreaded = ThreadPool.submit2(() -> runFilter(filter, src)).get();
+        int[] again = runFilter(filter, src);
+
+        assertThat(parallel).isNotEqualTo(ImageUtils.getPixelsAsArray(src));
+        assertThat(parallel).isEqualTo(singleThreaded);
+        assertThat(parallel).isEqualTo(again);
+    }
+
+    private static int[] runFilter(AddNoise filter, BufferedImage src) {
+        BufferedImage dest = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        filter.doTransform(src, dest);
+        return ImageUtils.getPixelsAsArray(dest);
+    }
+
+    private static BufferedImage createTestImage() {
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                // the first column is transparent
+                int a = x * 255 / (WIDTH - 1);
+                int r = x * 255 / WIDTH;
+                int g = y * 255 / HEIGHT;
+                img.setRGB(x, y, (a << 24) | (r << 16) | (g << 8) | 128);
+            }
+        }
+        return img;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.filters;
+
+import org.junit.Test;
+import pixelitor.filters.levels.RGBLookup;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RGBPixelOpTest {
+    private static final RGBPixelOp INVERT =
+            (a, r, g, b) -> (a << 24) | ((255 - r) << 16) | ((255 - g) << 8) | (255 - b);
+
+    @Test
+    public void testLookupsAreMerged() {
+        RGBLookup first = createLookup(i -> 255 - i);
+        RGBLookup second = createLookup(i -> i / 2);
+
+        RGBPixelOp merged = first.andThen(second);
+        assertTrue(merged instanceof RGBLookup);
+        checkSameAsSequential(first, second, merged);
+    }
+
+    @Test
+    public void testChannelSelectionsAreMerged() {
+        ChannelMatrixOp first = new ChannelMatrixOp(
+                0.5f, 0.2f, 0.1f, 10,
+                0.1f, 0.6f, 0.1f, 0,
+                0.0f, 0.2f, 0.7f, 5);
+        ChannelMatrixOp swap = new ChannelMatrixOp(
+                1, 0, 0, 0,
+                0, 0, 1, 0,
+                0, 1, 0, 0);
+        ChannelMatrixOp dropBlue = new ChannelMatrixOp(
+                1, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, 0, 0);
+
+        RGBPixelOp merged = first.andThen(swap);
+        assertTrue(merged instanceof ChannelMatrixOp);
+        checkSameAsSequential(first, swap, merged);
+
+        merged = dropBlue.andThen(first);
+        assertTrue(merged instanceof ChannelMatrixOp);
+        checkSameAsSequential(dropBlue, first, merged);
+    }
+
+    @Test
+    public void testSaturatingMatricesAreNotMerged() {
+        // the first one pushes most values over 255, and
+        // the second one depends on their clamping
+        ChannelMatrixOp brighten = new ChannelMatrixOp(
+                1, 0, 0, 100,
+                0, 1, 0, 100,
+                0, 0, 1, 100);
+        ChannelMatrixOp contrast = new ChannelMatrixOp(
+                1.5f, 0, 0, -64,
+                0, 1.5f, 0, -64,
+                0, 0, 1.5f, -64);
+
+        RGBPixelOp fused = brighten.andThen(contrast);
+        assertFalse(fused instanceof ChannelMatrixOp);
+        checkSameAsSequential(brighten, contrast, fused);
+    }
+
+    @Test
+    public void testFusedRunIsSameAsSequential() {
+        RGBPixelOp brighten = new ChannelMatrixOp(
+                1, 0, 0, 100,
+                0, 1, 0, 100,
+                0, 0, 1, 100);
+        RGBPixelOp contrast = new ChannelMatrixOp(
+                1.5f, 0, 0, -64,
+                0, 1.5f, 0, -64,
+                0, 0, 1.5f, -64);
+        RGBPixelOp halve = createLookup(i -> i / 2);
+        List<RGBPixelOp> ops = Arrays.asList(brighten, INVERT, contrast, halve);
+
+        for (int type : new int[]{TYPE_INT_ARGB, TYPE_INT_ARGB_PRE}) {
+            for (int size : new int[]{10, 300}) { // single and multiple threads
+                BufferedImage expected = createRandomImage(size, type);
+                for (RGBPixelOp op : ops) {
+                    FilterUtils.runRGBPixelOp(op, expected, expected);
+                }
+                BufferedImage actual = createRandomImage(size, type);
+                FilterUtils.runFusedRGBPixelOps(ops, actual);
+
+                assertArrayEquals(ImageUtils.getPixelsAsArray(expected),
+                        ImageUtils.getPixelsAsArray(actual));
+            }
+        }
+    }
+
+    @Test
+    public void testChainMergesTheLastOperation() {
+        RGBLookup lookup1 = createLookup(i -> i / 2);
+        RGBLookup lookup2 = createLookup(i -> 255 - i);
+
+        RGBPixelOp chain = INVERT.andThen(lookup1);
+        RGBPixelOp merged = chain.andThen(lookup2);
+
+        checkSameAsSequential(chain, lookup2, merged);
+    }
+
+    @Test
+    public void testRunInPlace() {
+        RGBPixelOp op = INVERT.andThen(createLookup(i -> i / 2));
+        for (int type : new int[]{TYPE_INT_ARGB, TYPE_INT_ARGB_PRE}) {
+            for (int size : new int[]{10, 300}) { // single and multiple threads
+                BufferedImage src = createRandomImage(size, type);
+                BufferedImage dest = new BufferedImage(size, size, type);
+                FilterUtils.runRGBPixelOp(op, src, dest);
+
+                FilterUtils.runRGBPixelOp(op, src, src);
+
+                for (int y = 0; y < size; y++) {
+                    for (int x = 0; x < size; x++) {
+                        assertEquals(dest.getRGB(x, y), src.getRGB(x, y));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void checkSameAsSequential(RGBPixelOp first, RGBPixelOp second, RGBPixelOp merged) {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            int rgb = random.nextInt();
+            assertEquals(apply(second, apply(first, rgb)), apply(merged, rgb));
+        }
+    }
+
+    private static int apply(RGBPixelOp op, int rgb) {
+        return op.changeRGB((rgb >>> 24) & 0xFF, (rgb >>> 16) & 0xFF, (rgb >>> 8) & 0xFF, rgb & 0xFF);
+    }
+
+    private static RGBLookup createLookup(IntUnaryOperator f) {
+        short[] map = new short[256];
+        for (int i = 0; i < 256; i++) {
+            map[i] = (short) f.applyAsInt(i);
+        }
+        return new RGBLookup(map, map.clone(), map.clone());
+    }
+
+    private static BufferedImage createRandomImage(int size, int type) {
+        BufferedImage img = new BufferedImage(size, size, type);
+        Random random = new Random(size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                img.setRGB(x, y, random.nextInt());
+            }
+        }
+        return img;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.filters;
+
+import org.junit.Test;
+import pixelitor.filters.convolve.Convolve;
+import pixelitor.filters.jhlabsproxies.JHGaussianBlur;
+import pixelitor.filters.jhlabsproxies.JHUnsharpMask;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the filters which can run in stripes give
+ * the same result as when they process the whole image.
+ */
+public class StripedFilterTest {
+    @Test
+    public void testStripedSameAsUnstriped() {
+        Convolve convolve = (Convolve) Convolve.createFilterAction(5).createNewFilter();
+        convolve.setKernelMatrix(Convolve.getRandomKernelMatrix(5));
+
+        Filter[] filters = {new Invert(), new JHGaussianBlur(), new JHUnsharpMask(), convolve};
+        BufferedImage src = createRandomImage(97, 211);
+        for (Filter filter : filters) {
+            int halo = filter.getTileHalo();
+            assertThat(halo).isNotEqualTo(Filter.NOT_TILEABLE);
+
+            BufferedImage expected = filter.transform(src,
+                    ImageUtils.createImageWithSameCM(src));
+            for (int numStripes : new int[]{2, 7}) {
+                BufferedImage striped = filter.transformInStripes(src, numStripes, halo);
+                assertThat(ImageUtils.getPixelsAsArray(striped))
+                        .as(filter.getName() + " in " + numStripes + " stripes")
+                        .isEqualTo(ImageUtils.getPixelsAsArray(expected));
+            }
+        }
+    }
+
+    private static BufferedImage createRandomImage(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, TYPE_INT_ARGB);
+        int[] pixels = ImageUtils.getPixelsAsArray(img);
+        Random random = new Random(42);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return img;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.io;
+
+import org.junit.Test;
+import pixelitor.io.PNGEncoder.RowFilter;
+import pixelitor.utils.ProgressTracker;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PNGEncoder}
+ */
+public class PNGEncoderTest {
+    @Test
+    public void testRoundTrip() throws IOException {
+        // high enough for several stripes
+        int width = 120;
+        int height = 1500;
+        for (int type : new int[]{TYPE_INT_ARGB, TYPE_INT_RGB, TYPE_BYTE_GRAY, TYPE_INT_ARGB_PRE}) {
+            BufferedImage img = createTestImage(width, height, type);
+            for (RowFilter filter : RowFilter.values()) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                PNGEncoder.write(img, bos, 6, filter, ProgressTracker.NULL_TRACKER);
+                BufferedImage read = ImageIO.read(new ByteArrayInputStream(bos.toByteArray()));
+
+                String description = "type = " + type + ", filter = " + filter;
+                assertThat(read).as(description).isNotNull();
+                assertThat(read.getWidth()).isEqualTo(width);
+                assertThat(read.getHeight()).isEqualTo(height);
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        if (type == TYPE_BYTE_GRAY) {
+                            assertThat(read.getRaster().getSample(x, y, 0)).as(description)
+                                    .isEqualTo(img.getRaster().getSample(x, y, 0));
+                        } else {
+                            assertThat(read.getRGB(x, y)).as(description)
+                                    .isEqualTo(img.getRGB(x, y));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCombineAdlers() {
+        Random random = new Random(42);
+        byte[] data = new byte[200_000];
+        random.nextBytes(data);
+
+        // the lengths include zero and lengths bigger than the modulus
+        for (int split : new int[]{0, 1, 1000, 65521, 100_000, data.length}) {
+            Adler32 first = new Adler32();
+            first.update(data, 0, split);
+            Adler32 second = new Adler32();
+            second.update(data, split, data.length - split);
+            Adler32 whole = new Adler32();
+            whole.update(data);
+
+            long combined = PNGEncoder.combineAdlers(
+                    first.getValue(), second.getValue(), data.length - split);
+            assertThat(combined).isEqualTo(whole.getValue());
+        }
+    }
+
+    private static BufferedImage createTestImage(int width, int height, int type) {
+        // gradients with noise, so that each filter has something to predict
+        BufferedImage img = new BufferedImage(width, height, type);
+        Random random = new Random(type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int a = (x * 2 + random.nextInt(8)) & 0xFF;
+                int r = (x + y) & 0xFF;
+                int g = (y / 3 + random.nextInt(4)) & 0xFF;
+                int b = random.nextInt(256);
+                img.setRGB(x, y, (a << 24) | (r << 16) | (g << 8) | b);
+            }
+        }
+        return img;
+    }
+}
@@ -32,6 +32,7 @@ import pixelitor.gui.ImageComponent;
 import pixelitor.layers.Drawable;
 import pixelitor.tools.brushes.Brush;
 import pixelitor.tools.gui.ToolSettingsPanel;
+import pixelitor.tools.util.ArcLengthSampler;
 import pixelitor.tools.util.PPoint;
 
 import java.awt.Rectangle;
@@ -107,11 +108,17 @@ public class AbstractBrushToolTest {
 
     @Test
     public void test_trace() {
-        tool.trace(dr, new Rectangle(2, 2, 2, 2));
+        Rectangle shape = new Rectangle(2, 2, 2, 2);
+        tool.trace(dr, shape);
+
+        // the brush gets the points placed at its spacing
+        double spacing = origBrush.getPreferredSpacing();
+        int numPoints = ArcLengthSampler.sample(shape, spacing).get(0).length / 2;
 
         verify(brushSpy).setTarget(any(), any());
         verify(brushSpy).startAt(any());
-        verify(brushSpy, times(5)).continueTo(any());
+        verify(brushSpy, times(numPoints - 1)).continueTo(any());
+        verify(brushSpy).finish();
     }
 
     @Test
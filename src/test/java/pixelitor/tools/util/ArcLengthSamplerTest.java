@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools.util;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for {@link ArcLengthSampler}
+ */
+public class ArcLengthSamplerTest {
+    @Test
+    public void testOpenLine() {
+        Path2D path = new Path2D.Double();
+        path.moveTo(0, 0);
+        path.lineTo(10, 0);
+        path.lineTo(10, 5);
+
+        List<double[]> subpaths = ArcLengthSampler.sample(path, 4.0);
+        assertThat(subpaths).hasSize(1);
+        // the corner is passed, and the end is always included
+        assertThat(subpaths.get(0)).containsExactly(
+                new double[]{0, 0, 4, 0, 8, 0, 10, 2, 10, 5}, within(1.0e-9));
+    }
+
+    @Test
+    public void testClosedShapeWithoutSpacing() {
+        List<double[]> subpaths = ArcLengthSampler.sample(
+                new Rectangle(2, 2, 2, 2), 0);
+        assertThat(subpaths).hasSize(1);
+        // the vertices, including the closing point
+        assertThat(subpaths.get(0)).containsExactly(
+                2, 2, 4, 2, 4, 4, 2, 4, 2, 2, 2, 2);
+    }
+
+    @Test
+    public void testCurveIsSampledUniformly() {
+        double r = 50;
+        double spacing = 3.0;
+        List<double[]> subpaths = ArcLengthSampler.sample(
+                new Ellipse2D.Double(0, 0, 2 * r, 2 * r), spacing);
+        double[] points = subpaths.get(0);
+
+        // the points are on the circle, at the same distance
+        // from each other, except for the last one
+        int numPoints = points.length / 2;
+        assertThat(numPoints).isEqualTo((int) (2 * Math.PI * r / spacing) + 2);
+        for (int i = 0; i < numPoints - 1; i++) {
+            double x = points[2 * i];
+            double y = points[2 * i + 1];
+            assertThat(Math.hypot(x - r, y - r)).isCloseTo(r, within(0.3));
+            if (i > 0) {
+                double dist = Math.hypot(x - points[2 * i - 2], y - points[2 * i - 1]);
+                assertThat(dist).isCloseTo(spacing, within(0.05));
+            }
+        }
+    }
+
+    @Test
+    public void testMultipleSubpaths() {
+        Path2D path = new Path2D.Double();
+        path.moveTo(0, 0);
+        path.lineTo(1, 0);
+        path.moveTo(5, 5);
+
+        List<double[]> subpaths = ArcLengthSampler.sample(path, 10.0);
+        assertThat(subpaths).hasSize(2);
+        assertThat(subpaths.get(0)).containsExactly(0, 0, 1, 0);
+        assertThat(subpaths.get(1)).containsExactly(5, 5);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.utils;
+
+import org.junit.Test;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares {@link DistanceTransform} with a brute-force calculation
+ */
+public class DistanceTransformTest {
+    @Test
+    public void testSmallImages() {
+        Random random = new Random(7);
+        int[][] sizes = {{1, 1}, {1, 17}, {23, 1}, {5, 8}, {40, 31}};
+        for (int[] size : sizes) {
+            for (double density : new double[]{0.0, 0.02, 0.5, 1.0}) {
+                byte[] coverage = createCoverage(size[0], size[1], density, random);
+                check(coverage, size[0], size[1], true);
+                check(coverage, size[0], size[1], false);
+            }
+        }
+    }
+
+    @Test
+    public void testImageProcessedInParallel() {
+        // big enough to be processed on multiple threads
+        int width = 301;
+        int height = 253;
+        byte[] coverage = createCoverage(width, height, 0.003, new Random(11));
+        check(coverage, width, height, true);
+    }
+
+    private static void check(byte[] coverage, int width, int height, boolean toInside) {
+        float[] distances = DistanceTransform.squaredDistances(coverage, width, height, toInside);
+        float[] expected = bruteForce(coverage, width, height, toInside);
+        assertThat(distances)
+                .as("%dx%d, toInside = %b", width, height, toInside)
+                .isEqualTo(expected);
+    }
+
+    private static float[] bruteForce(byte[] coverage, int width, int height, boolean toInside) {
+        List<Point> features = new ArrayList<>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean inside = (coverage[y * width + x] & 0xFF) >= 128;
+                if (inside == toInside) {
+                    features.add(new Point(x, y));
+                }
+            }
+        }
+
+        float[] distances = new float[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                long min = Long.MAX_VALUE;
+                for (Point feature : features) {
+                    long dx = feature.x - x;
+                    long dy = feature.y - y;
+                    min = Math.min(min, dx * dx + dy * dy);
+                }
+                distances[y * width + x] = min == Long.MAX_VALUE ? Float.MAX_VALUE : min;
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Random coverage values, where the given fraction
+     * of the pixels is at least 128
+     */
+    private static byte[] createCoverage(int width, int height, double density, Random random) {
+        byte[] coverage = new byte[width * height];
+        for (int i = 0; i < coverage.length; i++) {
+            if (random.nextDouble() < density) {
+                coverage[i] = (byte) (128 + random.nextInt(128));
+            } else {
+                coverage[i] = (byte) random.nextInt(128);
+            }
+        }
+        return coverage;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import org.junit.Test;
+import pixelitor.utils.Resampler.Filter;
+
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link Resampler}
+ */
+public class ResamplerTest {
+    @Test
+    public void testFlatColorIsKept() {
+        BufferedImage src = new BufferedImage(60, 40, TYPE_INT_ARGB);
+        int color = 0x80_33_66_99;
+        int[] pixels = ImageUtils.getPixelsAsArray(src);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = color;
+        }
+
+        for (Filter filter : Filter.values()) {
+            for (int[] size : new int[][]{{17, 13}, {60, 25}, {131, 97}}) {
+                BufferedImage dest = Resampler.resize(src, size[0], size[1], filter);
+                assertThat(dest.getType()).isEqualTo(TYPE_INT_ARGB);
+                assertThat(dest.getWidth()).isEqualTo(size[0]);
+                assertThat(dest.getHeight()).isEqualTo(size[1]);
+                for (int pixel : ImageUtils.getPixelsAsArray(dest)) {
+                    assertThat(pixel).isEqualTo(color);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGrayImage() {
+        BufferedImage src = new BufferedImage(20, 20, TYPE_BYTE_GRAY);
+        src.getRaster().setSample(10, 10, 0, 255);
+
+        BufferedImage dest = Resampler.resize(src, 10, 10, Filter.BOX);
+        assertThat(dest.getType()).isEqualTo(TYPE_BYTE_GRAY);
+        // the white pixel is averaged with its three black neighbors
+        assertThat(dest.getRaster().getSample(5, 5, 0)).isEqualTo(64);
+        assertThat(dest.getRaster().getSample(0, 0, 0)).isEqualTo(0);
+    }
+
+    @Test
+    public void testSubimage() {
+        // the subimage shares the pixel array of the whole image
+        BufferedImage parent = new BufferedImage(60, 40, TYPE_INT_ARGB);
+        int[] pixels = ImageUtils.getPixelsAsArray(parent);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF_00_00_00 | (i * 7919);
+        }
+        BufferedImage sub = parent.getSubimage(10, 5, 30, 20);
+        BufferedImage subCopy = ImageUtils.copyImage(sub);
+
+        for (Filter filter : Filter.values()) {
+            BufferedImage dest = Resampler.resize(sub, 13, 11, filter);
+            BufferedImage expected = Resampler.resize(subCopy, 13, 11, filter);
+            assertThat(ImageUtils.getPixelsAsArray(dest))
+                    .isEqualTo(ImageUtils.getPixelsAsArray(expected));
+        }
+    }
+
+    @Test
+    public void testGraySubimage() {
+        BufferedImage parent = new BufferedImage(40, 40, TYPE_BYTE_GRAY);
+        parent.getRaster().setSample(30, 30, 0, 255);
+        BufferedImage sub = parent.getSubimage(20, 20, 20, 20);
+
+        BufferedImage dest = Resampler.resize(sub, 10, 10, Filter.BOX);
+        assertThat(dest.getRaster().getSample(5, 5, 0)).isEqualTo(64);
+        assertThat(dest.getRaster().getSample(0, 0, 0)).isEqualTo(0);
+    }
+}